@@ -5,6 +5,10 @@
 #
 # The number and kind of simulations to run are defined in a simple text file.
 # The script takes a filename as argument
+#
+# adasim.generator.BatchRunner reads the same file and runs all simulations
+# concurrently inside one JVM, which is much faster:
+# $ java adasim.generator.BatchRunner -f simulation.cfg -o results
 
 import argparse
 import sys
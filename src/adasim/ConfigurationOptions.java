@@ -46,6 +46,25 @@ import joptsimple.OptionSet;
 final class ConfigurationOptions {
 	
 	private String inputFile;
+	private boolean eventDriven = false;
+	private int threads = 1;
+	private String eventFile;
+	private boolean quiet = false;
+	private String visualizationFile;
+	private boolean visualizeLoads = false;
+	private String checkpointFile;
+	private long checkpointInterval = 1000;
+	private String restoreFile;
+	private int traceRate = 0;
+	private String qTableFile;
+	private int qLearningThreads = 1;
+	private double qLearningEpsilon = 0;
+	private int customizationInterval = 1;
+	
+	/**
+	 * The file the d3 map view in <code>visual/index.html</code> reads.
+	 */
+	static final String DEFAULT_VISUALIZATION_FILE = "visual/js/mappingData.js";
 	
 	/**
 	 * This is the main interface to ConfigurationOptions. Passing in
@@ -74,6 +93,54 @@ final class ConfigurationOptions {
 		if ( opts.has( "I" ) ) {
 			cfg.inputFile = opts.valueOf( "I").toString();
 		} else throw new Exception( "Argument --input-file is required" );
+		cfg.eventDriven = opts.has( "event-driven" );
+		if ( opts.has( "threads" ) ) {
+			cfg.threads = ( opts.hasArgument( "threads" ) ? Integer.parseInt( opts.valueOf( "threads" ).toString() ) 
+					: Runtime.getRuntime().availableProcessors() );
+			if ( cfg.threads < 1 ) throw new Exception( "Argument to --threads must be at least 1" );
+		}
+		if ( opts.has( "events" ) ) {
+			cfg.eventFile = opts.valueOf( "events" ).toString();
+		}
+		cfg.quiet = opts.has( "quiet" );
+		cfg.visualizeLoads = opts.has( "visualize-loads" );
+		if ( opts.has( "checkpoint" ) ) {
+			cfg.checkpointFile = opts.valueOf( "checkpoint" ).toString();
+		}
+		if ( opts.has( "checkpoint-interval" ) ) {
+			cfg.checkpointInterval = Long.parseLong( opts.valueOf( "checkpoint-interval" ).toString() );
+			if ( cfg.checkpointInterval < 1 ) throw new Exception( "Checkpoint interval must be at least 1" );
+		}
+		if ( opts.has( "restore" ) ) {
+			cfg.restoreFile = opts.valueOf( "restore" ).toString();
+		}
+		if ( opts.has( "qtables" ) ) {
+			cfg.qTableFile = opts.valueOf( "qtables" ).toString();
+		}
+		if ( opts.has( "qlearning-threads" ) ) {
+			cfg.qLearningThreads = Integer.parseInt( opts.valueOf( "qlearning-threads" ).toString() );
+			if ( cfg.qLearningThreads < 1 ) throw new Exception( "Argument to --qlearning-threads must be at least 1" );
+		}
+		if ( opts.has( "qlearning-epsilon" ) ) {
+			cfg.qLearningEpsilon = Double.parseDouble( opts.valueOf( "qlearning-epsilon" ).toString() );
+			if ( cfg.qLearningEpsilon < 0 ) throw new Exception( "Argument to --qlearning-epsilon must not be negative" );
+		}
+		if ( opts.has( "customization-interval" ) ) {
+			cfg.customizationInterval = Integer.parseInt( opts.valueOf( "customization-interval" ).toString() );
+			if ( cfg.customizationInterval < 1 ) throw new Exception( "Argument to --customization-interval must be at least 1" );
+		}
+		if ( opts.has( "trace-qlearning" ) ) {
+			cfg.traceRate = Integer.parseInt( opts.valueOf( "trace-qlearning" ).toString() );
+			if ( cfg.traceRate < 1 ) throw new Exception( "Argument to --trace-qlearning must be at least 1" );
+			if ( cfg.eventFile == null || cfg.eventFile.toLowerCase().endsWith( ".csv" ) ) {
+				throw new Exception( "Argument --trace-qlearning requires a binary --events file" );
+			}
+		}
+		if ( opts.has( "visualize" ) && opts.hasArgument( "visualize" ) ) {
+			cfg.visualizationFile = opts.valueOf( "visualize" ).toString();
+		} else if ( opts.has( "visualize" ) || cfg.visualizeLoads ) {
+			cfg.visualizationFile = DEFAULT_VISUALIZATION_FILE;
+		}
 	}
 
 	/**
@@ -84,6 +151,42 @@ final class ConfigurationOptions {
 		parser.acceptsAll( Arrays.asList( "I", "input-file" ) )
 			.withRequiredArg()
 			.describedAs( "file" );
+		parser.accepts( "event-driven", "Skip cycles in which no vehicle can move" );
+		parser.accepts( "threads", "Number of threads computing routes (default: all cores)" )
+			.withOptionalArg()
+			.describedAs( "n" );
+		parser.accepts( "events", "Write simulation events to a file, as CSV if the name ends in .csv, in binary otherwise" )
+			.withRequiredArg()
+			.describedAs( "file" );
+		parser.acceptsAll( Arrays.asList( "q", "quiet" ), "Only log warnings and errors" );
+		parser.accepts( "visualize", "Write the map for the view in visual/index.html (default: " + DEFAULT_VISUALIZATION_FILE + ")" )
+			.withOptionalArg()
+			.describedAs( "file" );
+		parser.accepts( "visualize-loads", "Also write the number of vehicles on each road in every cycle. Implies --visualize" );
+		parser.accepts( "checkpoint", "Write checkpoints of the simulation to a file. %d in the name is replaced with the cycle" )
+			.withRequiredArg()
+			.describedAs( "file" );
+		parser.accepts( "checkpoint-interval", "Number of cycles between checkpoints (default: 1000)" )
+			.withRequiredArg()
+			.describedAs( "cycles" );
+		parser.accepts( "restore", "Continue the simulation from a checkpoint written for the same input file" )
+			.withRequiredArg()
+			.describedAs( "file" );
+		parser.accepts( "qtables", "Start Q-learning from the tables in a file, if it exists, and save the tables to it at the end" )
+			.withRequiredArg()
+			.describedAs( "file" );
+		parser.accepts( "qlearning-threads", "Number of threads training each Q-table, the results are not repeatable with more than one (default: 1)" )
+			.withRequiredArg()
+			.describedAs( "n" );
+		parser.accepts( "qlearning-epsilon", "Keep training Q-tables after the first path is found, until no value changes by epsilon in a batch of episodes" )
+			.withRequiredArg()
+			.describedAs( "epsilon" );
+		parser.accepts( "customization-interval", "Number of cycles congestion aware routing uses the same delays for (default: 1)" )
+			.withRequiredArg()
+			.describedAs( "n" );
+		parser.accepts( "trace-qlearning", "Write the Q-values learned for every nth vehicle to the binary event file" )
+			.withRequiredArg()
+			.describedAs( "n" );
 		return parser;
 	}
 
@@ -95,5 +198,113 @@ final class ConfigurationOptions {
 	String getInputFile() {
 		return inputFile;
 	}
+
+	/**
+	 * @return <code>true</code> if the simulation should run with the
+	 * event-driven engine
+	 */
+	boolean isEventDriven() {
+		return eventDriven;
+	}
+
+	/**
+	 * @return the number of threads the simulation should use
+	 */
+	int getThreads() {
+		return threads;
+	}
+	
+	/**
+	 * @return the name of the file simulation events are written to,
+	 * or <code>null</code> if events should not be written
+	 */
+	String getEventFile() {
+		return eventFile;
+	}
+	
+	/**
+	 * @return <code>true</code> if only warnings and errors should be logged
+	 */
+	boolean isQuiet() {
+		return quiet;
+	}
+	
+	/**
+	 * @return the name of the file the map view data is written to,
+	 * or <code>null</code> if it should not be written
+	 */
+	String getVisualizationFile() {
+		return visualizationFile;
+	}
+	
+	/**
+	 * @return <code>true</code> if the map view data should include 
+	 * the loads of the roads in every cycle
+	 */
+	boolean isVisualizeLoads() {
+		return visualizeLoads;
+	}
+	
+	/**
+	 * @return the name of the file checkpoints are written to,
+	 * or <code>null</code> if checkpoints should not be written
+	 */
+	String getCheckpointFile() {
+		return checkpointFile;
+	}
+	
+	/**
+	 * @return the number of cycles between checkpoints
+	 */
+	long getCheckpointInterval() {
+		return checkpointInterval;
+	}
+	
+	/**
+	 * @return the name of the checkpoint to continue from, or 
+	 * <code>null</code> if the simulation should start from the beginning
+	 */
+	String getRestoreFile() {
+		return restoreFile;
+	}
+	
+	/**
+	 * @return n if the Q-values learned for every nth vehicle should 
+	 * be written to the event file, 0 if none should be written
+	 */
+	int getTraceRate() {
+		return traceRate;
+	}
+	
+	/**
+	 * @return the name of the file Q-tables are loaded from and saved to,
+	 * or <code>null</code> if they should not be kept
+	 */
+	String getQTableFile() {
+		return qTableFile;
+	}
+	
+	/**
+	 * @return the number of threads that train a Q-table
+	 */
+	int getQLearningThreads() {
+		return qLearningThreads;
+	}
+	
+	/**
+	 * @return the largest change of a converged Q-value, or 0 if 
+	 * training ends when a path is found
+	 */
+	double getQLearningEpsilon() {
+		return qLearningEpsilon;
+	}
+	
+	/**
+	 * @return the number of cycles between updates of the delays
+	 * congestion aware routing uses
+	 */
+	int getCustomizationInterval() {
+		return customizationInterval;
+	}
 	
 }
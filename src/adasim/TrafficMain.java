@@ -28,20 +28,28 @@
 
 package adasim;
 
-import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 
+import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 import org.apache.log4j.BasicConfigurator;
 import org.jdom.JDOMException;
 
+import adasim.algorithm.routing.CustomizableHierarchyCache;
+import adasim.algorithm.routing.QTableStore;
+import adasim.event.BinaryEventSink;
+import adasim.event.CsvEventSink;
+import adasim.event.EventSink;
+import adasim.event.TeeEventSink;
 import adasim.model.ConfigurationException;
-import adasim.model.RoadSegment;
 import adasim.model.TrafficSimulator;
+import adasim.model.internal.CheckpointWriter;
 import adasim.model.internal.SimulationXMLReader;
+import adasim.model.internal.VisualizationWriter;
 
 
 /**
@@ -78,34 +86,116 @@ public class TrafficMain {
 		}
 		
 		assert opts != null;
+		if ( opts.isQuiet() ) {
+			Logger.getRootLogger().setLevel( Level.WARN );
+		}
 
 		logger.info("Loading Simulation");
+		EventSink events = EventSink.NONE;
+		CheckpointWriter checkpoints = null;
 		try{
 			TrafficSimulator tsim = SimulationXMLReader.buildSimulator( new File(opts.getInputFile() ) );
+			tsim.setEventDriven( opts.isEventDriven() );
+			tsim.setThreads( opts.getThreads() );
+			QTableStore qtables = QTableStore.forMap( tsim.getMap() );
+			qtables.setParallelism( opts.getQLearningThreads() );
+			qtables.setConvergence( opts.getQLearningEpsilon() );
+			CustomizableHierarchyCache hierarchies = CustomizableHierarchyCache.forMap( tsim.getMap() );
+			hierarchies.setInterval( opts.getCustomizationInterval() );
+			hierarchies.setParallelism( opts.getThreads() );
+			if ( opts.getQTableFile() != null && new File( opts.getQTableFile() ).exists() ) {
+				loadQTables( tsim, opts.getQTableFile() );
+			}
+			if ( opts.getRestoreFile() != null ) {
+				logger.info("Restoring checkpoint " + opts.getRestoreFile());
+				tsim.restoreCheckpoint( CheckpointWriter.read( opts.getRestoreFile() ) );
+			}
+			if ( opts.getCheckpointFile() != null ) {
+				checkpoints = new CheckpointWriter( opts.getCheckpointFile() );
+				tsim.setCheckpoints( checkpoints, opts.getCheckpointInterval() );
+			}
+			if ( opts.getEventFile() != null ) {
+				events = openEventSink( opts.getEventFile(), opts.getTraceRate() );
+			}
+			if ( opts.getVisualizationFile() != null ) {
+				EventSink visual = new VisualizationWriter( tsim.getMap(), 
+						new FileOutputStream( opts.getVisualizationFile() ), opts.isVisualizeLoads() );
+				events = ( events == EventSink.NONE ? visual : new TeeEventSink( events, visual ) );
+				logger.info("To view visual map  open visual/index.html");
+			}
+			tsim.setEventSink( events );
 			logger.info("Starting Simulation");
 			tsim.run();
 			logger.info("Stopping simulation");
+			if ( opts.getQTableFile() != null ) {
+				saveQTables( tsim, opts.getQTableFile() );
+			}
 		} catch (ConfigurationException e) { //Catches configuration error in XML file
 			logger.info("Exiting due to configuration error " + e.getMessage());
 		} catch (FileNotFoundException e) {
 			logger.info("Exiting because file cannot be found " + e.getMessage());
+		} catch (IOException e) {
+			logger.error("Exiting because the checkpoint cannot be restored: " + e.getMessage());
+		} finally {
+			if ( checkpoints != null ) {
+				try {
+					checkpoints.close();
+				} catch (IOException e) {
+					logger.error("Writing checkpoints failed: " + e.getMessage());
+				}
+			}
+			try {
+				events.close();
+			} catch (IOException e) {
+				logger.error("Writing events failed: " + e.getMessage());
+			}
 		}
 		
-		String content = "var links = [\n"+ RoadSegment.linksOfNodes +"\n];";
-		//logger.info(content);
-		//Write to file
+		//NO CODE BEYOND THIS LINE
+	}
+	
+	/**
+	 * Loads Q-tables learned in an earlier run. The simulation starts
+	 * from scratch if they cannot be loaded.
+	 * @param tsim
+	 * @param name
+	 */
+	private static void loadQTables( TrafficSimulator tsim, String name ) {
 		try {
-			File file = new File("visual/js/mappingData.js");
-			FileWriter fw = new FileWriter(file.getAbsoluteFile());
-			BufferedWriter bw = new BufferedWriter(fw);
-			bw.write(content);
-			bw.close(); // Be sure to close BufferedWriter
-			logger.info("To view visual map  open visual/index.html");
-		} catch (Exception e) {
-			// TODO: handle exception
+			QTableStore qtables = QTableStore.forMap( tsim.getMap() );
+			qtables.load( name );
+			logger.info("Loaded Q-tables for " + qtables.size() + " destinations from " + name);
+		} catch (IOException e) {
+			logger.warn("Ignoring Q-tables that cannot be loaded: " + e.getMessage());
 		}
+	}
 	
-		
-		//NO CODE BEYOND THIS LINE
+	/**
+	 * @param tsim
+	 * @param name
+	 */
+	private static void saveQTables( TrafficSimulator tsim, String name ) {
+		try {
+			QTableStore.forMap( tsim.getMap() ).save( name );
+		} catch (IOException e) {
+			logger.error("Writing Q-tables failed: " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * @param name
+	 * @param traceRate every how many vehicles the binary sink traces, 0 for none
+	 * @return a sink writing to the file <code>name</code>, in CSV if the name ends in <code>.csv</code>
+	 * @throws FileNotFoundException
+	 */
+	private static EventSink openEventSink( String name, int traceRate ) throws FileNotFoundException {
+		OutputStream out = new FileOutputStream( name );
+		if ( name.toLowerCase().endsWith( ".csv" ) ) {
+			return new CsvEventSink( out );
+		} else {
+			BinaryEventSink sink = new BinaryEventSink( out );
+			sink.setTraceRate( traceRate );
+			return sink;
+		}
 	}
 }
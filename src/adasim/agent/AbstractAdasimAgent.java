@@ -29,6 +29,7 @@
 
 package adasim.agent;
 
+import adasim.event.EventSink;
 import adasim.filter.AdasimFilter;
 import adasim.model.TrafficSimulator;
 
@@ -74,6 +75,33 @@ public abstract class AbstractAdasimAgent implements AdasimAgent {
 		this.simulator = sim;
 	}
 
+	/**
+	 * @return the sink for the events of the simulation this agent is
+	 * part of, or {@link EventSink#NONE} if it is not part of one
+	 */
+	public EventSink getEventSink() {
+		return simulator == null ? EventSink.NONE : simulator.getEventSink();
+	}
+
+	/**
+	 * This method is used by the event-driven simulation engine to skip
+	 * cycles in which no agent wants to perform actions. It is called
+	 * after each call to {@link #takeSimulationStep(long)}, and the 
+	 * agent will not be called again before the cycle it returns.
+	 * The result must be greater than <code>cycle</code>. Agents that 
+	 * return <code>Long.MAX_VALUE</code> will not be called again by 
+	 * the event-driven engine.
+	 * <p>
+	 * Agents that implement {@link AdasimAgent} directly are called in
+	 * every cycle. This stub implementation asks for the same.
+	 * 
+	 * @param cycle the cycle the agent was last called in
+	 * @return the next cycle in which this agent wants to be called
+	 */
+	public long getNextCycle(long cycle) {
+		return cycle + 1;
+	}
+
 	/**
 	 * This stub implementation will always return <code>true</code>.
 	 */
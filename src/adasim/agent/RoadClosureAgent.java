@@ -27,13 +27,17 @@
  */
 package adasim.agent;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Random;
 
 import org.apache.log4j.Logger;
 
+import adasim.model.CheckpointInput;
+import adasim.model.CheckpointOutput;
+import adasim.model.Checkpointable;
 import adasim.model.RoadSegment;
+import adasim.util.RestorableRandom;
 
 
 /**
@@ -50,17 +54,17 @@ import adasim.model.RoadSegment;
  * @author Jochen Wuttke - wuttkej@gmail.com
  */
 
-public final class RoadClosureAgent extends AbstractAdasimAgent {
+public final class RoadClosureAgent extends AbstractAdasimAgent implements Checkpointable {
 
 	private static Logger logger = Logger.getLogger(RoadClosureAgent.class);
 
-	private Random randomizer;
+	private RestorableRandom randomizer;
 	private double closureProbability = 0.0;
 	private int closureDuration = 0;
 	private Map<RoadSegment, Integer> closedNodes;
 	
 	public RoadClosureAgent( String args) {
-		randomizer = new Random();
+		randomizer = new RestorableRandom();
 		closedNodes = new HashMap<RoadSegment, Integer>();
 		setParameters(args);
 	}
@@ -72,7 +76,7 @@ public final class RoadClosureAgent extends AbstractAdasimAgent {
 	 * @param seed
 	 */
 	RoadClosureAgent( String args, long seed ) {
-		randomizer = new Random(seed);		
+		randomizer = new RestorableRandom(seed);		
 		closedNodes = new HashMap<RoadSegment, Integer>();
 		setParameters(args);
 	}
@@ -133,6 +137,31 @@ public final class RoadClosureAgent extends AbstractAdasimAgent {
 		}
 	}
 
+	/**
+	 * Writes how long each closed road has been closed, and the
+	 * state of the random number generator.
+	 */
+	@Override
+	public void writeState( CheckpointOutput out ) {
+		out.writeInt( closedNodes.size() );
+		for ( Map.Entry<RoadSegment, Integer> e : closedNodes.entrySet() ) {
+			out.writeRoad( e.getKey() );
+			out.writeInt( e.getValue() );
+		}
+		out.writeRandom( randomizer );
+	}
+
+	@Override
+	public void readState( CheckpointInput in ) throws IOException {
+		closedNodes.clear();
+		int n = in.readInt();
+		for ( int i = 0; i < n; i++ ) {
+			RoadSegment r = in.readRoad();
+			closedNodes.put( r, in.readInt() );
+		}
+		in.readRandom( randomizer );
+	}
+
 	/* 
 	 * Inspection methods for testing
 	 */
@@ -28,6 +28,9 @@
 
 package adasim.algorithm.routing;
 
+import java.util.List;
+
+import adasim.event.EventSink;
 import adasim.model.AdasimMap;
 import adasim.model.RoadSegment;
 import adasim.model.Vehicle;
@@ -41,6 +44,7 @@ public abstract class AbstractRoutingAlgorithm implements RoutingAlgorithm {
 	protected AdasimMap graph;
 	protected RoadSegment source, target;
 	protected Vehicle vehicle;
+	private int[] pathIDs;	//reused to report paths to the event sink
 
 	/* (non-Javadoc)
 	 * @see adasim.algorithm.CarStrategy#setGraph(adasim.graph.Graph)
@@ -68,5 +72,28 @@ public abstract class AbstractRoutingAlgorithm implements RoutingAlgorithm {
 		this.vehicle = v;
 	}
 	
+	/**
+	 * Reports a newly computed path of the vehicle to the event sink
+	 * of the simulation.
+	 * @param path the path, may be <code>null</code> if there is none
+	 * @param update <code>false</code> for the first path of the vehicle
+	 */
+	protected void pathComputed( List<RoadSegment> path, boolean update ) {
+		if ( vehicle == null ) return;
+		EventSink events = vehicle.getEventSink();
+		if ( events == EventSink.NONE ) return;
+		int n = path == null ? 0 : path.size();
+		if ( pathIDs == null || pathIDs.length < n ) {
+			pathIDs = new int[ Math.max( 16, n ) ];
+		}
+		if ( path != null ) {
+			int i = 0;
+			for ( RoadSegment r : path ) {
+				pathIDs[i++] = r.getID();
+			}
+		}
+		events.pathComputed( vehicle.getID(), target.getID(), pathIDs, n, update );
+	}
+	
 
 }
@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright (C) 2011 - 2012 Jochen Wuttke, Jonathan Ramaswamy
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ********************************************************************************
+ *
+ * Created: Oct 18, 2026
+ */
+
+package adasim.algorithm.routing;
+
+import java.util.List;
+
+import adasim.model.MapTopology;
+import adasim.model.RoadSegment;
+
+/**
+ * A strategy that considers the current delays of all roads, not just of
+ * those within a lookahead, and recomputes its path after every move.
+ * <p>
+ * Paths are found in the customizable contraction hierarchy of the map 
+ * (see {@link CustomizableHierarchyCache}), whose weights all vehicles 
+ * share. They are computed from the delays at the start of a cycle, 
+ * every few cycles (see {@link CustomizableHierarchyCache#setInterval(int)}),
+ * so the delays a vehicle routes over can be a few cycles old. Closed 
+ * roads are never entered.
+ */
+public class CongestionAwareRoutingAlgorithm extends LookaheadShortestPathRoutingAlgorithm {
+
+	/**
+	 * Creates a strategy that recomputes its path after every move.
+	 */
+	public CongestionAwareRoutingAlgorithm() {
+		this(1);
+	}
+	
+	/**
+	 * @param recomp the number of moves after which the path is recomputed
+	 */
+	public CongestionAwareRoutingAlgorithm( int recomp ) {
+		super( Integer.MAX_VALUE, recomp );
+	}
+
+	@Override
+	public List<RoadSegment> getPath(RoadSegment source, RoadSegment target) {
+		MapTopology nodes = graph.getTopology();
+		CustomizableHierarchy.Metric metric = CustomizableHierarchyCache.forMap( graph ).get( nodes );
+		int s = nodes.getIndex(source), t = nodes.getIndex(target);
+		if ( s < 0 || t < 0 ) return null;
+		return metric.getPath( s, t );
+	}
+	
+	/**
+	 * Does nothing, as the weights of the hierarchy are computed when a
+	 * cycle starts, and paths in it are found quickly enough on the 
+	 * thread of the simulator.
+	 */
+	@Override
+	public void speculate() {
+	}
+}
@@ -0,0 +1,464 @@
+/*******************************************************************************
+ * Copyright (C) 2011 - 2012 Jochen Wuttke, Jonathan Ramaswamy
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ********************************************************************************
+ *
+ * Created: Oct 18, 2026
+ */
+
+package adasim.algorithm.routing;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+import adasim.model.MapTopology;
+import adasim.model.RoadSegment;
+import adasim.model.Vehicle;
+
+/**
+ * A contraction hierarchy of a {@link MapTopology} over the base delays
+ * of its roads, which answers shortest path queries without a priority 
+ * queue over the whole map.
+ * <p>
+ * Roads are contracted one after another, in the order of how many 
+ * shortcuts they need. Contracting a road removes it from the map and adds 
+ * a shortcut between each pair of its neighbors whose shortest connection 
+ * went through it. Every shortest path then first goes up in this order
+ * and then down. A query searches upwards from the source, which only 
+ * reaches a small part of the map, and then relaxes the downward edges of 
+ * all roads in one sweep, from the last road contracted to the first 
+ * (PHAST). The arrays of the sweep are ordered the same way, so it runs 
+ * through memory sequentially.
+ * <p>
+ * Paths are reconstructed from the distances to the source, always choosing 
+ * the predecessor with the smallest index, so they are the same as the 
+ * paths of the shortest path trees of 
+ * {@link LookaheadShortestPathRoutingAlgorithm} with a lookahead of 0.
+ * This needs all delays to be positive, see {@link #hasZeroDelays()}.
+ * <p>
+ * Hierarchies are not changed after they were built. Queries are thread safe.
+ */
+final class ContractionHierarchy {
+	
+	private static final int WITNESS_LIMIT = 100;	//roads settled by a search for a path avoiding a contracted road
+	private static final int INFINITY = Integer.MAX_VALUE;
+	
+	/**
+	 * The arrays of a query, reused by all queries on a thread.
+	 */
+	private final ThreadLocal<Query> queries = new ThreadLocal<Query>();
+	
+	private final MapTopology topology;
+	private final int[] delays;
+	private final int[] position;	//of each road in the sweep, the last road contracted comes first
+	private final int[] upStart;	//edges to roads contracted later, by road
+	private final int[] upTarget;
+	private final int[] upWeight;
+	private final int[] downStart;	//edges from roads contracted later, by position
+	private final int[] downSource;	//position of the source of each edge
+	private final int[] downWeight;
+	private final int shortcuts;
+	private boolean zeroDelays;
+	
+	/**
+	 * Builds the hierarchy for <code>topology</code>.
+	 * @param topology
+	 */
+	ContractionHierarchy( MapTopology topology ) {
+		this.topology = topology;
+		int size = topology.size();
+		delays = new int[size];
+		for ( int v = 0; v < size; v++ ) {
+			delays[v] = Math.max( 0, topology.getRoadSegment(v).getDelay(Vehicle.class) );
+			zeroDelays |= ( delays[v] == 0 );
+		}
+		Builder b = new Builder( topology, delays );
+		b.contractAll();
+		shortcuts = b.shortcuts;
+		position = new int[size];
+		int[] road = new int[size];		//by position
+		for ( int v = 0; v < size; v++ ) {
+			position[v] = size - 1 - b.rank[v];
+			road[ position[v] ] = v;
+		}
+		upStart = new int[size + 1];
+		downStart = new int[size + 1];
+		for ( int i = 0; i < size; i++ ) {
+			upStart[i + 1] = upStart[i] + b.up[i].length;
+			downStart[i + 1] = downStart[i] + b.down[ road[i] ].length;
+		}
+		upTarget = new int[ upStart[size] ];
+		upWeight = new int[ upStart[size] ];
+		downSource = new int[ downStart[size] ];
+		downWeight = new int[ downStart[size] ];
+		for ( int i = 0; i < size; i++ ) {
+			System.arraycopy( b.up[i], 0, upTarget, upStart[i], b.up[i].length );
+			System.arraycopy( b.upW[i], 0, upWeight, upStart[i], b.up[i].length );
+			int[] sources = b.down[ road[i] ];
+			for ( int j = 0; j < sources.length; j++ ) {
+				downSource[ downStart[i] + j ] = position[ sources[j] ];
+			}
+			System.arraycopy( b.downW[ road[i] ], 0, downWeight, downStart[i], sources.length );
+		}
+	}
+	
+	MapTopology getTopology() {
+		return topology;
+	}
+	
+	/**
+	 * @return <code>true</code> if some road has a delay of 0. Then there 
+	 * can be several shortest paths through the same roads, and the paths 
+	 * found may differ from those of a shortest path tree.
+	 */
+	boolean hasZeroDelays() {
+		return zeroDelays;
+	}
+	
+	/**
+	 * @return the number of shortcuts added while the hierarchy was built
+	 */
+	int getShortcutCount() {
+		return shortcuts;
+	}
+	
+	/**
+	 * @param source the index of the source road
+	 * @param target the index of the target road
+	 * @return the shortest path from <code>source</code> to <code>target</code>,
+	 * without <code>source</code>, or <code>null</code> if there is none
+	 */
+	List<RoadSegment> getPath( int source, int target ) {
+		if ( source == target ) return null;
+		Query q = queries.get();
+		if ( q == null ) {
+			q = new Query( topology.size() );
+			queries.set( q );
+		}
+		int[] dist = q.distances( source );
+		int d = dist[ position[target] ];
+		if ( d == INFINITY ) return null;
+		LinkedList<RoadSegment> path = new LinkedList<RoadSegment>();
+		int v = target;
+		while ( v != source ) {
+			path.push( topology.getRoadSegment(v) );
+			int previous = d - delays[v];
+			int next = -1;
+			for ( int e = topology.getInEdgeStart(v); next < 0 && e < topology.getInEdgeEnd(v); e++ ) {
+				int u = topology.getSource(e);
+				if ( u != v && dist[ position[u] ] == previous ) {
+					next = u;
+				}
+			}
+			if ( next < 0 || path.size() > topology.size() ) {
+				throw new IllegalStateException( "No predecessor of road " + topology.getRoadSegment(v).getID() + " on a shortest path" );
+			}
+			v = next;
+			d = previous;
+		}
+		return path;
+	}
+	
+	/**
+	 * The arrays of a query. Roads are marked as reached by the upward 
+	 * search with the number of the search, so that a new search does not 
+	 * need to clear the arrays.
+	 */
+	private final class Query {
+		private final int[] up;			//distance from the source, upwards, by road
+		private final int[] mark;
+		private final int[] reached;	//roads reached by the upward search
+		private final int[] dist;		//distance from the source, by position
+		private final IndexMinHeap queue;
+		private int search;
+		
+		Query( int size ) {
+			up = new int[size];
+			mark = new int[size];
+			reached = new int[size];
+			dist = new int[size];
+			queue = new IndexMinHeap( size );
+		}
+		
+		/**
+		 * @return the distances from <code>source</code> to all roads, 
+		 * by position, {@link Integer#MAX_VALUE} for roads that cannot be
+		 * reached. The array is reused by the next query.
+		 */
+		int[] distances( int source ) {
+			if ( ++search == 0 ) {
+				Arrays.fill( mark, 0 );
+				search = 1;
+			}
+			int n = 0;
+			queue.reset( up );
+			up[source] = 0;
+			mark[source] = search;
+			queue.add( source );
+			while ( !queue.isEmpty() ) {
+				int current = queue.poll();
+				reached[n++] = current;
+				for ( int e = upStart[current]; e < upStart[current + 1]; e++ ) {
+					int node = upTarget[e];
+					int t = up[current] + upWeight[e];
+					if ( mark[node] != search ) {
+						mark[node] = search;
+						up[node] = t;
+						queue.add( node );
+					} else if ( t < up[node] ) {
+						up[node] = t;
+						queue.decreaseKey( node );
+					}
+				}
+			}
+			
+			Arrays.fill( dist, INFINITY );
+			for ( int i = 0; i < n; i++ ) {
+				dist[ position[ reached[i] ] ] = up[ reached[i] ];
+			}
+			for ( int i = 0; i < dist.length; i++ ) {
+				int d = dist[i];
+				for ( int e = downStart[i]; e < downStart[i + 1]; e++ ) {
+					int from = dist[ downSource[e] ];
+					if ( from != INFINITY && from + downWeight[e] < d ) {
+						d = from + downWeight[e];
+					}
+				}
+				dist[i] = d;
+			}
+			return dist;
+		}
+	}
+	
+	/**
+	 * The map while it is being contracted. Each road keeps lists of the
+	 * edges leaving and entering it, which only contain roads that have 
+	 * not been contracted yet. 
+	 */
+	private static final class Builder {
+		final int size;
+		final int[] delays;
+		final int[][] out, outW, in, inW;
+		final int[] outSize, inSize;
+		final int[] contractedNeighbors;
+		final int[] rank;
+		final int[][] up, upW, down, downW;	//edges of each contracted road
+		int shortcuts;
+		
+		private final int[] dist;		//of the witness search
+		private final int[] mark;
+		private final IndexMinHeap queue;
+		private int search;
+		
+		Builder( MapTopology topology, int[] delays ) {
+			size = topology.size();
+			this.delays = delays;
+			out = new int[size][];
+			outW = new int[size][];
+			in = new int[size][];
+			inW = new int[size][];
+			outSize = new int[size];
+			inSize = new int[size];
+			for ( int v = 0; v < size; v++ ) {
+				out[v] = new int[ Math.max( 2, topology.getEdgeEnd(v) - topology.getEdgeStart(v) ) ];
+				outW[v] = new int[ out[v].length ];
+				in[v] = new int[ Math.max( 2, topology.getInEdgeEnd(v) - topology.getInEdgeStart(v) ) ];
+				inW[v] = new int[ in[v].length ];
+			}
+			for ( int u = 0; u < size; u++ ) {
+				for ( int e = topology.getEdgeStart(u); e < topology.getEdgeEnd(u); e++ ) {
+					int x = topology.getTarget(e);
+					if ( x != u ) addEdge( u, x, delays[x] );
+				}
+			}
+			shortcuts = 0;
+			contractedNeighbors = new int[size];
+			rank = new int[size];
+			up = new int[size][];
+			upW = new int[size][];
+			down = new int[size][];
+			downW = new int[size][];
+			dist = new int[size];
+			mark = new int[size];
+			queue = new IndexMinHeap( size );
+		}
+		
+		/**
+		 * Contracts all roads, always the one with the lowest priority 
+		 * next. Priorities change as neighbors are contracted, but they are
+		 * only updated when a road is about to be contracted. Updating the
+		 * neighbors of each contracted road as well makes building much 
+		 * slower for few shortcuts less.
+		 */
+		void contractAll() {
+			int[] priority = new int[size];
+			IndexMinHeap order = new IndexMinHeap( size );
+			order.reset( priority );
+			for ( int v = 0; v < size; v++ ) {
+				priority[v] = priority( v );
+				order.add( v );
+			}
+			int next = 0;
+			while ( !order.isEmpty() ) {
+				int v = order.poll();
+				int p = priority( v );
+				if ( !order.isEmpty() && p > priority[ order.peek() ] ) {
+					priority[v] = p;
+					order.add( v );
+					continue;
+				}
+				contract( v, true );
+				rank[v] = next++;
+			}
+		}
+		
+		/*
+		 * The edge difference of contracting v, plus the number of its 
+		 * contracted neighbors to spread contraction evenly over the map.
+		 */
+		private int priority( int v ) {
+			return contract( v, false ) - inSize[v] - outSize[v] + contractedNeighbors[v];
+		}
+		
+		/*
+		 * Finds the shortcuts needed to contract v, and adds them and 
+		 * removes v if apply is set.
+		 * @return the number of shortcuts
+		 */
+		private int contract( int v, boolean apply ) {
+			int count = 0;
+			int maxOut = 0;
+			for ( int j = 0; j < outSize[v]; j++ ) {
+				maxOut = Math.max( maxOut, outW[v][j] );
+			}
+			for ( int i = 0; i < inSize[v]; i++ ) {
+				int u = in[v][i];
+				int wu = inW[v][i];
+				witness( u, v, wu + maxOut );
+				for ( int j = 0; j < outSize[v]; j++ ) {
+					int x = out[v][j];
+					if ( x == u ) continue;
+					int w = wu + outW[v][j];
+					if ( mark[x] != search || dist[x] > w ) {
+						count++;
+						if ( apply ) addEdge( u, x, w );
+					}
+				}
+			}
+			if ( apply ) {
+				up[v] = Arrays.copyOf( out[v], outSize[v] );
+				upW[v] = Arrays.copyOf( outW[v], outSize[v] );
+				down[v] = Arrays.copyOf( in[v], inSize[v] );
+				downW[v] = Arrays.copyOf( inW[v], inSize[v] );
+				for ( int j = 0; j < outSize[v]; j++ ) {
+					int x = out[v][j];
+					inSize[x] = remove( in[x], inW[x], inSize[x], v );
+					contractedNeighbors[x]++;
+				}
+				for ( int i = 0; i < inSize[v]; i++ ) {
+					int u = in[v][i];
+					outSize[u] = remove( out[u], outW[u], outSize[u], v );
+					contractedNeighbors[u]++;
+				}
+				shortcuts += count;
+				out[v] = outW[v] = in[v] = inW[v] = null;
+			}
+			return count;
+		}
+		
+		/*
+		 * Searches the shortest paths from u that do not pass through v, 
+		 * up to a distance of limit or WITNESS_LIMIT settled roads.
+		 */
+		private void witness( int u, int v, int limit ) {
+			if ( ++search == 0 ) {
+				Arrays.fill( mark, 0 );
+				search = 1;
+			}
+			queue.reset( dist );
+			dist[u] = 0;
+			mark[u] = search;
+			queue.add( u );
+			for ( int settled = 0; !queue.isEmpty() && settled < WITNESS_LIMIT; settled++ ) {
+				int current = queue.poll();
+				if ( dist[current] > limit ) break;
+				for ( int j = 0; j < outSize[current]; j++ ) {
+					int node = out[current][j];
+					if ( node == v ) continue;
+					int t = dist[current] + outW[current][j];
+					if ( mark[node] != search ) {
+						mark[node] = search;
+						dist[node] = t;
+						queue.add( node );
+					} else if ( t < dist[node] && queue.contains( node ) ) {
+						dist[node] = t;
+						queue.decreaseKey( node );
+					}
+				}
+			}
+		}
+		
+		/*
+		 * Adds the edge u->x with weight w, or lowers the weight of an 
+		 * existing edge u->x to w.
+		 */
+		private void addEdge( int u, int x, int w ) {
+			for ( int j = 0; j < outSize[u]; j++ ) {
+				if ( out[u][j] == x ) {
+					if ( w < outW[u][j] ) {
+						outW[u][j] = w;
+						for ( int i = 0; i < inSize[x]; i++ ) {
+							if ( in[x][i] == u ) inW[x][i] = w;
+						}
+					}
+					return;
+				}
+			}
+			if ( outSize[u] == out[u].length ) {
+				out[u] = Arrays.copyOf( out[u], 2 * outSize[u] );
+				outW[u] = Arrays.copyOf( outW[u], 2 * outSize[u] );
+			}
+			out[u][outSize[u]] = x;
+			outW[u][outSize[u]++] = w;
+			if ( inSize[x] == in[x].length ) {
+				in[x] = Arrays.copyOf( in[x], 2 * inSize[x] );
+				inW[x] = Arrays.copyOf( inW[x], 2 * inSize[x] );
+			}
+			in[x][inSize[x]] = u;
+			inW[x][inSize[x]++] = w;
+		}
+		
+		/*
+		 * Removes node from the first size entries of nodes and weights.
+		 * @return the new size
+		 */
+		private static int remove( int[] nodes, int[] weights, int size, int node ) {
+			for ( int i = 0; i < size; i++ ) {
+				if ( nodes[i] == node ) {
+					nodes[i] = nodes[--size];
+					weights[i] = weights[size];
+					return size;
+				}
+			}
+			return size;
+		}
+	}
+}
@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * Copyright (C) 2011 - 2012 Jochen Wuttke, Jonathan Ramaswamy
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ********************************************************************************
+ *
+ * Created: Oct 18, 2026
+ */
+
+package adasim.algorithm.routing;
+
+import adasim.model.AdasimMap;
+import adasim.model.MapTopology;
+
+/**
+ * The contraction hierarchy of an {@link AdasimMap} 
+ * (see {@link #forMap(AdasimMap)}), which 
+ * {@link ShortestPathRoutingAlgorithm} uses to find paths over base delays
+ * without searching the whole map.
+ * <p>
+ * The hierarchy is built when it is first needed, and again after the 
+ * topology of the map has changed. Current delays and closed roads do not 
+ * matter for it, because routing over base delays ignores them.
+ * <p>
+ * This class is thread safe.
+ */
+public final class ContractionHierarchyCache {
+	
+	private static final AdasimMap.Factory<ContractionHierarchyCache> FACTORY = new AdasimMap.Factory<ContractionHierarchyCache>() {
+		@Override
+		public ContractionHierarchyCache create( AdasimMap map ) {
+			return new ContractionHierarchyCache();
+		}
+	};
+	
+	private ContractionHierarchy hierarchy;
+	
+	/**
+	 * @param map
+	 * @return the contraction hierarchy of <code>map</code>
+	 */
+	public static ContractionHierarchyCache forMap( AdasimMap map ) {
+		return map.getCache( ContractionHierarchyCache.class, FACTORY );
+	}
+	
+	/**
+	 * @param topology the current topology of the map
+	 * @return the hierarchy of <code>topology</code>
+	 */
+	synchronized ContractionHierarchy get( MapTopology topology ) {
+		if ( hierarchy == null || hierarchy.getTopology().getVersion() != topology.getVersion() ) {
+			hierarchy = new ContractionHierarchy( topology );
+		}
+		return hierarchy;
+	}
+	
+	/**
+	 * Removes the hierarchy, so it is built again when it is next needed.
+	 */
+	public synchronized void clear() {
+		hierarchy = null;
+	}
+}
@@ -0,0 +1,624 @@
+/*******************************************************************************
+ * Copyright (C) 2011 - 2012 Jochen Wuttke, Jonathan Ramaswamy
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ********************************************************************************
+ *
+ * Created: Oct 18, 2026
+ */
+
+package adasim.algorithm.routing;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import adasim.model.MapTopology;
+import adasim.model.RoadSegment;
+import adasim.model.Vehicle;
+
+/**
+ * A customizable contraction hierarchy of a {@link MapTopology}: the 
+ * contraction order and the shortcuts only depend on the topology, so 
+ * they are computed once, and the weights of all shortcuts can then be 
+ * computed for any delays of the roads in a fast pass, the customization
+ * (see {@link #customize(long, ForkJoinPool)}).
+ * <p>
+ * Roads are contracted in nested dissection order: the undirected map is
+ * split into two parts by the fewest roads at the same distance from a 
+ * road at its edge that leave at least a third of the map on both sides,
+ * and these roads are contracted after both parts, which are split the 
+ * same way. Contracting a road connects all of its
+ * remaining neighbors with shortcuts, whatever their weights. Each pair of
+ * connected roads is an arc with a weight in both directions. The 
+ * customization computes the weight of an arc from the arcs to roads 
+ * contracted before it, so arcs are processed in levels, and all arcs 
+ * of a level can be processed in parallel.
+ * <p>
+ * The roads a query from a road reaches are its ancestors in the 
+ * elimination tree, where the parent of a road is its neighbor contracted 
+ * next. A query therefore needs no priority queue, it walks up the tree 
+ * from source and target and meets at the common ancestor with the 
+ * smallest distance.
+ * <p>
+ * Hierarchies and metrics are not changed after they were built. Queries 
+ * are thread safe.
+ */
+final class CustomizableHierarchy {
+	
+	private static final int INFINITY = Integer.MAX_VALUE;
+	private static final int PARALLEL_THRESHOLD = 512;	//arcs of a level customized on one thread
+	
+	/**
+	 * The arrays of a query, reused by all queries on a thread.
+	 */
+	private final ThreadLocal<Query> queries = new ThreadLocal<Query>();
+	
+	private final MapTopology topology;
+	private final int[] arcStart;		//arcs to neighbors contracted later, by road
+	private final int[] arcHead;		//ordered by rank
+	private final int[] arcTail;
+	private final int[] rank;
+	private final int[] triangleStart;	//lower triangles of each arc (x,y): roads z contracted before x and y
+	private final int[] triangleLow;	//the arc (z,x)
+	private final int[] triangleHigh;	//the arc (z,y)
+	private final int[] edgeArc;		//2 * arc for each edge of the topology, +1 if it goes down the arc, -1 for loops
+	private final int[][] levels;		//arcs by level of the road they start at
+	
+	/**
+	 * Computes the contraction order and the shortcuts for <code>topology</code>.
+	 * @param topology
+	 */
+	CustomizableHierarchy( MapTopology topology ) {
+		this.topology = topology;
+		int size = topology.size();
+		rank = new int[size];
+		int[][] upper = contract( topology, rank );
+		
+		arcStart = new int[size + 1];
+		for ( int v = 0; v < size; v++ ) {
+			arcStart[v + 1] = arcStart[v] + upper[v].length;
+		}
+		arcHead = new int[ arcStart[size] ];
+		arcTail = new int[ arcHead.length ];
+		for ( int v = 0; v < size; v++ ) {
+			System.arraycopy( upper[v], 0, arcHead, arcStart[v], upper[v].length );
+			Arrays.fill( arcTail, arcStart[v], arcStart[v + 1], v );
+		}
+		
+		edgeArc = new int[ topology.getEdgeCount() ];
+		for ( int v = 0; v < size; v++ ) {
+			for ( int e = topology.getEdgeStart(v); e < topology.getEdgeEnd(v); e++ ) {
+				int w = topology.getTarget(e);
+				if ( w == v ) {
+					edgeArc[e] = -1;
+				} else if ( rank[v] < rank[w] ) {
+					edgeArc[e] = 2 * arc( v, w );
+				} else {
+					edgeArc[e] = 2 * arc( w, v ) + 1;
+				}
+			}
+		}
+		
+		triangleStart = new int[ arcHead.length + 1 ];
+		for ( int z = 0; z < size; z++ ) {
+			for ( int i = arcStart[z]; i < arcStart[z + 1]; i++ ) {
+				for ( int j = i + 1; j < arcStart[z + 1]; j++ ) {
+					triangleStart[ arc( arcHead[i], arcHead[j] ) + 1 ]++;
+				}
+			}
+		}
+		for ( int a = 0; a < arcHead.length; a++ ) {
+			triangleStart[a + 1] += triangleStart[a];
+		}
+		triangleLow = new int[ triangleStart[arcHead.length] ];
+		triangleHigh = new int[ triangleLow.length ];
+		int[] next = Arrays.copyOf( triangleStart, arcHead.length );
+		for ( int z = 0; z < size; z++ ) {
+			for ( int i = arcStart[z]; i < arcStart[z + 1]; i++ ) {
+				for ( int j = i + 1; j < arcStart[z + 1]; j++ ) {
+					int a = arc( arcHead[i], arcHead[j] );
+					triangleLow[ next[a] ] = i;
+					triangleHigh[ next[a]++ ] = j;
+				}
+			}
+		}
+		
+		int[] level = new int[size];
+		int[] order = new int[size];
+		for ( int v = 0; v < size; v++ ) {
+			order[ rank[v] ] = v;
+		}
+		int levelCount = 0;
+		int[] arcsPerLevel = new int[size + 1];
+		for ( int z : order ) {
+			for ( int i = arcStart[z]; i < arcStart[z + 1]; i++ ) {
+				level[ arcHead[i] ] = Math.max( level[ arcHead[i] ], level[z] + 1 );
+			}
+			arcsPerLevel[ level[z] ] += arcStart[z + 1] - arcStart[z];
+			levelCount = Math.max( levelCount, level[z] + 1 );
+		}
+		levels = new int[levelCount][];
+		for ( int l = 0; l < levelCount; l++ ) {
+			levels[l] = new int[ arcsPerLevel[l] ];
+			arcsPerLevel[l] = 0;
+		}
+		for ( int z = 0; z < size; z++ ) {
+			for ( int i = arcStart[z]; i < arcStart[z + 1]; i++ ) {
+				levels[ level[z] ][ arcsPerLevel[ level[z] ]++ ] = i;
+			}
+		}
+	}
+	
+	/*
+	 * Contracts the roads of topology in nested dissection order, ignoring 
+	 * the direction of edges, and stores the position of each road in rank.
+	 * @return the neighbors of each road when it was contracted, by rank
+	 */
+	private static int[][] contract( MapTopology topology, int[] rank ) {
+		int size = topology.size();
+		int[][] neighbors = new int[size][];
+		int[] degree = new int[size];
+		for ( int v = 0; v < size; v++ ) {
+			neighbors[v] = new int[4];
+		}
+		for ( int v = 0; v < size; v++ ) {
+			for ( int e = topology.getEdgeStart(v); e < topology.getEdgeEnd(v); e++ ) {
+				int w = topology.getTarget(e);
+				if ( w != v ) {
+					connect( neighbors, degree, v, w );
+					connect( neighbors, degree, w, v );
+				}
+			}
+		}
+		int[] order = dissect( neighbors, degree );
+		int[][] upper = new int[size][];
+		for ( int i = 0; i < size; i++ ) {
+			int v = order[i];
+			rank[v] = i;
+			upper[v] = Arrays.copyOf( neighbors[v], degree[v] );
+			for ( int a : upper[v] ) {
+				remove( neighbors, degree, a, v );
+				for ( int b : upper[v] ) {
+					if ( a != b ) connect( neighbors, degree, a, b );
+				}
+			}
+			neighbors[v] = null;
+		}
+		for ( int v = 0; v < size; v++ ) {
+			long[] keys = new long[ upper[v].length ];
+			for ( int i = 0; i < keys.length; i++ ) {
+				keys[i] = ( (long)rank[ upper[v][i] ] << 32 ) | upper[v][i];
+			}
+			Arrays.sort( keys );
+			for ( int i = 0; i < keys.length; i++ ) {
+				upper[v][i] = (int)keys[i];
+			}
+		}
+		return upper;
+	}
+	
+	/*
+	 * Orders the roads of the undirected graph so that each separator comes
+	 * after the parts it separates. Each part gets a range of positions, 
+	 * and its separator the last positions of that range.
+	 * @return the roads in contraction order
+	 */
+	private static int[] dissect( int[][] neighbors, int[] degree ) {
+		int size = degree.length;
+		int[] order = new int[size];
+		int[] part = new int[size];		//the part each road is in
+		int[] level = new int[size];
+		int[] queue = new int[size];
+		int parts = 0;
+		LinkedList<int[]> stack = new LinkedList<int[]>();	//roads of a part, followed by the end of its range
+		int[] all = new int[size + 1];
+		for ( int v = 0; v < size; v++ ) {
+			all[v] = v;
+		}
+		all[size] = size;
+		stack.push( all );
+		while ( !stack.isEmpty() ) {
+			int[] roads = stack.pop();
+			int n = roads.length - 1, end = roads[n];
+			parts++;
+			for ( int i = 0; i < n; i++ ) {
+				part[ roads[i] ] = parts;
+			}
+			int reached = search( neighbors, degree, roads, roads[0], part, level, queue );
+			if ( reached < n ) {
+				//not connected, the other components get the positions before this one
+				int[] component = Arrays.copyOf( queue, reached + 1 );
+				component[reached] = end;
+				int[] rest = new int[ n - reached + 1 ];
+				int r = 0;
+				for ( int i = 0; i < n; i++ ) {
+					if ( level[ roads[i] ] < 0 ) rest[r++] = roads[i];
+				}
+				rest[r] = end - reached;
+				stack.push( component );
+				stack.push( rest );
+				continue;
+			}
+			search( neighbors, degree, roads, queue[n - 1], part, level, queue );
+			//the smallest level that starts between the first and the last third of the roads
+			int middle = level[ queue[n / 2] ], smallest = n;
+			for ( int i = 0; i < n - n / 3; ) {
+				int j = i;
+				while ( j < n && level[ queue[j] ] == level[ queue[i] ] ) j++;
+				if ( i >= n / 3 && j - i < smallest ) {
+					middle = level[ queue[i] ];
+					smallest = j - i;
+				}
+				i = j;
+			}
+			int before = 0, separator = 0;
+			for ( int i = 0; i < n; i++ ) {
+				if ( level[ queue[i] ] < middle ) before++;
+				else if ( level[ queue[i] ] == middle ) separator++;
+			}
+			int after = n - before - separator;
+			int[] first = new int[ before + 1 ], second = new int[ after + 1 ];
+			int f = 0, s = 0, p = end - separator;
+			for ( int i = 0; i < n; i++ ) {
+				int v = queue[i];
+				if ( level[v] < middle ) first[f++] = v;
+				else if ( level[v] > middle ) second[s++] = v;
+				else order[p++] = v;
+			}
+			first[before] = end - separator - after;
+			second[after] = end - separator;
+			if ( before > 0 ) stack.push( first );
+			if ( after > 0 ) stack.push( second );
+		}
+		return order;
+	}
+	
+	/*
+	 * A breadth first search from start over the roads of a part (all but
+	 * the last element of roads), which stores the distance of each road in 
+	 * level, -1 for roads it does not reach, and the roads it reaches in the 
+	 * order it reaches them in queue.
+	 * @return the number of roads reached
+	 */
+	private static int search( int[][] neighbors, int[] degree, int[] roads, int start, int[] part, int[] level, int[] queue ) {
+		int p = part[start];
+		for ( int i = 0; i < roads.length - 1; i++ ) {
+			level[ roads[i] ] = -1;
+		}
+		int head = 0, tail = 0;
+		queue[tail++] = start;
+		level[start] = 0;
+		while ( head < tail ) {
+			int v = queue[head++];
+			for ( int i = 0; i < degree[v]; i++ ) {
+				int w = neighbors[v][i];
+				if ( part[w] == p && level[w] < 0 ) {
+					level[w] = level[v] + 1;
+					queue[tail++] = w;
+				}
+			}
+		}
+		return tail;
+	}
+	
+	private static void connect( int[][] neighbors, int[] degree, int v, int w ) {
+		for ( int i = 0; i < degree[v]; i++ ) {
+			if ( neighbors[v][i] == w ) return;
+		}
+		if ( degree[v] == neighbors[v].length ) {
+			neighbors[v] = Arrays.copyOf( neighbors[v], 2 * degree[v] );
+		}
+		neighbors[v][ degree[v]++ ] = w;
+	}
+	
+	private static void remove( int[][] neighbors, int[] degree, int v, int w ) {
+		for ( int i = 0; i < degree[v]; i++ ) {
+			if ( neighbors[v][i] == w ) {
+				neighbors[v][i] = neighbors[v][ --degree[v] ];
+				return;
+			}
+		}
+	}
+	
+	/*
+	 * @return the arc from x to y, which must be a neighbor contracted after x
+	 */
+	private int arc( int x, int y ) {
+		int lo = arcStart[x], hi = arcStart[x + 1] - 1;
+		int r = rank[y];
+		while ( lo <= hi ) {
+			int mid = ( lo + hi ) >>> 1;
+			int m = rank[ arcHead[mid] ];
+			if ( m < r ) lo = mid + 1;
+			else if ( m > r ) hi = mid - 1;
+			else return mid;
+		}
+		throw new IllegalStateException( "No arc between roads " + x + " and " + y );
+	}
+	
+	MapTopology getTopology() {
+		return topology;
+	}
+	
+	/**
+	 * @return the number of arcs, which includes one arc for each pair of
+	 * roads with edges in one or both directions
+	 */
+	int getArcCount() {
+		return arcHead.length;
+	}
+	
+	/**
+	 * Computes the weights of all arcs from the current delays of the roads.
+	 * A closed road cannot be entered.
+	 * @param cycle the cycle of the simulation the delays are read in
+	 * @param pool the pool to process the arcs of each level on, or 
+	 * <code>null</code> to process them on the calling thread
+	 * @return the weights
+	 */
+	Metric customize( long cycle, ForkJoinPool pool ) {
+		int size = topology.size();
+		int[] delays = new int[size];
+		for ( int v = 0; v < size; v++ ) {
+			delays[v] = topology.getRoadSegment(v).getCurrentDelay(Vehicle.class);
+		}
+		Metric m = new Metric( cycle, arcHead.length );
+		for ( int v = 0; v < size; v++ ) {
+			for ( int e = topology.getEdgeStart(v); e < topology.getEdgeEnd(v); e++ ) {
+				int a = edgeArc[e];
+				if ( a < 0 ) continue;
+				int w = Math.max( 0, delays[ topology.getTarget(e) ] );
+				int[] weights = ( ( a & 1 ) == 0 ? m.up : m.down );
+				weights[a >> 1] = Math.min( weights[a >> 1], w );
+			}
+		}
+		for ( int[] arcs : levels ) {
+			if ( pool == null || arcs.length < 2 * PARALLEL_THRESHOLD ) {
+				customize( m, arcs, 0, arcs.length );
+			} else {
+				pool.invoke( new Customization( m, arcs, 0, arcs.length ) );
+			}
+		}
+		return m;
+	}
+	
+	/*
+	 * Computes the weights of arcs[from] .. arcs[to-1] from their lower 
+	 * triangles, and records the triangles that gave them.
+	 */
+	private void customize( Metric m, int[] arcs, int from, int to ) {
+		for ( int i = from; i < to; i++ ) {
+			int a = arcs[i];
+			int up = m.up[a], down = m.down[a];
+			for ( int t = triangleStart[a]; t < triangleStart[a + 1]; t++ ) {
+				int low = triangleLow[t], high = triangleHigh[t];
+				int d = add( m.down[low], m.up[high] );
+				if ( d < up ) {
+					up = d;
+					m.upVia[a] = t;
+				}
+				d = add( m.down[high], m.up[low] );
+				if ( d < down ) {
+					down = d;
+					m.downVia[a] = t;
+				}
+			}
+			m.up[a] = up;
+			m.down[a] = down;
+		}
+	}
+	
+	private static int add( int a, int b ) {
+		return ( a == INFINITY || b == INFINITY ) ? INFINITY : a + b;
+	}
+	
+	/**
+	 * @param m the weights to use
+	 * @param source the index of the source road
+	 * @param target the index of the target road
+	 * @return the shortest path from <code>source</code> to <code>target</code>,
+	 * without <code>source</code>, or <code>null</code> if there is none
+	 */
+	List<RoadSegment> getPath( Metric m, int source, int target ) {
+		if ( source == target ) return null;
+		Query q = queries.get();
+		if ( q == null ) {
+			q = new Query( topology.size() );
+			queries.set( q );
+		}
+		int meet = q.search( m, source, target );
+		if ( meet < 0 ) return null;
+		LinkedList<RoadSegment> path = new LinkedList<RoadSegment>();
+		for ( int v = meet; v != source; ) {
+			int a = q.forwardArc[v];
+			LinkedList<RoadSegment> part = new LinkedList<RoadSegment>();
+			unpack( m, arcTail[a], v, a, part );
+			path.addAll( 0, part );
+			v = arcTail[a];
+		}
+		for ( int v = meet; v != target; ) {
+			int a = q.backwardArc[v];
+			unpack( m, v, arcTail[a], a, path );
+			v = arcTail[a];
+		}
+		return path;
+	}
+	
+	/*
+	 * Appends the roads after from on the shortest path from one end of 
+	 * arc a to the other to path.
+	 */
+	private void unpack( Metric m, int from, int to, int a, List<RoadSegment> path ) {
+		boolean up = ( arcHead[a] == to );
+		int t = ( up ? m.upVia[a] : m.downVia[a] );
+		if ( t < 0 ) {
+			path.add( topology.getRoadSegment(to) );
+			return;
+		}
+		int low = triangleLow[t], high = triangleHigh[t];
+		int z = arcTail[low];
+		if ( up ) {
+			unpack( m, from, z, low, path );
+			unpack( m, z, to, high, path );
+		} else {
+			unpack( m, from, z, high, path );
+			unpack( m, z, to, low, path );
+		}
+	}
+	
+	/**
+	 * The weights of the arcs of a hierarchy for one set of delays.
+	 */
+	final class Metric {
+		final long cycle;
+		final int[] up;			//weight of each arc from the road contracted first
+		final int[] down;		//weight of each arc to the road contracted first
+		final int[] upVia;		//the lower triangle that gave each weight, -1 for an edge of the topology
+		final int[] downVia;
+		
+		Metric( long cycle, int arcs ) {
+			this.cycle = cycle;
+			up = new int[arcs];
+			down = new int[arcs];
+			upVia = new int[arcs];
+			downVia = new int[arcs];
+			Arrays.fill( up, INFINITY );
+			Arrays.fill( down, INFINITY );
+			Arrays.fill( upVia, -1 );
+			Arrays.fill( downVia, -1 );
+		}
+		
+		/**
+		 * @return the cycle in which the delays were read
+		 */
+		long getCycle() {
+			return cycle;
+		}
+
+		
+		/**
+		 * @param source the index of the source road
+		 * @param target the index of the target road
+		 * @return the shortest path from <code>source</code> to <code>target</code>
+		 * over these weights, without <code>source</code>, or <code>null</code> 
+		 * if there is none
+		 */
+		List<RoadSegment> getPath( int source, int target ) {
+			return CustomizableHierarchy.this.getPath( this, source, target );
+		}
+	}
+	
+	/**
+	 * Customizes a range of arcs of one level, splitting it until it is
+	 * small enough for one thread.
+	 */
+	private final class Customization extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+		
+		private final Metric m;
+		private final int[] arcs;
+		private final int from, to;
+		
+		Customization( Metric m, int[] arcs, int from, int to ) {
+			this.m = m;
+			this.arcs = arcs;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if ( to - from <= PARALLEL_THRESHOLD ) {
+				customize( m, arcs, from, to );
+			} else {
+				int mid = ( from + to ) >>> 1;
+				invokeAll( new Customization( m, arcs, from, mid ), new Customization( m, arcs, mid, to ) );
+			}
+		}
+	}
+	
+	/**
+	 * The distances of a query, from the source upwards and to the target
+	 * upwards on reversed arcs. Only the ancestors of source and target in
+	 * the elimination tree are used, and both distances of all of them are 
+	 * reset by each query, so a road that is not an ancestor of both never
+	 * has two finite distances.
+	 */
+	private final class Query {
+		final int[] forward;
+		final int[] backward;
+		final int[] forwardArc;		//the arc each road was reached on
+		final int[] backwardArc;
+		
+		Query( int size ) {
+			forward = new int[size];
+			backward = new int[size];
+			forwardArc = new int[size];
+			backwardArc = new int[size];
+			Arrays.fill( forward, INFINITY );
+			Arrays.fill( backward, INFINITY );
+		}
+		
+		/**
+		 * @return the road with the smallest distance from source plus 
+		 * distance to target, or -1 if target cannot be reached
+		 */
+		int search( Metric m, int source, int target ) {
+			for ( int v = source; v >= 0; v = parent(v) ) forward[v] = backward[v] = INFINITY;
+			for ( int v = target; v >= 0; v = parent(v) ) forward[v] = backward[v] = INFINITY;
+			forward[source] = 0;
+			backward[target] = 0;
+			for ( int v = source; v >= 0; v = parent(v) ) {
+				if ( forward[v] == INFINITY ) continue;
+				for ( int a = arcStart[v]; a < arcStart[v + 1]; a++ ) {
+					int d = add( forward[v], m.up[a] );
+					if ( d < forward[ arcHead[a] ] ) {
+						forward[ arcHead[a] ] = d;
+						forwardArc[ arcHead[a] ] = a;
+					}
+				}
+			}
+			int meet = -1, best = INFINITY;
+			for ( int v = target; v >= 0; v = parent(v) ) {
+				if ( backward[v] == INFINITY ) continue;
+				int d = add( forward[v], backward[v] );
+				if ( d < best ) {
+					best = d;
+					meet = v;
+				}
+				for ( int a = arcStart[v]; a < arcStart[v + 1]; a++ ) {
+					int b = add( backward[v], m.down[a] );
+					if ( b < backward[ arcHead[a] ] ) {
+						backward[ arcHead[a] ] = b;
+						backwardArc[ arcHead[a] ] = a;
+					}
+				}
+			}
+			return meet;
+		}
+		
+		private int parent( int v ) {
+			return arcStart[v] == arcStart[v + 1] ? -1 : arcHead[ arcStart[v] ];
+		}
+	}
+}
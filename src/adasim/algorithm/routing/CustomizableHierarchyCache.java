@@ -0,0 +1,193 @@
+/*******************************************************************************
+ * Copyright (C) 2011 - 2012 Jochen Wuttke, Jonathan Ramaswamy
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ********************************************************************************
+ *
+ * Created: Oct 18, 2026
+ */
+
+package adasim.algorithm.routing;
+
+import java.util.concurrent.ForkJoinPool;
+
+import adasim.model.AdasimMap;
+import adasim.model.DelayChangeLog;
+import adasim.model.MapTopology;
+
+/**
+ * The customizable contraction hierarchy of an {@link AdasimMap} 
+ * (see {@link #forMap(AdasimMap)}), with the weights
+ * {@link CongestionAwareRoutingAlgorithm} uses to find paths over current
+ * delays.
+ * <p>
+ * The hierarchy is built when it is first needed, and again after the 
+ * topology of the map has changed. Its weights are computed from the 
+ * current delays when they are first needed, and then again when a cycle
+ * of the simulation starts (see {@link AdasimMap.CycleListener}) whose 
+ * number is a multiple of {@link #setInterval(int)}, unless no delay on 
+ * the map has changed since (see {@link DelayChangeLog#getVersion()}). 
+ * As this happens before any vehicle moves, the weights do not depend on
+ * the order in which vehicles ask for them. {@link #setParallelism(int)} 
+ * spreads this computation over several threads.
+ * <p>
+ * This class is thread safe.
+ */
+public final class CustomizableHierarchyCache implements AdasimMap.CycleListener {
+	
+	private static final AdasimMap.Factory<CustomizableHierarchyCache> FACTORY = new AdasimMap.Factory<CustomizableHierarchyCache>() {
+		@Override
+		public CustomizableHierarchyCache create( AdasimMap map ) {
+			return new CustomizableHierarchyCache( map );
+		}
+	};
+	
+	private final AdasimMap map;
+	private CustomizableHierarchy hierarchy;
+	private CustomizableHierarchy.Metric metric;	//null if out of date or not needed yet
+	private long version;			//of the delays on the map the metric was computed from
+	private int interval = 1;
+	private int parallelism = 1;
+	private ForkJoinPool pool;		//null if parallelism == 1
+	
+	/**
+	 * @param map
+	 * @return the customizable contraction hierarchy of <code>map</code>
+	 */
+	public static CustomizableHierarchyCache forMap( AdasimMap map ) {
+		return map.getCache( CustomizableHierarchyCache.class, FACTORY );
+	}
+	
+	/**
+	 * @param map the map the hierarchy is built for
+	 */
+	private CustomizableHierarchyCache( AdasimMap map ) {
+		this.map = map;
+	}
+	
+	/**
+	 * Sets the number of cycles the weights are used for before they are 
+	 * computed again. Larger intervals save time, but paths then are
+	 * found over older delays. It takes effect when the weights are next
+	 * computed.
+	 * @param interval at least 1
+	 */
+	public synchronized void setInterval( int interval ) {
+		if ( interval < 1 ) {
+			throw new IllegalArgumentException( "Interval must be at least 1" );
+		}
+		this.interval = interval;
+	}
+	
+	/**
+	 * @return the number of cycles the weights are used for
+	 */
+	public synchronized int getInterval() {
+		return interval;
+	}
+	
+	/**
+	 * Sets the number of threads that compute the weights.
+	 * @param parallelism at least 1
+	 */
+	public synchronized void setParallelism( int parallelism ) {
+		if ( parallelism < 1 ) {
+			throw new IllegalArgumentException( "Parallelism must be at least 1" );
+		}
+		if ( pool != null ) {
+			pool.shutdown();
+			pool = null;
+		}
+		this.parallelism = parallelism;
+	}
+	
+	/**
+	 * @return the number of threads that compute the weights
+	 */
+	public synchronized int getParallelism() {
+		return parallelism;
+	}
+	
+	/**
+	 * @param topology the current topology of the map
+	 * @return the hierarchy of <code>topology</code>
+	 */
+	synchronized CustomizableHierarchy getHierarchy( MapTopology topology ) {
+		if ( hierarchy == null || hierarchy.getTopology().getVersion() != topology.getVersion() ) {
+			hierarchy = new CustomizableHierarchy( topology );
+			metric = null;
+		}
+		return hierarchy;
+	}
+	
+	/**
+	 * @param topology the current topology of the map
+	 * @return the weights of the hierarchy of <code>topology</code> 
+	 * (see {@link #getHierarchy(MapTopology)}) for the delays at the start
+	 * of this cycle, or up to <code>interval - 1</code> cycles ago
+	 */
+	synchronized CustomizableHierarchy.Metric get( MapTopology topology ) {
+		CustomizableHierarchy h = getHierarchy( topology );
+		if ( metric == null ) {
+			customize( h );
+		}
+		return metric;
+	}
+	
+	/**
+	 * Computes the weights again if the hierarchy is in use and they were
+	 * dropped, or if <code>cycle</code> starts a new interval and a delay 
+	 * on the map has changed since they were last computed.
+	 */
+	@Override
+	public synchronized void cycleStarted( long cycle ) {
+		if ( hierarchy == null ) return;
+		CustomizableHierarchy h = getHierarchy( map.getTopology() );
+		if ( metric == null 
+				|| ( cycle / interval != metric.getCycle() / interval 
+				&& map.getDelayChanges().getVersion() != version ) ) {
+			customize( h );
+		}
+	}
+	
+	private void customize( CustomizableHierarchy h ) {
+		if ( pool == null && parallelism > 1 ) {
+			pool = new ForkJoinPool( parallelism );
+		}
+		version = map.getDelayChanges().getVersion();
+		metric = h.customize( map.getCycle(), pool );
+	}
+	
+	/**
+	 * Drops the weights, so they are computed from the current delays
+	 * when the next cycle starts, or when they are needed before that.
+	 */
+	public synchronized void refresh() {
+		metric = null;
+	}
+	
+	/**
+	 * Removes the hierarchy and its weights, so they are built again 
+	 * when they are next needed.
+	 */
+	public synchronized void clear() {
+		hierarchy = null;
+		metric = null;
+	}
+}
@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright (C) 2011 - 2012 Jochen Wuttke, Jonathan Ramaswamy
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ********************************************************************************
+ *
+ * Created: Oct 18, 2026
+ */
+
+package adasim.algorithm.routing;
+
+import java.util.List;
+
+import adasim.model.MapTopology;
+import adasim.model.RoadSegment;
+
+/**
+ * A strategy that considers the current delays of all roads and 
+ * recomputes its path after every move, like 
+ * {@link CongestionAwareRoutingAlgorithm}, but repairs the distances to 
+ * its destination after delays changed instead of searching again 
+ * (see {@link IncrementalSearch}). Recomputing a path then costs time 
+ * in the number of roads whose delay changed since the last time any 
+ * vehicle going to the same destination computed its path, not in the
+ * size of the map. 
+ * <p>
+ * Paths are always computed over the delays at the time of the call, 
+ * and closed roads are never entered.
+ */
+public class IncrementalRoutingAlgorithm extends LookaheadShortestPathRoutingAlgorithm {
+
+	/**
+	 * Creates a strategy that recomputes its path after every move.
+	 */
+	public IncrementalRoutingAlgorithm() {
+		this(1);
+	}
+	
+	/**
+	 * @param recomp the number of moves after which the path is recomputed
+	 */
+	public IncrementalRoutingAlgorithm( int recomp ) {
+		super( Integer.MAX_VALUE, recomp );
+	}
+
+	@Override
+	public List<RoadSegment> getPath(RoadSegment source, RoadSegment target) {
+		MapTopology nodes = graph.getTopology();
+		int s = nodes.getIndex(source), t = nodes.getIndex(target);
+		if ( s < 0 || t < 0 ) return null;
+		IncrementalSearch search = IncrementalSearchStore.forMap( graph ).get( nodes, graph.getDelayChanges(), t );
+		synchronized ( search ) {
+			return search.getPath( s );
+		}
+	}
+	
+	/**
+	 * Repairs the search of the destination for the changes made so far,
+	 * up to the distance of the start road, so the vehicle only has to 
+	 * repair it for the changes made in the rest of the cycle.
+	 */
+	@Override
+	public void speculate() {
+		MapTopology nodes = graph.getTopology();
+		int s = nodes.getIndex(source), t = nodes.getIndex(target);
+		if ( s < 0 || t < 0 ) return;
+		IncrementalSearch search = IncrementalSearchStore.forMap( graph ).get( nodes, graph.getDelayChanges(), t );
+		synchronized ( search ) {
+			search.repair( s );
+		}
+	}
+}
@@ -0,0 +1,294 @@
+/*******************************************************************************
+ * Copyright (C) 2011 - 2012 Jochen Wuttke, Jonathan Ramaswamy
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ********************************************************************************
+ *
+ * Created: Oct 18, 2026
+ */
+
+package adasim.algorithm.routing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+import adasim.model.DelayChangeLog;
+import adasim.model.MapTopology;
+import adasim.model.RoadSegment;
+import adasim.model.Vehicle;
+
+/**
+ * The distances from all roads of a {@link MapTopology} to one goal over 
+ * the current delays of the roads, kept up to date by repairing them 
+ * after delays change instead of searching again (Lifelong Planning A*
+ * from the goal over reversed edges, as in D* Lite).
+ * <p>
+ * Each road has a distance <code>g</code>, and a distance <code>rhs</code>
+ * computed from the distances of its successors. Roads where they differ
+ * are queued by the smaller of the two, and {@link #getPath(int)} settles
+ * queued roads until the start of the path is settled. A change of the 
+ * delay of a road only affects the <code>rhs</code> of its predecessors, 
+ * so the work after a change depends on how many distances change, 
+ * not on the size of the map.
+ * <p>
+ * Changes are read from the {@link DelayChangeLog} of the map. There is 
+ * no heuristic, because current delays can be lower than the base delays
+ * any heuristic would be computed from, so the queue is ordered by 
+ * distance alone and moving starts need no key adjustment.
+ * <p>
+ * Instances are not thread safe; callers synchronize on them.
+ */
+final class IncrementalSearch {
+	
+	private static final int INFINITY = Integer.MAX_VALUE;
+	
+	private final MapTopology topology;
+	private final DelayChangeLog log;
+	private final int goal;
+	private final int[] cost;		//the delay of entering each road, INFINITY if closed
+	private final int[] g;
+	private final int[] rhs;
+	private final int[] key;
+	private final IndexMinHeap queue;
+	private final List<RoadSegment> changes = new ArrayList<RoadSegment>();
+	private long position;			//in the log
+	private int[] mark;				//path search, roads visited in the current search
+	private int stamp;
+	private int[] roads;			//path search, the current path
+	private int[] edges;			//path search, the next edge to try from each road on the path
+	private long settled;			//roads settled since the search was created
+	
+	/**
+	 * @param topology
+	 * @param log the change log of the map of <code>topology</code>
+	 * @param goal the index of the goal road
+	 */
+	IncrementalSearch( MapTopology topology, DelayChangeLog log, int goal ) {
+		this.topology = topology;
+		this.log = log;
+		this.goal = goal;
+		int size = topology.size();
+		cost = new int[size];
+		g = new int[size];
+		rhs = new int[size];
+		key = new int[size];
+		queue = new IndexMinHeap( size );
+		queue.reset( key );
+		position = log.getPosition();
+		for ( int v = 0; v < size; v++ ) {
+			cost[v] = currentCost(v);
+		}
+		Arrays.fill( g, INFINITY );
+		Arrays.fill( rhs, INFINITY );
+		rhs[goal] = 0;
+		queue.add( goal );
+	}
+	
+	MapTopology getTopology() {
+		return topology;
+	}
+	
+	/**
+	 * @return the number of roads settled since this search was created
+	 */
+	long getSettledCount() {
+		return settled;
+	}
+	
+	/**
+	 * @param start the index of the start road
+	 * @return the shortest path from <code>start</code> to the goal over
+	 * the current delays, without <code>start</code>, or <code>null</code> 
+	 * if there is none
+	 */
+	List<RoadSegment> getPath( int start ) {
+		if ( start == goal ) return null;
+		repair( start );
+		if ( g[start] == INFINITY ) return null;
+		return follow( start );
+	}
+	
+	/**
+	 * Brings the distances of <code>start</code> and all roads closer to 
+	 * the goal up to date with the current delays.
+	 * @param start the index of a road
+	 */
+	void repair( int start ) {
+		update();
+		settle( start );
+	}
+	
+	/*
+	 * Repairs rhs of the predecessors of all roads whose cost changed 
+	 * since the last update.
+	 */
+	private void update() {
+		changes.clear();
+		long next = log.read( position, changes );
+		if ( next < 0 ) {
+			//fell behind the log, check all roads
+			position = log.getPosition();
+			for ( int v = 0; v < topology.size(); v++ ) {
+				costChanged( v );
+			}
+			return;
+		}
+		position = next;
+		for ( int i = 0; i < changes.size(); i++ ) {
+			int v = topology.getIndex( changes.get(i) );
+			if ( v >= 0 ) costChanged( v );
+		}
+	}
+	
+	private void costChanged( int v ) {
+		int old = cost[v], c = currentCost(v);
+		if ( old == c ) return;
+		cost[v] = c;
+		for ( int e = topology.getInEdgeStart(v); e < topology.getInEdgeEnd(v); e++ ) {
+			int u = topology.getSource(e);
+			if ( u == goal ) continue;
+			if ( c < old ) {
+				rhs[u] = Math.min( rhs[u], add( c, g[v] ) );
+			} else if ( rhs[u] == add( old, g[v] ) ) {
+				rhs[u] = successorMin( u );
+			}
+			enqueue( u );
+		}
+	}
+	
+	/*
+	 * Settles queued roads in the order of their keys until start and all
+	 * roads with a key up to its distance are settled.
+	 */
+	private void settle( int start ) {
+		while ( !queue.isEmpty() && ( key[ queue.peek() ] <= Math.min( g[start], rhs[start] ) || g[start] != rhs[start] ) ) {
+			int u = queue.poll();
+			settled++;
+			if ( g[u] > rhs[u] ) {
+				g[u] = rhs[u];
+				for ( int e = topology.getInEdgeStart(u); e < topology.getInEdgeEnd(u); e++ ) {
+					int p = topology.getSource(e);
+					if ( p == goal ) continue;
+					int d = add( cost[u], g[u] );
+					if ( d < rhs[p] ) {
+						rhs[p] = d;
+						enqueue( p );
+					}
+				}
+			} else {
+				int old = g[u];
+				g[u] = INFINITY;
+				for ( int e = topology.getInEdgeStart(u); e < topology.getInEdgeEnd(u); e++ ) {
+					int p = topology.getSource(e);
+					if ( p != goal && rhs[p] == add( cost[u], old ) ) {
+						rhs[p] = successorMin( p );
+						enqueue( p );
+					}
+				}
+				enqueue( u );
+			}
+		}
+	}
+	
+	/*
+	 * Queues v if it is inconsistent, and removes it from the queue otherwise.
+	 */
+	private void enqueue( int v ) {
+		if ( g[v] != rhs[v] ) {
+			key[v] = Math.min( g[v], rhs[v] );
+			if ( queue.contains(v) ) {
+				queue.update(v);
+			} else {
+				queue.add(v);
+			}
+		} else if ( queue.contains(v) ) {
+			queue.remove(v);
+		}
+	}
+	
+	private int successorMin( int v ) {
+		int min = INFINITY;
+		for ( int e = topology.getEdgeStart(v); e < topology.getEdgeEnd(v); e++ ) {
+			int w = topology.getTarget(e);
+			min = Math.min( min, add( cost[w], g[w] ) );
+		}
+		return min;
+	}
+	
+	/*
+	 * Follows successors whose distance plus cost is the distance of the
+	 * road before them from start to the goal. All these roads are settled.
+	 * Roads with zero delays can lead in circles, so this backtracks from 
+	 * roads that were already visited.
+	 */
+	private List<RoadSegment> follow( int start ) {
+		int size = topology.size();
+		if ( mark == null ) {
+			mark = new int[size];
+			roads = new int[size];
+			edges = new int[size];
+		}
+		if ( ++stamp == 0 ) {
+			Arrays.fill( mark, 0 );
+			stamp = 1;
+		}
+		int depth = 0;
+		roads[0] = start;
+		edges[0] = topology.getEdgeStart(start);
+		mark[start] = stamp;
+		while ( roads[depth] != goal ) {
+			int v = roads[depth];
+			int next = -1;
+			while ( edges[depth] < topology.getEdgeEnd(v) ) {
+				int w = topology.getTarget( edges[depth]++ );
+				if ( mark[w] != stamp && add( cost[w], g[w] ) == g[v] ) {
+					next = w;
+					break;
+				}
+			}
+			if ( next < 0 ) {
+				if ( depth == 0 ) {
+					throw new IllegalStateException( "No path from road " + start + " to the goal " + goal );
+				}
+				depth--;
+				continue;
+			}
+			mark[next] = stamp;
+			roads[++depth] = next;
+			edges[depth] = topology.getEdgeStart(next);
+		}
+		LinkedList<RoadSegment> path = new LinkedList<RoadSegment>();
+		for ( int i = 1; i <= depth; i++ ) {
+			path.add( topology.getRoadSegment( roads[i] ) );
+		}
+		return path;
+	}
+	
+	private int currentCost( int v ) {
+		return Math.max( 0, topology.getRoadSegment(v).getCurrentDelay(Vehicle.class) );
+	}
+	
+	private static int add( int a, int b ) {
+		if ( a == INFINITY || b == INFINITY ) return INFINITY;
+		long sum = (long)a + b;
+		return sum >= INFINITY ? INFINITY : (int)sum;
+	}
+}
@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright (C) 2011 - 2012 Jochen Wuttke, Jonathan Ramaswamy
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ********************************************************************************
+ *
+ * Created: Oct 18, 2026
+ */
+
+package adasim.algorithm.routing;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import adasim.model.AdasimMap;
+import adasim.model.DelayChangeLog;
+import adasim.model.MapTopology;
+
+/**
+ * Incremental searches shared by all {@link IncrementalRoutingAlgorithm}s 
+ * on one {@link AdasimMap} (see {@link #forMap(AdasimMap)}),
+ * one for each destination.
+ * <p>
+ * A search keeps the distances of all roads to its destination, and 
+ * vehicles going to the same road repair them after delays changed 
+ * instead of each searching from scratch. Searches are dropped when 
+ * the topology of the map changes.
+ * <p>
+ * The number of searches is limited so that they hold about 
+ * {@value #BUDGET} nodes together. The least recently used searches 
+ * are dropped first, and are started again from scratch when a vehicle
+ * needs them.
+ * <p>
+ * This class is thread safe.
+ */
+public final class IncrementalSearchStore {
+	
+	private static final AdasimMap.Factory<IncrementalSearchStore> FACTORY = new AdasimMap.Factory<IncrementalSearchStore>() {
+		@Override
+		public IncrementalSearchStore create( AdasimMap map ) {
+			return new IncrementalSearchStore();
+		}
+	};
+	
+	/**
+	 * The number of nodes all searches may hold together.
+	 */
+	public static final int BUDGET = 1 << 22;
+	
+	private final int budget;
+	private final Map<Integer, IncrementalSearch> searches;	//by index of the destination
+	private MapTopology topology;
+	private int capacity = 16;		//maximum number of searches
+	
+	/**
+	 * @param map
+	 * @return the incremental searches shared by the vehicles on <code>map</code>
+	 */
+	public static IncrementalSearchStore forMap( AdasimMap map ) {
+		return map.getCache( IncrementalSearchStore.class, FACTORY );
+	}
+	
+	private IncrementalSearchStore() {
+		this( BUDGET );
+	}
+	
+	/**
+	 * @param budget the number of nodes all searches may hold together
+	 */
+	IncrementalSearchStore( int budget ) {
+		this.budget = budget;
+		searches = new LinkedHashMap<Integer, IncrementalSearch>( 16, 0.75f, true ) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, IncrementalSearch> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+	
+	/**
+	 * @param topology the current topology of the map
+	 * @param log the change log of the map
+	 * @param goal the index of the destination
+	 * @return the search for <code>goal</code>, created if there is none yet
+	 */
+	synchronized IncrementalSearch get( MapTopology topology, DelayChangeLog log, int goal ) {
+		if ( topology != this.topology ) {
+			this.topology = topology;
+			capacity = Math.max( 16, budget / Math.max( 1, topology.size() ) );
+			searches.clear();
+		}
+		IncrementalSearch s = searches.get( goal );
+		if ( s == null ) {
+			s = new IncrementalSearch( topology, log, goal );
+			searches.put( goal, s );
+		}
+		return s;
+	}
+	
+	/**
+	 * @return the number of destinations with a search
+	 */
+	public synchronized int size() {
+		return searches.size();
+	}
+	
+	/**
+	 * Removes all searches.
+	 */
+	public synchronized void clear() {
+		topology = null;
+		searches.clear();
+	}
+}
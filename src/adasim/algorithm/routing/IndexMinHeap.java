@@ -0,0 +1,182 @@
+/*******************************************************************************
+ * Copyright (C) 2011 - 2012 Jochen Wuttke, Jonathan Ramaswamy
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ********************************************************************************
+ *
+ * Created: Oct 17, 2026
+ */
+
+package adasim.algorithm.routing;
+
+import java.util.Arrays;
+
+/**
+ * A binary min-heap of node indices in the range <code>[0, capacity)</code>,
+ * ordered by an external array of keys. Nodes with equal keys are ordered
+ * by index. The position of each node in the heap is tracked, so the key
+ * of a contained node can be changed, and the node removed, in 
+ * logarithmic time.
+ * <p>
+ * Keys must only be changed through {@link #decreaseKey(int)} or 
+ * {@link #update(int)} while the node is in the heap.
+ */
+final class IndexMinHeap {
+	
+	private final int[] heap;		//node indices in heap order
+	private final int[] position;	//position of each node in heap, -1 if not contained
+	private int[] keys;
+	private int size;
+	
+	/**
+	 * Creates an empty heap for nodes <code>0 .. capacity-1</code>.
+	 * @param capacity
+	 */
+	IndexMinHeap( int capacity ) {
+		heap = new int[capacity];
+		position = new int[capacity];
+		Arrays.fill( position, -1 );
+	}
+	
+	/**
+	 * Empties the heap and orders all following operations by <code>keys</code>.
+	 * @param keys
+	 */
+	void reset( int[] keys ) {
+		for ( int i = 0; i < size; i++ ) {
+			position[ heap[i] ] = -1;
+		}
+		size = 0;
+		this.keys = keys;
+	}
+	
+	boolean isEmpty() {
+		return size == 0;
+	}
+	
+	/**
+	 * @param node
+	 * @return <code>true</code> if <code>node</code> is in the heap
+	 */
+	boolean contains( int node ) {
+		return position[node] >= 0;
+	}
+	
+	/**
+	 * Adds <code>node</code>, which must not be in the heap.
+	 * @param node
+	 */
+	void add( int node ) {
+		assert !contains(node);
+		heap[size] = node;
+		position[node] = size;
+		siftUp( size++ );
+	}
+	
+	/**
+	 * Restores the heap order after the key of <code>node</code> was decreased.
+	 * @param node
+	 */
+	void decreaseKey( int node ) {
+		siftUp( position[node] );
+	}
+	
+	/**
+	 * Restores the heap order after the key of <code>node</code> was 
+	 * increased or decreased.
+	 * @param node
+	 */
+	void update( int node ) {
+		int i = position[node];
+		siftUp( i );
+		if ( heap[i] == node ) {
+			siftDown( i );
+		}
+	}
+	
+	/**
+	 * Removes <code>node</code>, which must be in the heap.
+	 * @param node
+	 */
+	void remove( int node ) {
+		int i = position[node];
+		position[node] = -1;
+		if ( i < --size ) {
+			heap[i] = heap[size];
+			position[ heap[i] ] = i;
+			update( heap[i] );
+		}
+	}
+	
+	/**
+	 * @return the node with the smallest key without removing it
+	 */
+	int peek() {
+		return heap[0];
+	}
+	
+	/**
+	 * Removes and returns the node with the smallest key.
+	 * @return the node with the smallest key
+	 */
+	int poll() {
+		int min = heap[0];
+		position[min] = -1;
+		if ( --size > 0 ) {
+			heap[0] = heap[size];
+			position[ heap[0] ] = 0;
+			siftDown( 0 );
+		}
+		return min;
+	}
+	
+	private boolean less( int a, int b ) {
+		return keys[a] < keys[b] || ( keys[a] == keys[b] && a < b );
+	}
+	
+	private void siftUp( int i ) {
+		int node = heap[i];
+		while ( i > 0 ) {
+			int parent = ( i - 1 ) >>> 1;
+			if ( !less( node, heap[parent] ) ) break;
+			heap[i] = heap[parent];
+			position[ heap[i] ] = i;
+			i = parent;
+		}
+		heap[i] = node;
+		position[node] = i;
+	}
+	
+	private void siftDown( int i ) {
+		int node = heap[i];
+		int half = size >>> 1;
+		while ( i < half ) {
+			int child = 2 * i + 1;
+			if ( child + 1 < size && less( heap[child + 1], heap[child] ) ) {
+				child++;
+			}
+			if ( !less( heap[child], node ) ) break;
+			heap[i] = heap[child];
+			position[ heap[i] ] = i;
+			i = child;
+		}
+		heap[i] = node;
+		position[node] = i;
+	}
+}
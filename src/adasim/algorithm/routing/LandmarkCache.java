@@ -0,0 +1,218 @@
+/*******************************************************************************
+ * Copyright (C) 2011 - 2012 Jochen Wuttke, Jonathan Ramaswamy
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ********************************************************************************
+ *
+ * Created: Oct 18, 2026
+ */
+
+package adasim.algorithm.routing;
+
+import java.util.Arrays;
+
+import adasim.model.AdasimMap;
+import adasim.model.MapTopology;
+import adasim.model.Vehicle;
+
+/**
+ * Distances to and from a few landmark roads of an {@link AdasimMap}
+ * (see {@link #forMap(AdasimMap)}), which give lower bounds on the
+ * distance between any two roads by the triangle inequality. 
+ * {@link LandmarkRoutingAlgorithm} uses them to direct its A* search.
+ * <p>
+ * Distances are measured like in {@link LookaheadShortestPathRoutingAlgorithm},
+ * as the sum of the delays of all roads entered, using the base delays
+ * vehicles see through the filters of the roads, the same values the
+ * search adds up beyond its lookahead. They are computed once per 
+ * topology of the map, when they are first needed. Landmarks are chosen 
+ * so that they are far from each other, starting with the road farthest
+ * from the first road.
+ * <p>
+ * This class is thread safe.
+ */
+public final class LandmarkCache {
+	
+	private static final AdasimMap.Factory<LandmarkCache> FACTORY = new AdasimMap.Factory<LandmarkCache>() {
+		@Override
+		public LandmarkCache create( AdasimMap map ) {
+			return new LandmarkCache();
+		}
+	};
+	
+	/**
+	 * @param map
+	 * @return the landmark distances of <code>map</code>
+	 */
+	public static LandmarkCache forMap( AdasimMap map ) {
+		return map.getCache( LandmarkCache.class, FACTORY );
+	}
+	
+	/**
+	 * The number of landmarks on maps with at least that many roads.
+	 */
+	public static final int LANDMARKS = 8;
+	
+	private static final int INFINITY = Integer.MAX_VALUE;
+	
+	private Table table;
+	
+	/**
+	 * @param topology the current topology of the map
+	 * @return the landmark distances for <code>topology</code>
+	 */
+	synchronized Table get( MapTopology topology ) {
+		if ( table == null || table.topology.getVersion() != topology.getVersion() ) {
+			table = new Table( topology, Math.min( LANDMARKS, topology.size() ) );
+		}
+		return table;
+	}
+	
+	/**
+	 * Removes the distances, so they are computed again when they are next needed.
+	 */
+	public synchronized void clear() {
+		table = null;
+	}
+	
+	/**
+	 * The distances between all roads and the landmarks. Tables are not
+	 * changed after they were built.
+	 */
+	static final class Table {
+		final MapTopology topology;
+		private final int landmarks;
+		private final int[] landmark;	//the index of each landmark
+		private final int[] from;		//distance from landmark i to road v at v * landmarks + i
+		private final int[] to;			//distance from road v to landmark i at v * landmarks + i
+		
+		/**
+		 * Chooses <code>count</code> landmarks and computes their distances.
+		 * @param topology
+		 * @param count
+		 */
+		Table( MapTopology topology, int count ) {
+			this.topology = topology;
+			this.landmarks = count;
+			int size = topology.size();
+			landmark = new int[count];
+			from = new int[ size * count ];
+			to = new int[ size * count ];
+			
+			int[] delays = new int[size];
+			for ( int v = 0; v < size; v++ ) {
+				delays[v] = Math.max( 0, topology.getRoadSegment(v).getDelay(Vehicle.class) );
+			}
+			IndexMinHeap q = new IndexMinHeap( size );
+			int[] forward = new int[size];
+			int[] backward = new int[size];
+			long[] spread = new long[size];		//distance to and from the nearest landmark
+			Arrays.fill( spread, Long.MAX_VALUE );
+			int next = 0;
+			if ( size > 0 ) {
+				search( topology, delays, 0, false, q, forward );
+				for ( int v = 0; v < size; v++ ) {
+					if ( forward[v] != INFINITY && forward[v] > forward[next] ) next = v;
+				}
+			}
+			for ( int i = 0; i < count; i++ ) {
+				landmark[i] = next;
+				search( topology, delays, next, false, q, forward );
+				search( topology, delays, next, true, q, backward );
+				next = ( next + 1 ) % size;
+				for ( int v = 0; v < size; v++ ) {
+					from[ v * count + i ] = forward[v];
+					to[ v * count + i ] = backward[v];
+					spread[v] = Math.min( spread[v], (long)forward[v] + backward[v] );
+					if ( spread[v] > spread[next] ) next = v;
+				}
+			}
+		}
+		
+		/*
+		 * Runs Dijkstra's algorithm from landmark over the base delays and 
+		 * stores the distance from the landmark to each road in dist, or 
+		 * the distance from each road to the landmark if reverse is set.
+		 */
+		private static void search( MapTopology topology, int[] delays, int landmark, boolean reverse, 
+				IndexMinHeap q, int[] dist ) {
+			Arrays.fill( dist, INFINITY );
+			dist[landmark] = 0;
+			q.reset( dist );
+			q.add( landmark );
+			while ( !q.isEmpty() ) {
+				int current = q.poll();
+				int first = ( reverse ? topology.getInEdgeStart(current) : topology.getEdgeStart(current) );
+				int last = ( reverse ? topology.getInEdgeEnd(current) : topology.getEdgeEnd(current) );
+				for ( int e = first; e < last; e++ ) {
+					int node = ( reverse ? topology.getSource(e) : topology.getTarget(e) );
+					int t = dist[current] + ( reverse ? delays[current] : delays[node] );
+					if ( t < dist[node] ) {
+						dist[node] = t;
+						if ( q.contains(node) ) {
+							q.decreaseKey(node);
+						} else {
+							q.add(node);
+						}
+					}
+				}
+			}
+		}
+		
+		/**
+		 * @return the number of landmarks
+		 */
+		int size() {
+			return landmarks;
+		}
+		
+		/**
+		 * @param i 
+		 * @return the index of landmark <code>i</code>
+		 */
+		int getLandmark( int i ) {
+			return landmark[i];
+		}
+		
+		/**
+		 * @param v the index of a road
+		 * @param t the index of a road
+		 * @return a lower bound on the base distance from <code>v</code> 
+		 * to <code>t</code>, or {@link Integer#MAX_VALUE} if <code>t</code> 
+		 * cannot be reached from <code>v</code>
+		 */
+		int bound( int v, int t ) {
+			int best = 0;
+			int vi = v * landmarks, ti = t * landmarks;
+			for ( int i = 0; i < landmarks; i++ ) {
+				int lv = from[vi + i], lt = from[ti + i];
+				if ( lv != INFINITY ) {
+					if ( lt == INFINITY ) return INFINITY;	//otherwise the landmark would reach t through v
+					if ( lt - lv > best ) best = lt - lv;
+				}
+				int vl = to[vi + i], tl = to[ti + i];
+				if ( tl != INFINITY ) {
+					if ( vl == INFINITY ) return INFINITY;	//otherwise v would reach the landmark through t
+					if ( vl - tl > best ) best = vl - tl;
+				}
+			}
+			return best;
+		}
+	}
+}
@@ -0,0 +1,240 @@
+/*******************************************************************************
+ * Copyright (C) 2011 - 2012 Jochen Wuttke, Jonathan Ramaswamy
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ********************************************************************************
+ *
+ * Created: Oct 18, 2026
+ */
+
+package adasim.algorithm.routing;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+import adasim.model.MapTopology;
+import adasim.model.RoadSegment;
+import adasim.model.Vehicle;
+
+
+/**
+ * This strategy considers current delays within a lookahead like 
+ * {@link LookaheadShortestPathRoutingAlgorithm}, but finds its paths with 
+ * an A* search towards the target instead of computing shortest paths to 
+ * all roads. The search is directed by lower bounds on the remaining 
+ * distance from the landmark distances of the map 
+ * (see {@link LandmarkCache}), and usually settles only a small part of 
+ * the roads when source and target are close. Where several paths are
+ * equally short, it may choose a different one than 
+ * {@link LookaheadShortestPathRoutingAlgorithm}.
+ * <p>
+ * The bounds are computed from the same filtered base delays the search 
+ * adds up beyond its lookahead, and are exact as long as current delays 
+ * never drop below base delays. This holds for the linear and quadratic 
+ * delay functions, but not for random delays or filters that do not 
+ * always return the same value, where paths may be slightly longer than 
+ * the shortest path.
+ * <p>
+ * Unlike {@link LookaheadShortestPathRoutingAlgorithm}, roads that are
+ * closed within the lookahead are never part of a path.
+ */
+public class LandmarkRoutingAlgorithm extends LookaheadShortestPathRoutingAlgorithm {
+	
+	/**
+	 * The arrays of a search, reused by all searches on a thread.
+	 */
+	private final static ThreadLocal<Search> searches = new ThreadLocal<Search>();
+	
+	private int settled;	//roads settled by the last search
+	
+	/**
+	 * The default constructor builds this strategy with a lookahead of 0.
+	 */
+	public LandmarkRoutingAlgorithm() {
+		this(0);
+	}
+
+	/**
+	 * Creates a new strategy that considers current delays for 
+	 * <code>lookahead</code> roads from the current road, and recomputes
+	 * the path every <code>lookahead</code> moves. 
+	 * 
+	 * @param lookahead
+	 */
+	public LandmarkRoutingAlgorithm( int lookahead ){
+		this(lookahead, lookahead );
+	}
+
+	/**
+	 * Creates a new strategy that considers current delays for 
+	 * <code>lookahead</code> roads from the current road, and recomputes
+	 * the path every <code>recomp</code> moves. 
+	 * 
+	 * @param lookahead
+	 * @param recomp
+	 */
+	public LandmarkRoutingAlgorithm( int lookahead, int recomp ){
+		super( lookahead, recomp );
+	}
+
+	@Override
+	public List<RoadSegment> getPath(RoadSegment source, RoadSegment target ) {
+		MapTopology nodes = graph.getTopology();
+		int s = nodes.getIndex(source), t = nodes.getIndex(target);
+		if ( s < 0 || t < 0 ) return null;
+		return astar( nodes, LandmarkCache.forMap( graph ).get(nodes), s, t );
+	}
+	
+	/**
+	 * Computes the landmark distances of the map, if no other vehicle 
+	 * has done it yet.
+	 */
+	@Override
+	public void speculate() {
+		LandmarkCache.forMap( graph ).get( graph.getTopology() );
+	}
+	
+	/**
+	 * @return the number of roads settled by the last search
+	 */
+	int getSettledCount() {
+		return settled;
+	}
+	
+	/**
+	 * Searches the shortest path from <code>source</code> to <code>target</code>,
+	 * settling roads in the order of their distance plus the lower bound 
+	 * on their distance to <code>target</code>. The bounds are consistent, 
+	 * so a settled road is never reached on a shorter path later. 
+	 * Roads with the same key are settled in the order of their index.
+	 * @return the path, or <code>null</code> if there is none
+	 */
+	private List<RoadSegment> astar( MapTopology nodes, LandmarkCache.Table landmarks, int source, int target ) {
+		Search search = searches.get();
+		if ( search == null || search.size() < nodes.size() ) {
+			search = new Search( nodes.size() );
+			searches.set( search );
+		}
+		search.reset();
+		settled = 0;
+		int[] dist = search.dist;
+		int[] previous = search.previous;
+		int[] hops = search.hops;
+		int lookahead = getLookahead();
+		IndexMinHeap q = search.queue;
+		if ( landmarks.bound( source, target ) == Integer.MAX_VALUE ) return null;
+		search.reach( source, 0, -1, 0, landmarks.bound( source, target ) );
+		q.add( source );
+		while( !q.isEmpty() ) {
+			int current = q.poll();
+			settled++;
+			if ( current == target ) break;
+			search.settle( current );
+			
+			for ( int e = nodes.getEdgeStart(current); e < nodes.getEdgeEnd(current); e++ ) {
+				int thisIndex = nodes.getTarget(e);
+				if ( search.isSettled( thisIndex ) ) continue;
+				RoadSegment node = nodes.getRoadSegment(thisIndex);
+				
+				//if we ever make vehicle extensible, then we have to query the class of the configure vehicle
+				int delay = ( hops[current] + 1 <= lookahead ? node.getCurrentDelay(Vehicle.class) : node.getDelay(Vehicle.class) );
+				long t = (long)dist[current] + delay;
+				if ( t >= Integer.MAX_VALUE ) continue;	//closed
+				if ( !search.isReached( thisIndex ) ) {
+					int bound = landmarks.bound( thisIndex, target );
+					if ( bound == Integer.MAX_VALUE ) continue;	//target cannot be reached
+					search.reach( thisIndex, (int)t, current, hops[current] + 1, bound );
+					q.add( thisIndex );
+				} else if ( t < dist[thisIndex] ) {
+					search.reach( thisIndex, (int)t, current, hops[current] + 1, search.bound[thisIndex] );
+					q.decreaseKey( thisIndex );
+				}
+			}
+		}
+		if ( source == target || !search.isReached( target ) ) return null;
+		LinkedList<RoadSegment> path = new LinkedList<RoadSegment>();
+		for ( int current = target; current != source; current = previous[current] ) {
+			path.push( nodes.getRoadSegment(current) );
+		}
+		return path;
+	}
+
+	/**
+	 * The state of one search. Roads are marked as reached or settled 
+	 * with the number of the search, so that a new search does not need
+	 * to clear the arrays.
+	 */
+	private static final class Search {
+		final int[] dist;
+		final int[] previous;
+		final int[] hops;
+		final int[] bound;		//lower bound on the distance to the target
+		final int[] key;		//dist + bound, the order of the queue
+		final IndexMinHeap queue;
+		private final int[] reached;	//the last search that reached each road
+		private final int[] settled;	//the last search that settled each road
+		private int search;
+		
+		Search( int size ) {
+			dist = new int[size];
+			previous = new int[size];
+			hops = new int[size];
+			bound = new int[size];
+			key = new int[size];
+			reached = new int[size];
+			settled = new int[size];
+			queue = new IndexMinHeap( size );
+		}
+		
+		int size() {
+			return dist.length;
+		}
+		
+		void reset() {
+			if ( ++search == 0 ) {	//wrapped around, old marks could be mistaken for new ones
+				Arrays.fill( reached, 0 );
+				Arrays.fill( settled, 0 );
+				search = 1;
+			}
+			queue.reset( key );
+		}
+		
+		boolean isReached( int node ) {
+			return reached[node] == search;
+		}
+		
+		boolean isSettled( int node ) {
+			return settled[node] == search;
+		}
+		
+		void settle( int node ) {
+			settled[node] = search;
+		}
+		
+		void reach( int node, int d, int from, int depth, int b ) {
+			reached[node] = search;
+			dist[node] = d;
+			previous[node] = from;
+			hops[node] = depth;
+			bound[node] = b;
+			key[node] = (int)Math.min( Integer.MAX_VALUE - 1, (long)d + b );
+		}
+	}
+}
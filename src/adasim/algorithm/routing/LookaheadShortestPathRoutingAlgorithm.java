@@ -27,13 +27,17 @@
  */
 package adasim.algorithm.routing;
 
-import java.util.HashSet;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Set;
 
 import org.apache.log4j.Logger;
 
+import adasim.model.CheckpointInput;
+import adasim.model.CheckpointOutput;
+import adasim.model.Checkpointable;
+import adasim.model.MapTopology;
 import adasim.model.RoadSegment;
 import adasim.model.Vehicle;
 
@@ -46,7 +50,7 @@ import adasim.model.Vehicle;
  * @author Jochen Wuttke - wuttkej@gmail.com
  *
  */
-public class LookaheadShortestPathRoutingAlgorithm extends AbstractRoutingAlgorithm {
+public class LookaheadShortestPathRoutingAlgorithm extends AbstractRoutingAlgorithm implements SpeculativeRoutingAlgorithm, Checkpointable {
 	
 	private final static Logger logger = Logger.getLogger(LookaheadShortestPathRoutingAlgorithm.class);
 	
@@ -101,48 +105,100 @@ public class LookaheadShortestPathRoutingAlgorithm extends AbstractRoutingAlgori
 	}
 
 	
+	/**
+	 * @return the number of roads from the current road for which 
+	 * current delays are considered
+	 */
+	protected int getLookahead() {
+		return lookahead;
+	}
+	
 	public List<RoadSegment> getPath(RoadSegment source, RoadSegment target ) {
-		return dijkstra(graph.getRoadSegments(), source, target, lookahead );
+		ShortestPathTreeCache.Tree tree = getTree(source);
+		return reconstructPath( tree.previous, tree.topology, source, target );
+	}
+	
+	/**
+	 * Looks up the shortest path tree from <code>start</code> in the cache
+	 * of the map, and computes it if there is no valid tree.
+	 * @param start
+	 * @return the shortest path tree from <code>start</code> 
+	 */
+	private ShortestPathTreeCache.Tree getTree(RoadSegment start) {
+		MapTopology nodes = graph.getTopology();
+		ShortestPathTreeCache cache = ShortestPathTreeCache.forMap( graph );
+		ShortestPathTreeCache.Tree tree = cache.get( nodes, getIndex(nodes, start), lookahead, graph.getDelayChanges().getVersion() );
+		if ( tree == null ) {
+			tree = dijkstra( nodes, start, lookahead );
+			cache.put( tree );
+		}
+		return tree;
 	}
 	
 	/**
 	 * Computes Dijkstra's shortest path algorithm on the graph represented by
-	 * <code>nodes</code>, and returns a list of nodes that represent
-	 * the shortest past from <code>source</code> to <code>target</code>.
-	 * @param nodes
-	 * @param source
-	 * @param target
-	 * @param l
-	 * @return the shortest past from <code>source</code> to <code>target</code>
+	 * <code>nodes</code>, and returns the tree of shortest paths from 
+	 * <code>source</code> to all other nodes. All current delays that were 
+	 * read are recorded in the tree.
+	 * <p>
+	 * Nodes are settled in the order of their distance, and nodes with the
+	 * same distance in the order of their index. The depth of each node
+	 * on its current path is tracked in <code>hops</code>. This is only 
+	 * wrong after a node that was already settled is reached on a shorter 
+	 * path, which can only happen when the delay of a closed road overflows
+	 * the distance. From then on depths are computed from the path itself.
 	 */
-	private List<RoadSegment> dijkstra(List<RoadSegment> nodes, RoadSegment source, RoadSegment target, int l) {
+	private ShortestPathTreeCache.Tree dijkstra(MapTopology nodes, RoadSegment source, int l) {
 		int size = nodes.size();
+		ShortestPathTreeCache.Tree reads = new ShortestPathTreeCache.Tree( nodes, getIndex(nodes, source), l, graph.getDelayChanges().getVersion() );
 		int[] dist = new int[size];
-		int[] previous = new int[size];
-		Set<Integer> q = new HashSet<Integer>();
+		int[] previous = reads.previous;
+		int[] hops = new int[size];
+		boolean[] settled = new boolean[size];
+		boolean rewired = false;
+		IndexMinHeap q = new IndexMinHeap( size );
 		
-		init( dist, previous, getIndex(nodes, source) , q );
+		init( dist, previous, getIndex(nodes, source), q );
 		while( !q.isEmpty() ) {
-			int current = getIndexOfMin(q, dist);
-			if ( dist[current] == Integer.MAX_VALUE ) break;
-			q.remove( current );
+			int current = q.poll();
+			settled[current] = true;
 			
-			for ( RoadSegment node : nodes.get(current).getNeighbors() ) {
-				int depth = getCurrentDepth(previous, nodes, source, nodes.get(current) );
+			for ( int e = nodes.getEdgeStart(current); e < nodes.getEdgeEnd(current); e++ ) {
+				int thisIndex = nodes.getTarget(e);
+				RoadSegment node = nodes.getRoadSegment(thisIndex);
+				int depth = ( rewired ? getCurrentDepth(previous, nodes, source, nodes.getRoadSegment(current) ) : hops[current] + 1 );
 				
 				//if we ever make vehicle extensible, then we have to query the class of the configure vehicle
-				int t = dist[current] + ( depth <= l ? node.getCurrentDelay(Vehicle.class) : node.getDelay(Vehicle.class) );
-				int thisIndex = getIndex( nodes, node );
+				int t = dist[current] + ( depth <= l ? currentDelay(node, reads) : node.getDelay(Vehicle.class) );
 				if ( t < dist[ thisIndex ] ) {
 					dist[thisIndex] = t;
 					previous[thisIndex] = current;
+					hops[thisIndex] = hops[current] + 1;
+					if ( q.contains(thisIndex) ) {
+						q.decreaseKey(thisIndex);
+					} else if ( settled[thisIndex] ) {
+						rewired = true;
+					} else {
+						q.add(thisIndex);
+					}
 				}
 			}
 		}
-		return reconstructPath( previous, nodes, source, target );
+		return reads;
 	}
 	
 
+	/**
+	 * @param node
+	 * @param reads
+	 * @return the current delay of <code>node</code>, after recording it in <code>reads</code>
+	 */
+	private int currentDelay(RoadSegment node, ShortestPathTreeCache.Tree reads) {
+		int d = node.getCurrentDelay(Vehicle.class);
+		reads.record(node);
+		return d;
+	}
+
 	/**
 	 * @param previous
 	 * @param nodes
@@ -150,7 +206,7 @@ public class LookaheadShortestPathRoutingAlgorithm extends AbstractRoutingAlgori
 	 * @param current
 	 * @return the current depth of the search path
 	 */
-	private int getCurrentDepth(int[] previous, List<RoadSegment> nodes,
+	private int getCurrentDepth(int[] previous, MapTopology nodes,
 			RoadSegment source, RoadSegment current) {
 		List<RoadSegment> path = reconstructPath(previous, nodes, source, current );
 		if ( path == null ) return 1;
@@ -159,18 +215,18 @@ public class LookaheadShortestPathRoutingAlgorithm extends AbstractRoutingAlgori
 
 	/**
 	 * @param previous map to previous nodes on a path 
-	 * @param nodes list of all nodes
+	 * @param nodes all nodes
 	 * @param source ID of source node
 	 * @param target ID of target node
 	 * @return the path constructed from the intermediate data structures passed in
 	 */
-	private List<RoadSegment> reconstructPath(int[] previous, List<RoadSegment> nodes, RoadSegment source, RoadSegment target) {
+	private List<RoadSegment> reconstructPath(int[] previous, MapTopology nodes, RoadSegment source, RoadSegment target) {
 		int ti = getIndex(nodes, target);
 		if ( previous[ ti ] == -1 ) return null; //no path
 		LinkedList<RoadSegment> path = new LinkedList<RoadSegment>();
 		int current = ti;
 		do {
-			path.push( nodes.get(current) );
+			path.push( nodes.getRoadSegment(current) );
 			current = previous[current];
 		} while ( current != getIndex(nodes, source) && previous[current] != -1 );
 		return path;
@@ -179,44 +235,24 @@ public class LookaheadShortestPathRoutingAlgorithm extends AbstractRoutingAlgori
 	/**
 	 * @param nodes
 	 * @param node
-	 * @return the index of the node in the list, -1 if the node cannot be found
+	 * @return the index of the node, -1 if the node cannot be found
 	 */
-	private int getIndex(List<RoadSegment> nodes, RoadSegment node) {
-		for ( int i =0 ; i < nodes.size() ; i++ ) {
-			if ( nodes.get(i).equals( node ) ) return i;
-		}
-			
-		return -1;
-	}
-
-	/**
-	 * Computes the array index of the smallest element
-	 * @param q
-	 * @return the index of the smalles element
-	 */
-	private int getIndexOfMin(Set<Integer> q, int[] dist) {
-		int min = q.iterator().next();
-		for ( int i : q ) {
-			if ( dist[min] > dist[i] ) min = i;
-		}
-		return min;
+	private int getIndex(MapTopology nodes, RoadSegment node) {
+		return nodes.getIndex( node );
 	}
 
 	/**
 	 * @param dist
 	 * @param previous
 	 * @param source
+	 * @param q the queue of nodes, which will only contain <code>source</code>
 	 */
-	private void init(int[] dist, int[] previous, int source, Set<Integer> q) {
-		for ( int i = 0; i < dist.length; i++ ) {
-			if ( i == source ) {
-				dist[i] = 0;
-			} else {
-				dist[i] = Integer.MAX_VALUE;
-			}
-			previous[i] = -1;
-			q.add(i);
-		}
+	private void init(int[] dist, int[] previous, int source, IndexMinHeap q) {
+		Arrays.fill( dist, Integer.MAX_VALUE );
+		Arrays.fill( previous, -1 );
+		dist[source] = 0;
+		q.reset( dist );
+		q.add( source );
 	}
 
 	/* (non-Javadoc)
@@ -227,7 +263,10 @@ public class LookaheadShortestPathRoutingAlgorithm extends AbstractRoutingAlgori
 		if ( finished ) return null;
 		if ( path == null ) {
 			path = getPath(source);
-			logger.info( pathLogMessage() );
+			if ( logger.isInfoEnabled() ) {
+				logger.info( pathLogMessage() );
+			}
+			pathComputed( path, false );
 		}
 		assert path != null || finished;
 		if ( path == null || path.size() == 0 ) {
@@ -237,13 +276,34 @@ public class LookaheadShortestPathRoutingAlgorithm extends AbstractRoutingAlgori
 		if ( ++steps == recompute ) {
 			RoadSegment next = path.remove(0);
 			path = getPath(next);
-			logger.info( "UPDATE: " + pathLogMessage() );
+			if ( logger.isInfoEnabled() ) {
+				logger.info( "UPDATE: " + pathLogMessage() );
+			}
+			pathComputed( path, true );
 			steps = 0;
 			return next;
 		} else {
 			return path.remove(0);
 		}
 	}
+	
+	/**
+	 * Computes the shortest path trees that the next call to 
+	 * {@link #getNextNode()} will need, which is at most two: one for a 
+	 * vehicle that has not computed a path yet, and one if the path is due 
+	 * for recomputation. The trees are stored in the cache of the map.
+	 */
+	@Override
+	public void speculate() {
+		if ( finished ) return;
+		List<RoadSegment> p = path;
+		if ( p == null ) {
+			p = getPath( source, target );
+		}
+		if ( p != null && p.size() > 0 && steps + 1 == recompute ) {
+			getTree( p.get(0) );
+		}
+	}
 
 	/**
 	 * Computes a path to the configured target node starting from
@@ -251,7 +311,7 @@ public class LookaheadShortestPathRoutingAlgorithm extends AbstractRoutingAlgori
 	 * @param start
 	 */
 	private List<RoadSegment> getPath(RoadSegment start) {
-		List<RoadSegment> p = dijkstra(graph.getRoadSegments(), start, target, lookahead );
+		List<RoadSegment> p = getPath( start, target );
 		if ( p == null ) {
 			finished = true;
 		}
@@ -269,4 +329,21 @@ public class LookaheadShortestPathRoutingAlgorithm extends AbstractRoutingAlgori
 		buf.append( path == null ? "[]" : path );
 		return buf.toString();
 	}
+	
+	/**
+	 * Writes the path this algorithm follows and its progress on it.
+	 */
+	@Override
+	public void writeState( CheckpointOutput out ) {
+		out.writeRoads( path );
+		out.writeInt( steps );
+		out.writeBoolean( finished );
+	}
+
+	@Override
+	public void readState( CheckpointInput in ) throws IOException {
+		path = in.readRoads();
+		steps = in.readInt();
+		finished = in.readBoolean();
+	}
 }
@@ -5,44 +5,47 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Random;
-import java.util.Stack;
+import java.util.concurrent.ForkJoinPool;
 
 import org.apache.log4j.Logger;
 import org.jdom.Element;
 
+import adasim.event.EventSink;
 import adasim.model.AdasimMap;
+import adasim.model.CheckpointInput;
+import adasim.model.CheckpointOutput;
+import adasim.model.Checkpointable;
 import adasim.model.ConfigurationException;
+import adasim.model.MapTopology;
 import adasim.model.RoadSegment;
 import adasim.model.TrafficSimulator;
+import adasim.model.Vehicle;
 import adasim.model.internal.FilterMap;
 import adasim.model.internal.SimulationXMLReader;
 import adasim.model.internal.VehicleManager;
+import adasim.util.RestorableRandom;
 
-public class QLearningRoutingAlgorithm  extends AbstractRoutingAlgorithm {
+public class QLearningRoutingAlgorithm  extends AbstractRoutingAlgorithm implements Checkpointable {
 
 	private boolean finished = false;
 	
-    private final double alpha = 0.1; // Learning rate
-    private final double gamma = 0.9; // Eagerness - 0 looks in the near future, 1 looks in the distant future
-
- 
-    private   int statesCount  ;
-
-    private final int reward = 100;
-    private final int penalty = -10;
+    private final int episodes = 1000;	// maximum training episodes per route
+    private final int batch = 50;		// episodes between checks of the policy
  
-    private int[][] R;       // Reward lookup
-    private double[][] Q;    // Q learning
+    private int[] traceFrom, traceTo;	// reused to report Q to the event sink
+    private double[] traceValues;
 
     
 	private final int lookahead;
 	private final int recompute;
 	private int steps;
 	private List<RoadSegment> path;
+	private final long seed;
+	private RestorableRandom random;	//reused for all training, seeded per vehicle
+	
+	private static final long DEFAULT_SEED = 0x5DEECE66DL;
 	
     RoadSegment currentSource =null;
     
@@ -52,234 +55,101 @@ public class QLearningRoutingAlgorithm  extends AbstractRoutingAlgorithm {
 		this(2,2); 
 	}
     public QLearningRoutingAlgorithm( int lookahead, int recomp ){
+    	this( lookahead, recomp, DEFAULT_SEED );
+    }
+    
+    /**
+     * The random choices made during training depend only on 
+     * <code>seed</code> and the ID of the vehicle, so runs are repeatable.
+     * @param lookahead
+     * @param recomp
+     * @param seed
+     */
+    public QLearningRoutingAlgorithm( int lookahead, int recomp, long seed ){
 		this.lookahead = lookahead;
 		this.recompute = recomp;
 		this.steps = 0;
+		this.seed = seed;
+		this.random = new RestorableRandom( seed );
 		logger.info( "QLearningRoutingAlgorithm(" + lookahead + "," + recompute +")" );
  
  
          
     }
+    
+    @Override
+    public void setVehicle( Vehicle v ) {
+    	super.setVehicle(v);
+    	random.setSeed( seed + v.getID() );
+    }
    
   
     /*
-     * Map Road segment to 2d array for q learninig to work on
-     * 
-     * 
+     * Reports the learned values to the event sink, if it traces the vehicle.
+     * For diagnostics only, it costs O(E) per path.
      */
-    public void mapSegmentToArray(List<RoadSegment> listOfRoadSegment ) {
-    	 Collections.sort(listOfRoadSegment); // Make sure we alwasy loading sorted Map
-    	 
-    	 
-    	 //int dim = listOfRoadSegment.size() +1; // dimention of 2d array
-    	 R = new int[statesCount][statesCount];
-         Q = new double[statesCount][statesCount];
-    	 
-    	 // set all cells with -1 for the impossible transitions
-    	 for(int i=0;i<statesCount ;i++) {
-    		 for(int j=0;j<statesCount ;j++) {
-    			R[i][j]= -1; 	 
-    		 }
-    		 
-    	 }
-    	 
-    	 
-    	 // set  cells with 0 where agent could move 
-    	 for (RoadSegment roadSegment : listOfRoadSegment) {
-    		 for (RoadSegment roadSegmentNeighbors : roadSegment.getNeighbors()) {
-    			 R[roadSegment.getID()][roadSegmentNeighbors.getID()]= 0;  // forword drive
-    			// R[roadSegmentNeighbors.getID()][roadSegment.getID()]= 0;  //backword drive
-    			 
-    			 // set reword for reaching the target
-    			 if(roadSegmentNeighbors.getID() == target.getID() ) {
-    				 R[roadSegment.getID()][roadSegmentNeighbors.getID()]= reward;  
-    			 }
-//    			 if(roadSegment.getID() == target ) {
-//    				 R[roadSegmentNeighbors.getID()][roadSegment.getID()]= reward;  
-//    			 }
-    		 }
-
-   		 } 
-    	 
-    	 // set reword for reaching goal 
-    	 
-    	 //R[target][target]= reward; 
-    	  initializeQ();
-    
-    }
- 
-    
-    //Set Q values to R values
-    void initializeQ()
-    {
-        for (int i = 0; i < statesCount; i++){
-            for(int j = 0; j < statesCount; j++){
-                Q[i][j] = (double)R[i][j];
-            }
-        }
+    private void traceQ( QTable table ) {
+    	if ( vehicle == null ) return;
+    	EventSink events = vehicle.getEventSink();
+    	if ( !events.isTraced( vehicle.getID() ) ) return;
+    	MapTopology topology = table.getTopology();
+    	double[] Q = table.getValues();
+    	if ( traceFrom == null || traceFrom.length < Q.length ) {
+    		traceFrom = new int[Q.length];
+    		traceTo = new int[Q.length];
+    		traceValues = new double[Q.length];
+    	}
+    	int n = 0;
+    	for (int i = 0; i < topology.size(); i++) {
+    		for (int e = topology.getEdgeStart(i); e < topology.getEdgeEnd(i); e++) {
+    			if ( Q[e] != 0 ) {
+    				traceFrom[n] = topology.getRoadSegment(i).getID();
+    				traceTo[n] = topology.getRoadSegment( topology.getTarget(e) ).getID();
+    				traceValues[n++] = Q[e];
+    			}
+    		}
+    	}
+    	events.qValuesLearned( vehicle.getID(), topology.getRoadSegment(table.getGoal()).getID(), traceFrom, traceTo, traceValues, n );
     }
     
-    // Used for debug
-    void printR() {
-        System.out.printf("%25s", "States: ");
-        for (int i = 0; i < statesCount; i++) {
-            System.out.printf("%4s", i);
-        }
-        System.out.println();
-
-        for (int i = 0; i < statesCount; i++) {
-            System.out.print("Possible states from " + i + " :[");
-            for (int j = 0; j < statesCount; j++) {
-                System.out.printf("%4s", R[i][j]);
-            }
-            System.out.println("]");
-        }
-    }
-
-    void calculateQ() {
-        Random rand = new Random();
-
-        for (int i = 0; i < 1000; i++) { // Train cycles
-           
-        	// Select random initial state
-            int crtState = currentSource.getID();// set source base on input rand.nextInt(statesCount);
-
-            while (!isFinalState(crtState)) {
-                int[] actionsFromCurrentState = possibleActionsFromState(crtState);
-
-                // Pick a random action from the ones possible
-                int index = rand.nextInt(actionsFromCurrentState.length);
-                int nextState = actionsFromCurrentState[index];
-
-                // Q(state,action)= Q(state,action) + alpha * (R(state,action) + gamma * Max(next state, all actions) - Q(state,action))
-                
-                double q = Q[crtState][nextState];
-                double maxQ = maxQ(nextState);
-                int r = R[crtState][nextState];
-
-                double value = q + alpha * (r + gamma * maxQ - q);
-                Q[crtState][nextState] = value;
-
-                crtState = nextState;
-            }
-        }
-    }
-
-    boolean isFinalState(int state) {
-        
-        return state ==  target.getID();
-    }
-
-    int[] possibleActionsFromState(int state) {
-        ArrayList<Integer> result = new ArrayList<>();
-        for (int i = 0; i < statesCount; i++) {
-            if (R[state][i] != -1) {
-                result.add(i);
-            }
-        }
-
-        return result.stream().mapToInt(i -> i).toArray();
-    }
-
-    double maxQ(int nextState) {
-        int[] actionsFromState = possibleActionsFromState(nextState);
-        //the learning rate and eagerness will keep the W value above the lowest reward
-        double maxValue = -10;
-        for (int nextAction : actionsFromState) {
-            double value = Q[nextState][nextAction];
-
-            if (value > maxValue)
-                maxValue = value;
-        }
-        return maxValue;
-    }
-
-    void printPolicy() {
-        System.out.println("\nPrint policy");
-        for (int i = 0; i < statesCount; i++) {
-            System.out.println("From state " + i + " goto state " + getPolicyFromState(i));
-        }
-    }
-
-    int getPolicyFromState(int state) {
-        int[] actionsFromState = possibleActionsFromState(state);
-
-        double maxValue = Double.MIN_VALUE;
-        int policyGotoState = state;
-
-        // Pick to move to the state that has the maximum Q value
-        for (int nextState : actionsFromState) {
-            double value = Q[state][nextState];
-
-            if (value > maxValue) {
-                maxValue = value;
-                policyGotoState = nextState;
-            }
-        }
-        return policyGotoState;
-    }
-
-    void printQ() {
-        System.out.println("\nQ matrix");
-        for (int i = 0; i < Q.length; i++) {
-            System.out.print("From state " + i + ":  ");
-            for (int j = 0; j < Q[i].length; j++) {
-                System.out.printf("%6.2f ", (Q[i][j]));
-            }
-            System.out.println();
-        }
-    }
+    /**
+     * Trains the Q-table shared by all vehicles going to <code>to</code> 
+     * (see {@link QTableStore}) with episodes starting at <code>from</code>,
+     * until its policy leads from <code>from</code> to <code>to</code>, 
+     * and, if set, until it converges (see {@link QTableStore#setConvergence(double)}). 
+     * A table that was trained before needs only a few episodes, 
+     * in any case training stops after 1000 episodes.
+     * @return the path the policy of the table takes, or <code>null</code> 
+     * if it does not reach <code>to</code> 
+     */
 	@Override
 	public List<RoadSegment> getPath(RoadSegment from, RoadSegment to) {
 		
 		currentSource = from;
 		
-		// get path
-        List<RoadSegment> nodes = graph.getRoadSegments();
-    	statesCount = nodes.size();
-        mapSegmentToArray(nodes);  // convert segments to 2d array
-        
-        calculateQ();  // calculate q-learninig
-        
-        System.out.println("========================Source: " + currentSource.getID() +", Target: "+ target.getID() + "===============================");
-        
-        printR();
-        printQ();
-        printPolicy();
-       
-    	List<RoadSegment> newListOfNodes = new ArrayList<RoadSegment>( );
-    	 
-    	// get path using stack
-    	
-        Stack<Integer> st= new Stack<Integer>();
-        st.add(getPolicyFromState(from.getID()));
-        
-        while( !st.isEmpty()){
-        	int currentState= st.pop();
-        	newListOfNodes.add(nodes.get(currentState));
-        	
-        	if(currentState == to.getID()) {
-        		break;
-        	}
-        	int nextSate = getPolicyFromState(currentState);
-        	st.add(nextSate);
-        	
-        }
-        
-        System.out.println("\nRoadSegments: ");
-        for (RoadSegment roadSegment : newListOfNodes) {
-			System.out.println("\tSegment ID:"+roadSegment.getID());
-			System.out.println("\t \tNeighbors: "+ roadSegment.getNeighbors());
+		MapTopology topology = graph.getTopology();
+		int source = topology.getIndex(from);
+		QTableStore store = QTableStore.forMap( graph );
+		QTable table = store.get( topology, topology.getIndex(to) );
+		ForkJoinPool pool = store.getPool();
+		double epsilon = store.getConvergence();
+		List<RoadSegment> newListOfNodes = new ArrayList<RoadSegment>( );
+		synchronized ( table ) {
+			boolean found = false, done = false;
+			for ( int trained = 0; !done && trained < episodes; trained += batch ) {
+				double delta = ( pool == null ? table.train( source, batch, random ) 
+						: table.train( source, batch, random, pool ) );
+				newListOfNodes.clear();
+				found = table.followPolicy( source, newListOfNodes );
+				//before any walk reaches the goal, no value changes at all
+				done = found && ( epsilon <= 0 || delta < epsilon );
+			}
+			traceQ( table );
+			if ( !found ) {
+				finished = true;
+				return null;
+			}
 		}
-        
-        System.out.println("=======================================================");
-        
-        
-        
-    	if ( newListOfNodes == null ) {
-			finished = true;
-		}
-    	
         return newListOfNodes;
 	}
 	
@@ -290,7 +160,10 @@ public class QLearningRoutingAlgorithm  extends AbstractRoutingAlgorithm {
 		if ( finished ) return null;
 		if ( path == null ) {
 			path = getPath(source);
-			logger.info( pathLogMessage() );
+			if ( logger.isInfoEnabled() ) {
+				logger.info( pathLogMessage() );
+			}
+			pathComputed( path, false );
 		}
 		assert path != null || finished;
 		if ( path == null || path.size() == 0 ) {
@@ -300,7 +173,10 @@ public class QLearningRoutingAlgorithm  extends AbstractRoutingAlgorithm {
 		if ( ++steps == recompute ) {
 			RoadSegment next = path.remove(0);
 			path = getPath(next);
-			logger.info( "UPDATE: " + pathLogMessage() );
+			if ( logger.isInfoEnabled() ) {
+				logger.info( "UPDATE: " + pathLogMessage() );
+			}
+			pathComputed( path, true );
 			steps = 0;
 			return next;
 		} else {
@@ -333,4 +209,24 @@ public class QLearningRoutingAlgorithm  extends AbstractRoutingAlgorithm {
 		buf.append( path == null ? "[]" : path );
 		return buf.toString();
 	}
+	
+	/**
+	 * Writes the path this algorithm follows, its progress on it and the 
+	 * state of the random generator used for training.
+	 */
+	@Override
+	public void writeState( CheckpointOutput out ) {
+		out.writeRoads( path );
+		out.writeInt( steps );
+		out.writeBoolean( finished );
+		out.writeRandom( random );
+	}
+
+	@Override
+	public void readState( CheckpointInput in ) throws IOException {
+		path = in.readRoads();
+		steps = in.readInt();
+		finished = in.readBoolean();
+		in.readRandom( random );
+	}
 }
\ No newline at end of file
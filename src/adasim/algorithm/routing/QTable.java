@@ -0,0 +1,277 @@
+/*******************************************************************************
+ * Copyright (C) 2011 - 2012 Jochen Wuttke, Jonathan Ramaswamy
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ********************************************************************************
+ *
+ * Created: Oct 18, 2026
+ */
+
+package adasim.algorithm.routing;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import adasim.model.MapTopology;
+import adasim.model.RoadSegment;
+
+
+/**
+ * The Q-values learned for reaching one road of a map, shared by all
+ * {@link QLearningRoutingAlgorithm}s with that destination 
+ * (see {@link QTableStore}).
+ * <p>
+ * States are road indices of the {@link MapTopology}, actions are the 
+ * edges leaving a road, and there is one value per edge. Only the edges 
+ * into the goal earn a reward. 
+ * <p>
+ * Tables are not thread safe, callers synchronize on the table. 
+ * {@link #train(int, int, Random, ForkJoinPool)} is the exception, it 
+ * runs episodes in parallel that update the values without any locking
+ * (Hogwild! style). Updates from different threads can then overwrite 
+ * each other, which costs a few updates but not convergence, because 
+ * each update only moves a value a little towards its target.
+ */
+final class QTable {
+	
+    private static final double alpha = 0.1; // Learning rate
+    private static final double gamma = 0.9; // Eagerness - 0 looks in the near future, 1 looks in the distant future
+    private static final int reward = 100;
+    private static final int penalty = -10;
+    private static final int episodeLength = 10;	// maximum steps per episode, per road
+	
+	private final MapTopology topology;
+	private final int goal;
+	private final double[] q;
+	private long episodes;
+	
+	/**
+	 * Creates an untrained table.
+	 * @param topology
+	 * @param goal the index of the destination
+	 */
+	QTable( MapTopology topology, int goal ) {
+		this.topology = topology;
+		this.goal = goal;
+		q = new double[topology.getEdgeCount()];
+		for ( int e = 0; e < q.length; e++ ) {
+			q[e] = reward( e );
+		}
+	}
+	
+	/**
+	 * Creates a table with learned values.
+	 * @param topology
+	 * @param goal
+	 * @param q one value per edge of <code>topology</code>
+	 * @param episodes the number of episodes the values were learned in
+	 */
+	QTable( MapTopology topology, int goal, double[] q, long episodes ) {
+		this.topology = topology;
+		this.goal = goal;
+		this.q = q;
+		this.episodes = episodes;
+	}
+	
+	MapTopology getTopology() {
+		return topology;
+	}
+	
+	int getGoal() {
+		return goal;
+	}
+	
+	/**
+	 * @return the values, by edge. Not a copy.
+	 */
+	double[] getValues() {
+		return q;
+	}
+	
+	/**
+	 * @return the number of episodes this table has been trained in
+	 */
+	long getEpisodes() {
+		return episodes;
+	}
+	
+    /*
+     * @return the reward for taking edge e
+     */
+    private int reward( int e ) {
+    	return topology.getTarget(e) == goal ? reward : 0;
+    }
+    
+    /**
+     * Runs training episodes, each a random walk from <code>source</code>.
+     * An episode ends at the goal, at a dead end, or after 
+     * {@value #episodeLength} steps per road, in case the walk has 
+     * entered a part of the map from which the goal cannot be reached.
+     * @param source
+     * @param count the number of episodes
+     * @param random
+     * @return the largest change of a value in these episodes
+     */
+    double train( int source, int count, Random random ) {
+    	double delta = runEpisodes( source, count, random );
+        episodes += count;
+        return delta;
+    }
+    
+    /**
+     * Runs training episodes like {@link #train(int, int, Random)}, split
+     * evenly between the threads of <code>pool</code>. Each part of the 
+     * episodes uses its own generator, seeded from <code>random</code>.
+     * The order of the updates, and so the values learned, depend on 
+     * how the threads are scheduled.
+     * @param source
+     * @param count the number of episodes
+     * @param random
+     * @param pool
+     * @return the largest change of a value in these episodes
+     */
+    double train( int source, int count, Random random, ForkJoinPool pool ) {
+    	int parts = Math.min( pool.getParallelism(), count );
+    	double delta = pool.invoke( new Episodes( source, count, 0, parts, random.nextLong() ) );
+    	episodes += count;
+    	return delta;
+    }
+    
+    /*
+     * Runs count episodes from source and returns the largest change of a value.
+     */
+    private double runEpisodes( int source, int count, Random random ) {
+        double delta = 0;
+        int maxSteps = episodeLength * topology.size();
+        for (int i = 0; i < count; i++) { // Train cycles
+            int crtState = source;
+
+            for (int step = 0; step < maxSteps && crtState != goal; step++) {
+                int first = topology.getEdgeStart(crtState);
+                int actions = topology.getEdgeEnd(crtState) - first;
+                if ( actions == 0 ) break;	//dead end
+
+                // Pick a random action from the ones possible
+                int action = first + random.nextInt(actions);
+                int nextState = topology.getTarget(action);
+
+                // Q(state,action)= Q(state,action) + alpha * (R(state,action) + gamma * Max(next state, all actions) - Q(state,action))
+                double value = q[action];
+                double update = alpha * (reward(action) + gamma * maxQ(nextState) - value);
+                q[action] = value + update;
+                if ( Math.abs(update) > delta ) delta = Math.abs(update);
+
+                crtState = nextState;
+            }
+        }
+        return delta;
+    }
+    
+    /**
+     * Runs episodes for a range of parts, splitting the range until it 
+     * holds a single part.
+     */
+    private final class Episodes extends RecursiveTask<Double> {
+    	
+    	private static final long serialVersionUID = 1L;
+    	
+    	private final int source;
+    	private final int count;
+    	private final int first;
+    	private final int parts;
+    	private final long seed;
+    	
+    	/**
+    	 * @param source
+    	 * @param count the number of episodes of all parts
+    	 * @param first the number of the first part
+    	 * @param parts the number of parts
+    	 * @param seed part i uses the generator seeded with <code>seed + i</code>
+    	 */
+    	Episodes( int source, int count, int first, int parts, long seed ) {
+    		this.source = source;
+    		this.count = count;
+    		this.first = first;
+    		this.parts = parts;
+    		this.seed = seed;
+    	}
+
+    	@Override
+    	protected Double compute() {
+    		if ( parts == 1 ) {
+    			return runEpisodes( source, count, new Random( seed + first ) );
+    		}
+    		int half = parts / 2;
+    		int split = (int)( (long)count * half / parts );
+    		Episodes left = new Episodes( source, split, first, half, seed );
+    		left.fork();
+    		double right = new Episodes( source, count - split, first + half, parts - half, seed ).compute();
+    		return Math.max( left.join(), right );
+    	}
+    }
+
+    private double maxQ(int state) {
+        //the learning rate and eagerness will keep the W value above the lowest reward
+        double maxValue = penalty;
+        for (int e = topology.getEdgeStart(state); e < topology.getEdgeEnd(state); e++) {
+            if (q[e] > maxValue)
+                maxValue = q[e];
+        }
+        return maxValue;
+    }
+
+    /**
+     * @param state
+     * @return the state with the highest value reachable from <code>state</code>,
+     * or <code>state</code> if no value is positive
+     */
+    int getPolicyFromState(int state) {
+        double maxValue = Double.MIN_VALUE;
+        int policyGotoState = state;
+
+        // Pick to move to the state that has the maximum Q value
+        for (int e = topology.getEdgeStart(state); e < topology.getEdgeEnd(state); e++) {
+            if (q[e] > maxValue) {
+                maxValue = q[e];
+                policyGotoState = topology.getTarget(e);
+            }
+        }
+        return policyGotoState;
+    }
+    
+    /**
+     * Follows the current policy from <code>source</code>. A policy that 
+     * does not reach the goal in as many steps as there are roads runs 
+     * in circles; then no path has been learned yet.
+     * @param source
+     * @param path receives the roads after <code>source</code>, up to the goal
+     * @return <code>true</code> if the policy reaches the goal
+     */
+    boolean followPolicy( int source, List<RoadSegment> path ) {
+    	int state = source;
+    	for ( int i = 0; i < topology.size(); i++ ) {
+    		state = getPolicyFromState(state);
+    		path.add( topology.getRoadSegment(state) );
+    		if ( state == goal ) return true;
+    	}
+    	return false;
+    }
+}
@@ -0,0 +1,313 @@
+/*******************************************************************************
+ * Copyright (C) 2011 - 2012 Jochen Wuttke, Jonathan Ramaswamy
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ********************************************************************************
+ *
+ * Created: Oct 18, 2026
+ */
+
+package adasim.algorithm.routing;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+
+import adasim.model.AdasimMap;
+import adasim.model.CheckpointInput;
+import adasim.model.CheckpointOutput;
+import adasim.model.Checkpointable;
+import adasim.model.MapTopology;
+import adasim.model.internal.CheckpointWriter;
+
+/**
+ * Q-tables shared by all {@link QLearningRoutingAlgorithm}s on one 
+ * {@link AdasimMap} (see {@link #forMap(AdasimMap)}), one for each
+ * destination.
+ * <p>
+ * Every route query trains the table of its destination a little more,
+ * so vehicles going to the same road build on what earlier vehicles 
+ * learned instead of starting from scratch. Tables are dropped when the
+ * topology of the map changes.
+ * <p>
+ * The tables can be saved to a file with {@link #save(String)} and
+ * loaded into a later simulation on the same map with {@link #load(String)}, 
+ * so that it starts with converged tables. They are also part of 
+ * checkpoints of the simulation.
+ * <p>
+ * By default, a route query trains until the policy of the table reaches
+ * the destination, with one thread. {@link #setParallelism(int)} 
+ * spreads training over several threads, and {@link #setConvergence(double)} 
+ * also trains until the values stop changing.
+ * <p>
+ * This class is thread safe.
+ */
+public final class QTableStore implements Checkpointable {
+	
+	private static final AdasimMap.Factory<QTableStore> FACTORY = new AdasimMap.Factory<QTableStore>() {
+		@Override
+		public QTableStore create( AdasimMap map ) {
+			return new QTableStore( map );
+		}
+	};
+	
+	private final static byte[] MAGIC = { 'A', 'D', 'Q', 'T' };
+	private final static int VERSION = 1;
+	
+	private final AdasimMap map;
+	private MapTopology topology;
+	private QTable[] tables;		//by index of the destination
+	private int parallelism = 1;
+	private ForkJoinPool pool;		//null if parallelism == 1
+	private volatile double epsilon = 0;
+	
+	/**
+	 * @param map
+	 * @return the Q-tables shared by the vehicles on <code>map</code>
+	 */
+	public static QTableStore forMap( AdasimMap map ) {
+		return map.getCache( QTableStore.class, FACTORY );
+	}
+	
+	/**
+	 * @param map the map the tables are learned on
+	 */
+	private QTableStore( AdasimMap map ) {
+		this.map = map;
+	}
+	
+	/**
+	 * @param topology the current topology of the map
+	 * @param goal the index of the destination
+	 * @return the table for <code>goal</code>, created if there is none yet
+	 */
+	synchronized QTable get( MapTopology topology, int goal ) {
+		if ( topology != this.topology ) {
+			this.topology = topology;
+			tables = new QTable[topology.size()];
+		}
+		QTable t = tables[goal];
+		if ( t == null ) {
+			t = tables[goal] = new QTable( topology, goal );
+		}
+		return t;
+	}
+	
+	/**
+	 * Sets the number of threads that train a table. With more than
+	 * one thread, the values learned are not repeatable.
+	 * @param parallelism must be at least 1
+	 */
+	public synchronized void setParallelism( int parallelism ) {
+		if ( parallelism < 1 ) {
+			throw new IllegalArgumentException( "Parallelism must be at least 1" );
+		}
+		if ( pool != null ) {
+			pool.shutdown();
+			pool = null;
+		}
+		this.parallelism = parallelism;
+	}
+	
+	/**
+	 * @return the number of threads that train a table
+	 */
+	public synchronized int getParallelism() {
+		return parallelism;
+	}
+	
+	/**
+	 * @return the pool training runs on, created on first use, or 
+	 * <code>null</code> to train on the calling thread
+	 */
+	synchronized ForkJoinPool getPool() {
+		if ( pool == null && parallelism > 1 ) {
+			pool = new ForkJoinPool( parallelism );
+		}
+		return pool;
+	}
+	
+	/**
+	 * Trains each route query until its policy reaches the destination 
+	 * and no value changes by <code>epsilon</code> or more in a batch of 
+	 * episodes. Destinations that cannot be reached are trained for the maximum 
+	 * number of episodes.
+	 * @param epsilon the largest change of a converged value, or 0 to 
+	 * train until the policy reaches the destination
+	 */
+	public void setConvergence( double epsilon ) {
+		if ( epsilon < 0 ) {
+			throw new IllegalArgumentException( "Epsilon must not be negative" );
+		}
+		this.epsilon = epsilon;
+	}
+	
+	/**
+	 * @return the largest change of a converged value, or 0 if training 
+	 * ends when the policy reaches the destination
+	 */
+	public double getConvergence() {
+		return epsilon;
+	}
+	
+	/**
+	 * @return the number of destinations tables have been learned for
+	 */
+	public synchronized int size() {
+		int n = 0;
+		if ( tables != null ) {
+			for ( QTable t : tables ) {
+				if ( t != null ) n++;
+			}
+		}
+		return n;
+	}
+	
+	/**
+	 * Removes all tables.
+	 */
+	public synchronized void clear() {
+		topology = null;
+		tables = null;
+	}
+	
+	/**
+	 * Writes all tables to <code>file</code>, replacing it atomically.
+	 * @param file
+	 * @throws IOException
+	 */
+	public void save( String file ) throws IOException {
+		CheckpointWriter writer = new CheckpointWriter( file );
+		try {
+			CheckpointOutput out = writer.begin();
+			for ( byte b : MAGIC ) {
+				out.writeByte( b );
+			}
+			out.writeByte( VERSION );
+			writeState( out );
+			writer.commit(0);
+		} finally {
+			writer.close();
+		}
+	}
+	
+	/**
+	 * Replaces all tables with those saved in <code>file</code>.
+	 * @param file
+	 * @throws IOException if the file cannot be read, or if the tables
+	 * were learned on a different map
+	 */
+	public void load( String file ) throws IOException {
+		ByteBuffer data = CheckpointWriter.read( file );
+		CheckpointInput in = new CheckpointInput( data, map );
+		for ( byte b : MAGIC ) {
+			if ( in.readByte() != b ) throw new IOException( "Not a Q-table file" );
+		}
+		if ( in.readByte() != VERSION ) {
+			throw new IOException( "Unsupported Q-table file version" );
+		}
+		readState( in );
+		if ( !in.isAtEnd() ) {
+			throw new IOException( "Q-table file has trailing data" );
+		}
+	}
+
+	/**
+	 * Writes the number of tables for the current topology of the map. 
+	 * If there are any, writes the topology, to check that the tables are 
+	 * restored on the same map, and then the tables.
+	 */
+	@Override
+	public void writeState( CheckpointOutput out ) {
+		MapTopology t = map.getTopology();
+		synchronized ( this ) {
+			int n = ( t == topology ? size() : 0 );
+			out.writeInt( n );
+			if ( n == 0 ) return;
+			out.writeInt( t.size() );
+			for ( int i = 0; i < t.size(); i++ ) {
+				out.writeInt( t.getRoadSegment(i).getID() );
+				out.writeInt( t.getEdgeEnd(i) - t.getEdgeStart(i) );
+				for ( int e = t.getEdgeStart(i); e < t.getEdgeEnd(i); e++ ) {
+					out.writeInt( t.getTarget(e) );
+				}
+			}
+			for ( int i = 0; i < tables.length; i++ ) {
+				QTable table = tables[i];
+				if ( table == null ) continue;
+				synchronized ( table ) {
+					out.writeInt( i );
+					out.writeLong( table.getEpisodes() );
+					for ( double v : table.getValues() ) {
+						out.writeDouble( v );
+					}
+				}
+			}
+		}
+	}
+
+	@Override
+	public void readState( CheckpointInput in ) throws IOException {
+		MapTopology t = map.getTopology();
+		int n = in.readInt();
+		QTable[] restored = new QTable[t.size()];
+		if ( n > 0 ) {
+			readTopology( in, t );
+		}
+		for ( int k = 0; k < n; k++ ) {
+			int goal = in.readInt();
+			if ( goal < 0 || goal >= restored.length ) {
+				throw new IOException( "Invalid Q-table destination: " + goal );
+			}
+			long episodes = in.readLong();
+			double[] q = new double[t.getEdgeCount()];
+			for ( int e = 0; e < q.length; e++ ) {
+				q[e] = in.readDouble();
+			}
+			restored[goal] = new QTable( t, goal, q, episodes );
+		}
+		synchronized ( this ) {
+			topology = t;
+			tables = restored;
+		}
+	}
+	
+	/**
+	 * Checks that the topology in <code>in</code> is <code>t</code>.
+	 * @param in
+	 * @param t
+	 * @throws IOException if it is not
+	 */
+	private static void readTopology( CheckpointInput in, MapTopology t ) throws IOException {
+		if ( in.readInt() != t.size() ) {
+			throw new IOException( "Q-tables were learned on a different map" );
+		}
+		for ( int i = 0; i < t.size(); i++ ) {
+			if ( in.readInt() != t.getRoadSegment(i).getID() 
+					|| in.readInt() != t.getEdgeEnd(i) - t.getEdgeStart(i) ) {
+				throw new IOException( "Q-tables were learned on a different map" );
+			}
+			for ( int e = t.getEdgeStart(i); e < t.getEdgeEnd(i); e++ ) {
+				if ( in.readInt() != t.getTarget(e) ) {
+					throw new IOException( "Q-tables were learned on a different map" );
+				}
+			}
+		}
+	}
+}
@@ -32,6 +32,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 
+import adasim.model.MapTopology;
 import adasim.model.RoadSegment;
 
 
@@ -51,13 +52,15 @@ public class RandomRoutingAlgorithm extends AbstractRoutingAlgorithm {
 	 * Returns the path represented as a list of integers
 	 */
 	public List<RoadSegment> getPath(RoadSegment c, RoadSegment d) {
+		MapTopology topology = graph.getTopology();
 		RoadSegment next = c;
 		List<RoadSegment> path = new ArrayList<RoadSegment>();
-		while(!next.equals(d) && path.size() < graph.getRoadSegments().size() ) {
-			List<RoadSegment> dest = next.getNeighbors();
+		while(!next.equals(d) && path.size() < topology.size() ) {
+			int n = topology.getIndex(next);
+			int first = topology.getEdgeStart(n);
 			Random generator = new Random();
-			int rand = generator.nextInt(dest.size());
-			next = dest.get(rand);
+			int rand = generator.nextInt(topology.getEdgeEnd(n) - first);
+			next = topology.getRoadSegment( topology.getTarget(first + rand) );
 			path.add(next);
 		}
 		return path.get( path.size() - 1 ) == d ? path : null ;	//The random strategy must terminate even it if can't find a path
@@ -28,13 +28,48 @@
 
 package adasim.algorithm.routing;
 
+import java.util.List;
+
+import adasim.model.MapTopology;
+import adasim.model.RoadSegment;
+
 /**
  * This is the class implementing the ShortestPath
  * strategy we use for the paper.
+ * <p>
+ * It only considers base delays, so paths are found in the contraction
+ * hierarchy of the map (see {@link ContractionHierarchyCache}) instead 
+ * of with a search of the whole map. The paths are the same as those of
+ * {@link LookaheadShortestPathRoutingAlgorithm} with a lookahead of 0.
  * 
  * @author Jochen Wuttke - wuttkej@gmail.com
  *
  */
 public class ShortestPathRoutingAlgorithm extends LookaheadShortestPathRoutingAlgorithm {
 
+	/**
+	 * Finds the path in the contraction hierarchy, unless some road has a
+	 * delay of 0. Then the path is taken from a shortest path tree, because 
+	 * the hierarchy cannot always tell which of several paths of the same
+	 * length the tree would choose.
+	 */
+	@Override
+	public List<RoadSegment> getPath(RoadSegment source, RoadSegment target) {
+		MapTopology nodes = graph.getTopology();
+		ContractionHierarchy hierarchy = ContractionHierarchyCache.forMap( graph ).get( nodes );
+		if ( hierarchy.hasZeroDelays() ) {
+			return super.getPath( source, target );
+		}
+		int s = nodes.getIndex(source), t = nodes.getIndex(target);
+		if ( s < 0 || t < 0 ) return null;
+		return hierarchy.getPath( s, t );
+	}
+	
+	/**
+	 * Builds the contraction hierarchy of the map, if it has not been built yet.
+	 */
+	@Override
+	public void speculate() {
+		ContractionHierarchyCache.forMap( graph ).get( graph.getTopology() );
+	}
 }
@@ -0,0 +1,196 @@
+/*******************************************************************************
+ * Copyright (C) 2011 - 2012 Jochen Wuttke, Jonathan Ramaswamy
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ********************************************************************************
+ *
+ * Created: Oct 17, 2026
+ */
+
+package adasim.algorithm.routing;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import adasim.model.AdasimMap;
+import adasim.model.DelayChangeLog;
+import adasim.model.MapTopology;
+import adasim.model.RoadSegment;
+
+/**
+ * Shortest path trees shared by all vehicles on one {@link AdasimMap}
+ * (see {@link #forMap(AdasimMap)}).
+ * <p>
+ * A tree holds the result of one run of Dijkstra's algorithm from a 
+ * source road with a given lookahead, and thus the routes from that road 
+ * to every destination. Each tree records the versions of the current 
+ * delays it was computed from (see {@link RoadSegment#getDelayVersion()}),
+ * and is only returned while all of them are unchanged and the topology 
+ * of the map is the same. Vehicles leaving the same road therefore share
+ * one computation as long as the traffic they looked at has not changed, 
+ * no matter where they are going. While no delay on the map has changed 
+ * at all (see {@link DelayChangeLog#getVersion()}), checking this takes
+ * constant time.
+ * <p>
+ * The number of trees is limited so that they hold about 
+ * {@value #BUDGET} nodes together. The least recently used trees are
+ * dropped first.
+ * <p>
+ * This class is thread safe.
+ */
+public final class ShortestPathTreeCache {
+	
+	private static final AdasimMap.Factory<ShortestPathTreeCache> FACTORY = new AdasimMap.Factory<ShortestPathTreeCache>() {
+		@Override
+		public ShortestPathTreeCache create( AdasimMap map ) {
+			return new ShortestPathTreeCache();
+		}
+	};
+	
+	/**
+	 * The number of nodes all cached trees may hold together.
+	 */
+	public static final int BUDGET = 1 << 22;
+	
+	private final Map<Long, Tree> trees;
+	private int capacity = 16;		//maximum number of trees
+	
+	/**
+	 * @param map
+	 * @return the shortest path trees shared by the vehicles on <code>map</code>
+	 */
+	public static ShortestPathTreeCache forMap( AdasimMap map ) {
+		return map.getCache( ShortestPathTreeCache.class, FACTORY );
+	}
+	
+	private ShortestPathTreeCache() {
+		trees = new LinkedHashMap<Long, Tree>( 16, 0.75f, true ) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, Tree> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+	
+	/**
+	 * @param topology the current topology of the map
+	 * @param source the index of the source road
+	 * @param lookahead
+	 * @param version the current version of the delays on the map
+	 * @return the tree from <code>source</code> for <code>lookahead</code>, 
+	 * or <code>null</code> if there is no tree that is still valid
+	 */
+	synchronized Tree get( MapTopology topology, int source, int lookahead, long version ) {
+		Long key = key( source, lookahead );
+		Tree t = trees.get( key );
+		if ( t == null ) return null;
+		if ( t.topology.getVersion() != topology.getVersion() || !t.isValid( version ) ) {
+			trees.remove( key );
+			return null;
+		}
+		return t;
+	}
+	
+	/**
+	 * Adds <code>tree</code> to the cache, replacing any tree with the 
+	 * same source and lookahead.
+	 * @param tree
+	 */
+	synchronized void put( Tree tree ) {
+		capacity = Math.max( 16, BUDGET / Math.max( 1, tree.previous.length ) );
+		trees.put( key( tree.source, tree.lookahead ), tree );
+	}
+	
+	/**
+	 * Removes all trees.
+	 */
+	public synchronized void clear() {
+		trees.clear();
+	}
+	
+	/**
+	 * @return the number of trees currently cached
+	 */
+	public synchronized int size() {
+		return trees.size();
+	}
+	
+	private static Long key( int source, int lookahead ) {
+		return ( (long)lookahead << 32 ) | source;
+	}
+	
+	/**
+	 * The predecessor of each road on the shortest path from 
+	 * <code>source</code>, together with the versions of all current delays 
+	 * the paths depend on. Trees are not changed after they were added to 
+	 * a cache.
+	 */
+	static final class Tree {
+		final MapTopology topology;
+		final int source;
+		final int lookahead;
+		final int[] previous;		//index of the previous road on the path, -1 if none
+		private final long version;	//of the delays on the map before the tree was computed
+		private RoadSegment[] roads = new RoadSegment[8];
+		private long[] versions = new long[8];
+		private int reads;
+		
+		/**
+		 * @param topology
+		 * @param source
+		 * @param lookahead
+		 * @param version the current version of the delays on the map
+		 */
+		Tree( MapTopology topology, int source, int lookahead, long version ) {
+			this.topology = topology;
+			this.source = source;
+			this.lookahead = lookahead;
+			this.version = version;
+			this.previous = new int[ topology.size() ];
+		}
+		
+		/**
+		 * Records that the tree depends on the current delay of <code>road</code>.
+		 * @param road
+		 */
+		void record( RoadSegment road ) {
+			if ( reads == roads.length ) {
+				roads = Arrays.copyOf( roads, 2 * reads );
+				versions = Arrays.copyOf( versions, 2 * reads );
+			}
+			roads[reads] = road;
+			versions[reads++] = road.getDelayVersion();
+		}
+		
+		/**
+		 * @param version the current version of the delays on the map
+		 * @return <code>true</code> if none of the recorded delays has changed
+		 */
+		boolean isValid( long version ) {
+			if ( version == this.version ) return true;
+			for ( int i = 0; i < reads; i++ ) {
+				if ( roads[i].getDelayVersion() != versions[i] ) return false;
+			}
+			return true;
+		}
+	}
+}
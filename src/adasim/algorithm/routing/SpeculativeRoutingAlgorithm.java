@@ -0,0 +1,52 @@
+/*******************************************************************************
+ * Copyright (C) 2011 - 2012 Jochen Wuttke, Jonathan Ramaswamy
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ********************************************************************************
+ *
+ * Created: Oct 17, 2026
+ */
+
+package adasim.algorithm.routing;
+
+import adasim.model.RoadSegment;
+
+/**
+ * A {@link RoutingAlgorithm} that can compute the routes for its next
+ * call to {@link #getNextNode()} ahead of time, while other vehicles 
+ * are still moving.
+ * <p>
+ * A speculative route is only a hint. It records all live values
+ * (such as {@link RoadSegment#getCurrentDelay(Class)}) it depends on,
+ * and <code>getNextNode()</code> must only use it if all of them are
+ * unchanged. This guarantees the same results as computing the route 
+ * when it is needed.
+ */
+public interface SpeculativeRoutingAlgorithm extends RoutingAlgorithm {
+
+	/**
+	 * Computes the routes the next call to {@link #getNextNode()} would 
+	 * compute from the current state of the simulation, if any.
+	 * <p>
+	 * This method is called concurrently for different vehicles while
+	 * the simulation is not changing. It must not change any state 
+	 * visible to other agents and must not log.
+	 */
+	public void speculate();
+}
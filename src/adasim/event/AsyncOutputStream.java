@@ -0,0 +1,233 @@
+/*******************************************************************************
+ * Copyright (C) 2011 - 2012 Jochen Wuttke, Jonathan Ramaswamy
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ********************************************************************************
+ *
+ * Created: Oct 18, 2026
+ */
+
+package adasim.event;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+
+/**
+ * An {@link OutputStream} that collects bytes in fixed size chunks and 
+ * writes full chunks to the underlying stream on a background thread.
+ * The thread that writes to this stream only blocks when all chunks 
+ * are waiting to be written.
+ * <p>
+ * Chunks are recycled, so writing to this stream does not allocate memory.
+ * Errors of the underlying stream are reported by the next call
+ * to any method of this stream after they happened.
+ * <p>
+ * This stream must only be written to by one thread at a time.
+ */
+public final class AsyncOutputStream extends OutputStream {
+	
+	private final static int DEFAULT_CHUNK_SIZE = 1 << 16;
+	private final static int DEFAULT_CHUNKS = 4;
+	private final static Chunk END = new Chunk(0);
+	
+	private final OutputStream out;
+	private final BlockingQueue<Chunk> full;	//chunks waiting to be written
+	private final BlockingQueue<Chunk> free;	//chunks that have been written
+	private final Thread writer;
+	private Chunk current;						//the chunk being filled, null once the stream is closed
+	private int pending;						//chunks handed to the writer that are not written yet
+	private volatile IOException failure;
+	
+	/**
+	 * Creates a stream with four chunks of 64KB.
+	 * @param out
+	 */
+	public AsyncOutputStream( OutputStream out ) {
+		this( out, DEFAULT_CHUNK_SIZE, DEFAULT_CHUNKS );
+	}
+
+	/**
+	 * @param out the stream to write to
+	 * @param chunkSize the number of bytes in each chunk
+	 * @param chunks the number of chunks, at least 2
+	 */
+	public AsyncOutputStream( OutputStream out, int chunkSize, int chunks ) {
+		if ( out == null || chunkSize < 1 || chunks < 2 ) {
+			throw new IllegalArgumentException();
+		}
+		this.out = out;
+		full = new ArrayBlockingQueue<Chunk>( chunks + 1 );
+		free = new ArrayBlockingQueue<Chunk>( chunks );
+		for ( int i = 1; i < chunks; i++ ) {
+			free.add( new Chunk( chunkSize ) );
+		}
+		current = new Chunk( chunkSize );
+		writer = new Thread( new Runnable() {
+			@Override
+			public void run() {
+				writeChunks();
+			}
+		}, "adasim-writer" );
+		writer.setDaemon(true);
+		writer.start();
+	}
+	
+	@Override
+	public void write( int b ) throws IOException {
+		if ( current == null ) throw new IOException( "Stream closed" );
+		if ( current.length == current.data.length ) {
+			handOff();
+		}
+		current.data[current.length++] = (byte) b;
+	}
+	
+	@Override
+	public void write( byte[] b, int off, int len ) throws IOException {
+		if ( current == null ) throw new IOException( "Stream closed" );
+		if ( off < 0 || len < 0 || off + len > b.length ) {
+			throw new IndexOutOfBoundsException();
+		}
+		while ( len > 0 ) {
+			if ( current.length == current.data.length ) {
+				handOff();
+			}
+			int n = Math.min( len, current.data.length - current.length );
+			System.arraycopy( b, off, current.data, current.length, n );
+			current.length += n;
+			off += n;
+			len -= n;
+		}
+	}
+	
+	/**
+	 * Waits until all bytes written so far have been written to the underlying
+	 * stream, and flushes it.
+	 */
+	@Override
+	public void flush() throws IOException {
+		if ( current == null ) throw new IOException( "Stream closed" );
+		if ( current.length > 0 ) {
+			handOff();
+		}
+		synchronized ( this ) {
+			try {
+				while ( pending > 0 ) {
+					wait();
+				}
+			} catch ( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException();
+			}
+		}
+		checkFailure();
+		out.flush();
+	}
+	
+	/**
+	 * Writes all remaining bytes, stops the background thread and closes
+	 * the underlying stream.
+	 */
+	@Override
+	public void close() throws IOException {
+		if ( current == null ) return;
+		try {
+			if ( current.length > 0 ) {
+				send( current );
+			}
+			current = null;
+			full.put( END );
+			writer.join();
+		} catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		} finally {
+			current = null;
+			out.close();
+		}
+		checkFailure();
+	}
+
+	/**
+	 * Hands the current chunk to the writer and takes an empty one.
+	 * @throws IOException
+	 */
+	private void handOff() throws IOException {
+		checkFailure();
+		try {
+			send( current );
+			current = free.take();
+		} catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+		current.length = 0;
+	}
+	
+	private void send( Chunk c ) throws InterruptedException {
+		synchronized ( this ) {
+			pending++;
+		}
+		full.put( c );
+	}
+	
+	private void checkFailure() throws IOException {
+		IOException e = failure;
+		if ( e != null ) throw e;
+	}
+	
+	/**
+	 * The loop of the background thread. After an error, chunks are
+	 * still taken and recycled, so the writing thread does not block.
+	 */
+	private void writeChunks() {
+		try {
+			while ( true ) {
+				Chunk c = full.take();
+				if ( c == END ) return;
+				if ( failure == null ) {
+					try {
+						out.write( c.data, 0, c.length );
+					} catch ( IOException e ) {
+						failure = e;
+					}
+				}
+				free.put( c );
+				synchronized ( this ) {
+					pending--;
+					notifyAll();
+				}
+			}
+		} catch ( InterruptedException e ) {
+			failure = new InterruptedIOException();
+		}
+	}
+	
+	private static final class Chunk {
+		final byte[] data;
+		int length;
+		
+		Chunk( int size ) {
+			data = new byte[size];
+		}
+	}
+}
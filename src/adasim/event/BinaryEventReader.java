@@ -0,0 +1,170 @@
+/*******************************************************************************
+ * Copyright (C) 2011 - 2012 Jochen Wuttke, Jonathan Ramaswamy
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ********************************************************************************
+ *
+ * Created: Oct 18, 2026
+ */
+
+package adasim.event;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+
+/**
+ * Reads events written by {@link BinaryEventSink} and passes them 
+ * on to another {@link EventSink}, e.g. to convert them to CSV with 
+ * a {@link CsvEventSink}.
+ */
+public final class BinaryEventReader {
+	
+	private final static EventType[] TYPES = EventType.values();
+	
+	private final InputStream in;
+	private int[] path = new int[16];
+	private int[] to = new int[16];
+	private double[] values = new double[16];
+	
+	/**
+	 * @param in the stream to read from. It is not closed by this reader.
+	 */
+	public BinaryEventReader( InputStream in ) {
+		this.in = new BufferedInputStream( in );
+	}
+	
+	/**
+	 * Reads all events and passes them to <code>sink</code>.
+	 * The sink is not closed.
+	 * @param sink
+	 * @throws IOException if the stream cannot be read or is not in the 
+	 * binary event format
+	 */
+	public void replay( EventSink sink ) throws IOException {
+		for ( byte b : BinaryEventSink.MAGIC ) {
+			if ( in.read() != b ) throw new IOException( "Not an event file" );
+		}
+		int version = in.read();
+		if ( version != BinaryEventSink.VERSION ) {
+			throw new IOException( "Unsupported event file version: " + version );
+		}
+		long cycle = 0;
+		int tag;
+		while ( ( tag = in.read() ) >= 0 ) {
+			if ( tag >= TYPES.length ) throw new IOException( "Unknown event type: " + tag );
+			switch ( TYPES[tag] ) {
+			case CYCLE:
+				cycle += readLong();
+				sink.cycleStarted( cycle );
+				break;
+			case START:
+				sink.vehicleStarted( readInt(), readInt() );
+				break;
+			case ENTER:
+				sink.vehicleEntered( readInt(), readInt() );
+				break;
+			case MOVE:
+				sink.vehicleMoved( readInt(), readInt(), readInt() );
+				break;
+			case STOP:
+				sink.vehicleStopped( readInt(), readInt() );
+				break;
+			case INVALID:
+				sink.moveRejected( readInt(), readInt(), readInt() );
+				break;
+			case PATH:
+			case UPDATE:
+				int vehicle = readInt();
+				int target = readInt();
+				int length = readInt();
+				if ( length < 0 ) throw new IOException( "Invalid path length: " + length );
+				if ( path.length < length ) {
+					path = new int[length];
+				}
+				for ( int i = 0; i < length; i++ ) {
+					path[i] = readInt();
+				}
+				sink.pathComputed( vehicle, target, path, length, TYPES[tag] == EventType.UPDATE );
+				break;
+			case CLOSE:
+				sink.roadClosed( readInt() );
+				break;
+			case OPEN:
+				sink.roadOpened( readInt() );
+				break;
+			case QVALUES:
+				readQValues( sink );
+				break;
+			}
+		}
+	}
+	
+	/**
+	 * Reads Q-values, and passes them on if <code>sink</code> traces the vehicle.
+	 * @param sink
+	 * @throws IOException
+	 */
+	private void readQValues( EventSink sink ) throws IOException {
+		int vehicle = readInt();
+		int target = readInt();
+		int length = readInt();
+		if ( length < 0 ) throw new IOException( "Invalid number of Q-values: " + length );
+		if ( path.length < length ) {
+			path = new int[length];
+		}
+		if ( to.length < length ) {
+			to = new int[length];
+			values = new double[length];
+		}
+		for ( int i = 0; i < length; i++ ) {
+			path[i] = readInt();
+			to[i] = readInt();
+			long bits = 0;
+			for ( int b = 0; b < 8; b++ ) {
+				int v = in.read();
+				if ( v < 0 ) throw new EOFException( "Truncated event" );
+				bits = ( bits << 8 ) | v;
+			}
+			values[i] = Double.longBitsToDouble( bits );
+		}
+		if ( sink.isTraced( vehicle ) ) {
+			sink.qValuesLearned( vehicle, target, path, to, values, length );
+		}
+	}
+	
+	private int readInt() throws IOException {
+		return (int) readLong();
+	}
+
+	private long readLong() throws IOException {
+		long z = 0;
+		for ( int shift = 0; shift < 64; shift += 7 ) {
+			int b = in.read();
+			if ( b < 0 ) throw new EOFException( "Truncated event" );
+			z |= (long) ( b & 0x7F ) << shift;
+			if ( ( b & 0x80 ) == 0 ) {
+				return ( z >>> 1 ) ^ -( z & 1 );
+			}
+		}
+		throw new IOException( "Malformed number" );
+	}
+}
@@ -0,0 +1,191 @@
+/*******************************************************************************
+ * Copyright (C) 2011 - 2012 Jochen Wuttke, Jonathan Ramaswamy
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ********************************************************************************
+ *
+ * Created: Oct 18, 2026
+ */
+
+package adasim.event;
+
+import java.io.OutputStream;
+
+
+/**
+ * Writes events in a compact binary format, which can be read back
+ * with {@link BinaryEventReader}.
+ * <p>
+ * A file starts with the magic bytes <code>ADSE</code> and a version byte.
+ * Each event is the ordinal of its {@link EventType} in one byte, followed
+ * by its fields as variable length integers (seven bits per byte, zig-zag
+ * encoded so that small negative numbers stay short):
+ * <ul>
+ * <li>CYCLE: the difference to the previous cycle
+ * <li>START, ENTER, STOP: vehicle, road
+ * <li>MOVE, INVALID: vehicle, from, to
+ * <li>PATH, UPDATE: vehicle, target, length, and <em>length</em> roads
+ * <li>CLOSE, OPEN: road
+ * <li>QVALUES: vehicle, target, length, and <em>length</em> entries
+ * of from, to and the value as eight bytes (IEEE 754, big-endian)
+ * </ul>
+ * Q-values are only written for traced vehicles, see {@link #setTraceRate(int)}.
+ */
+public final class BinaryEventSink extends StreamEventSink {
+	
+	final static byte[] MAGIC = { 'A', 'D', 'S', 'E' };
+	final static int VERSION = 1;
+	
+	private long cycle;
+	private int traceRate;
+	
+	/**
+	 * Writes the file header to <code>out</code>.
+	 * @param out
+	 */
+	public BinaryEventSink( OutputStream out ) {
+		super( out );
+		for ( byte b : MAGIC ) {
+			put( b );
+		}
+		put( VERSION );
+		emit();
+	}
+
+	/**
+	 * Sets which vehicles are traced: those whose ID is a multiple 
+	 * of <code>rate</code>. By default, no vehicle is traced.
+	 * @param rate 0 to trace no vehicles, 1 to trace all
+	 */
+	public void setTraceRate( int rate ) {
+		if ( rate < 0 ) {
+			throw new IllegalArgumentException( "Trace rate must not be negative" );
+		}
+		traceRate = rate;
+	}
+
+	@Override
+	public void cycleStarted( long cycle ) {
+		put( EventType.CYCLE.ordinal() );
+		putLong( cycle - this.cycle );
+		this.cycle = cycle;
+		emit();
+	}
+
+	@Override
+	public void vehicleStarted( int vehicle, int road ) {
+		vehicleEvent( EventType.START, vehicle, road );
+	}
+
+	@Override
+	public void vehicleEntered( int vehicle, int road ) {
+		vehicleEvent( EventType.ENTER, vehicle, road );
+	}
+
+	@Override
+	public void vehicleMoved( int vehicle, int from, int to ) {
+		moveEvent( EventType.MOVE, vehicle, from, to );
+	}
+
+	@Override
+	public void vehicleStopped( int vehicle, int road ) {
+		vehicleEvent( EventType.STOP, vehicle, road );
+	}
+
+	@Override
+	public void moveRejected( int vehicle, int from, int to ) {
+		moveEvent( EventType.INVALID, vehicle, from, to );
+	}
+
+	@Override
+	public void pathComputed( int vehicle, int target, int[] path, int length, boolean update ) {
+		put( ( update ? EventType.UPDATE : EventType.PATH ).ordinal() );
+		putInt( vehicle );
+		putInt( target );
+		putInt( length );
+		for ( int i = 0; i < length; i++ ) {
+			putInt( path[i] );
+		}
+		emit();
+	}
+
+	@Override
+	public void roadClosed( int road ) {
+		put( EventType.CLOSE.ordinal() );
+		putInt( road );
+		emit();
+	}
+
+	@Override
+	public void roadOpened( int road ) {
+		put( EventType.OPEN.ordinal() );
+		putInt( road );
+		emit();
+	}
+	
+	@Override
+	public boolean isTraced( int vehicle ) {
+		return traceRate > 0 && vehicle % traceRate == 0;
+	}
+
+	@Override
+	public void qValuesLearned( int vehicle, int target, int[] from, int[] to, double[] values, int length ) {
+		put( EventType.QVALUES.ordinal() );
+		putInt( vehicle );
+		putInt( target );
+		putInt( length );
+		for ( int i = 0; i < length; i++ ) {
+			putInt( from[i] );
+			putInt( to[i] );
+			long bits = Double.doubleToLongBits( values[i] );
+			for ( int shift = 56; shift >= 0; shift -= 8 ) {
+				put( (int) ( bits >>> shift ) );
+			}
+		}
+		emit();
+	}
+	
+	private void vehicleEvent( EventType type, int vehicle, int road ) {
+		put( type.ordinal() );
+		putInt( vehicle );
+		putInt( road );
+		emit();
+	}
+	
+	private void moveEvent( EventType type, int vehicle, int from, int to ) {
+		put( type.ordinal() );
+		putInt( vehicle );
+		putInt( from );
+		putInt( to );
+		emit();
+	}
+	
+	private void putInt( int v ) {
+		putLong( v );
+	}
+	
+	private void putLong( long v ) {
+		long z = ( v << 1 ) ^ ( v >> 63 );
+		while ( ( z & ~0x7FL ) != 0 ) {
+			put( (int) ( ( z & 0x7F ) | 0x80 ) );
+			z >>>= 7;
+		}
+		put( (int) z );
+	}
+}
@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright (C) 2011 - 2012 Jochen Wuttke, Jonathan Ramaswamy
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ********************************************************************************
+ *
+ * Created: Oct 18, 2026
+ */
+
+package adasim.event;
+
+import java.io.OutputStream;
+
+
+/**
+ * Writes events as comma separated values, one event per line:
+ * <pre>
+ * cycle,event,vehicle,road,target,path
+ * 12,MOVE,3,5,7,
+ * 12,PATH,4,,9,6 8 9
+ * </pre>
+ * <code>road</code> is the road the event happened on, <code>target</code> is 
+ * the road a vehicle moves to or, for paths, its destination. Paths are 
+ * lists of road IDs separated by spaces. Fields that do not apply are empty.
+ * CYCLE events are not written, their cycle is in the first column
+ * of the following events.
+ */
+public final class CsvEventSink extends StreamEventSink {
+	
+	private final static byte[][] NAMES;
+	static {
+		EventType[] types = EventType.values();
+		NAMES = new byte[types.length][];
+		for ( int i = 0; i < types.length; i++ ) {
+			NAMES[i] = types[i].name().getBytes();
+		}
+	}
+	
+	private long cycle;
+	
+	/**
+	 * Writes the header line to <code>out</code>.
+	 * @param out
+	 */
+	public CsvEventSink( OutputStream out ) {
+		super( out );
+		putText( "cycle,event,vehicle,road,target,path\n" );
+		emit();
+	}
+
+	@Override
+	public void cycleStarted( long cycle ) {
+		this.cycle = cycle;
+	}
+
+	@Override
+	public void vehicleStarted( int vehicle, int road ) {
+		line( EventType.START, vehicle, road );
+		put( ',' );
+		put( '\n' );
+		emit();
+	}
+
+	@Override
+	public void vehicleEntered( int vehicle, int road ) {
+		line( EventType.ENTER, vehicle, road );
+		put( ',' );
+		put( '\n' );
+		emit();
+	}
+
+	@Override
+	public void vehicleMoved( int vehicle, int from, int to ) {
+		line( EventType.MOVE, vehicle, from );
+		putNumber( to );
+		put( ',' );
+		put( '\n' );
+		emit();
+	}
+
+	@Override
+	public void vehicleStopped( int vehicle, int road ) {
+		line( EventType.STOP, vehicle, road );
+		put( ',' );
+		put( '\n' );
+		emit();
+	}
+
+	@Override
+	public void moveRejected( int vehicle, int from, int to ) {
+		line( EventType.INVALID, vehicle, from );
+		putNumber( to );
+		put( ',' );
+		put( '\n' );
+		emit();
+	}
+
+	@Override
+	public void pathComputed( int vehicle, int target, int[] path, int length, boolean update ) {
+		begin( update ? EventType.UPDATE : EventType.PATH );
+		putNumber( vehicle );
+		put( ',' );
+		put( ',' );
+		putNumber( target );
+		put( ',' );
+		for ( int i = 0; i < length; i++ ) {
+			if ( i > 0 ) put( ' ' );
+			putNumber( path[i] );
+		}
+		put( '\n' );
+		emit();
+	}
+
+	@Override
+	public void roadClosed( int road ) {
+		roadEvent( EventType.CLOSE, road );
+	}
+
+	@Override
+	public void roadOpened( int road ) {
+		roadEvent( EventType.OPEN, road );
+	}
+	
+	private void roadEvent( EventType type, int road ) {
+		begin( type );
+		put( ',' );
+		putNumber( road );
+		put( ',' );
+		put( ',' );
+		put( '\n' );
+		emit();
+	}
+	
+	/**
+	 * Writes the columns up to and including <code>road</code>, 
+	 * followed by a comma.
+	 */
+	private void line( EventType type, int vehicle, int road ) {
+		begin( type );
+		putNumber( vehicle );
+		put( ',' );
+		putNumber( road );
+		put( ',' );
+	}
+	
+	/**
+	 * Writes the cycle and event columns, followed by a comma.
+	 */
+	private void begin( EventType type ) {
+		putNumber( cycle );
+		put( ',' );
+		for ( byte b : NAMES[ type.ordinal() ] ) {
+			put( b );
+		}
+		put( ',' );
+	}
+}
@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * Copyright (C) 2011 - 2012 Jochen Wuttke, Jonathan Ramaswamy
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ********************************************************************************
+ *
+ * Created: Oct 18, 2026
+ */
+
+package adasim.event;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+
+/**
+ * An {@link EventSink} receives the results of a simulation as typed
+ * events, as an alternative to parsing them from the log.
+ * <p>
+ * Roads and vehicles are identified by their IDs. Events are reported
+ * in the order in which they happen, and all events after a call to 
+ * {@link #cycleStarted(long)} belong to that cycle. 
+ * <p>
+ * Sinks are called from the simulation loop for every vehicle move, 
+ * so implementations should be cheap and should not allocate memory 
+ * per event. Sinks do not throw exceptions while the simulation runs. 
+ * Failures are reported when the sink is closed.
+ */
+public interface EventSink extends Closeable {
+	
+	/**
+	 * A sink that ignores all events.
+	 */
+	public static final EventSink NONE = new NullEventSink();
+	
+	/**
+	 * A new simulation cycle begins.
+	 * @param cycle
+	 */
+	public void cycleStarted( long cycle );
+	
+	/**
+	 * A vehicle was released onto its start road by the vehicle manager.
+	 * @param vehicle
+	 * @param road
+	 */
+	public void vehicleStarted( int vehicle, int road );
+	
+	/**
+	 * A vehicle entered a road.
+	 * @param vehicle
+	 * @param road
+	 */
+	public void vehicleEntered( int vehicle, int road );
+	
+	/**
+	 * A vehicle reached the end of road <code>from</code> and asked
+	 * to move on to road <code>to</code>.
+	 * @param vehicle
+	 * @param from
+	 * @param to
+	 */
+	public void vehicleMoved( int vehicle, int from, int to );
+	
+	/**
+	 * A vehicle stopped on <code>road</code>, either because it
+	 * reached its destination, or because it was taken off the map.
+	 * This is the last event for a vehicle.
+	 * @param vehicle
+	 * @param road
+	 */
+	public void vehicleStopped( int vehicle, int road );
+	
+	/**
+	 * A vehicle tried to move from road <code>from</code> to road <code>to</code>, 
+	 * but the move was not legal, either because the roads are not 
+	 * connected or because <code>to</code> is closed.
+	 * @param vehicle
+	 * @param from
+	 * @param to
+	 */
+	public void moveRejected( int vehicle, int from, int to );
+	
+	/**
+	 * A routing algorithm computed a new path for a vehicle.
+	 * @param vehicle
+	 * @param target the destination of the vehicle
+	 * @param path the IDs of the roads on the path. The array is only
+	 * valid during the call.
+	 * @param length the number of roads on the path
+	 * @param update <code>false</code> for the first path of the vehicle
+	 */
+	public void pathComputed( int vehicle, int target, int[] path, int length, boolean update );
+	
+	/**
+	 * A road was closed to new vehicles.
+	 * @param road
+	 */
+	public void roadClosed( int road );
+	
+	/**
+	 * A closed road was opened again.
+	 * @param road
+	 */
+	public void roadOpened( int road );
+	
+	/**
+	 * Routing algorithms only report diagnostics, such as 
+	 * {@link #qValuesLearned}, for vehicles the sink traces.
+	 * Diagnostics are expensive, so sinks trace no vehicles unless
+	 * they are configured to.
+	 * @param vehicle
+	 * @return <code>true</code> if the sink records diagnostics for <code>vehicle</code>
+	 */
+	public boolean isTraced( int vehicle );
+	
+	/**
+	 * A Q-learning router finished training for a traced vehicle.
+	 * Each entry is the learned value of moving from one road to the 
+	 * next; edges that were never learned are left out. 
+	 * The arrays are only valid during the call.
+	 * @param vehicle
+	 * @param target the road the values were learned for
+	 * @param from the IDs of the roads the moves start at
+	 * @param to the IDs of the roads the moves lead to
+	 * @param values the learned values
+	 * @param length the number of entries
+	 */
+	public void qValuesLearned( int vehicle, int target, int[] from, int[] to, double[] values, int length );
+	
+	/**
+	 * Writes out all pending events and releases the resources of the sink.
+	 * @throws IOException if any event could not be written
+	 */
+	@Override
+	public void close() throws IOException;
+
+}
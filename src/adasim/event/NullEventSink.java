@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright (C) 2011 - 2012 Jochen Wuttke, Jonathan Ramaswamy
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ********************************************************************************
+ *
+ * Created: Oct 18, 2026
+ */
+
+package adasim.event;
+
+
+/**
+ * The sink behind {@link EventSink#NONE}. It ignores all events.
+ */
+final class NullEventSink implements EventSink {
+
+	@Override
+	public void cycleStarted(long cycle) {
+	}
+
+	@Override
+	public void vehicleStarted(int vehicle, int road) {
+	}
+
+	@Override
+	public void vehicleEntered(int vehicle, int road) {
+	}
+
+	@Override
+	public void vehicleMoved(int vehicle, int from, int to) {
+	}
+
+	@Override
+	public void vehicleStopped(int vehicle, int road) {
+	}
+
+	@Override
+	public void moveRejected(int vehicle, int from, int to) {
+	}
+
+	@Override
+	public void pathComputed(int vehicle, int target, int[] path, int length, boolean update) {
+	}
+
+	@Override
+	public void roadClosed(int road) {
+	}
+
+	@Override
+	public void roadOpened(int road) {
+	}
+
+	@Override
+	public boolean isTraced(int vehicle) {
+		return false;
+	}
+
+	@Override
+	public void qValuesLearned(int vehicle, int target, int[] from, int[] to, double[] values, int length) {
+	}
+
+	@Override
+	public void close() {
+	}
+
+}
@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright (C) 2011 - 2012 Jochen Wuttke, Jonathan Ramaswamy
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ********************************************************************************
+ *
+ * Created: Oct 18, 2026
+ */
+
+package adasim.event;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+
+/**
+ * Base class for sinks that encode events into a byte stream. Each event 
+ * is encoded into a small buffer with {@link #put(int)} and then passed to 
+ * an {@link AsyncOutputStream} with {@link #emit()}, so the simulation 
+ * does not wait for the file system.
+ * <p>
+ * Once writing fails, all further events are dropped and the error
+ * is thrown by {@link #close()}.
+ */
+public abstract class StreamEventSink implements EventSink {
+	
+	private final OutputStream out;
+	private final byte[] buffer;
+	private final byte[] digits;
+	private int position;
+	private IOException failure;
+	private boolean closed;
+	
+	/**
+	 * @param out the stream to write to. It is closed with this sink.
+	 */
+	protected StreamEventSink( OutputStream out ) {
+		this.out = new AsyncOutputStream( out );
+		buffer = new byte[256];
+		digits = new byte[20];
+	}
+	
+	/**
+	 * Appends a byte to the current event.
+	 * @param b
+	 */
+	protected final void put( int b ) {
+		if ( position == buffer.length ) {
+			emit();
+		}
+		buffer[position++] = (byte) b;
+	}
+	
+	/**
+	 * Appends the decimal digits of <code>n</code> to the current event.
+	 * @param n
+	 */
+	protected final void putNumber( long n ) {
+		if ( n < 0 ) {
+			put( '-' );
+		}
+		int i = digits.length;
+		do {
+			digits[--i] = (byte) ( '0' + Math.abs( n % 10 ) );
+			n /= 10;
+		} while ( n != 0 );
+		while ( i < digits.length ) {
+			put( digits[i++] );
+		}
+	}
+	
+	/**
+	 * Appends the characters of <code>s</code> to the current event. 
+	 * Only for ASCII text.
+	 * @param s
+	 */
+	protected final void putText( String s ) {
+		for ( int i = 0; i < s.length(); i++ ) {
+			put( s.charAt(i) );
+		}
+	}
+	
+	/**
+	 * Traces no vehicles. Subclasses that record diagnostics override 
+	 * this and {@link #qValuesLearned}.
+	 */
+	@Override
+	public boolean isTraced( int vehicle ) {
+		return false;
+	}
+	
+	@Override
+	public void qValuesLearned( int vehicle, int target, int[] from, int[] to, double[] values, int length ) {
+	}
+	
+	/**
+	 * Writes the current event to the stream.
+	 */
+	protected final void emit() {
+		if ( position == 0 ) return;
+		if ( failure == null && !closed ) {
+			try {
+				out.write( buffer, 0, position );
+			} catch ( IOException e ) {
+				failure = e;
+			}
+		}
+		position = 0;
+	}
+	
+	/**
+	 * Writes all pending events to the stream, and waits until they
+	 * have been written.
+	 * @throws IOException
+	 */
+	public void flush() throws IOException {
+		emit();
+		if ( failure != null ) throw failure;
+		out.flush();
+	}
+	
+	@Override
+	public void close() throws IOException {
+		if ( closed ) return;
+		emit();
+		closed = true;
+		out.close();
+		if ( failure != null ) throw failure;
+	}
+}
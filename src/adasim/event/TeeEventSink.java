@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright (C) 2011 - 2012 Jochen Wuttke, Jonathan Ramaswamy
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ********************************************************************************
+ *
+ * Created: Oct 18, 2026
+ */
+
+package adasim.event;
+
+import java.io.IOException;
+
+
+/**
+ * Passes every event on to two other sinks, so that a simulation
+ * can report to several outputs at once.
+ */
+public final class TeeEventSink implements EventSink {
+	
+	private final EventSink first;
+	private final EventSink second;
+	
+	/**
+	 * @param first
+	 * @param second
+	 */
+	public TeeEventSink( EventSink first, EventSink second ) {
+		if ( first == null || second == null ) {
+			throw new IllegalArgumentException( "Event sinks must not be null" );
+		}
+		this.first = first;
+		this.second = second;
+	}
+
+	@Override
+	public void cycleStarted( long cycle ) {
+		first.cycleStarted( cycle );
+		second.cycleStarted( cycle );
+	}
+
+	@Override
+	public void vehicleStarted( int vehicle, int road ) {
+		first.vehicleStarted( vehicle, road );
+		second.vehicleStarted( vehicle, road );
+	}
+
+	@Override
+	public void vehicleEntered( int vehicle, int road ) {
+		first.vehicleEntered( vehicle, road );
+		second.vehicleEntered( vehicle, road );
+	}
+
+	@Override
+	public void vehicleMoved( int vehicle, int from, int to ) {
+		first.vehicleMoved( vehicle, from, to );
+		second.vehicleMoved( vehicle, from, to );
+	}
+
+	@Override
+	public void vehicleStopped( int vehicle, int road ) {
+		first.vehicleStopped( vehicle, road );
+		second.vehicleStopped( vehicle, road );
+	}
+
+	@Override
+	public void moveRejected( int vehicle, int from, int to ) {
+		first.moveRejected( vehicle, from, to );
+		second.moveRejected( vehicle, from, to );
+	}
+
+	@Override
+	public void pathComputed( int vehicle, int target, int[] path, int length, boolean update ) {
+		first.pathComputed( vehicle, target, path, length, update );
+		second.pathComputed( vehicle, target, path, length, update );
+	}
+
+	@Override
+	public boolean isTraced( int vehicle ) {
+		return first.isTraced( vehicle ) || second.isTraced( vehicle );
+	}
+
+	@Override
+	public void qValuesLearned( int vehicle, int target, int[] from, int[] to, double[] values, int length ) {
+		if ( first.isTraced( vehicle ) ) {
+			first.qValuesLearned( vehicle, target, from, to, values, length );
+		}
+		if ( second.isTraced( vehicle ) ) {
+			second.qValuesLearned( vehicle, target, from, to, values, length );
+		}
+	}
+
+	@Override
+	public void roadClosed( int road ) {
+		first.roadClosed( road );
+		second.roadClosed( road );
+	}
+
+	@Override
+	public void roadOpened( int road ) {
+		first.roadOpened( road );
+		second.roadOpened( road );
+	}
+
+	/**
+	 * Closes both sinks, even if closing the first one fails.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			first.close();
+		} finally {
+			second.close();
+		}
+	}
+
+}
@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright (C) 2011 - 2012 Jochen Wuttke, Jonathan Ramaswamy
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ********************************************************************************
+ *
+ * Created: Oct 18, 2026
+ */
+
+package adasim.generator;
+
+import java.io.File;
+import java.util.Arrays;
+
+import joptsimple.OptionParser;
+import joptsimple.OptionSet;
+
+/**
+ * This class stores all configuration options for {@link BatchRunner}.
+ * Instances can only be created by 
+ * {@link BatchOptions#parse}
+ */
+final class BatchOptions {
+
+	private File configFile;
+	private File outputDir = new File( "." );
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private boolean eventDriven = false;
+	
+	/**
+	 * This is the main interface to BatchOptions. Passing in
+	 * the arguments array will return an object containing all
+	 * parsed arguments and default values for arguments not specified
+	 * @param args the arguments array from <code>main(String[] args)</code>.
+	 * @return A set of configuration options.
+	 * @throws Exception
+	 */
+	static BatchOptions parse( String[] args ) throws Exception {
+		BatchOptions cfg = new BatchOptions();
+		
+		OptionParser parser = setupParser();
+		processOptions( parser.parse( args), cfg );
+		
+		return cfg;
+	}
+
+	/**
+	 * Process the options found in the commandline arguments
+	 * and checks that all required options are present.
+	 * @param opts
+	 * @param cfg
+	 * @throws Exception 
+	 */
+	private static void processOptions(OptionSet opts, BatchOptions cfg) throws Exception {
+		if ( opts.has( "f" ) ) {
+			cfg.configFile = new File( opts.valueOf( "f" ).toString() );
+		} else throw new Exception( "Argument --config-file is required" );
+		if ( opts.has( "o" ) ) {
+			cfg.outputDir = new File( opts.valueOf( "o" ).toString() );
+		}
+		if ( opts.has( "t" ) ) {
+			cfg.threads = Integer.parseInt( opts.valueOf( "t" ).toString() );
+			if ( cfg.threads < 1 ) throw new Exception( "Argument to --threads must be at least 1" );
+		}
+		cfg.eventDriven = opts.has( "event-driven" );
+	}
+
+	/**
+	 * Initializes the command line parser with all supported options.
+	 */
+	private static OptionParser setupParser() {
+		OptionParser parser = new OptionParser();
+		parser.acceptsAll( Arrays.asList( "f", "config-file" ), "File with one line nodes:cars:iterations for each kind of simulation" )
+			.withRequiredArg()
+			.describedAs( "file" );
+		parser.acceptsAll( Arrays.asList( "o", "output-dir" ), "Directory for the generated simulations and their results (default: .)" )
+			.withRequiredArg()
+			.describedAs( "dir" );
+		parser.acceptsAll( Arrays.asList( "t", "threads" ), "Number of simulations to run at the same time (default: all cores)" )
+			.withRequiredArg()
+			.describedAs( "n" );
+		parser.accepts( "event-driven", "Skip cycles in which no vehicle can move" );
+		return parser;
+	}
+
+	/**
+	 * @return the file listing the simulations to run
+	 */
+	File getConfigFile() {
+		return configFile;
+	}
+
+	/**
+	 * @return the directory the simulations and results are written to
+	 */
+	File getOutputDir() {
+		return outputDir;
+	}
+
+	/**
+	 * @return the number of simulations to run at the same time
+	 */
+	int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * @return <code>true</code> if the simulations should run with the
+	 * event-driven engine
+	 */
+	boolean isEventDriven() {
+		return eventDriven;
+	}
+}
@@ -0,0 +1,343 @@
+/*******************************************************************************
+ * Copyright (C) 2011 - 2012 Jochen Wuttke, Jonathan Ramaswamy
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ********************************************************************************
+ *
+ * Created: Oct 18, 2026
+ */
+
+package adasim.generator;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.BasicConfigurator;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+import adasim.event.CsvEventSink;
+import adasim.event.EventSink;
+import adasim.model.ConfigurationException;
+import adasim.model.TrafficSimulator;
+import adasim.model.internal.SimulationXMLReader;
+import adasim.model.internal.SimulationXMLWriter;
+
+
+/**
+ * Generates and runs a batch of random simulations inside one JVM.
+ * <p>
+ * The simulations are listed in the format read by 
+ * <code>resources/scripts/run-sim.py</code>: one line 
+ * <code>nodes:cars:iterations</code> for each size of simulation.
+ * Every iteration is generated with the same options the script passes
+ * to {@link Generator}, written to <code>nodes-cars-iteration.xml</code>,
+ * loaded from there and run. Its events are written to 
+ * <code>nodes-cars-iteration.csv</code>, and one line per simulation is
+ * added to <code>summary.csv</code>.
+ * <p>
+ * Simulations run concurrently on a fixed pool of threads. They share 
+ * no mutable state, so the results are the same as for separate runs.
+ */
+public final class BatchRunner {
+
+	private static final Logger logger = Logger.getLogger(BatchRunner.class);
+	
+	private static final String STRATEGIES = "adasim.algorithm.routing.ShortestPathRoutingAlgorithm,"
+			+ "adasim.algorithm.routing.TrafficLookaheadRoutingAlgorithm";
+	
+	private final File outputDir;
+	private final int threads;
+	private final boolean eventDriven;
+	
+	/**
+	 * @param outputDir the directory for the simulations and their results
+	 * @param threads the number of simulations to run at the same time
+	 * @param eventDriven <code>true</code> to run the simulations with 
+	 * the event-driven engine
+	 */
+	public BatchRunner( File outputDir, int threads, boolean eventDriven ) {
+		if ( threads < 1 ) {
+			throw new IllegalArgumentException( "Number of threads must be at least 1" );
+		}
+		this.outputDir = outputDir;
+		this.threads = threads;
+		this.eventDriven = eventDriven;
+	}
+
+	/**
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		BasicConfigurator.configure();
+		Logger.getRootLogger().setLevel( Level.WARN );
+		BatchOptions opts = null;
+		try {
+			opts = BatchOptions.parse(args);
+		} catch (Exception e) {
+			System.err.println( "Error parsing command line options: " + e.getMessage() );
+			System.exit( 1 );
+		}
+		
+		try {
+			List<Run> runs = readConfig( opts.getConfigFile() );
+			opts.getOutputDir().mkdirs();
+			List<Result> results = new BatchRunner( opts.getOutputDir(), opts.getThreads(), opts.isEventDriven() ).run( runs );
+			writeSummary( results, new File( opts.getOutputDir(), "summary.csv" ) );
+			for ( Result r : results ) {
+				System.out.println( r );
+			}
+		} catch (IOException e) {
+			System.err.println( "Error running simulations: " + e.getMessage() );
+			System.exit( 1 );
+		} catch (ConfigurationException e) {
+			System.err.println( "Error in " + opts.getConfigFile() + ": " + e.getMessage() );
+			System.exit( 1 );
+		}
+	}
+	
+	/**
+	 * Reads a list of simulations. Blank lines are ignored.
+	 * @param f
+	 * @return one {@link Run} for every iteration listed in <code>f</code>, in order
+	 * @throws IOException
+	 * @throws ConfigurationException if a line is malformed
+	 */
+	static List<Run> readConfig( File f ) throws IOException, ConfigurationException {
+		List<Run> runs = new ArrayList<Run>();
+		BufferedReader in = new BufferedReader( new FileReader(f) );
+		try {
+			String line;
+			while ( ( line = in.readLine() ) != null ) {
+				line = line.trim();
+				if ( line.length() == 0 ) continue;
+				String[] params = line.split( ":" );
+				if ( params.length != 3 ) {
+					throw new ConfigurationException( "Line must have the form nodes:cars:iterations: " + line );
+				}
+				try {
+					int nodes = Integer.parseInt( params[0].trim() );
+					int cars = Integer.parseInt( params[1].trim() );
+					int iterations = Integer.parseInt( params[2].trim() );
+					for ( int i = 0; i < iterations; i++ ) {
+						runs.add( new Run( nodes, cars, i ) );
+					}
+				} catch ( NumberFormatException e ) {
+					throw new ConfigurationException( "Line must have the form nodes:cars:iterations: " + line );
+				}
+			}
+		} finally {
+			in.close();
+		}
+		return runs;
+	}
+	
+	/**
+	 * Generates and runs all simulations and waits for them to finish.
+	 * A simulation that fails does not stop the others.
+	 * @param runs
+	 * @return the results, in the order of <code>runs</code>
+	 */
+	public List<Result> run( List<Run> runs ) {
+		ExecutorService pool = Executors.newFixedThreadPool( threads );
+		try {
+			List<Future<Result>> futures = new ArrayList<Future<Result>>( runs.size() );
+			for ( final Run r : runs ) {
+				futures.add( pool.submit( new Callable<Result>() {
+					@Override
+					public Result call() throws Exception {
+						return execute(r);
+					}
+				}));
+			}
+			List<Result> results = new ArrayList<Result>( runs.size() );
+			for ( int i = 0; i < runs.size(); i++ ) {
+				Run r = runs.get(i);
+				try {
+					results.add( futures.get(i).get() );
+				} catch (ExecutionException e) {
+					logger.error( "Simulation " + r.getName() + " failed: " + e.getCause() );
+					results.add( new Result( r, -1, 0, String.valueOf( e.getCause().getMessage() ) ) );
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					results.add( new Result( r, -1, 0, "interrupted" ) );
+				}
+			}
+			return results;
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+	
+	/**
+	 * Generates, writes, loads and runs one simulation.
+	 * @param r
+	 * @return the result of the simulation
+	 * @throws Exception
+	 */
+	private Result execute( Run r ) throws Exception {
+		File xml = new File( outputDir, r.getName() + ".xml" );
+		ConfigurationOptions opts = ConfigurationOptions.parse( new String[] { 
+				"-N", String.valueOf( r.getNodes() ), "-C", String.valueOf( r.getCars() ), "-D", "4", 
+				"-o", xml.getPath(), "-d", "3:6", "-S", STRATEGIES, "--one-way-prob", "0.05" } );
+		SimulationXMLWriter.write( new SimulationBuilder().build(opts), xml );
+		TrafficSimulator sim = SimulationXMLReader.buildSimulator( xml );
+		sim.setEventDriven( eventDriven );
+		EventSink events = new CsvEventSink( new FileOutputStream( new File( outputDir, r.getName() + ".csv" ) ) );
+		long start = System.nanoTime();
+		try {
+			sim.setEventSink( events );
+			sim.run();
+		} finally {
+			events.close();
+		}
+		return new Result( r, sim.getCycle(), ( System.nanoTime() - start ) / 1000000, "" );
+	}
+
+	/**
+	 * Writes one CSV line per result to <code>f</code>.
+	 * @param results
+	 * @param f
+	 * @throws IOException
+	 */
+	static void writeSummary( List<Result> results, File f ) throws IOException {
+		PrintStream out = new PrintStream( new FileOutputStream(f) );
+		try {
+			out.println( "simulation,nodes,cars,iteration,cycles,millis,error" );
+			for ( Result r : results ) {
+				Run run = r.getRun();
+				out.println( run.getName() + "," + run.getNodes() + "," + run.getCars() + "," + run.getIteration() 
+						+ "," + r.getCycles() + "," + r.getMillis() + "," + r.getError().replace( ',', ' ' ).replace( '\n', ' ' ) );
+			}
+		} finally {
+			out.close();
+		}
+		if ( out.checkError() ) {
+			throw new IOException( "Cannot write " + f );
+		}
+	}
+	
+	/**
+	 * One simulation of a batch.
+	 */
+	public static final class Run {
+		private final int nodes;
+		private final int cars;
+		private final int iteration;
+		
+		/**
+		 * @param nodes the number of roads
+		 * @param cars the number of vehicles
+		 * @param iteration distinguishes simulations of the same size
+		 */
+		public Run( int nodes, int cars, int iteration ) {
+			this.nodes = nodes;
+			this.cars = cars;
+			this.iteration = iteration;
+		}
+		
+		public int getNodes() {
+			return nodes;
+		}
+		
+		public int getCars() {
+			return cars;
+		}
+		
+		public int getIteration() {
+			return iteration;
+		}
+		
+		/**
+		 * @return the prefix of the files written for this simulation
+		 */
+		public String getName() {
+			return nodes + "-" + cars + "-" + iteration;
+		}
+	}
+	
+	/**
+	 * The outcome of one simulation.
+	 */
+	public static final class Result {
+		private final Run run;
+		private final long cycles;
+		private final long millis;
+		private final String error;
+		
+		Result( Run run, long cycles, long millis, String error ) {
+			this.run = run;
+			this.cycles = cycles;
+			this.millis = millis;
+			this.error = error;
+		}
+		
+		public Run getRun() {
+			return run;
+		}
+		
+		/**
+		 * @return the number of cycles the simulation ran, or -1 if it failed
+		 */
+		public long getCycles() {
+			return cycles;
+		}
+		
+		/**
+		 * @return the time the simulation ran, in milliseconds
+		 */
+		public long getMillis() {
+			return millis;
+		}
+		
+		/**
+		 * @return the reason the simulation failed, or an empty string
+		 */
+		public String getError() {
+			return error;
+		}
+		
+		/**
+		 * @return <code>true</code> if the simulation ran to the end
+		 */
+		public boolean isSuccess() {
+			return cycles >= 0;
+		}
+		
+		@Override
+		public String toString() {
+			if ( isSuccess() ) {
+				return run.getName() + ": " + cycles + " cycles in " + millis + " ms";
+			} else {
+				return run.getName() + ": failed: " + error;
+			}
+		}
+	}
+}
@@ -34,6 +34,7 @@ import java.io.IOException;
 import org.jdom.JDOMException;
 
 import adasim.model.ConfigurationException;
+import adasim.model.internal.SimulationXMLWriter;
 
 
 /**
@@ -31,10 +31,14 @@ package adasim.model;
 
 
 
-import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import adasim.algorithm.delay.TrafficDelayFunction;
 
@@ -42,20 +46,47 @@ import adasim.algorithm.delay.TrafficDelayFunction;
 /**
  * The graph class represents a collection of GraphNodes
  * Edges are contained as neighbors within the nodes
+ * <p>
+ * Nodes are found through a hash table of their IDs, so looking up a node
+ * by ID takes constant time, whatever the IDs are. {@link #getRoadSegments()} 
+ * returns a shared, read-only list of all nodes ordered by ID, which is 
+ * only rebuilt when nodes are added.
+ * <p>
+ * Routing algorithms should traverse the graph through {@link #getTopology()}.
+ * Nodes notify the graph they were last added to when their edges change. 
+ * What routing algorithms share between the vehicles on a graph is 
+ * attached to it with {@link #getCache(Class, Factory)}.
  * 
  * @author Jonathan Ramaswamy - ramaswamyj12@gmail.com
  */
 
 public final class AdasimMap {
 	
-	private Set<RoadSegment> roads; //The nodes within the graph
+	private static final Comparator<RoadSegment> BY_ID = new Comparator<RoadSegment>() {
+		@Override
+		public int compare( RoadSegment a, RoadSegment b ) {
+			return a.getID() < b.getID() ? -1 : ( a.getID() == b.getID() ? 0 : 1 );
+		}
+	};
+	
+	private RoadSegment[] roads; //The nodes within the graph, in the order they were added
+	private final IdTable slots = new IdTable(16);	//The position of each node in roads, by ID
+	private int[] indices;		 //The position of each node of roads in segments
+	private volatile List<RoadSegment> segments; //All nodes ordered by ID, null if out of date
+	private int size;
+	private volatile long topologyVersion;	//changes whenever nodes or edges are added or removed
+	private volatile MapTopology topology;
+	private final Map<Class<?>, Object> caches = new ConcurrentHashMap<Class<?>, Object>();
+	private volatile CycleListener[] listeners = new CycleListener[0];	//the caches that are cycle listeners
+	private final DelayChangeLog changes = new DelayChangeLog();
+	private volatile long cycle;	//the cycle the simulation on this graph is in
 	
 	/**
 	 * Creates a graph comprised of the given set of nodes
 	 * @param nodes
 	 */
 	public AdasimMap( Set<RoadSegment> nodes ) {
-		this.roads = nodes;
+		this( (Collection<RoadSegment>)nodes );
 	}
 	
 	/**
@@ -63,7 +94,14 @@ public final class AdasimMap {
 	 * @param nodes
 	 */
 	public AdasimMap( List<RoadSegment> nodes ) {
-		this.roads = new HashSet<RoadSegment>( nodes );
+		this( (Collection<RoadSegment>)nodes );
+	}
+	
+	private AdasimMap( Collection<RoadSegment> nodes ) {
+		roads = new RoadSegment[16];
+		for ( RoadSegment node : nodes ) {
+			addRoadSegment(node);
+		}
 	}
 	
 	/**
@@ -74,15 +112,32 @@ public final class AdasimMap {
 	 * @param capacity
 	 */
 	public void addRoadSegment(int num, TrafficDelayFunction speed, int capacity) {
-		roads.add(new RoadSegment(num, speed, capacity));
+		addRoadSegment(new RoadSegment(num, speed, capacity));
 	}
 	
 	/**
-	 * Inserts the given node into the graph
+	 * Inserts the given node into the graph, unless the graph already
+	 * contains a node with the same ID.
 	 * @param node
 	 */
 	public void addRoadSegment( RoadSegment node ) {
-		roads.add(node);
+		int id = node.getID();
+		if ( slots.get(id) >= 0 ) return;
+		if ( size == roads.length ) {
+			roads = Arrays.copyOf( roads, 2 * size );
+		}
+		slots.put( id, size );
+		roads[size++] = node;
+		node.setMap(this);
+		segments = null;
+		topologyChanged();
+	}
+	
+	/**
+	 * Called by nodes of this graph when their edges change.
+	 */
+	void topologyChanged() {
+		topologyVersion++;
 	}
 	
 	/**
@@ -110,10 +165,108 @@ public final class AdasimMap {
 	}
 	
 	/**
-	 * @return the list of nodes in the graph
+	 * The returned list is shared and cannot be modified. It does not change
+	 * when nodes are added to the graph later.
+	 * @return the list of nodes in the graph, ordered by ID
 	 */
 	public List<RoadSegment> getRoadSegments() {
-		return new ArrayList<RoadSegment>(roads);
+		List<RoadSegment> s = segments;
+		if ( s == null ) {
+			RoadSegment[] sorted = Arrays.copyOf( roads, size );
+			Arrays.sort( sorted, BY_ID );
+			int[] idx = new int[size];
+			for ( int i = 0; i < sorted.length; i++ ) {
+				idx[ slots.get( sorted[i].getID() ) ] = i;
+			}
+			indices = idx;
+			s = segments = Collections.unmodifiableList( Arrays.asList( sorted ) );
+		}
+		return s;
+	}
+	
+	/**
+	 * The returned snapshot is shared, and is only rebuilt after nodes or
+	 * edges have been added or removed.
+	 * @return the current topology of the graph
+	 */
+	public MapTopology getTopology() {
+		MapTopology t = topology;
+		if ( t == null || t.getVersion() != topologyVersion ) {
+			synchronized (this) {
+				t = topology;
+				long version = topologyVersion;
+				if ( t == null || t.getVersion() != version ) {
+					t = topology = new MapTopology( getRoadSegments(), version );
+				}
+			}
+		}
+		return t;
+	}
+	
+	/**
+	 * Returns the object of class <code>type</code> attached to this graph,
+	 * which <code>factory</code> creates when it is first needed. There is
+	 * at most one such object per class and graph. If it is a 
+	 * {@link CycleListener}, it is notified whenever a cycle starts.
+	 * 
+	 * @param type
+	 * @param factory
+	 * @return the object of class <code>type</code> attached to this graph
+	 */
+	public <T> T getCache( Class<T> type, Factory<T> factory ) {
+		Object c = caches.get( type );
+		if ( c == null ) {
+			synchronized ( caches ) {
+				c = caches.get( type );
+				if ( c == null ) {
+					c = factory.create( this );
+					caches.put( type, c );
+					if ( c instanceof CycleListener ) {
+						CycleListener[] l = Arrays.copyOf( listeners, listeners.length + 1 );
+						l[listeners.length] = (CycleListener)c;
+						listeners = l;
+					}
+				}
+			}
+		}
+		return type.cast( c );
+	}
+	
+	/**
+	 * @return the log of roads of this graph whose current delay changed,
+	 * with the version of all current delays and the roads that changed 
+	 * in each cycle
+	 */
+	public DelayChangeLog getDelayChanges() {
+		return changes;
+	}
+	
+	/**
+	 * @return the cycle the simulation running on this graph is in, 
+	 * 0 before it starts
+	 */
+	public long getCycle() {
+		return cycle;
+	}
+	
+	/**
+	 * Called by the simulator when a cycle starts, before any vehicle
+	 * moves in it.
+	 * @param cycle
+	 */
+	void setCycle( long cycle ) {
+		this.cycle = cycle;
+		changes.startCycle( cycle );
+		for ( CycleListener l : listeners ) {
+			l.cycleStarted( cycle );
+		}
+	}
+	
+	/**
+	 * @return the number of nodes in the graph
+	 */
+	public int getRoadSegmentCount() {
+		return size;
 	}
 	
 	/**
@@ -123,7 +276,48 @@ public final class AdasimMap {
 	 * no such node exists 
 	 */
 	public RoadSegment getRoadSegment( int id ) {
-		return RoadSegment.getRoadSegment(roads, id);
+		int slot = slots.get(id);
+		return slot < 0 ? null : roads[slot];
 	}
 	
+	/**
+	 * @param node
+	 * @return the position of <code>node</code> in {@link #getRoadSegments()},
+	 * or -1 if it is not part of the graph
+	 */
+	public int getIndex( RoadSegment node ) {
+		int slot = slots.get( node.getID() );
+		if ( slot < 0 ) return -1;
+		getRoadSegments();
+		return indices[slot];
+	}
+	
+	/**
+	 * Creates the objects attached to a graph with 
+	 * {@link AdasimMap#getCache(Class, Factory)}.
+	 * 
+	 * @param <T> the class of the objects
+	 */
+	public interface Factory<T> {
+		
+		/**
+		 * @param map the graph the object is attached to
+		 * @return a new object for <code>map</code>
+		 */
+		T create( AdasimMap map );
+	}
+	
+	/**
+	 * An object attached to a graph with {@link AdasimMap#getCache(Class, Factory)}
+	 * that is notified when a cycle of the simulation on the graph starts.
+	 */
+	public interface CycleListener {
+		
+		/**
+		 * Called on the thread of the simulator before any vehicle moves
+		 * in <code>cycle</code>.
+		 * @param cycle the cycle that starts
+		 */
+		void cycleStarted( long cycle );
+	}
 }
@@ -0,0 +1,199 @@
+/*******************************************************************************
+ * Copyright (C) 2011 - 2012 Jochen Wuttke, Jonathan Ramaswamy
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ********************************************************************************
+ *
+ * Created: Oct 18, 2026
+ */
+
+package adasim.model;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+import adasim.util.RestorableRandom;
+
+
+/**
+ * Reads the state written by {@link CheckpointOutput}. Roads are looked up 
+ * in the map of the simulation that is restored, vehicles among the vehicles 
+ * registered with {@link #registerVehicle(Vehicle)}.
+ */
+public final class CheckpointInput {
+	
+	private final ByteBuffer buffer;
+	private final AdasimMap map;
+	private final Map<Integer, Vehicle> vehicles;
+	
+	/**
+	 * @param buffer the checkpoint, from its current position
+	 * @param map the map roads are looked up in
+	 */
+	public CheckpointInput( ByteBuffer buffer, AdasimMap map ) {
+		this.buffer = buffer;
+		this.map = map;
+		vehicles = new HashMap<Integer, Vehicle>();
+	}
+	
+	/**
+	 * @return <code>true</code> if all of the checkpoint was read
+	 */
+	public boolean isAtEnd() {
+		return !buffer.hasRemaining();
+	}
+	
+	/**
+	 * @return the next byte
+	 * @throws IOException
+	 */
+	public int readByte() throws IOException {
+		try {
+			return buffer.get();
+		} catch ( BufferUnderflowException e ) {
+			throw new EOFException( "Truncated checkpoint" );
+		}
+	}
+	
+	/**
+	 * @return the next boolean
+	 * @throws IOException
+	 */
+	public boolean readBoolean() throws IOException {
+		return readByte() != 0;
+	}
+
+	/**
+	 * @return the next int
+	 * @throws IOException
+	 */
+	public int readInt() throws IOException {
+		return (int) readLong();
+	}
+
+	/**
+	 * @return the next long
+	 * @throws IOException
+	 */
+	public long readLong() throws IOException {
+		long z = 0;
+		for ( int shift = 0; shift < 64; shift += 7 ) {
+			int b = readByte();
+			z |= (long) ( b & 0x7F ) << shift;
+			if ( ( b & 0x80 ) == 0 ) {
+				return ( z >>> 1 ) ^ -( z & 1 );
+			}
+		}
+		throw new IOException( "Malformed number" );
+	}
+	
+	/**
+	 * @return the next double
+	 * @throws IOException
+	 */
+	public double readDouble() throws IOException {
+		try {
+			return buffer.getDouble();
+		} catch ( BufferUnderflowException e ) {
+			throw new EOFException( "Truncated checkpoint" );
+		}
+	}
+	
+	/**
+	 * @return the next array of bytes
+	 * @throws IOException
+	 */
+	public byte[] readBytes() throws IOException {
+		int n = readInt();
+		if ( n < 0 || n > buffer.remaining() ) {
+			throw new EOFException( "Truncated checkpoint" );
+		}
+		byte[] b = new byte[n];
+		buffer.get( b );
+		return b;
+	}
+	
+	/**
+	 * @return the next road, or <code>null</code>
+	 * @throws IOException if the road is not part of the map
+	 */
+	public RoadSegment readRoad() throws IOException {
+		int id = readInt();
+		if ( id == -1 ) return null;
+		RoadSegment r = map.getRoadSegment( id );
+		if ( r == null ) {
+			throw new IOException( "Checkpoint refers to unknown road " + id );
+		}
+		return r;
+	}
+	
+	/**
+	 * @return the next list of roads, or <code>null</code>
+	 * @throws IOException
+	 */
+	public LinkedList<RoadSegment> readRoads() throws IOException {
+		int n = readInt();
+		if ( n == -1 ) return null;
+		LinkedList<RoadSegment> roads = new LinkedList<RoadSegment>();
+		for ( int i = 0; i < n; i++ ) {
+			roads.add( readRoad() );
+		}
+		return roads;
+	}
+	
+	/**
+	 * Makes <code>v</code> known to {@link #readVehicle()}.
+	 * @param v
+	 * @throws IOException if a different vehicle with the same ID is already known
+	 */
+	public void registerVehicle( Vehicle v ) throws IOException {
+		Vehicle old = vehicles.put( v.getID(), v );
+		if ( old != null && old != v ) {
+			throw new IOException( "Cannot restore simulations with duplicate vehicle ID " + v.getID() );
+		}
+	}
+	
+	/**
+	 * @return the next vehicle, or <code>null</code>
+	 * @throws IOException if the vehicle was not registered
+	 */
+	public Vehicle readVehicle() throws IOException {
+		int id = readInt();
+		if ( id == -1 ) return null;
+		Vehicle v = vehicles.get( id );
+		if ( v == null ) {
+			throw new IOException( "Checkpoint refers to unknown vehicle " + id );
+		}
+		return v;
+	}
+	
+	/**
+	 * Restores the next state of a random number generator.
+	 * @param random the generator to restore
+	 * @throws IOException
+	 */
+	public void readRandom( RestorableRandom random ) throws IOException {
+		random.setState( readLong() );
+	}
+}
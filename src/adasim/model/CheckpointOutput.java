@@ -0,0 +1,168 @@
+/*******************************************************************************
+ * Copyright (C) 2011 - 2012 Jochen Wuttke, Jonathan Ramaswamy
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ********************************************************************************
+ *
+ * Created: Oct 18, 2026
+ */
+
+package adasim.model;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import adasim.util.RestorableRandom;
+
+
+/**
+ * Collects the state of a simulation in memory for a checkpoint.
+ * <p>
+ * Numbers are written as variable length integers (seven bits per byte, 
+ * zig-zag encoded so that small negative numbers stay short). Roads and 
+ * vehicles are written as their IDs, or <code>-1</code> for <code>null</code>.
+ * The buffer is kept between checkpoints, so once it has grown to the size 
+ * of the state, writing a checkpoint does not allocate memory.
+ */
+public final class CheckpointOutput {
+	
+	private ByteBuffer buffer;
+	
+	public CheckpointOutput() {
+		buffer = ByteBuffer.allocate( 4096 );
+	}
+	
+	/**
+	 * Discards everything written so far.
+	 */
+	public void reset() {
+		buffer.clear();
+	}
+	
+	/**
+	 * @return a read-only view of the bytes written since the last 
+	 * {@link #reset()}, valid until the next write
+	 */
+	public ByteBuffer getBuffer() {
+		ByteBuffer b = buffer.asReadOnlyBuffer();
+		b.flip();
+		return b;
+	}
+	
+	private void ensureCapacity( int n ) {
+		if ( buffer.remaining() < n ) {
+			ByteBuffer b = ByteBuffer.allocate( Math.max( buffer.capacity() << 1, buffer.position() + n ) );
+			buffer.flip();
+			b.put( buffer );
+			buffer = b;
+		}
+	}
+	
+	/**
+	 * @param b
+	 */
+	public void writeByte( int b ) {
+		ensureCapacity(1);
+		buffer.put( (byte) b );
+	}
+	
+	/**
+	 * @param b
+	 */
+	public void writeBoolean( boolean b ) {
+		writeByte( b ? 1 : 0 );
+	}
+	
+	/**
+	 * @param v
+	 */
+	public void writeInt( int v ) {
+		writeLong( v );
+	}
+	
+	/**
+	 * @param v
+	 */
+	public void writeLong( long v ) {
+		ensureCapacity(10);
+		long z = ( v << 1 ) ^ ( v >> 63 );
+		while ( ( z & ~0x7FL ) != 0 ) {
+			buffer.put( (byte) ( ( z & 0x7F ) | 0x80 ) );
+			z >>>= 7;
+		}
+		buffer.put( (byte) z );
+	}
+	
+	/**
+	 * @param v
+	 */
+	public void writeDouble( double v ) {
+		ensureCapacity(8);
+		buffer.putDouble( v );
+	}
+	
+	/**
+	 * Writes the length of <code>b</code>, followed by its contents.
+	 * @param b
+	 */
+	public void writeBytes( byte[] b ) {
+		writeInt( b.length );
+		ensureCapacity( b.length );
+		buffer.put( b );
+	}
+	
+	/**
+	 * @param road may be <code>null</code>
+	 */
+	public void writeRoad( RoadSegment road ) {
+		writeInt( road == null ? -1 : road.getID() );
+	}
+	
+	/**
+	 * Writes the number of roads, followed by the roads, or <code>-1</code> 
+	 * if <code>roads</code> is <code>null</code>.
+	 * @param roads may be <code>null</code>
+	 */
+	public void writeRoads( List<RoadSegment> roads ) {
+		if ( roads == null ) {
+			writeInt(-1);
+			return;
+		}
+		writeInt( roads.size() );
+		for ( RoadSegment r : roads ) {
+			writeRoad( r );
+		}
+	}
+	
+	/**
+	 * @param v may be <code>null</code>
+	 */
+	public void writeVehicle( Vehicle v ) {
+		writeInt( v == null ? -1 : v.getID() );
+	}
+	
+	/**
+	 * Writes the state of a random number generator, so that it returns the 
+	 * same numbers after it is restored.
+	 * @param random
+	 */
+	public void writeRandom( RestorableRandom random ) {
+		writeLong( random.getState() );
+	}
+}
@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * Copyright (C) 2011 - 2012 Jochen Wuttke, Jonathan Ramaswamy
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ********************************************************************************
+ *
+ * Created: Oct 18, 2026
+ */
+
+package adasim.model;
+
+import java.io.IOException;
+
+
+/**
+ * Implemented by agents and routing algorithms whose state changes while a 
+ * simulation runs, so that the state can be written to a checkpoint and 
+ * restored from it (see {@link TrafficSimulator#writeCheckpoint(CheckpointOutput)}).
+ * <p>
+ * A checkpoint is always restored into a simulation built from the same 
+ * configuration, so only the state that changes over time has to be 
+ * written. {@link #readState(CheckpointInput)} must read exactly what 
+ * {@link #writeState(CheckpointOutput)} wrote, in the same order.
+ */
+public interface Checkpointable {
+	
+	/**
+	 * Writes the current state of this object.
+	 * @param out
+	 */
+	public void writeState( CheckpointOutput out );
+	
+	/**
+	 * Replaces the state of this object with the state read from <code>in</code>.
+	 * @param in
+	 * @throws IOException if the checkpoint is malformed or does not 
+	 * match the simulation
+	 */
+	public void readState( CheckpointInput in ) throws IOException;
+
+}
@@ -0,0 +1,171 @@
+/*******************************************************************************
+ * Copyright (C) 2011 - 2012 Jochen Wuttke, Jonathan Ramaswamy
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ********************************************************************************
+ *
+ * Created: Oct 18, 2026
+ */
+
+package adasim.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The roads of an {@link AdasimMap} whose current delay changed
+ * (see {@link AdasimMap#getDelayChanges()}), in the order of the changes. 
+ * Roads add themselves when their delay version changes (see 
+ * {@link RoadSegment#getDelayVersion()}), which happens when vehicles 
+ * entering or leaving them change their delay, and when they are closed 
+ * or opened.
+ * <p>
+ * {@link #getVersion()} changes with every change on the map, so a cache
+ * that remembers it knows in constant time whether any current delay has
+ * changed since. {@link #getChangedRoads(long, Collection)} lists the roads 
+ * that changed in the current and the previous cycle of the simulation.
+ * <p>
+ * Readers remember a position in the log, starting with {@link #getPosition()}, 
+ * and ask for the roads that changed since then with 
+ * {@link #read(long, Collection)}, which returns the next position. 
+ * A road is added only once until the next read, so a read returns 
+ * at most as many roads as the map has. The log keeps the last 
+ * {@value #CAPACITY} entries, and readers that fall further behind 
+ * have to start over.
+ * <p>
+ * This class is thread safe.
+ */
+public final class DelayChangeLog {
+	
+	static final int CAPACITY = 1 << 16;
+	
+	private RoadSegment[] entries = new RoadSegment[64];	//ring buffer, grows up to CAPACITY
+	private long end;					//the number of entries ever added
+	private long read;					//end at the last read
+	private final IdTable slots = new IdTable(16);	//the position of each road in last and changedIn, by ID
+	private long[] last = new long[16];	//position + 1 of the last entry of each road, 0 if none
+	private volatile long version;		//the number of changes ever made
+	private long cycle;
+	private long previousCycle = -1;
+	private List<RoadSegment> current = new ArrayList<RoadSegment>();	//roads changed in cycle
+	private List<RoadSegment> previous = new ArrayList<RoadSegment>();	//roads changed in previousCycle
+	private long[] changedIn = new long[16];	//cycle + 1 of the last change of each road, 0 if none
+
+	/**
+	 * Records that the current delay of <code>road</code> changed.
+	 * @param road
+	 */
+	synchronized void add( RoadSegment road ) {
+		int id = slots.get( road.getID() );
+		if ( id < 0 ) {
+			id = slots.size();
+			slots.put( road.getID(), id );
+			if ( id == last.length ) {
+				last = Arrays.copyOf( last, 2 * id );
+				changedIn = Arrays.copyOf( changedIn, 2 * id );
+			}
+		}
+		version++;
+		if ( changedIn[id] != cycle + 1 ) {
+			changedIn[id] = cycle + 1;
+			current.add( road );
+		}
+		if ( last[id] > read ) return;	//no reader has seen the last entry yet
+		if ( end >= entries.length && entries.length < CAPACITY ) {
+			RoadSegment[] grown = new RoadSegment[ 2 * entries.length ];
+			for ( long p = end - entries.length; p < end; p++ ) {
+				grown[ (int)( p & ( grown.length - 1 ) ) ] = entries[ (int)( p & ( entries.length - 1 ) ) ];
+			}
+			entries = grown;
+		}
+		entries[ (int)( end & ( entries.length - 1 ) ) ] = road;
+		last[id] = ++end;
+	}
+	
+	/**
+	 * Called by the map when a cycle starts.
+	 * @param c
+	 */
+	synchronized void startCycle( long c ) {
+		if ( c == cycle ) return;
+		List<RoadSegment> l = previous;
+		previous = current;
+		previousCycle = cycle;
+		current = l;
+		current.clear();
+		cycle = c;
+	}
+	
+	/**
+	 * @return a number that changes whenever the current delay of a road
+	 * of the map changes
+	 */
+	public long getVersion() {
+		return version;
+	}
+	
+	/**
+	 * Adds the roads whose current delay changed in cycle <code>c</code>
+	 * to <code>roads</code>, each once, and so far if it is the current cycle. 
+	 * @param c a cycle
+	 * @param roads
+	 * @return <code>false</code> if <code>c</code> is before the previous 
+	 * cycle the simulation ran, in which case nothing is added to 
+	 * <code>roads</code>
+	 */
+	public synchronized boolean getChangedRoads( long c, Collection<RoadSegment> roads ) {
+		if ( c == cycle ) {
+			roads.addAll( current );
+		} else if ( c == previousCycle ) {
+			roads.addAll( previous );
+		} else if ( c < previousCycle ) {
+			return false;
+		}	//else skipped by the simulation, or not started yet
+		return true;
+	}
+	
+	/**
+	 * @return the position of the next change, where readers start
+	 */
+	public synchronized long getPosition() {
+		read = end;
+		return end;
+	}
+	
+	/**
+	 * Adds the roads that changed since <code>position</code> to 
+	 * <code>changes</code>. A road that changed several times can be 
+	 * added more than once.
+	 * @param position a position returned by an earlier call
+	 * @param changes
+	 * @return the position to continue reading from, or -1 if the log
+	 * no longer has all changes since <code>position</code>, in which 
+	 * case nothing is added to <code>changes</code>
+	 */
+	public synchronized long read( long position, Collection<RoadSegment> changes ) {
+		if ( position < end - entries.length ) return -1;
+		for ( long p = position; p < end; p++ ) {
+			changes.add( entries[ (int)( p & ( entries.length - 1 ) ) ] );
+		}
+		read = end;
+		return end;
+	}
+}
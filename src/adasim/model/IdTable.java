@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (C) 2011 - 2012 Jochen Wuttke, Jonathan Ramaswamy
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ********************************************************************************
+ *
+ * Created: Oct 18, 2026
+ */
+
+package adasim.model;
+
+import java.util.Arrays;
+
+/**
+ * A hash table from road IDs to positions in some array, so that roads 
+ * with any IDs can be looked up in constant time without an array as 
+ * large as the largest ID. Uses open addressing with linear probing.
+ */
+final class IdTable {
+	
+	private int[] ids;
+	private int[] values;	//-1 for empty slots
+	private int size;
+	
+	/**
+	 * @param expected the number of IDs the table will hold
+	 */
+	IdTable( int expected ) {
+		int length = 16;
+		while ( length < 2 * expected ) {
+			length <<= 1;
+		}
+		ids = new int[length];
+		values = new int[length];
+		Arrays.fill( values, -1 );
+	}
+	
+	/**
+	 * @param id
+	 * @return the value stored for <code>id</code>, or -1 if there is none
+	 */
+	int get( int id ) {
+		return values[ slot( id ) ];
+	}
+	
+	/**
+	 * Stores <code>value</code> for <code>id</code>, replacing any value
+	 * stored before.
+	 * @param id
+	 * @param value must not be negative
+	 */
+	void put( int id, int value ) {
+		assert value >= 0;
+		if ( 2 * ( size + 1 ) > ids.length ) {
+			grow();
+		}
+		int s = slot( id );
+		if ( values[s] < 0 ) {
+			ids[s] = id;
+			size++;
+		}
+		values[s] = value;
+	}
+	
+	/**
+	 * @return the number of IDs in the table
+	 */
+	int size() {
+		return size;
+	}
+	
+	/**
+	 * @return the slot holding <code>id</code>, or the empty slot it belongs in
+	 */
+	private int slot( int id ) {
+		int mask = ids.length - 1;
+		int h = id * 0x9E3779B9;
+		int s = ( h ^ ( h >>> 16 ) ) & mask;
+		while ( values[s] >= 0 && ids[s] != id ) {
+			s = ( s + 1 ) & mask;
+		}
+		return s;
+	}
+	
+	private void grow() {
+		int[] oldIds = ids, oldValues = values;
+		ids = new int[ 2 * oldIds.length ];
+		values = new int[ 2 * oldIds.length ];
+		Arrays.fill( values, -1 );
+		for ( int i = 0; i < oldIds.length; i++ ) {
+			if ( oldValues[i] >= 0 ) {
+				int s = slot( oldIds[i] );
+				ids[s] = oldIds[i];
+				values[s] = oldValues[i];
+			}
+		}
+	}
+}
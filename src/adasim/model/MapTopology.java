@@ -0,0 +1,188 @@
+/*******************************************************************************
+ * Copyright (C) 2011 - 2012 Jochen Wuttke, Jonathan Ramaswamy
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ********************************************************************************
+ *
+ * Created: Oct 17, 2026
+ */
+
+package adasim.model;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An immutable snapshot of the roads and edges of an {@link AdasimMap} in
+ * compressed sparse row form. Roads are identified by their index in
+ * {@link AdasimMap#getRoadSegments()}, and the edges leaving road 
+ * <em>i</em> are numbered from {@link #getEdgeStart(int)} up to (but not 
+ * including) {@link #getEdgeEnd(int)}. The target of each edge is the 
+ * index of a road, so routing algorithms can traverse the graph without
+ * allocating anything.
+ * <p>
+ * Edges are in the order returned by {@link RoadSegment#getNeighbors()}.
+ * Edges to roads that are not part of the map are left out. The edges
+ * entering road <em>i</em> are also available, numbered from 
+ * {@link #getInEdgeStart(int)} up to {@link #getInEdgeEnd(int)}, in the
+ * order of the index of the road they come from.
+ * <p>
+ * A snapshot is obtained from {@link AdasimMap#getTopology()}, which builds
+ * a new one only after roads or edges were added or removed.
+ */
+public final class MapTopology {
+	
+	private final RoadSegment[] roads;		//all roads by index
+	private final IdTable indices;			//the index of each road, by ID
+	private final int[] offsets;			//edges of road i are offsets[i] .. offsets[i+1]-1
+	private final int[] targets;			//target road index of each edge
+	private final int[] inOffsets;			//edges entering road i are inOffsets[i] .. inOffsets[i+1]-1
+	private final int[] sources;			//source road index of each entering edge
+	private final long version;
+	
+	/**
+	 * Builds the topology of <code>roads</code>, which must be ordered by ID.
+	 * @param roads
+	 * @param version the topology version of the map
+	 */
+	MapTopology( List<RoadSegment> roads, long version ) {
+		this.roads = roads.toArray( new RoadSegment[roads.size()] );
+		this.version = version;
+		indices = new IdTable( this.roads.length );
+		for ( int i = 0; i < this.roads.length; i++ ) {
+			indices.put( this.roads[i].getID(), i );
+		}
+		offsets = new int[this.roads.length + 1];
+		int[] t = new int[this.roads.length];
+		int edges = 0;
+		for ( int i = 0; i < this.roads.length; i++ ) {
+			offsets[i] = edges;
+			for ( RoadSegment n : this.roads[i].getNeighbors() ) {
+				int target = getIndex( n );
+				if ( target < 0 ) continue;
+				if ( edges == t.length ) {
+					t = Arrays.copyOf( t, 2 * t.length + 1 );
+				}
+				t[edges++] = target;
+			}
+		}
+		offsets[this.roads.length] = edges;
+		targets = Arrays.copyOf( t, edges );
+		
+		inOffsets = new int[this.roads.length + 1];
+		sources = new int[edges];
+		for ( int e = 0; e < edges; e++ ) {
+			inOffsets[ targets[e] + 1 ]++;
+		}
+		for ( int i = 0; i < this.roads.length; i++ ) {
+			inOffsets[i + 1] += inOffsets[i];
+		}
+		int[] next = Arrays.copyOf( inOffsets, this.roads.length );
+		for ( int i = 0; i < this.roads.length; i++ ) {
+			for ( int e = offsets[i]; e < offsets[i + 1]; e++ ) {
+				sources[ next[ targets[e] ]++ ] = i;
+			}
+		}
+	}
+	
+	/**
+	 * @return the number of roads
+	 */
+	public int size() {
+		return roads.length;
+	}
+	
+	/**
+	 * @return the number of edges
+	 */
+	public int getEdgeCount() {
+		return targets.length;
+	}
+	
+	/**
+	 * @param index
+	 * @return the road with the given index
+	 */
+	public RoadSegment getRoadSegment( int index ) {
+		return roads[index];
+	}
+	
+	/**
+	 * @param road
+	 * @return the index of <code>road</code>, or -1 if it is not part of the map
+	 */
+	public int getIndex( RoadSegment road ) {
+		return indices.get( road.getID() );
+	}
+	
+	/**
+	 * @param index
+	 * @return the first edge leaving the road with the given index
+	 */
+	public int getEdgeStart( int index ) {
+		return offsets[index];
+	}
+	
+	/**
+	 * @param index
+	 * @return one past the last edge leaving the road with the given index
+	 */
+	public int getEdgeEnd( int index ) {
+		return offsets[index + 1];
+	}
+	
+	/**
+	 * @param edge
+	 * @return the index of the road <code>edge</code> leads to
+	 */
+	public int getTarget( int edge ) {
+		return targets[edge];
+	}
+	
+	/**
+	 * @param index
+	 * @return the first edge entering the road with the given index
+	 */
+	public int getInEdgeStart( int index ) {
+		return inOffsets[index];
+	}
+	
+	/**
+	 * @param index
+	 * @return one past the last edge entering the road with the given index
+	 */
+	public int getInEdgeEnd( int index ) {
+		return inOffsets[index + 1];
+	}
+	
+	/**
+	 * @param inEdge an edge numbered from {@link #getInEdgeStart(int)}
+	 * @return the index of the road <code>inEdge</code> comes from
+	 */
+	public int getSource( int inEdge ) {
+		return sources[inEdge];
+	}
+	
+	/**
+	 * @return the version of the map topology this snapshot was built from
+	 */
+	public long getVersion() {
+		return version;
+	}
+}
@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright (C) 2011 - 2012 Jochen Wuttke, Jonathan Ramaswamy
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ********************************************************************************
+ *
+ * Created: Oct 18, 2026
+ */
+
+package adasim.model;
+
+import adasim.model.internal.ModelAccess;
+
+
+/**
+ * The implementation of {@link ModelAccess}, which can call the 
+ * package private getters of the model. It is only ever handed to
+ * <code>adasim.model.internal</code>.
+ */
+final class ModelAccessor extends ModelAccess {
+	
+	private ModelAccessor() {}
+	
+	/**
+	 * Hands the only instance to <code>adasim.model.internal</code>.
+	 */
+	static void register() {
+		setAccess( new ModelAccessor() );
+	}
+
+	@Override
+	public RoadSegment getStartNode( Vehicle v ) {
+		return v.getStartNode();
+	}
+
+	@Override
+	public RoadSegment getEndNode( Vehicle v ) {
+		return v.getEndNode();
+	}
+
+	@Override
+	public RoadSegment getCurrentPosition( Vehicle v ) {
+		return v.getCurrentPosition();
+	}
+
+	@Override
+	public int getDelay( RoadSegment r ) {
+		return r.getDelay();
+	}
+
+	@Override
+	public int getCapacity( RoadSegment r ) {
+		return r.getCapacity();
+	}
+
+	@Override
+	public int getVehicleCount( RoadSegment r ) {
+		return r.getVehicleCount();
+	}
+
+}
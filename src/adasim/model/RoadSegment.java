@@ -28,11 +28,11 @@
 
 package adasim.model;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 
@@ -41,7 +41,7 @@ import org.apache.log4j.Logger;
 import adasim.agent.AbstractAdasimAgent;
 import adasim.algorithm.delay.TrafficDelayFunction;
 import adasim.model.internal.RoadVehicleQueue;
-import adasim.util.ReflectionUtils;
+import adasim.model.internal.VehicleSlot;
 
 
 /**
@@ -81,6 +81,13 @@ public final class RoadSegment extends AbstractAdasimAgent implements Comparable
 	private RoadVehicleQueue queue; //Holds the vehicles on this node and deals with the adasim
 	private int capacity; //The number of vehicles the road can hold before the speed strategy takes effect
 	private boolean closed;
+	private long lastCycle; //The last cycle in which the queue moved
+	private AdasimMap map;	//The map this node was last added to
+	private Vehicle[] departing; //Vehicles leaving in the current step, reused across steps
+	private Vehicle[] merging; //Second buffer for sorting departing vehicles, empty between steps
+	private int lastDelay; //The value of the speed strategy when the delay version last changed
+	private boolean lastClosed; //The closed flag when the delay version last changed
+	private long delayVersion; //Changes whenever the current delay changes
 	
 	/**
 	 * Creates a node with delay 1.
@@ -106,7 +113,10 @@ public final class RoadSegment extends AbstractAdasimAgent implements Comparable
 		ss = s;
 		this.delay = delay;
 		queue = new RoadVehicleQueue();
+		departing = new Vehicle[4];
+		merging = new Vehicle[4];
 		this.capacity = capacity;
+		lastDelay = delayFunctionValue();
 	}
 	
 	/* ***************************************************
@@ -117,16 +127,11 @@ public final class RoadSegment extends AbstractAdasimAgent implements Comparable
 	 * Adds an outgoing edge to the given node
 	 * @param to
 	 */
-	public static String linksOfNodes ="";
 	public void addEdge( RoadSegment to ) {
 		if ( to == null ) return;
-		if(linksOfNodes=="") {
-			linksOfNodes = "{source: \""+this.getID() +"\", target: \""+to.getID() +"\", type: \"view\"}";
-				
-		}else {
-            linksOfNodes = linksOfNodes+",\n{source: \""+this.getID() +"\", target: \""+to.getID() +"\", type: \"view\"}";
+		if ( outgoing.add( to ) && map != null ) {
+			map.topologyChanged();
 		}
-		outgoing.add( to );
 	}
 	
 	/**
@@ -134,7 +139,18 @@ public final class RoadSegment extends AbstractAdasimAgent implements Comparable
 	 * @param to
 	 */
 	public void removeEdge( RoadSegment to ) {
-		outgoing.remove( to );
+		if ( outgoing.remove( to ) && map != null ) {
+			map.topologyChanged();
+		}
+	}
+	
+	/**
+	 * Called when this node is added to <code>map</code>, which is
+	 * notified about changes to the edges from then on.
+	 * @param map
+	 */
+	void setMap( AdasimMap map ) {
+		this.map = map;
 	}
 	
 	/**
@@ -164,6 +180,7 @@ public final class RoadSegment extends AbstractAdasimAgent implements Comparable
 	 */
 	public void setSpeedStrategy(TrafficDelayFunction ss) {
 		this.ss = ss;
+		delayChanged();
 	}
 
 	
@@ -182,8 +199,7 @@ public final class RoadSegment extends AbstractAdasimAgent implements Comparable
 	/**
 	 * @return the unfiltered delay. For internal use only.
 	 */
-	@SuppressWarnings("unused")
-	private int getDelay() {
+	int getDelay() {
 		return delay;
 	}
 	
@@ -202,6 +218,18 @@ public final class RoadSegment extends AbstractAdasimAgent implements Comparable
 		return closed ? Integer.MAX_VALUE : ss.getDelay(delay, capacity, queue.size());
 	}
 	
+	/**
+	 * Returns a number that changes whenever the current delay of this node
+	 * changes, because the speed strategy computes a different delay or the 
+	 * node is closed or opened. As long as it is the same, routes computed
+	 * from the current delay are still valid.
+	 * 
+	 * @return the version of the current delay
+	 */
+	public long getDelayVersion() {
+		return delayVersion;
+	}
+	
 	public int getCapacity(Class<?> caller) {
 		return filterValue(capacity, caller);
 	}
@@ -209,16 +237,23 @@ public final class RoadSegment extends AbstractAdasimAgent implements Comparable
 	/**
 	 * @return the unfiltered capacity. For internal use only.
 	 */
-	@SuppressWarnings("unused")
-	private int getCapacity() {
+	int getCapacity() {
 		return capacity;
 	}
 	
+	/**
+	 * @return the unfiltered number of vehicles on this road. For internal use only.
+	 */
+	int getVehicleCount() {
+		return queue.size();
+	}
+	
 	/**
 	 * @param capacity the capacity to set
 	 */
 	public void setCapacity(int capacity) {
 		this.capacity = capacity;
+		delayChanged();
 	}
 
 	/**
@@ -234,7 +269,14 @@ public final class RoadSegment extends AbstractAdasimAgent implements Comparable
 	 * @param c
 	 */
 	public void setClosed( boolean c ) {
+		if ( closed == c ) return;
 		closed = c;
+		delayChanged();
+		if ( c ) {
+			getEventSink().roadClosed(id);
+		} else {
+			getEventSink().roadOpened(id);
+		}
 	}
 	
 	/**
@@ -261,12 +303,24 @@ public final class RoadSegment extends AbstractAdasimAgent implements Comparable
 	 */
 	public void enterNode(Vehicle v) {
 		if (closed) {
-			logger.info( "INVALID: Node " + this.getID() + " is closed." );
+			if ( logger.isInfoEnabled() ) {
+				logger.info( "INVALID: Node " + this.getID() + " is closed." );
+			}
+			getEventSink().moveRejected( v.getID(), v.getCurrentPosition().getID(), id );
 			park(v);
 		} else {
-			logger.info( "ENTER: " + v.vehiclePosition() );
+			if ( logger.isInfoEnabled() ) {
+				logger.info( "ENTER: " + v.vehiclePosition() );
+			}
+			if ( simulator != null ) simulator.segmentEntering(this);
 			queue.enqueue(v, getCurrentDelay() );
+			delayChanged();
 			v.setCurrentPosition(this);
+			getEventSink().vehicleEntered( v.getID(), id );
+			if ( v.isFinished() ) {
+				getEventSink().vehicleStopped( v.getID(), id );
+			}
+			if ( simulator != null ) simulator.segmentEntered(this);
 		}
 	}
 	
@@ -280,14 +334,35 @@ public final class RoadSegment extends AbstractAdasimAgent implements Comparable
 	 */
 	public void park( Vehicle c ) {
 		queue.park(c);
-		logger.info( "STOP: " + c.vehiclePosition() );
+		delayChanged();
+		if ( logger.isInfoEnabled() ) {
+			logger.info( "STOP: " + c.vehiclePosition() );
+		}
+		getEventSink().vehicleStopped( c.getID(), id );
 		//this is to ensure termination
-		try {
-			c.setCurrentPosition( (RoadSegment) ReflectionUtils.getProperty(c, "getEndNode"));
-		} catch (Exception e) {
-			// this should never happen
-			e.printStackTrace();
-		} 
+		c.setCurrentPosition( c.getEndNode() );
+	}
+	
+	/**
+	 * Called whenever the current delay of this node may have changed.
+	 * If it has, the delay version changes and the node is recorded in the 
+	 * change log of the map.
+	 */
+	private void delayChanged() {
+		int d = delayFunctionValue();
+		if ( d == lastDelay && closed == lastClosed ) return;
+		lastDelay = d;
+		lastClosed = closed;
+		delayVersion++;
+		if ( map != null ) map.getDelayChanges().add(this);
+	}
+	
+	/**
+	 * @return the delay the speed strategy computes for the vehicles on 
+	 * this node, or the basic delay if there is no speed strategy yet
+	 */
+	private int delayFunctionValue() {
+		return ss == null ? delay : ss.getDelay(delay, capacity, queue.size());
 	}
 	
 	/* ***************************************************
@@ -307,33 +382,171 @@ public final class RoadSegment extends AbstractAdasimAgent implements Comparable
 	 * by calling {@link RoadSegment#enterNode(Vehicle)} on the target node.
 	 * If the move is not legal, the vehicle is stopped and removed 
 	 * from the simulation. Corresponding events will be logged.
+	 * <p>
+	 * For a fixed set of vehicles, this method does not allocate memory
+	 * while logging is disabled.
 	 */
 	public void takeSimulationStep( long cycle ) {
-		Set<Vehicle> finishedVehicles = queue.moveVehicles();
+		lastCycle = cycle;
+		VehicleSlot finishedVehicles = queue.moveVehicles();
 
 		if ( finishedVehicles == null ) return;
+		delayChanged();
 		
-
-		LinkedList<Vehicle> finishedVehiclesSorted = new LinkedList<Vehicle>();
-		finishedVehiclesSorted.addAll(finishedVehicles);
-		Collections.sort(finishedVehiclesSorted);
-		
+		int n = sortDepartures( finishedVehicles );
 		
 		//For debug only
-		for (Vehicle vehicle : finishedVehiclesSorted) {
-			// vehicle reach destination
-			if(vehicle.isFinished()) {
-				continue;
+		if ( logger.isInfoEnabled() ) {
+			for ( int i = 0; i < n; i++ ) {
+				Vehicle vehicle = departing[i];
+				// vehicle reach destination
+				if(vehicle.isFinished()) {
+					continue;
+				}
+				logger.info( "================> selected " + vehicle.vehiclePosition() +
+						", carType:"+ vehicle.getCarType() );
 			}
-			logger.info( "================> selected " + vehicle.vehiclePosition() +
-					", carType:"+ vehicle.getCarType() );
 		}
 		
-		for ( Vehicle c : finishedVehiclesSorted ) {
+		for ( int i = 0; i < n; i++ ) {
+			Vehicle c = departing[i];
+			departing[i] = null;
 			c.move();
 		}
 	}
 	
+	/**
+	 * Copies <code>vehicles</code> into the departure buffer and sorts
+	 * them in their natural order. Like {@link java.util.Collections#sort(List)}
+	 * the sort is a stable merge sort, so vehicles of the same type leave 
+	 * in the order in which they entered. Runs are merged back and forth 
+	 * between the departure buffer and a second buffer of the same size.
+	 * @param vehicles
+	 * @return the number of vehicles in the buffer
+	 */
+	private int sortDepartures( VehicleSlot vehicles ) {
+		int n = vehicles.size();
+		if ( departing.length < n ) {
+			departing = new Vehicle[ Math.max( n, departing.length << 1 ) ];
+			merging = new Vehicle[ departing.length ];
+		}
+		for ( int i = 0; i < n; i++ ) {
+			departing[i] = vehicles.get(i);
+		}
+		Vehicle[] from = departing, to = merging;
+		for ( int width = 1; width < n; width <<= 1 ) {
+			for ( int lo = 0; lo < n; lo += width << 1 ) {
+				merge( from, to, lo, Math.min( lo + width, n ), Math.min( lo + ( width << 1 ), n ) );
+			}
+			Vehicle[] t = from;
+			from = to;
+			to = t;
+		}
+		if ( from != departing ) {
+			System.arraycopy( from, 0, departing, 0, n );
+		}
+		Arrays.fill( merging, 0, n, null );
+		return n;
+	}
+	
+	/**
+	 * Merges the sorted runs <code>from[lo..mid)</code> and <code>from[mid..hi)</code>
+	 * into <code>to[lo..hi)</code>. Of two equal vehicles, the one from the
+	 * first run comes first.
+	 */
+	private static void merge( Vehicle[] from, Vehicle[] to, int lo, int mid, int hi ) {
+		if ( mid >= hi || from[mid - 1].compareTo( from[mid] ) <= 0 ) {
+			System.arraycopy( from, lo, to, lo, hi - lo );
+			return;
+		}
+		int i = lo, j = mid;
+		for ( int k = lo; k < hi; k++ ) {
+			if ( j >= hi || ( i < mid && from[i].compareTo( from[j] ) <= 0 ) ) {
+				to[k] = from[i++];
+			} else {
+				to[k] = from[j++];
+			}
+		}
+	}
+	
+	/**
+	 * Brings the queue up to date for all cycles up to and including 
+	 * <code>cycle</code> in which this segment was not stepped. 
+	 * The event-driven simulation only skips a segment in cycles in which
+	 * no vehicle can leave it, so nothing is lost.
+	 * 
+	 * @param cycle
+	 */
+	void skipTo( long cycle ) {
+		if ( cycle > lastCycle ) {
+			queue.skip( cycle - lastCycle );
+			lastCycle = cycle;
+		}
+	}
+	
+	/**
+	 * @return the next cycle in which a vehicle may leave this segment, or 
+	 * <code>-1</code> if there are no vehicles on this segment.
+	 */
+	long nextDeparture() {
+		int d = queue.nextDeparture();
+		return d < 0 ? -1 : lastCycle + 1 + d;
+	}
+	
+	/**
+	 * @return <code>true</code> if no vehicles are moving on this segment
+	 * (parked vehicles are ignored)
+	 */
+	boolean isEmpty() {
+		return queue.size() == 0;
+	}
+	
+	/**
+	 * @return the vehicles that will leave this segment in its next step,
+	 * unless other vehicles enter before. Must not be modified.
+	 */
+	VehicleSlot peekDepartures() {
+		return queue.peekVehicles();
+	}
+	
+	/**
+	 * @return the last cycle in which this segment was stepped or brought up to date
+	 */
+	long getLastCycle() {
+		return lastCycle;
+	}
+	
+	/**
+	 * Writes the state of this segment at the end of <code>cycle</code>. 
+	 * A segment the event-driven simulation did not bring up to date is 
+	 * written as if it had been.
+	 * @param out
+	 * @param cycle
+	 */
+	void writeState( CheckpointOutput out, long cycle ) {
+		out.writeInt( id );
+		out.writeBoolean( closed );
+		queue.writeState( out, cycle - lastCycle );
+	}
+	
+	/**
+	 * Restores the state written by {@link #writeState(CheckpointOutput, long)}.
+	 * No events are reported.
+	 * @param in
+	 * @param cycle the cycle the checkpoint was written in
+	 * @throws IOException
+	 */
+	void readState( CheckpointInput in, long cycle ) throws IOException {
+		int road = in.readInt();
+		if ( road != id ) {
+			throw new IOException( "Checkpoint does not match the map: expected road " + id + " but found " + road );
+		}
+		closed = in.readBoolean();
+		queue.readState( in );
+		delayChanged();
+		lastCycle = cycle;
+	}
+	
 	/**
 	 * Called by vehicles during the movement protocol. 
 	 * <p>
@@ -348,7 +561,10 @@ public final class RoadSegment extends AbstractAdasimAgent implements Comparable
 		if ( isNeighbor(targetNode) ) {
 			targetNode.enterNode(v);
 		} else {
-			logger.info( "INVALID: Move: " + v.vehiclePosition() + " To: " + targetNode.getID() );
+			if ( logger.isInfoEnabled() ) {
+				logger.info( "INVALID: Move: " + v.vehiclePosition() + " To: " + targetNode.getID() );
+			}
+			getEventSink().moveRejected( v.getID(), id, targetNode.getID() );
 			park(v);
 		}
 	}
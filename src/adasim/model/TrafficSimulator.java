@@ -28,14 +28,26 @@
 
 package adasim.model;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import org.apache.log4j.Logger;
 
 import adasim.TrafficMain;
+import adasim.agent.AbstractAdasimAgent;
 import adasim.agent.AdasimAgent;
+import adasim.algorithm.routing.QTableStore;
+import adasim.algorithm.routing.SpeculativeRoutingAlgorithm;
+import adasim.event.EventSink;
+import adasim.model.internal.CheckpointWriter;
 import adasim.model.internal.VehicleManager;
-import adasim.util.ReflectionUtils;
 
 
 /**
@@ -54,6 +66,31 @@ import adasim.util.ReflectionUtils;
  * <li>All agents (including vehicles, but not GraphNodes) can perform an action
  * <li>All GraphNodes execute the vehicle movement protocol (documented in {@link RoadSegment}).
  * </ol>
+ * <p>
+ * By default every agent is stepped in each cycle, but only those {@link RoadSegment}s
+ * that hold vehicles. The simulator keeps track of these roads as vehicles 
+ * enter and leave them, so the cost of a cycle grows with the number of 
+ * occupied roads, not with the size of the map.
+ * In event-driven mode (see {@link #setEventDriven(boolean)}) the simulator 
+ * instead keeps a queue of the cycles in which a vehicle can leave a road, 
+ * a vehicle is scheduled to start, or an agent asked to be called 
+ * (see {@link AbstractAdasimAgent#getNextCycle(long)}), and skips all other cycles.
+ * Both modes follow the same protocol and produce the same results.
+ * <p>
+ * With more than one thread (see {@link #setThreads(int)}), each cycle first
+ * lets worker threads compute the routes of all vehicles that are about to 
+ * leave a road (see {@link SpeculativeRoutingAlgorithm}). The roads then move 
+ * their vehicles in the usual order, and routes are only taken from the
+ * workers if the delays they were based on did not change in the meantime. 
+ * This keeps the results identical to a single threaded run.
+ * <p>
+ * Besides logging, results of the simulation are reported to an {@link EventSink}
+ * (see {@link #setEventSink(EventSink)}).
+ * <p>
+ * The state of a running simulation can be saved in checkpoints at regular
+ * intervals (see {@link #setCheckpoints(CheckpointWriter, long)}), and a new
+ * simulation built from the same configuration can continue from a checkpoint 
+ * (see {@link #restoreCheckpoint(ByteBuffer)}) with the same results.
  * 
  * @author Jonathan Ramaswamy - ramaswamyj12@gmail.com
  * @author Jochen Wuttke - wuttkej@gmail.com
@@ -62,12 +99,31 @@ import adasim.util.ReflectionUtils;
 public final class TrafficSimulator{
 
 	private static Logger logger = Logger.getLogger(TrafficSimulator.class);
+	
+	private final static byte[] CHECKPOINT_MAGIC = { 'A', 'D', 'C', 'K' };
+	private final static int CHECKPOINT_VERSION = 2;
 
 
 	private List<AdasimAgent> agents; //List of vehicles in the simulation
 	private AdasimMap map; //The map the vehicles run on
 	private VehicleManager manager;
 	private long cycle = 0;
+	private EventSink events = EventSink.NONE;
+	private boolean eventDriven = false;
+	private int threads = 1;
+	private ExecutorService workers;			//computes routes ahead of time, null if threads == 1
+	private RoadSegment[] roads;				//all roads in the order in which they move
+	private Map<RoadSegment, Integer> stepOrder;	//the position of each road in roads
+	private BitSet active;						//step order of all roads that hold vehicles
+	private int currentSegment = -1;			//step order of the road currently moving, -1 before roads move
+	private CheckpointWriter checkpoints;		//null if no checkpoints are written
+	private long checkpointInterval;
+	private long nextCheckpoint;
+	
+	//STATE OF THE EVENT-DRIVEN ENGINE
+	private PriorityQueue<Wakeup> wakeups;		//pending road segment steps, null unless running event-driven
+	private List<AdasimAgent> scheduledAgents;
+	private long[] agentCycles;					//next cycle for each scheduled agent
 
 	public TrafficSimulator( AdasimMap g, VehicleManager m, List<AdasimAgent> c ) {
 		if(g == null || c == null || m == null ) {
@@ -81,31 +137,389 @@ public final class TrafficSimulator{
 		for ( AdasimAgent a : agents ) {
 			a.setSimulation( this );
 		}
+		List<RoadSegment> l = map.getRoadSegments();
+		roads = l.toArray( new RoadSegment[l.size()] );
+		stepOrder = new HashMap<RoadSegment, Integer>();
+		active = new BitSet( roads.length );
+		for ( int i = 0; i < roads.length; i++ ) {
+			roads[i].setSimulation( this );
+			stepOrder.put( roads[i], i );
+			if ( !roads[i].isEmpty() ) {
+				active.set(i);
+			}
+		}
+	}
+	
+	/**
+	 * Selects the simulation engine used by {@link #run()}.
+	 * @param eventDriven <code>true</code> to skip cycles in which nothing happens
+	 */
+	public void setEventDriven( boolean eventDriven ) {
+		this.eventDriven = eventDriven;
+	}
+	
+	/**
+	 * @return <code>true</code> if {@link #run()} uses the event-driven engine
+	 */
+	public boolean isEventDriven() {
+		return eventDriven;
+	}
+	
+	/**
+	 * Sets the sink that receives the events of this simulation. 
+	 * The sink is not closed by the simulator.
+	 * @param events must not be <code>null</code>, use {@link EventSink#NONE} to ignore events
+	 */
+	public void setEventSink( EventSink events ) {
+		if ( events == null ) {
+			throw new IllegalArgumentException();
+		}
+		this.events = events;
+	}
+	
+	/**
+	 * @return the sink that receives the events of this simulation
+	 */
+	public EventSink getEventSink() {
+		return events;
+	}
+	
+	/**
+	 * Sets the number of threads used to compute vehicle routes.
+	 * @param threads must be at least 1
+	 */
+	public void setThreads( int threads ) {
+		if ( threads < 1 ) {
+			throw new IllegalArgumentException( "Number of threads must be at least 1" );
+		}
+		shutdownWorkers();
+		this.threads = threads;
+	}
+	
+	/**
+	 * @return the number of threads used to compute vehicle routes
+	 */
+	public int getThreads() {
+		return threads;
 	}
 
+	/**
+	 * Writes a checkpoint after every cycle that is a multiple of <code>interval</code>.
+	 * In event-driven mode, where cycles are skipped, the checkpoint is written after
+	 * the first cycle that is executed at or after such a cycle.
+	 * The writer is not closed by the simulator.
+	 * @param writer the writer for the checkpoints, or <code>null</code> to stop writing them
+	 * @param interval must be at least 1
+	 */
+	public void setCheckpoints( CheckpointWriter writer, long interval ) {
+		if ( interval < 1 ) {
+			throw new IllegalArgumentException( "Checkpoint interval must be at least 1" );
+		}
+		checkpoints = writer;
+		checkpointInterval = interval;
+		nextCheckpoint = ( cycle / interval + 1 ) * interval;
+	}
+	
 	/**
 	 * Runs the simulator until all agents concur that they are done.
 	 * Currently the only way to interrupt this is by forcing the program
 	 * to terminate (SIG_INT or suchlike).
 	 */
 	public void run() {
-		while(! isFinished()) {
-			takeSimulationStep();
+		if ( cycle == 0 ) {
+			reportPlacedVehicles();
+		}
+		try {
+			if ( eventDriven ) {
+				runEventDriven();
+			} else {
+				while(! isFinished()) {
+					takeSimulationStep();
+					checkpointIfDue();
+				}
+			}
+		} finally {
+			shutdownWorkers();
+		}
+	}
+	
+	/**
+	 * Reports the vehicles that were placed on the map before the
+	 * simulation started as starting in cycle 0.
+	 */
+	private void reportPlacedVehicles() {
+		for ( int i = 0; i < agents.size(); i++ ) {
+			if ( !( agents.get(i) instanceof Vehicle ) ) continue;
+			Vehicle v = (Vehicle) agents.get(i);
+			RoadSegment r = v.getCurrentPosition();
+			if ( r == null ) continue;
+			events.vehicleStarted( v.getID(), r.getID() );
+			events.vehicleEntered( v.getID(), r.getID() );
+			if ( v.isFinished() ) {
+				events.vehicleStopped( v.getID(), r.getID() );
+			}
+		}
+	}
+	
+	/**
+	 * Runs the simulator until all agents concur that they are done, 
+	 * but only executes cycles in which something can happen.
+	 */
+	private void runEventDriven() {
+		initEventQueue();
+		while ( !isFinished() ) {
+			long next = nextEventCycle();
+			if ( next == Long.MAX_VALUE ) {
+				logger.error( "SIMULATION: Nothing left to do, but not all agents are finished." );
+				break;
+			}
+			if ( logger.isInfoEnabled() ) {
+				while ( cycle + 1 < next ) {
+					logger.info( "SIMULATION: Cycle: " + ++cycle );
+				}
+			}
+			cycle = next - 1;
+			takeEventStep();
+			checkpointIfDue();
+		}
+		wakeups = null;
+	}
+	
+	/**
+	 * Schedules all roads that currently hold vehicles and all agents
+	 * for the event-driven engine.
+	 */
+	private void initEventQueue() {
+		wakeups = new PriorityQueue<Wakeup>();
+		currentSegment = -1;
+		for ( int i = 0; i < roads.length; i++ ) {
+			schedule( roads[i], i );
+		}
+		scheduledAgents = new ArrayList<AdasimAgent>();
+		List<Long> cycles = new ArrayList<Long>();
+		for ( AdasimAgent agent : agents ) {
+			long next = nextCycle( agent, cycle );
+			if ( next != Long.MAX_VALUE ) {
+				scheduledAgents.add(agent);
+				cycles.add(next);
+			}
+		}
+		agentCycles = new long[cycles.size()];
+		for ( int i = 0; i < agentCycles.length; i++ ) {
+			agentCycles[i] = cycles.get(i);
+		}
+	}
+
+	/**
+	 * @return the next cycle in which <code>agent</code> wants to be called.
+	 * Agents that do not extend {@link AbstractAdasimAgent} are called in 
+	 * every cycle.
+	 */
+	private static long nextCycle( AdasimAgent agent, long cycle ) {
+		return agent instanceof AbstractAdasimAgent ? 
+				((AbstractAdasimAgent)agent).getNextCycle(cycle) : cycle + 1;
+	}
+
+	/**
+	 * @return the next cycle in which the manager, an agent, or a road 
+	 * wants to take a step, or <code>Long.MAX_VALUE</code> if there is none.
+	 */
+	private long nextEventCycle() {
+		long next = manager.getNextCycle(cycle);
+		for ( long c : agentCycles ) {
+			next = Math.min( next, c );
+		}
+		if ( !wakeups.isEmpty() ) {
+			next = Math.min( next, wakeups.peek().cycle );
+		}
+		return next;
+	}
+	
+	/**
+	 * Executes the next cycle following the same protocol as 
+	 * {@link #takeSimulationStep()}, but only steps the agents and
+	 * roads scheduled for this cycle.
+	 */
+	private void takeEventStep() {
+		startCycle( ++cycle );
+		currentSegment = -1;
+		manager.takeSimulationStep(cycle);
+		for ( int i = 0; i < agentCycles.length; i++ ) {
+			if ( agentCycles[i] <= cycle ) {
+				AdasimAgent agent = scheduledAgents.get(i);
+				agent.takeSimulationStep( cycle );
+				agentCycles[i] = nextCycle( agent, cycle );
+			}
+		}
+		if ( threads > 1 ) {
+			speculateRoutes( dueRoads() );
+		}
+		while ( !wakeups.isEmpty() && wakeups.peek().cycle <= cycle ) {
+			Wakeup w = wakeups.poll();
+			if ( w.road.getLastCycle() >= cycle ) continue; //duplicate
+			currentSegment = w.order;
+			w.road.skipTo( cycle - 1 );
+			w.road.takeSimulationStep( cycle );
+			schedule( w.road, w.order );
+		}
+		currentSegment = -1;
+	}
+	
+	/**
+	 * @return all roads scheduled to move in the current cycle, brought up
+	 * to date to the end of the previous cycle
+	 */
+	private List<RoadSegment> dueRoads() {
+		List<RoadSegment> roads = new ArrayList<RoadSegment>();
+		for ( Wakeup w : wakeups ) {
+			if ( w.cycle <= cycle ) {
+				w.road.skipTo( cycle - 1 );
+				roads.add( w.road );
+			}
+		}
+		return roads;
+	}
+	
+	/**
+	 * Queues the next cycle in which a vehicle may leave <code>road</code>.
+	 * @param road
+	 * @param order the step order of <code>road</code>
+	 */
+	private void schedule( RoadSegment road, int order ) {
+		long next = road.nextDeparture();
+		if ( next >= 0 ) {
+			wakeups.add( new Wakeup( next, order, road ) );
+		}
+	}
+	
+	/**
+	 * Called by <code>road</code> before a vehicle enters. This brings 
+	 * the road up to the point in the current cycle it would have
+	 * reached if all roads were stepped.
+	 * @param road
+	 */
+	void segmentEntering( RoadSegment road ) {
+		Integer order = stepOrder.get(road);
+		if ( order == null ) return;	//not part of the map
+		road.skipTo( order <= currentSegment ? cycle : cycle - 1 );
+	}
+	
+	/**
+	 * Called by <code>road</code> after a vehicle entered. This marks the
+	 * road as active, and in event-driven mode schedules it for the cycle
+	 * in which the vehicle may leave again.
+	 * @param road
+	 */
+	void segmentEntered( RoadSegment road ) {
+		Integer order = stepOrder.get(road);
+		if ( order == null ) return;
+		active.set( order );
+		if ( wakeups != null ) {
+			schedule( road, order );
 		}
 	}
 
 	/**
 	 * All agents in the simulator take one step. 
 	 * This is for testing only. NEVER call this explicitly!
+	 * <p>
+	 * Once all vehicles have entered and computed their routes, a step
+	 * does not allocate memory while logging is disabled.
 	 */
 	public void takeSimulationStep() {
-		logger.info( "SIMULATION: Cycle: " + ++cycle );
+		startCycle( ++cycle );
 		manager.takeSimulationStep(cycle);
-		for ( AdasimAgent agent : agents ) {
-			agent.takeSimulationStep( cycle );
+		//indexed loops, because iterators would be allocated in every cycle
+		for ( int i = 0; i < agents.size(); i++ ) {
+			agents.get(i).takeSimulationStep( cycle );
+		}
+		if ( threads > 1 ) {
+			speculateRoutes( activeRoads() );
+		}
+		//roads that become active during the loop move in this cycle if they come later
+		for ( int i = active.nextSetBit(0); i >= 0; i = active.nextSetBit(i + 1) ) {
+			currentSegment = i;
+			roads[i].takeSimulationStep(cycle);
+			if ( roads[i].isEmpty() ) {
+				active.clear(i);
+			}
+		}
+		currentSegment = -1;
+	}
+	
+	/**
+	 * @return all roads that currently hold vehicles
+	 */
+	private List<RoadSegment> activeRoads() {
+		List<RoadSegment> l = new ArrayList<RoadSegment>( active.cardinality() );
+		for ( int i = active.nextSetBit(0); i >= 0; i = active.nextSetBit(i + 1) ) {
+			l.add( roads[i] );
+		}
+		return l;
+	}
+	
+	/**
+	 * Lets the worker threads compute the routes for all vehicles that are 
+	 * about to leave one of the <code>roads</code>. Nothing in the simulation 
+	 * changes while the workers run.
+	 * @param roads
+	 */
+	private void speculateRoutes( Collection<RoadSegment> roads ) {
+		final List<SpeculativeRoutingAlgorithm> routers = new ArrayList<SpeculativeRoutingAlgorithm>();
+		for ( RoadSegment r : roads ) {
+			for ( Vehicle v : r.peekDepartures() ) {
+				if ( !v.isFinished() && v.getStrategy() instanceof SpeculativeRoutingAlgorithm ) {
+					routers.add( (SpeculativeRoutingAlgorithm) v.getStrategy() );
+				}
+			}
 		}
-		for ( RoadSegment g: map.getRoadSegments() ) {
-			g.takeSimulationStep(cycle);
+		if ( routers.isEmpty() ) return;
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>( threads );
+		for ( int t = 0; t < threads; t++ ) {
+			final int first = t;
+			tasks.add( new Callable<Void>() {
+				@Override
+				public Void call() {
+					for ( int i = first; i < routers.size(); i += threads ) {
+						routers.get(i).speculate();
+					}
+					return null;
+				}
+			});
+		}
+		try {
+			for ( Future<Void> f : getWorkers().invokeAll( tasks ) ) {
+				f.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			//routes will be computed when they are needed
+			logger.warn( "Computing routes ahead of time failed: " + e.getCause() );
+		}
+	}
+	
+	/**
+	 * @return the pool of worker threads, which is created on first use
+	 */
+	private ExecutorService getWorkers() {
+		if ( workers == null ) {
+			workers = Executors.newFixedThreadPool( threads, new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread( r, "adasim-router" );
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+		return workers;
+	}
+	
+	private void shutdownWorkers() {
+		if ( workers != null ) {
+			workers.shutdown();
+			workers = null;
 		}
 	}
 
@@ -114,13 +528,147 @@ public final class TrafficSimulator{
 	 */
 	boolean isFinished() {
 		if ( ! manager.isFinished() ) return false;
-		for(AdasimAgent c: agents) {
-			if(!c.isFinished()) {
+		for ( int i = 0; i < agents.size(); i++ ) {
+			if(!agents.get(i).isFinished()) {
 				return false;
 			}
 		}
 		return true;
 	}
+	
+	private void startCycle( long cycle ) {
+		if ( logger.isInfoEnabled() ) {
+			logger.info( "SIMULATION: Cycle: " + cycle );
+		}
+		map.setCycle( cycle );
+		events.cycleStarted( cycle );
+	}
+
+	private void checkpointIfDue() {
+		if ( checkpoints == null || cycle < nextCheckpoint ) return;
+		writeCheckpoint( checkpoints.begin() );
+		checkpoints.commit( cycle );
+		nextCheckpoint = ( cycle / checkpointInterval + 1 ) * checkpointInterval;
+	}
+	
+	/**
+	 * Writes the state of the simulation at the end of the current cycle:
+	 * <ol>
+	 * <li>the magic bytes <code>ADCK</code>, a version byte, the cycle and the number of roads
+	 * <li>the state of the vehicle manager
+	 * <li>the number of agents, and for each agent a tag byte (0 for vehicles, 
+	 * 1 for other agents), the ID of vehicles, the position of vehicles and 
+	 * the state of agents and routing algorithms that are {@link Checkpointable}
+	 * <li>for each road its ID, whether it is closed, and the vehicles on it
+	 * <li>the Q-tables learned on the map (see {@link QTableStore})
+	 * </ol>
+	 * Vehicles on a road are written grouped by their remaining delay, in the
+	 * order in which they entered. This must only be called between cycles.
+	 * @param out
+	 */
+	public void writeCheckpoint( CheckpointOutput out ) {
+		for ( byte b : CHECKPOINT_MAGIC ) {
+			out.writeByte( b );
+		}
+		out.writeByte( CHECKPOINT_VERSION );
+		out.writeLong( cycle );
+		out.writeInt( roads.length );
+		manager.writeState( out );
+		out.writeInt( agents.size() );
+		for ( int i = 0; i < agents.size(); i++ ) {
+			AdasimAgent a = agents.get(i);
+			if ( a instanceof Vehicle ) {
+				out.writeByte(0);
+				out.writeVehicle( (Vehicle) a );
+				((Vehicle)a).writeState( out );
+			} else {
+				out.writeByte(1);
+				if ( a instanceof Checkpointable ) {
+					((Checkpointable)a).writeState( out );
+				}
+			}
+		}
+		for ( int i = 0; i < roads.length; i++ ) {
+			roads[i].writeState( out, cycle );
+		}
+		QTableStore.forMap( map ).writeState( out );
+	}
+	
+	/**
+	 * Continues the simulation from a checkpoint written by 
+	 * {@link #writeCheckpoint(CheckpointOutput)}. The simulation must be 
+	 * built from the same configuration as the one that wrote the checkpoint,
+	 * and must not have started. Vehicles must have unique IDs.
+	 * <p>
+	 * No events are reported for the restored state. {@link #run()} 
+	 * continues with the cycle after the checkpoint.
+	 * 
+	 * @param data the checkpoint, from its current position
+	 * @throws IOException if the checkpoint is malformed or does not match 
+	 * the simulation. The simulation must not be used after that.
+	 */
+	public void restoreCheckpoint( ByteBuffer data ) throws IOException {
+		if ( cycle != 0 ) {
+			throw new IllegalStateException( "Checkpoints can only be restored before the simulation starts" );
+		}
+		CheckpointInput in = new CheckpointInput( data, map );
+		for ( byte b : CHECKPOINT_MAGIC ) {
+			if ( in.readByte() != b ) throw new IOException( "Not a checkpoint" );
+		}
+		if ( in.readByte() != CHECKPOINT_VERSION ) {
+			throw new IOException( "Unsupported checkpoint version" );
+		}
+		long c = in.readLong();
+		if ( in.readInt() != roads.length ) {
+			throw new IOException( "Checkpoint does not match the map" );
+		}
+		List<AdasimAgent> others = new ArrayList<AdasimAgent>();
+		for ( AdasimAgent a : agents ) {
+			if ( a instanceof Vehicle ) {
+				in.registerVehicle( (Vehicle) a );
+			} else {
+				others.add( a );
+			}
+		}
+		manager.readState( in );
+		int n = in.readInt();
+		List<AdasimAgent> restored = new ArrayList<AdasimAgent>( n );
+		Iterator<AdasimAgent> other = others.iterator();
+		for ( int i = 0; i < n; i++ ) {
+			if ( in.readByte() == 0 ) {
+				Vehicle v = in.readVehicle();
+				v.setSimulation( this );
+				v.readState( in );
+				restored.add( v );
+			} else {
+				if ( !other.hasNext() ) {
+					throw new IOException( "Checkpoint does not match the agents" );
+				}
+				AdasimAgent a = other.next();
+				if ( a instanceof Checkpointable ) {
+					((Checkpointable)a).readState( in );
+				}
+				restored.add( a );
+			}
+		}
+		if ( other.hasNext() ) {
+			throw new IOException( "Checkpoint does not match the agents" );
+		}
+		for ( int i = 0; i < roads.length; i++ ) {
+			roads[i].readState( in, c );
+			active.set( i, !roads[i].isEmpty() );
+		}
+		QTableStore.forMap( map ).readState( in );
+		if ( !in.isAtEnd() ) {
+			throw new IOException( "Checkpoint has trailing data" );
+		}
+		agents.clear();
+		agents.addAll( restored );
+		cycle = c;
+		if ( checkpoints != null ) {
+			nextCheckpoint = ( cycle / checkpointInterval + 1 ) * checkpointInterval;
+		}
+	}
 
 	/**
 	 * @return an unmodifiable list of all agents known to this instance of {@link TrafficSimulator}. 
@@ -158,12 +706,17 @@ public final class TrafficSimulator{
 	 */
 	public void addVehicle( Vehicle v ) {
 		agents.add(v);
-		try {
-			((RoadSegment) ReflectionUtils.getProperty( v, "getStartNode")).enterNode(v);
-		} catch (Exception e) {
-			//this should never happen
-			e.printStackTrace();
-		} 
+		v.setSimulation(this);
+		RoadSegment start = v.getStartNode();
+		events.vehicleStarted( v.getID(), start.getID() );
+		start.enterNode(v);
+	}
+
+	/**
+	 * @return the last cycle executed by this {@link TrafficSimulator}
+	 */
+	public long getCycle() {
+		return cycle;
 	}
 
 	/**
@@ -195,4 +748,26 @@ public final class TrafficSimulator{
 		}
 		return l;
 	}
+	
+	/**
+	 * A pending step of a road in the event-driven engine. Wakeups are 
+	 * ordered by cycle, and within a cycle by the step order of the road.
+	 */
+	private static final class Wakeup implements Comparable<Wakeup> {
+		final long cycle;
+		final int order;
+		final RoadSegment road;
+		
+		Wakeup( long cycle, int order, RoadSegment road ) {
+			this.cycle = cycle;
+			this.order = order;
+			this.road = road;
+		}
+
+		@Override
+		public int compareTo(Wakeup o) {
+			if ( cycle != o.cycle ) return cycle < o.cycle ? -1 : 1;
+			return order - o.order;
+		}
+	}
 }
@@ -29,6 +29,8 @@
 package adasim.model;
 
 
+import java.io.IOException;
+
 import org.apache.log4j.Logger;
 
 import adasim.agent.AbstractAdasimAgent;
@@ -65,6 +67,10 @@ public final class Vehicle extends AbstractAdasimAgent implements Comparable<Veh
 	private int carType;
 
 	private static Logger logger = Logger.getLogger(Vehicle.class);
+	
+	static {
+		ModelAccessor.register();
+	}
 
 	protected Vehicle( int id ) {
 	}
@@ -98,8 +104,7 @@ public final class Vehicle extends AbstractAdasimAgent implements Comparable<Veh
 	/**
 	 * @return The unfiltered starting node for the vehicle
 	 */
-	@SuppressWarnings("unused")
-	private RoadSegment getStartNode() {
+	RoadSegment getStartNode() {
 		return start;
 	}
 
@@ -129,8 +134,7 @@ public final class Vehicle extends AbstractAdasimAgent implements Comparable<Veh
 	/**
 	 * @return The ending node for the vehicle
 	 */
-	@SuppressWarnings("unused")
-	private RoadSegment getEndNode() {
+	RoadSegment getEndNode() {
 		return end;
 	}
 
@@ -154,7 +158,7 @@ public final class Vehicle extends AbstractAdasimAgent implements Comparable<Veh
 	/**
 	 * @return The current node of the vehicle
 	 */
-	private RoadSegment getCurrentPosition() {
+	RoadSegment getCurrentPosition() {
 		return currentNode;
 	}
 
@@ -163,7 +167,7 @@ public final class Vehicle extends AbstractAdasimAgent implements Comparable<Veh
 	 */
 	public void setCurrentPosition(RoadSegment c) {
 		currentNode = c;
-		if ( isFinished() ) {
+		if ( isFinished() && logger.isInfoEnabled() ) {
 			logger.info( "STOP: " + vehiclePosition() );
 		}
 	}
@@ -191,7 +195,7 @@ public final class Vehicle extends AbstractAdasimAgent implements Comparable<Veh
 	 * @return the position of the car as a string
 	 */
 	public String vehiclePosition() {
-		StringBuffer buf = new StringBuffer( "Vehicle: ");
+		StringBuilder buf = new StringBuilder( "Vehicle: ");
 		buf.append( getID() );
 		buf.append(" At: " );
 		buf.append( getCurrentPosition().getID() );
@@ -205,6 +209,15 @@ public final class Vehicle extends AbstractAdasimAgent implements Comparable<Veh
 	public void takeSimulationStep( long cycle ) {
 	}
 	
+	/**
+	 * Vehicles never need to be called, as they are moved
+	 * by the road segments they are on.
+	 */
+	@Override
+	public long getNextCycle( long cycle ) {
+		return Long.MAX_VALUE;
+	}
+	
 	/**
 	 * Called by GraphNodes during the vehicle movement protocol.
 	 * The Vehicle responds by calling moveTo() on its
@@ -217,7 +230,10 @@ public final class Vehicle extends AbstractAdasimAgent implements Comparable<Veh
 		if ( nextNode == null ) {
 			getCurrentPosition().park(this);
 		} else {
-			logger.info( "MOVE: " + vehiclePosition() + " To: " + nextNode.getID() );
+			if ( logger.isInfoEnabled() ) {
+				logger.info( "MOVE: " + vehiclePosition() + " To: " + nextNode.getID() );
+			}
+			getEventSink().vehicleMoved( id, currentNode.getID(), nextNode.getID() );
 			currentNode.moveTo(nextNode, this);
 		}		
 	}
@@ -231,6 +247,29 @@ public final class Vehicle extends AbstractAdasimAgent implements Comparable<Veh
 		return currentNode != null && currentNode.equals(end);
 	}
 
+	/**
+	 * Writes the position of this vehicle and the state of its routing algorithm.
+	 * @param out
+	 */
+	void writeState( CheckpointOutput out ) {
+		out.writeRoad( currentNode );
+		if ( cs instanceof Checkpointable ) {
+			((Checkpointable)cs).writeState(out);
+		}
+	}
+	
+	/**
+	 * Restores the state written by {@link #writeState(CheckpointOutput)}.
+	 * @param in
+	 * @throws IOException
+	 */
+	void readState( CheckpointInput in ) throws IOException {
+		currentNode = in.readRoad();
+		if ( cs instanceof Checkpointable ) {
+			((Checkpointable)cs).readState(in);
+		}
+	}
+	
 	@Override
 	public int compareTo(Vehicle o) {
 		// TODO Auto-generated method stub
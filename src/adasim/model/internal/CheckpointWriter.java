@@ -0,0 +1,202 @@
+/*******************************************************************************
+ * Copyright (C) 2011 - 2012 Jochen Wuttke, Jonathan Ramaswamy
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ********************************************************************************
+ *
+ * Created: Oct 18, 2026
+ */
+
+package adasim.model.internal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import adasim.model.CheckpointOutput;
+
+
+/**
+ * Writes checkpoints to disk in the background, so the simulation only 
+ * stops while the state is copied into memory.
+ * <p>
+ * The writer has two buffers. The simulation fills one of them while the 
+ * other one is written, and only waits if the previous checkpoint in the
+ * same buffer has not been written yet. Each checkpoint is first written 
+ * to a temporary file through a {@link FileChannel}, which then replaces 
+ * the checkpoint file, so a crash never leaves a partial checkpoint behind.
+ * <p>
+ * If the file name contains <code>%d</code>, it is replaced with the cycle 
+ * of the checkpoint and all checkpoints are kept. Otherwise each checkpoint
+ * replaces the previous one. Once writing fails, all further checkpoints 
+ * are dropped and the error is thrown by {@link #close()}.
+ */
+public final class CheckpointWriter implements Closeable {
+	
+	private final String name;
+	private final ExecutorService writer;
+	private final CheckpointOutput[] buffers;
+	private final Future<?>[] writes;
+	private int current;
+	private volatile IOException failure;
+	
+	/**
+	 * @param name the file the checkpoints are written to
+	 */
+	public CheckpointWriter( String name ) {
+		this.name = name;
+		writer = Executors.newSingleThreadExecutor( new ThreadFactory() {
+			@Override
+			public Thread newThread( Runnable r ) {
+				Thread t = new Thread( r, "adasim-checkpoint" );
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		buffers = new CheckpointOutput[] { new CheckpointOutput(), new CheckpointOutput() };
+		writes = new Future<?>[2];
+	}
+	
+	/**
+	 * Waits until a buffer is free.
+	 * @return an empty buffer for the next checkpoint
+	 */
+	public CheckpointOutput begin() {
+		await( current );
+		buffers[current].reset();
+		return buffers[current];
+	}
+	
+	/**
+	 * Writes the buffer returned by the last call to {@link #begin()} 
+	 * in the background.
+	 * @param cycle the cycle of the checkpoint
+	 */
+	public void commit( final long cycle ) {
+		if ( failure != null ) return;
+		final ByteBuffer data = buffers[current].getBuffer();
+		writes[current] = writer.submit( new Runnable() {
+			@Override
+			public void run() {
+				try {
+					write( data, getFileName(cycle) );
+				} catch ( IOException e ) {
+					failure = e;
+				}
+			}
+		});
+		current ^= 1;
+	}
+	
+	/**
+	 * @param cycle
+	 * @return the name of the checkpoint file for <code>cycle</code>
+	 */
+	String getFileName( long cycle ) {
+		return name.contains( "%d" ) ? name.replace( "%d", Long.toString(cycle) ) : name;
+	}
+	
+	private static void write( ByteBuffer data, String name ) throws IOException {
+		Path target = Paths.get( name );
+		Path tmp = Paths.get( name + ".tmp" );
+		FileChannel ch = FileChannel.open( tmp, StandardOpenOption.WRITE, 
+				StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING );
+		try {
+			while ( data.hasRemaining() ) {
+				ch.write( data );
+			}
+			ch.force( false );
+		} finally {
+			ch.close();
+		}
+		try {
+			Files.move( tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+		} catch ( AtomicMoveNotSupportedException e ) {
+			Files.move( tmp, target, StandardCopyOption.REPLACE_EXISTING );
+		}
+	}
+	
+	private void await( int buffer ) {
+		Future<?> f = writes[buffer];
+		if ( f == null ) return;
+		boolean interrupted = false;
+		while ( true ) {
+			try {
+				f.get();
+				break;
+			} catch ( InterruptedException e ) {
+				interrupted = true;
+			} catch ( ExecutionException e ) {
+				failure = new IOException( e.getCause() );
+				break;
+			}
+		}
+		writes[buffer] = null;
+		if ( interrupted ) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Waits until all checkpoints are written.
+	 * @throws IOException if any checkpoint could not be written
+	 */
+	@Override
+	public void close() throws IOException {
+		await(0);
+		await(1);
+		writer.shutdown();
+		if ( failure != null ) throw failure;
+	}
+	
+	/**
+	 * Reads a checkpoint file.
+	 * @param name
+	 * @return the contents of the file
+	 * @throws IOException
+	 */
+	public static ByteBuffer read( String name ) throws IOException {
+		FileChannel ch = FileChannel.open( Paths.get(name), StandardOpenOption.READ );
+		try {
+			long size = ch.size();
+			if ( size > Integer.MAX_VALUE ) {
+				throw new IOException( "Checkpoint " + name + " is too large" );
+			}
+			ByteBuffer data = ByteBuffer.allocate( (int) size );
+			while ( data.hasRemaining() && ch.read( data ) >= 0 ) {
+			}
+			data.flip();
+			return data;
+		} finally {
+			ch.close();
+		}
+	}
+}
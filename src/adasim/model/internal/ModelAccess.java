@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright (C) 2011 - 2012 Jochen Wuttke, Jonathan Ramaswamy
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ********************************************************************************
+ *
+ * Created: Oct 18, 2026
+ */
+
+package adasim.model.internal;
+
+import adasim.model.RoadSegment;
+import adasim.model.Vehicle;
+
+
+/**
+ * Gives the classes of this package access to the unfiltered properties 
+ * of {@link Vehicle}s and {@link RoadSegment}s. Agents, routing algorithms
+ * and all other code must keep using the public getters, which apply 
+ * uncertainty and privacy filters.
+ * <p>
+ * The accessors are plain method calls, so unlike reflection they
+ * cost no more than reading the field and cannot fail.
+ * The only implementation lives in <code>adasim.model</code>, which 
+ * creates it and hands it over when {@link Vehicle} is initialized. 
+ * Only this package can get it (see {@link #get()}), and no other 
+ * implementation can read the unfiltered properties.
+ */
+public abstract class ModelAccess {
+	
+	private static volatile ModelAccess access;
+	
+	/**
+	 * @return the accessor for the unfiltered properties of the model
+	 */
+	static ModelAccess get() {
+		ModelAccess a = access;
+		if ( a == null ) {
+			try {
+				Class.forName( Vehicle.class.getName(), true, ModelAccess.class.getClassLoader() );
+			} catch (ClassNotFoundException e) {
+				throw new IllegalStateException( e );
+			}
+			a = access;
+		}
+		return a;
+	}
+	
+	/**
+	 * Registers the accessor. Only the model can call this, and only once.
+	 * @param a
+	 */
+	protected static void setAccess( ModelAccess a ) {
+		if ( access != null ) {
+			throw new IllegalStateException( "Model access has already been set" );
+		}
+		access = a;
+	}
+	
+	/**
+	 * @param v
+	 * @return the unfiltered start road of <code>v</code>
+	 */
+	public abstract RoadSegment getStartNode( Vehicle v );
+	
+	/**
+	 * @param v
+	 * @return the unfiltered destination of <code>v</code>
+	 */
+	public abstract RoadSegment getEndNode( Vehicle v );
+	
+	/**
+	 * @param v
+	 * @return the road <code>v</code> is currently on
+	 */
+	public abstract RoadSegment getCurrentPosition( Vehicle v );
+	
+	/**
+	 * @param r
+	 * @return the unfiltered base delay of <code>r</code>
+	 */
+	public abstract int getDelay( RoadSegment r );
+	
+	/**
+	 * @param r
+	 * @return the unfiltered capacity of <code>r</code>
+	 */
+	public abstract int getCapacity( RoadSegment r );
+	
+	/**
+	 * @param r
+	 * @return the unfiltered number of vehicles on <code>r</code>
+	 */
+	public abstract int getVehicleCount( RoadSegment r );
+
+}
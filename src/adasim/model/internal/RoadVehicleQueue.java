@@ -27,16 +27,16 @@
  */
 
 package adasim.model.internal;
-import org.apache.log4j.Logger;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.Set;
-import java.util.SortedSet;
-import java.util.TreeSet;
 
 import org.apache.log4j.Logger;
 
+import adasim.model.CheckpointInput;
+import adasim.model.CheckpointOutput;
 import adasim.model.RoadSegment;
 import adasim.model.Vehicle;
 import adasim.model.VehicleType;
@@ -49,6 +49,16 @@ import adasim.model.VehicleType;
  * of the node, and in each simulation cycle, they are moved
  * forward one slot.
  * When they reach the end, they are asked to leave or they are stopped.
+ * <p>
+ * Slots are kept in a circular buffer (a timing wheel). The slot holding 
+ * vehicles with a remaining delay of <em>d</em> is found at 
+ * <code>(head + d) % slots.length</code>, so moving all vehicles forward
+ * only advances <code>head</code> instead of touching every slot.
+ * <p>
+ * The queue keeps running counts of its vehicles, in total and per vehicle 
+ * type, so the number of vehicles, which determines the current delay of a 
+ * road, is available in constant time. Counts are taken when a vehicle enters, 
+ * so the type of a vehicle must not change while it is in a queue.
  * 
  * @author Jochen Wuttke - wuttkej@gmail.com
  *
@@ -56,120 +66,261 @@ import adasim.model.VehicleType;
 public final class RoadVehicleQueue {
 	
 	private static Logger logger = Logger.getLogger(RoadSegment.class);
+	
 	/**
-	 * ID for the special queue tracking parked/stopped vehicles.
+	 * Initial number of slots. Must be a power of two.
 	 */
-	private final static int PARKED = -1;
-	private Map<Integer, Set<Vehicle>> queue;
+	private final static int INITIAL_SLOTS = 16;
+	
+	private VehicleSlot[] slots;
+	private int[] specialCounts; //number of special vehicles in the slot with the same index
+	private int head;			 //index of the slot with remaining delay 0
+	private int specials;		 //number of special vehicles in all slots
+	private int size;			 //number of vehicles in all slots
+	private int[] typeCounts;	 //number of vehicles in all slots by car type
+	private Set<Vehicle> parked;
+	private VehicleSlot spare;	 //the slot returned from the last call to moveVehicles(), or an empty one
 	
 	/**
 	 * Initializes an empty queue.
 	 */
 	public RoadVehicleQueue() {
-		queue = new HashMap<Integer, Set<Vehicle>>();
-		queue.put( PARKED, new HashSet<Vehicle>() );
-		queue.put( 0, new HashSet<Vehicle>() );
+		slots = newSlots( INITIAL_SLOTS );
+		specialCounts = new int[INITIAL_SLOTS];
+		head = 0;
+		parked = new LinkedHashSet<Vehicle>();
+		spare = new VehicleSlot();
+		typeCounts = new int[ VehicleType.values().length ];
 	}
 	
 	/**
 	 * Adds <code>c</code> to the queue in the slot matching the given <code>delay</code>.
+	 * <code>c</code> must not be in the queue yet.
 	 * @param c
 	 * @param delay
 	 */
 	public void enqueue( Vehicle c, int delay ) {
 		assert delay >= 0;
-		ensureBucketExists( delay );
-		queue.get( delay ).add(c);
+		ensureSlotExists( delay );
+		int index = slotIndex( delay );
+		slots[index].add(c);
+		added(c);
+		if ( isSpecial(c) ) {
+			specialCounts[index]++;
+			specials++;
+		}
+	}
+	
+	/**
+	 * Counts a vehicle that entered one of the slots.
+	 * @param c
+	 */
+	private void added( Vehicle c ) {
+		size++;
+		int type = c.getCarType();
+		if ( type < 0 ) return;
+		if ( type >= typeCounts.length ) {
+			typeCounts = Arrays.copyOf( typeCounts, type + 1 );
+		}
+		typeCounts[type]++;
+	}
+	
+	/**
+	 * Stops counting a vehicle that left the slots.
+	 * @param c
+	 */
+	private void removed( Vehicle c ) {
+		size--;
+		int type = c.getCarType();
+		if ( type >= 0 ) {
+			typeCounts[type]--;
+		}
 	}
 
 	/**
+	 * Grows the wheel if it has no slot for <code>delay</code>. 
+	 * Slots are copied in the order of their remaining delay.
 	 * @param delay
 	 */
-	private void ensureBucketExists(int delay) {
-		if ( queue.get(delay) == null ) {
-			queue.put(delay, new HashSet<Vehicle>() );
+	private void ensureSlotExists(int delay) {
+		if ( delay < slots.length ) return;
+		int size = slots.length;
+		while ( size <= delay ) {
+			size <<= 1;
 		}
+		VehicleSlot[] s = newSlots( size );
+		int[] sc = new int[size];
+		for ( int i = 0; i < slots.length; i++ ) {
+			s[i] = slots[ slotIndex(i) ];
+			sc[i] = specialCounts[ slotIndex(i) ];
+		}
+		slots = s;
+		specialCounts = sc;
+		head = 0;
 	}
 
-	
-	boolean hasSpecailVehicles(Set<Vehicle> listOFCars) {
-		for (Vehicle vehicle : listOFCars) {
-			
-			if(vehicle.getCarType() == VehicleType.specailCAR.ordinal()) {
-				return true;
-			}
+	/**
+	 * @param size
+	 * @return an array of <code>size</code> empty slots
+	 */
+	private static VehicleSlot[] newSlots( int size ) {
+		VehicleSlot[] s = new VehicleSlot[size];
+		for ( int i = 0; i < size; i++ ) {
+			s[i] = new VehicleSlot();
 		}
-		
-		return false;
+		return s;
 	}
+
 	/**
-	 * Moves all vehicles one step ahead
-	 * @return the list of vehicles that have reached the tip of the queue
+	 * @param delay
+	 * @return the index of the slot holding vehicles with the remaining <code>delay</code>
 	 */
-	public Set<Vehicle> moveVehicles() {
-		
-		int keyIndex =0;
-		Set<Vehicle> fs = null;
-		SortedSet<Integer> keys = new TreeSet<Integer>( queue.keySet() );
+	private int slotIndex( int delay ) {
+		return ( head + delay ) & ( slots.length - 1 );
+	}
+	
+	private static boolean isSpecial( Vehicle vehicle ) {
+		return vehicle.getCarType() == VehicleType.specailCAR.ordinal();
+	}
+	
+	/**
+	 * @return <code>true</code> if there are special vehicles waiting in the queue
+	 */
+	boolean hasSpecailVehicles() {
+		return specials > 0;
+	}
+	
+	/**
+	 * Moves all vehicles one step ahead.
+	 * <p>
+	 * Vehicles leave in first come first served order, unless there are
+	 * special vehicles waiting. In that case the slot with the first special
+	 * vehicle leaves instead, and the slots in front of it wait for this cycle.
+	 * <p>
+	 * The returned set is owned by the queue and is only valid until
+	 * the next call to this method. Once the wheel has grown to fit the
+	 * largest delay and the slots to fit the largest group of vehicles,
+	 * moving vehicles does not allocate memory.
+	 * 
+	 * @return the list of vehicles that have reached the tip of the queue,
+	 * or <code>null</code> if no vehicle has.
+	 */
+	public VehicleSlot moveVehicles() {
 		
 		//For debug only
-		for ( Integer key : keys ) {
-			if ( key == PARKED ) continue;	//default cases handled separately
-			Set<Vehicle> c = queue.get(key);	
-			for (Vehicle vehicle : c) {
-				// vehicle reach destination
-				if(vehicle.isFinished()) {
-					continue;
+		if ( logger.isInfoEnabled() ) {
+			for ( int d = 0; d < slots.length; d++ ) {
+				for (Vehicle vehicle : slots[ slotIndex(d) ]) {
+					// vehicle reach destination
+					if(vehicle.isFinished()) {
+						continue;
+					}
+					logger.info( "================> Option " + vehicle.vehiclePosition() +
+							", carType:"+ vehicle.getCarType() );
 				}
-				logger.info( "================> Option " + vehicle.vehiclePosition() +
-						", carType:"+ vehicle.getCarType() );
 			}
 		}
 		
-		// search for special cars. If there is one it should move first
-		for ( Integer key : keys ) {
-			if ( key == PARKED ) continue;	//default cases handled separately
-			Set<Vehicle> c = queue.get(key);	
-			if(hasSpecailVehicles(c)) {
-				keyIndex = key;
-				fs =  queue.remove(keyIndex);
-				break;
-			}
-			
-		}
+		int offset = departingOffset();
+		int index = slotIndex(offset);
+		VehicleSlot fs = slots[index];
+		specials -= specialCounts[index];
 		
-		// in case there is no special car(First come first service)
-		if( fs == null) {
-	 
-			fs =  queue.remove(keyIndex);
+		// the slots in front of the leaving slot wait for this cycle
+		for ( int d = offset; d > 0; d-- ) {
+			slots[ slotIndex(d) ] = slots[ slotIndex(d - 1) ];
+			specialCounts[ slotIndex(d) ] = specialCounts[ slotIndex(d - 1) ];
 		}
 		
-		// Re-order the waiting cars in intersection in queue best on (First come first service)
-		 keys = new TreeSet<Integer>( queue.keySet() );
-		for ( Integer key : keys ) {
-			if ( key == PARKED || key < keyIndex ) continue;	//default cases handled separately
-			Set<Vehicle> c = queue.remove(key);
-			queue.put(key-1, c );
+		for ( int i = 0; i < fs.size(); i++ ) {
+			removed( fs.get(i) );
+		}
+		VehicleSlot empty = fs;
+		if ( !fs.isEmpty() ) {
+			empty = spare;
+			empty.clear();
+			spare = fs;
+		}
+		slots[head] = empty;
+		specialCounts[head] = 0;
+		head = slotIndex(1);
+		return fs == empty ? null : fs;
+	}
+	
+	/**
+	 * @return the number of calls to {@link #moveVehicles()} that will return
+	 * <code>null</code> before a vehicle reaches the tip of the queue, or
+	 * <code>-1</code> if the queue is empty.
+	 */
+	public int nextDeparture() {
+		if ( size == 0 ) return -1;
+		if ( specials > 0 ) return 0;
+		for ( int d = 0; d < slots.length; d++ ) {
+			if ( !slots[ slotIndex(d) ].isEmpty() ) return d;
 		}
-		return fs;
+		return -1;
+	}
+
+	/**
+	 * @return the vehicles that the next call to {@link #moveVehicles()} will
+	 * return, unless other vehicles enter the queue before. The set is
+	 * owned by the queue and must not be modified.
+	 */
+	public VehicleSlot peekVehicles() {
+		return slots[ slotIndex( departingOffset() ) ];
 	}
 	
+	/**
+	 * Searches for special cars. If there is one it should move first,
+	 * otherwise it is first come first served.
+	 * @return the remaining delay of the slot that leaves in the next cycle
+	 */
+	private int departingOffset() {
+		int offset = 0;
+		if ( specials > 0 ) {
+			while ( specialCounts[ slotIndex(offset) ] == 0 ) {
+				offset++;
+			}
+		}
+		return offset;
+	}
+
+	/**
+	 * Moves all vehicles <code>cycles</code> steps ahead at once. This
+	 * is only legal if no vehicle reaches the tip of the queue in these
+	 * cycles, i.e. <code>cycles</code> must not be larger than
+	 * {@link #nextDeparture()} unless the queue is empty.
+	 *
+	 * @param cycles
+	 */
+	public void skip( long cycles ) {
+		assert cycles >= 0;
+		assert nextDeparture() == -1 || cycles <= nextDeparture();
+		head = (int)( ( head + cycles ) & ( slots.length - 1 ) );
+	}
+
 	/**
 	 * Removes <code>c</code> from the active list of vehicles.
 	 * @param c
 	 */
 	public void park( Vehicle c ) {
 		removeFromQueue( c );
-		queue.get( PARKED ).add( c );
+		parked.add( c );
 	}
 
 	/**
 	 * @param c
 	 */
 	private void removeFromQueue(Vehicle c) {
-		for ( Integer key : queue.keySet() ) {
-			if ( key == PARKED ) continue;
-			if ( queue.get(key).remove(c) ) return;	//short circuit
+		for ( int i = 0; i < slots.length; i++ ) {
+			if ( slots[i].remove(c) ) {
+				removed(c);
+				if ( isSpecial(c) ) {
+					specialCounts[i]--;
+					specials--;
+				}
+				return;	//short circuit
+			}
 		}
 	}
 	
@@ -177,22 +328,81 @@ public final class RoadVehicleQueue {
 	 * @return <code>true</code> if there are no vehicles in the queue that are waiting to move
 	 */
 	boolean isEmpty() {
-		for ( Integer key : queue.keySet() ) {
-			if ( key == PARKED ) continue;
-			if ( !queue.get(key).isEmpty() ) return false; //short circuit
-		}
-		return true;
+		return size == 0;
 	}
 
 	/**
 	 * @return the current number of active vehicles in this queue (parked vehicles are ignored)
 	 */
 	public int size() {
-		int s = 0;
-		for ( int key : queue.keySet() ) {
-			if ( key == PARKED ) continue;
-			s+= queue.get(key).size();
-		}	
-		return s;
+		return size;
+	}
+	
+	/**
+	 * @param carType
+	 * @return the current number of active vehicles of the given type in this queue
+	 */
+	public int size( int carType ) {
+		return carType >= 0 && carType < typeCounts.length ? typeCounts[carType] : 0;
+	}
+	
+	/**
+	 * @return the number of vehicles that were parked on this queue
+	 */
+	public int parkedSize() {
+		return parked.size();
+	}
+	
+	/**
+	 * Writes the vehicles in this queue, as they would be after 
+	 * <code>skipped</code> calls to {@link #skip(long)}.
+	 * @param out
+	 * @param skipped must not be larger than {@link #nextDeparture()}
+	 */
+	public void writeState( CheckpointOutput out, long skipped ) {
+		assert nextDeparture() == -1 || skipped <= nextDeparture();
+		int last = -1;
+		for ( int d = 0; d < slots.length; d++ ) {
+			if ( !slots[ slotIndex(d) ].isEmpty() ) last = d;
+		}
+		int first = (int) Math.min( skipped, last + 1 );
+		out.writeInt( last + 1 - first );
+		for ( int d = first; d <= last; d++ ) {
+			VehicleSlot slot = slots[ slotIndex(d) ];
+			out.writeInt( slot.size() );
+			for ( int i = 0; i < slot.size(); i++ ) {
+				out.writeVehicle( slot.get(i) );
+			}
+		}
+		out.writeInt( parked.size() );
+		for ( Vehicle v : parked ) {
+			out.writeVehicle( v );
+		}
+	}
+	
+	/**
+	 * Replaces all vehicles in this queue with those read from <code>in</code>.
+	 * @param in
+	 * @throws IOException
+	 */
+	public void readState( CheckpointInput in ) throws IOException {
+		slots = newSlots( INITIAL_SLOTS );
+		specialCounts = new int[INITIAL_SLOTS];
+		head = 0;
+		specials = 0;
+		size = 0;
+		Arrays.fill( typeCounts, 0 );
+		parked.clear();
+		int n = in.readInt();
+		for ( int d = 0; d < n; d++ ) {
+			int count = in.readInt();
+			for ( int i = 0; i < count; i++ ) {
+				enqueue( in.readVehicle(), d );
+			}
+		}
+		int p = in.readInt();
+		for ( int i = 0; i < p; i++ ) {
+			parked.add( in.readVehicle() );
+		}
 	}
 }
@@ -31,7 +31,11 @@ package adasim.model.internal;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.log4j.Logger;
 import org.jdom.Element;
@@ -44,8 +48,6 @@ import adasim.model.AdasimMap;
 import adasim.model.ConfigurationException;
 import adasim.model.RoadSegment;
 import adasim.model.Vehicle;
-import adasim.util.ReflectionException;
-import adasim.util.ReflectionUtils;
 
 
 /**
@@ -188,18 +190,41 @@ public class SimulationXMLBuilder {
 	public List<Vehicle> buildVehicles( Element vehiclesNode ) throws ConfigurationException {
 		@SuppressWarnings("unchecked")
 		List<Element> vehicleNodes = vehiclesNode.getChildren("car");
+		Class<? extends RoutingAlgorithm> cs = getDefaultStrategy( vehiclesNode );
+		List<Vehicle> vehicles = new ArrayList<Vehicle>();
+		for ( Element vehicle : vehicleNodes ) {
+			Vehicle c = buildVehicle( vehicle, cs );
+			if ( c != null ) vehicles.add( c );
+		}
+		return vehicles;	
+	}
+	
+	/**
+	 * @param vehiclesNode
+	 * @return the routing algorithm declared as default in the <code>&lt;vehicles&gt;</code> element
+	 * @throws ConfigurationException if the default cannot be instantiated
+	 */
+	Class<? extends RoutingAlgorithm> getDefaultStrategy( Element vehiclesNode ) throws ConfigurationException {
 		Object o = loadClassFromAttribute(vehiclesNode, "default_strategy" );
 		if ( o == null ) {
 			throw new ConfigurationException( "Invalid default strategy " + vehiclesNode.getAttributeValue("default_strategy" ) );
 		}
 		@SuppressWarnings("unchecked")
 		Class<? extends RoutingAlgorithm> cs = (Class<RoutingAlgorithm>)o.getClass();
-		List<Vehicle> vehicles = new ArrayList<Vehicle>();
-		for ( Element vehicle : vehicleNodes ) {
-			Vehicle c = buildVehicle( vehicle );
-			if ( c != null ) vehicles.add( assignDefaultVehicleValues( c, cs ) );
-		}
-		return vehicles;	
+		return cs;
+	}
+	
+	/**
+	 * Builds a {@link Vehicle} from the given <code>&lt;vehicle&gt;</code> element, 
+	 * using the routing algorithm <code>cs</code> if the element does not declare one.
+	 * @param vehicleNode
+	 * @param cs
+	 * @return a vehicle without start and end point
+	 * @throws ConfigurationException
+	 */
+	Vehicle buildVehicle( Element vehicleNode, Class<? extends RoutingAlgorithm> cs ) throws ConfigurationException {
+		Vehicle c = buildVehicle( vehicleNode );
+		return c == null ? null : assignDefaultVehicleValues( c, cs );
 	}
 
 	/**
@@ -250,17 +275,21 @@ public class SimulationXMLBuilder {
 	private List<RoadSegment> buildNodes( List<Element> nodeElements, TrafficDelayFunction defaultStrategy,
 			FilterMap defaultFilters, int capacity ) {
 		List<RoadSegment> nodes = new ArrayList<RoadSegment>( nodeElements.size() );
+		Map<Integer, RoadSegment> byId = new HashMap<Integer, RoadSegment>();
 		for( Element node : nodeElements ) {
 			RoadSegment gn = buildNode( node, defaultFilters );
 			if ( gn != null ) {
 				nodes.add( assignDefaultNodeValues(gn, defaultStrategy, capacity) );
+				if ( !byId.containsKey( gn.getID() ) ) {
+					byId.put( gn.getID(), gn );
+				}
 			}
 			if ( gn.getSpeedStrategy() == null ) {
 				gn.setSpeedStrategy( defaultStrategy );
 			}
 		}
 		for ( Element node: nodeElements ) {
-			buildNeigbors(nodes, node );
+			buildNeigbors(byId, node );
 		}
 		nodes = validate(nodes);
 		return nodes;		
@@ -274,17 +303,9 @@ public class SimulationXMLBuilder {
 		if ( gn.getSpeedStrategy() == null ) {
 			gn.setSpeedStrategy(ss);
 		}
-		try {
-			if ( ReflectionUtils.<Integer>getProperty(gn, "getCapacity" ) == -1 ) {
-				gn.setCapacity(capacity);
-			}
-		} catch (NoSuchMethodException e) {
-			//this should never happen
-			e.printStackTrace();
-		} catch (ReflectionException e) {
-			//this should never happen
-			e.printStackTrace();
-		} 
+		if ( ModelAccess.get().getCapacity(gn) == -1 ) {
+			gn.setCapacity(capacity);
+		}
 		return gn;
 	}
 
@@ -304,7 +325,6 @@ public class SimulationXMLBuilder {
 		String n = node.getAttributeValue( attribute );
 		if ( n != null ) {
 			try {
-				System.out.println(n);
 				@SuppressWarnings("rawtypes")
 				Class c = Class.forName( n );
 				try {
@@ -330,28 +350,28 @@ public class SimulationXMLBuilder {
 	}
 
 	/**
-	 * @param nodes
+	 * @param nodes all nodes by ID
 	 * @param node
 	 */
-	private void buildNeigbors(List<RoadSegment> nodes, Element node) {
+	private void buildNeigbors(Map<Integer, RoadSegment> nodes, Element node) {
 		String nodeList = node.getAttributeValue("neighbors").trim();
 		if ( nodeList.equals("") ) return;	//this node has no outgoing edges
 		String[] neighbors = nodeList.split(" ");
 		RoadSegment gn = getNode( nodes, node );
 		for ( String n : neighbors ) {
 			int nn = Integer.parseInt(n);
-			gn.addEdge( RoadSegment.getRoadSegment( nodes, nn ));					
+			gn.addEdge( nodes.get( nn ) );					
 		}
 	}
 
 	/**
-	 * @param nodes
+	 * @param nodes all nodes by ID
 	 * @param node
 	 * @return the RoadSegment with the same ID as the XML element or <code>null</code>.
 	 */
-	private RoadSegment getNode(List<RoadSegment> nodes, Element node) {
+	private RoadSegment getNode(Map<Integer, RoadSegment> nodes, Element node) {
 		int id = Integer.parseInt( node.getAttributeValue( "id" ) );
-		return RoadSegment.getRoadSegment(nodes, id);
+		return nodes.get( id );
 	}
 
 	/**
@@ -375,9 +395,10 @@ public class SimulationXMLBuilder {
 	 */
 	private List<RoadSegment> reduce(List<RoadSegment> nodes) {
 		List<RoadSegment> l = new ArrayList<RoadSegment>();
+		Set<RoadSegment> valid = new HashSet<RoadSegment>( nodes );
 		for ( RoadSegment node : nodes ) {
 			for ( RoadSegment i : node.getNeighbors() ) {
-				if ( ! nodes.contains( i ) ) {
+				if ( ! valid.contains( i ) ) {
 					node.removeEdge(i);
 				}
 			}
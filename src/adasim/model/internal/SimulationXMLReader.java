@@ -35,11 +35,19 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
 
+import javax.xml.XMLConstants;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+
 import org.apache.log4j.Logger;
 import org.jdom.Document;
 import org.jdom.Element;
 import org.jdom.JDOMException;
 import org.jdom.input.SAXBuilder;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
 
 import adasim.agent.AdasimAgent;
 import adasim.model.AdasimMap;
@@ -47,14 +55,15 @@ import adasim.model.ConfigurationException;
 import adasim.model.RoadSegment;
 import adasim.model.TrafficSimulator;
 import adasim.model.Vehicle;
-import adasim.util.ReflectionException;
-import adasim.util.ReflectionUtils;
 
 
 
 /**
  * Reads in an XML configuration file, validates it against the Adasim schema
  * and constructs a simulation.
+ * <p>
+ * Readers share no mutable state, so several simulations can be built
+ * concurrently.
  * 
  * @author Jochen Wuttke - wuttkej@gmail.com
  *
@@ -63,19 +72,33 @@ final public class SimulationXMLReader {
 
 	private static final Logger logger = Logger.getLogger(SimulationXMLReader.class);
 
+	/**
+	 * The compiled schema is immutable and thread-safe, so it is loaded 
+	 * once and shared by all readers.
+	 */
+	private static volatile Schema schema;
+
 	private Document doc;
-	private static SimulationXMLBuilder builder;
+	private final SimulationXMLBuilder builder = new SimulationXMLBuilder();
 
 	private SimulationXMLReader( File f ) throws ConfigurationException {
-		builder = new SimulationXMLBuilder();
-		SAXBuilder sbuilder = new SAXBuilder(true);
-		sbuilder.setProperty("http://java.sun.com/xml/jaxp/properties/schemaLanguage", "http://www.w3.org/2001/XMLSchema");
-		try {
-			URL res = SimulationXMLReader.class.getClassLoader().getResource("resources/xml/adasim.xsd");
-			if (res == null ) {
-				throw new ConfigurationException( "XML Schema adasim.xsd not found on classpath" );
+		final Schema s = getSchema();
+		SAXBuilder sbuilder = new SAXBuilder() {
+			@Override
+			protected XMLReader createParser() throws JDOMException {
+				SAXParserFactory factory = SAXParserFactory.newInstance();
+				factory.setNamespaceAware(true);
+				factory.setSchema(s);
+				try {
+					return factory.newSAXParser().getXMLReader();
+				} catch (ParserConfigurationException e) {
+					throw new JDOMException( "Cannot create XML parser", e );
+				} catch (SAXException e) {
+					throw new JDOMException( "Cannot create XML parser", e );
+				}
 			}
-			sbuilder.setProperty("http://java.sun.com/xml/jaxp/properties/schemaSource", res.openStream() );
+		};
+		try {
 			sbuilder.setErrorHandler(new SimpleErrorHandler());
 			doc = sbuilder.build(f);
 		} catch (JDOMException e) {
@@ -85,6 +108,32 @@ final public class SimulationXMLReader {
 		} 
 	}
 
+	/**
+	 * @return the Adasim schema, loaded from the classpath on first use
+	 * @throws ConfigurationException if the schema cannot be found or loaded
+	 */
+	private static Schema getSchema() throws ConfigurationException {
+		Schema s = schema;
+		if ( s == null ) {
+			synchronized ( SimulationXMLReader.class ) {
+				s = schema;
+				if ( s == null ) {
+					URL res = SimulationXMLReader.class.getClassLoader().getResource("resources/xml/adasim.xsd");
+					if (res == null ) {
+						throw new ConfigurationException( "XML Schema adasim.xsd not found on classpath" );
+					}
+					try {
+						s = SchemaFactory.newInstance( XMLConstants.W3C_XML_SCHEMA_NS_URI ).newSchema(res);
+					} catch (SAXException e) {
+						throw new ConfigurationException(e);
+					}
+					schema = s;
+				}
+			}
+		}
+		return s;
+	}
+
 	/**
 	 * The main interface to {@link SimulationXMLReader}. It will load all necessary files
 	 * and either return a complete and valid {@link TrafficSimulator}, or it will throw
@@ -99,6 +148,7 @@ final public class SimulationXMLReader {
 		try {
 			SimulationXMLReader factory = new SimulationXMLReader(config);
 			Element defaults = factory.doc.getRootElement().getChild("defaults");
+			SimulationXMLBuilder builder = factory.builder;
 			FilterMap fm = builder.buildFilters( (defaults == null? null : defaults.getChild("filters") ), new FilterMap(), Object.class );
 			AdasimMap g = builder.buildGraph( factory.doc.getRootElement().getChild("graph" ), fm );
 			VehicleManager m = new VehicleManager();
@@ -128,84 +178,61 @@ final public class SimulationXMLReader {
 	}
 
 	/**
+	 * Vehicles starting in the first cycle are created and placed on the map
+	 * right away. All others are handed to the vehicle manager, which creates 
+	 * them when they are about to start.
 	 * @throws ConfigurationException 
 	 */
 	private List<AdasimAgent> buildVehicles( Element vehiclesNode, AdasimMap g, VehicleManager m ) throws ConfigurationException {
-		List<Vehicle> vehicles = builder.buildVehicles(vehiclesNode);
+		XMLVehicleSource later = new XMLVehicleSource( builder, builder.getDefaultStrategy(vehiclesNode), g );
 		List<AdasimAgent> l = new ArrayList<AdasimAgent>();
 		@SuppressWarnings("unchecked")
 		List<Element> vehicleNodes = vehiclesNode.getChildren( "car" );
 		for ( Element vehicle : vehicleNodes ) {
-			Vehicle c = validateVehicle(vehicle, vehicles, g );
-			long time = Long.parseLong( vehicle.getAttributeValue("start_time") );
-			if ( c != null ) {
-				if ( time == 1 ) {
-					l.add(c);
-					//add valid vehicle to their start node
-					try {
-						((RoadSegment) ReflectionUtils.getProperty( c, "getStartNode")).enterNode(c);
-					} catch (NoSuchMethodException e) {
-						//this should never happen
-						e.printStackTrace();
-					} catch (ReflectionException e) {
-						//this should never happen
-						e.printStackTrace();
-					}
-				} else {
-					m.addVehicle(c, time);
-				}
+			if ( !validateVehicle( vehicle, g ) ) continue;
+			if ( XMLVehicleSource.getStartTime(vehicle) == 1 ) {
+				l.add( later.build(vehicle) );
+			} else {
+				later.add(vehicle);
 			}
 		}
+		for ( AdasimAgent c : l ) {
+			//add valid vehicle to their start node
+			ModelAccess.get().getStartNode( (Vehicle)c ).enterNode( (Vehicle)c );
+		}
+		m.addSource( later );
 		return l;	
 	}
 
 	/**
 	 * @param vehicle
 	 * @param g
+	 * @return <code>true</code> if the start and end point of the vehicle exist
 	 */
-	private Vehicle validateVehicle(Element vehicle, List<Vehicle> vehicles, AdasimMap g) {
+	private boolean validateVehicle(Element vehicle, AdasimMap g) {
 		int start = Integer.parseInt(vehicle.getAttributeValue("start"));
 		int end = Integer.parseInt(vehicle.getAttributeValue("end"));
 		int id = Integer.parseInt(vehicle.getAttributeValue("id"));
-		int car_type = Integer.parseInt(vehicle.getAttributeValue("car_type"));
 
-		List<RoadSegment> nodes = g.getRoadSegments();
 		try {
-			Vehicle c = getVehicle( id, vehicles );
-			RoadSegment node = checkEndPoint(nodes, start, id, "Start" );
-			c.setStartNode(node);
-			node = checkEndPoint(nodes, end, id, "End" );
-			c.setEndNode(node);
-			c.getStrategy().setMap(g);
-			c.setCarType(car_type);
-			return c;
+			checkEndPoint(g, start, id, "Start" );
+			checkEndPoint(g, end, id, "End" );
+			return true;
 		} catch ( ConfigurationException e ) {
-			return null;
+			return false;
 		}
 	}
 
-	/**
-	 * @param id
-	 * @param vehicles
-	 * @return the vehicle with ID <code>id</code> in the list or <code>null</code>
-	 */
-	private Vehicle getVehicle(int id, List<Vehicle> vehicles) {
-		for ( Vehicle c : vehicles ) {
-			if ( c.getID() == id ) return c;
-		}
-		return null;
-	}
-
 	/**
 	 * Checks if the end node is valid, prints a warning and throws an exception if not.
-	 * @param nodes
+	 * @param g
 	 * @param end
 	 * @param id
 	 * @param s
 	 * @throws ConfigurationException 
 	 */
-	private RoadSegment checkEndPoint(List<RoadSegment> nodes, int end, int id, String s) throws ConfigurationException {
-		RoadSegment n = RoadSegment.getRoadSegment(nodes, end );
+	private RoadSegment checkEndPoint(AdasimMap g, int end, int id, String s) throws ConfigurationException {
+		RoadSegment n = g.getRoadSegment( end );
 		if ( n == null ) { 
 			logger.warn( s + " node " + end + " for vehicle " + id + " does not exist");
 			throw new ConfigurationException("");
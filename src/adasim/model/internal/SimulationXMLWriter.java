@@ -26,7 +26,7 @@
  * Created: Dec 12, 2011
  */
 
-package adasim.generator;
+package adasim.model.internal;
 
 import java.io.File;
 import java.io.FileOutputStream;
@@ -45,8 +45,6 @@ import adasim.model.AdasimMap;
 import adasim.model.RoadSegment;
 import adasim.model.TrafficSimulator;
 import adasim.model.Vehicle;
-import adasim.util.ReflectionException;
-import adasim.util.ReflectionUtils;
 
 
 /**
@@ -65,6 +63,7 @@ public class SimulationXMLWriter {
 	private static final String DEFAULT_NODE_CAPACITY = "0";
 	
 	private DefaultJDOMFactory factory = new DefaultJDOMFactory();
+	private ModelAccess access = ModelAccess.get();
 
 	
 	private SimulationXMLWriter( ) {}
@@ -77,7 +76,7 @@ public class SimulationXMLWriter {
 	 * @param f
 	 * @throws IOException
 	 */
-	static void write( TrafficSimulator sim, File f ) throws IOException {
+	public static void write( TrafficSimulator sim, File f ) throws IOException {
 		new SimulationXMLWriter().writeSim( f, sim );
 	}
 
@@ -115,28 +114,19 @@ public class SimulationXMLWriter {
 	 * @param v
 	 */
 	private void writeCar(Element vehicles, Vehicle v) {
-		try {
-			Element c = factory.element( "car" );
-			c.setAttribute( factory.attribute( "start", "" + ((AdasimAgent) ReflectionUtils.getProperty( v, "getStartNode")).getID() ) );
-			c.setAttribute( factory.attribute( "end", "" + ((RoadSegment) ReflectionUtils.getProperty( v, "getStartNode")).getID() ) );
-			c.setAttribute( factory.attribute( "id", "" + v.getID() ) );
-			c.setAttribute( factory.attribute( "strategy", "" + v.getStrategy().getClass().getCanonicalName() ) );
-			vehicles.addContent(c);
-		} catch (NoSuchMethodException e) {
-			//this should never happen
-			e.printStackTrace();
-		} catch (ReflectionException e) {
-			//this should never happen
-			e.printStackTrace();
-		}
+		Element c = factory.element( "car" );
+		c.setAttribute( factory.attribute( "start", "" + access.getStartNode(v).getID() ) );
+		c.setAttribute( factory.attribute( "end", "" + access.getEndNode(v).getID() ) );
+		c.setAttribute( factory.attribute( "id", "" + v.getID() ) );
+		c.setAttribute( factory.attribute( "strategy", "" + v.getStrategy().getClass().getCanonicalName() ) );
+		c.setAttribute( factory.attribute( "car_type", "" + v.getCarType() ) );
+		vehicles.addContent(c);
 	}
 
 
 	/**
 	 * @param doc
 	 * @param graph
-	 * @throws ReflectionException 
-	 * @throws NoSuchMethodException 
 	 */
 	private void writeGraph(Element doc, AdasimMap graph) {
 		Element g = factory.element( "graph" );
@@ -151,24 +141,14 @@ public class SimulationXMLWriter {
 	/**
 	 * @param g
 	 * @param node
-	 * @throws ReflectionException 
-	 * @throws NoSuchMethodException 
 	 */
 	private void writeNode(Element g, RoadSegment node) {
-		try {
-			Element n = factory.element( "node");
-			n.setAttribute( factory.attribute( "id", "" + node.getID() ) );
-			n.setAttribute( factory.attribute( "delay", "" + ReflectionUtils.getProperty(node, "getDelay") ) );
-			n.setAttribute( factory.attribute( "neighbors", writeNeighbors(node.getNeighbors() ) ) );
-			n.setAttribute( factory.attribute( "capacity", "" + ReflectionUtils.getProperty(node, "getCapacity") ) );
-			g.addContent(n);
-		} catch (NoSuchMethodException e) {
-			//this should never happen
-			e.printStackTrace();
-		} catch (ReflectionException e) {
-			//this should never happen
-			e.printStackTrace();
-		}
+		Element n = factory.element( "node");
+		n.setAttribute( factory.attribute( "id", "" + node.getID() ) );
+		n.setAttribute( factory.attribute( "delay", "" + access.getDelay(node) ) );
+		n.setAttribute( factory.attribute( "neighbors", writeNeighbors(node.getNeighbors() ) ) );
+		n.setAttribute( factory.attribute( "capacity", "" + access.getCapacity(node) ) );
+		g.addContent(n);
 	}
 
 	/**
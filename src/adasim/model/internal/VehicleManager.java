@@ -29,14 +29,19 @@
 
 package adasim.model.internal;
 
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 import org.apache.log4j.Logger;
 
 import adasim.agent.AbstractAdasimAgent;
+import adasim.model.CheckpointInput;
+import adasim.model.CheckpointOutput;
+import adasim.model.Checkpointable;
 import adasim.model.TrafficSimulator;
 import adasim.model.Vehicle;
 
@@ -45,18 +50,34 @@ import adasim.model.Vehicle;
  * The vehicle manager is responsible for ensuring that vehicles
  * declared in the configuration file enter the simulation at the specified 
  * time. 
+ * <p>
+ * Scheduled vehicles are kept in a binary min-heap ordered by start time, 
+ * and vehicles with the same start time enter in the order they were 
+ * scheduled. Vehicles can also be pulled from {@link VehicleSource}s, which 
+ * are asked for a vehicle only <code>lookahead</code> cycles before it starts.
  * 
  * @author Jochen Wuttke - wuttkej@gmail.com
  *
  */
-public final class VehicleManager extends AbstractAdasimAgent {
+public final class VehicleManager extends AbstractAdasimAgent implements Checkpointable {
 
 	private static Logger logger = Logger.getLogger(TrafficSimulator.class);
 
-	private Map<Long, List<Vehicle>> startingQueue;
+	private long[] times;		//start times of the scheduled vehicles, in heap order
+	private long[] order;		//scheduling order, breaks ties between equal start times
+	private Vehicle[] vehicles;
+	private int size;
+	private long scheduled;		//number of vehicles ever scheduled
+	private final List<VehicleSource> sources;
+	private long[] taken;		//number of vehicles taken from each source
+	private long lookahead;
 	
 	public VehicleManager() {
-		startingQueue = new HashMap<Long, List<Vehicle>>();
+		times = new long[16];
+		order = new long[16];
+		vehicles = new Vehicle[16];
+		sources = new ArrayList<VehicleSource>();
+		taken = new long[0];
 	}
 	
 	/**
@@ -67,25 +88,141 @@ public final class VehicleManager extends AbstractAdasimAgent {
 	 */
 	public void addVehicle( Vehicle v, long time ) {
 		assert time > 0;
-		getSlot(time).add(v);
+		insert( v, time, scheduled++ );
 	}
 	
-	private List<Vehicle> getSlot( long t ) {
-		List<Vehicle> l = startingQueue.get(t);
-		if ( l == null ) {
-			l = new ArrayList<Vehicle>();
-			startingQueue.put(t, l);
+	private void insert( Vehicle v, long time, long o ) {
+		if ( size == times.length ) {
+			times = Arrays.copyOf( times, size << 1 );
+			order = Arrays.copyOf( order, size << 1 );
+			vehicles = Arrays.copyOf( vehicles, size << 1 );
 		}
-		return l;
+		times[size] = time;
+		order[size] = o;
+		vehicles[size] = v;
+		siftUp( size++ );
+	}
+	
+	/**
+	 * Adds a source of vehicles. Vehicles from the source are scheduled
+	 * when their start time is at most <code>lookahead</code> cycles away.
+	 * @param source
+	 */
+	public void addSource( VehicleSource source ) {
+		if ( source == null ) {
+			throw new IllegalArgumentException( "Vehicle source must not be null" );
+		}
+		sources.add( source );
+		taken = Arrays.copyOf( taken, sources.size() );
+	}
+	
+	/**
+	 * @param cycles the number of cycles before their start time that 
+	 * vehicles are taken from the sources. The default is 0.
+	 */
+	public void setLookahead( long cycles ) {
+		if ( cycles < 0 ) {
+			throw new IllegalArgumentException( "Lookahead must not be negative" );
+		}
+		lookahead = cycles;
+	}
+	
+	/**
+	 * @return the number of cycles before their start time that 
+	 * vehicles are taken from the sources
+	 */
+	public long getLookahead() {
+		return lookahead;
+	}
+	
+	/**
+	 * Schedules all vehicles from the sources that start before or at <code>cycle</code>.
+	 * @param cycle
+	 */
+	private void pull( long cycle ) {
+		for ( int i = 0; i < sources.size(); i++ ) {
+			VehicleSource source = sources.get(i);
+			long time;
+			while ( ( time = source.nextStartTime() ) <= cycle ) {
+				addVehicle( source.next(), time );
+				taken[i]++;
+			}
+		}
+	}
+	
+	/**
+	 * @return <code>true</code> if the vehicle at heap position <code>i</code>
+	 * starts before the one at <code>j</code>
+	 */
+	private boolean before( int i, int j ) {
+		return times[i] < times[j] || ( times[i] == times[j] && order[i] < order[j] );
+	}
+	
+	private void siftUp( int i ) {
+		while ( i > 0 ) {
+			int parent = ( i - 1 ) >>> 1;
+			if ( !before( i, parent ) ) break;
+			swap( i, parent );
+			i = parent;
+		}
+	}
+	
+	private void siftDown( int i ) {
+		while ( true ) {
+			int child = 2 * i + 1;
+			if ( child >= size ) break;
+			if ( child + 1 < size && before( child + 1, child ) ) {
+				child++;
+			}
+			if ( !before( child, i ) ) break;
+			swap( i, child );
+			i = child;
+		}
+	}
+	
+	private void swap( int i, int j ) {
+		long t = times[i];
+		times[i] = times[j];
+		times[j] = t;
+		long o = order[i];
+		order[i] = order[j];
+		order[j] = o;
+		Vehicle v = vehicles[i];
+		vehicles[i] = vehicles[j];
+		vehicles[j] = v;
+	}
+	
+	/**
+	 * Removes the first vehicle from the heap.
+	 * @return the removed vehicle
+	 */
+	private Vehicle poll() {
+		Vehicle v = vehicles[0];
+		size--;
+		times[0] = times[size];
+		order[0] = order[size];
+		vehicles[0] = vehicles[size];
+		vehicles[size] = null;
+		siftDown(0);
+		return v;
 	}
 	
 	/**
 	 * Private accessor method. For testing only.
-	 * @return the internal representation of the queue
+	 * @return the scheduled vehicles by start time
 	 */
 	@SuppressWarnings("unused")
 	private Map<Long, List<Vehicle>> getQueue() {
-		return startingQueue;
+		Map<Long, List<Vehicle>> queue = new TreeMap<Long, List<Vehicle>>();
+		for ( int i = 0; i < size; i++ ) {
+			List<Vehicle> l = queue.get( times[i] );
+			if ( l == null ) {
+				l = new ArrayList<Vehicle>();
+				queue.put( times[i], l );
+			}
+			l.add( vehicles[i] );
+		}
+		return queue;
 	}
 
 	/* (non-Javadoc)
@@ -93,13 +230,86 @@ public final class VehicleManager extends AbstractAdasimAgent {
 	 */
 	@Override
 	public void takeSimulationStep( long cycle ) {
-		List<Vehicle> l = startingQueue.remove(cycle);
-		if ( l != null ) {
-			for ( Vehicle v : l ) {
+		pull( cycle + lookahead );
+		while ( size > 0 && times[0] <= cycle ) {
+			Vehicle v = poll();
+			if ( logger.isInfoEnabled() ) {
 				logger.info( "ENTER: " + v.vehiclePosition() );
-				this.simulator.addVehicle( v );
+			}
+			this.simulator.addVehicle( v );
+		}
+	}
+
+	/**
+	 * @return the next cycle in which a vehicle is scheduled to start, or
+	 * in which a vehicle has to be taken from a source (see {@link #setLookahead(long)})
+	 */
+	@Override
+	public long getNextCycle( long cycle ) {
+		long next = size > 0 ? times[0] : Long.MAX_VALUE;
+		for ( int i = 0; i < sources.size(); i++ ) {
+			long time = sources.get(i).nextStartTime();
+			if ( time != Long.MAX_VALUE ) {
+				next = Math.min( next, time - lookahead );
+			}
+		}
+		return Math.max( next, cycle + 1 );
+	}
+
+	/**
+	 * Writes the number of vehicles taken from each source and the
+	 * vehicles that are scheduled but have not started yet.
+	 */
+	@Override
+	public void writeState( CheckpointOutput out ) {
+		out.writeInt( taken.length );
+		for ( long t : taken ) {
+			out.writeLong( t );
+		}
+		out.writeLong( scheduled );
+		out.writeInt( size );
+		for ( int i = 0; i < size; i++ ) {
+			out.writeVehicle( vehicles[i] );
+			out.writeLong( times[i] );
+			out.writeLong( order[i] );
+		}
+	}
+
+	/**
+	 * Takes the vehicles out of the sources again, and registers them 
+	 * and all vehicles scheduled so far with <code>in</code>, so the 
+	 * simulator can find the vehicles that have already started. 
+	 * Then schedules the vehicles that had not started.
+	 */
+	@Override
+	public void readState( CheckpointInput in ) throws IOException {
+		for ( int i = 0; i < size; i++ ) {
+			in.registerVehicle( vehicles[i] );
+			vehicles[i] = null;
+		}
+		size = 0;
+		if ( in.readInt() != sources.size() ) {
+			throw new IOException( "Checkpoint does not match the vehicle sources" );
+		}
+		for ( int i = 0; i < sources.size(); i++ ) {
+			long n = in.readLong();
+			if ( taken[i] > n ) {
+				throw new IOException( "Checkpoints can only be restored into a simulation that has not started" );
+			}
+			for ( ; taken[i] < n; taken[i]++ ) {
+				if ( sources.get(i).nextStartTime() == Long.MAX_VALUE ) {
+					throw new IOException( "Checkpoint does not match the vehicle sources" );
+				}
+				in.registerVehicle( sources.get(i).next() );
 			}
 		}
+		scheduled = in.readLong();
+		int n = in.readInt();
+		for ( int i = 0; i < n; i++ ) {
+			Vehicle v = in.readVehicle();
+			long time = in.readLong();
+			insert( v, time, in.readLong() );
+		}
 	}
 
 	/* (non-Javadoc)
@@ -107,7 +317,11 @@ public final class VehicleManager extends AbstractAdasimAgent {
 	 */
 	@Override
 	public boolean isFinished() {
-		return startingQueue.isEmpty();
+		if ( size > 0 ) return false;
+		for ( int i = 0; i < sources.size(); i++ ) {
+			if ( sources.get(i).nextStartTime() != Long.MAX_VALUE ) return false;
+		}
+		return true;
 	}
 	
 }
@@ -0,0 +1,151 @@
+/*******************************************************************************
+ * Copyright (C) 2011 - 2012 Jochen Wuttke, Jonathan Ramaswamy
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ********************************************************************************
+ *
+ * Created: Oct 18, 2026
+ */
+
+package adasim.model.internal;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import adasim.model.Vehicle;
+
+
+/**
+ * A set of vehicles that remembers the order in which they were added,
+ * like a {@link java.util.LinkedHashSet}, but keeps them in a plain array.
+ * Adding and removing vehicles does not allocate memory unless the
+ * array has to grow, so slots can be reused cycle after cycle.
+ * <p>
+ * Callers must not add a vehicle that is already in the slot, as 
+ * {@link #add(Vehicle)} does not look for it. Slots are expected to be
+ * small, so membership tests and removals are linear scans.
+ */
+public final class VehicleSlot extends AbstractSet<Vehicle> {
+	
+	private final static int INITIAL_CAPACITY = 4;
+	
+	private Vehicle[] vehicles;
+	private int size;
+	
+	/**
+	 * Initializes an empty slot.
+	 */
+	public VehicleSlot() {
+		vehicles = new Vehicle[INITIAL_CAPACITY];
+	}
+
+	/**
+	 * @param i must be smaller than {@link #size()}
+	 * @return the <code>i</code>th vehicle in the order in which they were added
+	 */
+	public Vehicle get( int i ) {
+		if ( i >= size ) throw new IndexOutOfBoundsException( "Index: " + i + ", Size: " + size );
+		return vehicles[i];
+	}
+	
+	/**
+	 * Appends <code>v</code>, which must not be in this slot yet.
+	 * @return <code>true</code>
+	 */
+	@Override
+	public boolean add( Vehicle v ) {
+		assert indexOf(v) < 0 : "Vehicle already in slot";
+		if ( size == vehicles.length ) {
+			vehicles = Arrays.copyOf( vehicles, size << 1 );
+		}
+		vehicles[size++] = v;
+		return true;
+	}
+	
+	@Override
+	public boolean remove( Object o ) {
+		int i = indexOf(o);
+		if ( i < 0 ) return false;
+		removeAt(i);
+		return true;
+	}
+	
+	@Override
+	public boolean contains( Object o ) {
+		return indexOf(o) >= 0;
+	}
+	
+	@Override
+	public void clear() {
+		Arrays.fill( vehicles, 0, size, null );
+		size = 0;
+	}
+	
+	@Override
+	public int size() {
+		return size;
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	private int indexOf( Object o ) {
+		for ( int i = 0; i < size; i++ ) {
+			if ( vehicles[i].equals(o) ) return i;
+		}
+		return -1;
+	}
+	
+	private void removeAt( int i ) {
+		System.arraycopy( vehicles, i + 1, vehicles, i, size - i - 1 );
+		vehicles[--size] = null;
+	}
+
+	@Override
+	public Iterator<Vehicle> iterator() {
+		return new Iterator<Vehicle>() {
+			private int next = 0;
+			private int last = -1;
+
+			@Override
+			public boolean hasNext() {
+				return next < size;
+			}
+
+			@Override
+			public Vehicle next() {
+				if ( next >= size ) throw new NoSuchElementException();
+				last = next++;
+				return vehicles[last];
+			}
+
+			@Override
+			public void remove() {
+				if ( last < 0 ) throw new IllegalStateException();
+				removeAt(last);
+				next = last;
+				last = -1;
+			}
+		};
+	}
+}
@@ -0,0 +1,55 @@
+/*******************************************************************************
+ * Copyright (C) 2011 - 2012 Jochen Wuttke, Jonathan Ramaswamy
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ********************************************************************************
+ *
+ * Created: Oct 18, 2026
+ */
+
+package adasim.model.internal;
+
+import adasim.model.Vehicle;
+
+
+/**
+ * A source of vehicles that enter a simulation over time. 
+ * The {@link VehicleManager} pulls vehicles from its sources shortly 
+ * before they start, so a source only has to create a {@link Vehicle} 
+ * when it is asked for it. This keeps the vehicles of long simulations 
+ * out of memory until they are needed.
+ * <p>
+ * Sources must return their vehicles in the order of their start times.
+ */
+public interface VehicleSource {
+	
+	/**
+	 * @return the start time of the vehicle the next call to {@link #next()} 
+	 * returns, or <code>Long.MAX_VALUE</code> if the source has no more vehicles.
+	 * Successive values must never decrease.
+	 */
+	public long nextStartTime();
+	
+	/**
+	 * Creates the next vehicle. Its start road must be set.
+	 * @return the next vehicle
+	 */
+	public Vehicle next();
+
+}
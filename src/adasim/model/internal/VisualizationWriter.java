@@ -0,0 +1,184 @@
+/*******************************************************************************
+ * Copyright (C) 2011 - 2012 Jochen Wuttke, Jonathan Ramaswamy
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ********************************************************************************
+ *
+ * Created: Oct 18, 2026
+ */
+
+package adasim.model.internal;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import adasim.event.StreamEventSink;
+import adasim.model.AdasimMap;
+import adasim.model.MapTopology;
+import adasim.model.RoadSegment;
+
+
+/**
+ * Writes the data file of the d3 map view in <code>visual/index.html</code>.
+ * The roads of the map and their connections are written as a list of links
+ * when the writer is created:
+ * <pre>
+ * var links = [
+ * {source: "0", target: "4", type: "view"},
+ * {source: "0", target: "7", type: "view"}
+ * ];
+ * </pre>
+ * The links are streamed from the topology of the map, one at a time, so 
+ * the size of the map does not matter.
+ * <p>
+ * If loads are requested, the writer also records the number of vehicles
+ * on each road at the start of every cycle it sees as an {@link adasim.event.EventSink}.
+ * The loads of a cycle are listed in the order of <code>roads</code>:
+ * <pre>
+ * var roads = ["0", "4", "7"];
+ * var loads = [
+ * {cycle: 0, vehicles: [2, 0, 1]},
+ * {cycle: 1, vehicles: [1, 1, 1]}
+ * ];
+ * </pre>
+ */
+public final class VisualizationWriter extends StreamEventSink {
+	
+	private final RoadSegment[] roads;
+	private final boolean loads;
+	private final ModelAccess access;
+	private boolean firstCycle;
+	
+	/**
+	 * Writes the links of <code>map</code> to <code>out</code>.
+	 * @param map
+	 * @param out the stream to write to. It is closed with this writer.
+	 * @param loads <code>true</code> if the loads of the roads should be
+	 * written for every cycle
+	 */
+	public VisualizationWriter( AdasimMap map, OutputStream out, boolean loads ) {
+		super( out );
+		this.loads = loads;
+		access = ModelAccess.get();
+		MapTopology topology = map.getTopology();
+		roads = new RoadSegment[ topology.size() ];
+		for ( int i = 0; i < roads.length; i++ ) {
+			roads[i] = topology.getRoadSegment(i);
+		}
+		writeLinks( topology );
+		if ( loads ) {
+			writeRoads();
+			firstCycle = true;
+		}
+	}
+	
+	private void writeLinks( MapTopology topology ) {
+		putText( "var links = [" );
+		String separator = "\n";
+		for ( int i = 0; i < roads.length; i++ ) {
+			for ( int e = topology.getEdgeStart(i); e < topology.getEdgeEnd(i); e++ ) {
+				putText( separator );
+				putText( "{source: \"" );
+				putNumber( roads[i].getID() );
+				putText( "\", target: \"" );
+				putNumber( roads[ topology.getTarget(e) ].getID() );
+				putText( "\", type: \"view\"}" );
+				emit();
+				separator = ",\n";
+			}
+		}
+		putText( "\n];\n" );
+		emit();
+	}
+	
+	private void writeRoads() {
+		putText( "var roads = [" );
+		for ( int i = 0; i < roads.length; i++ ) {
+			if ( i > 0 ) putText( ", " );
+			put( '"' );
+			putNumber( roads[i].getID() );
+			put( '"' );
+			emit();
+		}
+		putText( "];\nvar loads = [" );
+		emit();
+	}
+
+	@Override
+	public void cycleStarted( long cycle ) {
+		if ( !loads ) return;
+		putText( firstCycle ? "\n" : ",\n" );
+		firstCycle = false;
+		putText( "{cycle: " );
+		putNumber( cycle );
+		putText( ", vehicles: [" );
+		for ( int i = 0; i < roads.length; i++ ) {
+			if ( i > 0 ) putText( ", " );
+			putNumber( access.getVehicleCount( roads[i] ) );
+			emit();
+		}
+		putText( "]}" );
+		emit();
+	}
+	
+	@Override
+	public void vehicleStarted( int vehicle, int road ) {
+	}
+
+	@Override
+	public void vehicleEntered( int vehicle, int road ) {
+	}
+
+	@Override
+	public void vehicleMoved( int vehicle, int from, int to ) {
+	}
+
+	@Override
+	public void vehicleStopped( int vehicle, int road ) {
+	}
+
+	@Override
+	public void moveRejected( int vehicle, int from, int to ) {
+	}
+
+	@Override
+	public void pathComputed( int vehicle, int target, int[] path, int length, boolean update ) {
+	}
+
+	@Override
+	public void roadClosed( int road ) {
+	}
+
+	@Override
+	public void roadOpened( int road ) {
+	}
+	
+	/**
+	 * Ends the list of loads, if there is one, and closes the stream.
+	 */
+	@Override
+	public void close() throws IOException {
+		if ( loads ) {
+			putText( "\n];\n" );
+			emit();
+		}
+		super.close();
+	}
+
+}
@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (C) 2011 - 2012 Jochen Wuttke, Jonathan Ramaswamy
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ********************************************************************************
+ *
+ * Created: Oct 18, 2026
+ */
+
+package adasim.model.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.jdom.Element;
+
+import adasim.algorithm.routing.RoutingAlgorithm;
+import adasim.model.AdasimMap;
+import adasim.model.ConfigurationException;
+import adasim.model.Vehicle;
+
+
+/**
+ * Creates the vehicles declared by <code>&lt;car&gt;</code> elements of a 
+ * configuration file when they are about to start. Until then, only the 
+ * element is kept, so vehicles and their routing algorithms do not take 
+ * up memory before they are needed.
+ * <p>
+ * The elements must have been validated, i.e. their start and end
+ * points must exist in the map.
+ */
+final class XMLVehicleSource implements VehicleSource {
+	
+	private final SimulationXMLBuilder builder;
+	private final Class<? extends RoutingAlgorithm> defaultStrategy;
+	private final AdasimMap map;
+	private final List<Element> cars;
+	private boolean sorted;
+	private int next;			//index of the next vehicle in cars
+	private long nextTime;		//start time of the next vehicle
+	
+	/**
+	 * @param builder
+	 * @param defaultStrategy the routing algorithm for vehicles that do not declare one
+	 * @param map the map the vehicles drive on
+	 */
+	XMLVehicleSource( SimulationXMLBuilder builder, Class<? extends RoutingAlgorithm> defaultStrategy, AdasimMap map ) {
+		this.builder = builder;
+		this.defaultStrategy = defaultStrategy;
+		this.map = map;
+		cars = new ArrayList<Element>();
+	}
+	
+	/**
+	 * Adds a vehicle to this source. Vehicles with the same start time are 
+	 * returned in the order they were added. Vehicles can only be added
+	 * before the first one is taken.
+	 * @param car
+	 */
+	void add( Element car ) {
+		cars.add( car );
+		sorted = false;
+	}
+	
+	/**
+	 * Creates the vehicle declared by <code>car</code>.
+	 * @param car
+	 * @return the fully configured vehicle
+	 * @throws ConfigurationException
+	 */
+	Vehicle build( Element car ) throws ConfigurationException {
+		Vehicle c = builder.buildVehicle( car, defaultStrategy );
+		c.setStartNode( map.getRoadSegment( Integer.parseInt( car.getAttributeValue("start") ) ) );
+		c.setEndNode( map.getRoadSegment( Integer.parseInt( car.getAttributeValue("end") ) ) );
+		c.getStrategy().setMap( map );
+		c.setCarType( Integer.parseInt( car.getAttributeValue("car_type") ) );
+		return c;
+	}
+	
+	/**
+	 * @param car
+	 * @return the start time declared by <code>car</code>
+	 */
+	static long getStartTime( Element car ) {
+		return Long.parseLong( car.getAttributeValue("start_time") );
+	}
+
+	@Override
+	public long nextStartTime() {
+		if ( !sorted ) {
+			//stable, so vehicles with equal start times keep their order
+			Collections.sort( cars, new Comparator<Element>() {
+				@Override
+				public int compare( Element o1, Element o2 ) {
+					long t1 = getStartTime(o1), t2 = getStartTime(o2);
+					return t1 < t2 ? -1 : ( t1 == t2 ? 0 : 1 );
+				}
+			});
+			sorted = true;
+			advance();
+		}
+		return nextTime;
+	}
+	
+	/**
+	 * Updates the start time of the next vehicle.
+	 */
+	private void advance() {
+		nextTime = next < cars.size() ? getStartTime( cars.get(next) ) : Long.MAX_VALUE;
+	}
+
+	@Override
+	public Vehicle next() {
+		nextStartTime();
+		Element car = cars.get( next );
+		cars.set( next++, null );	//the vehicle is no longer needed here
+		advance();
+		try {
+			return build( car );
+		} catch ( ConfigurationException e ) {
+			throw new IllegalStateException( "Cannot create vehicle " + car.getAttributeValue("id"), e );
+		}
+	}
+
+}
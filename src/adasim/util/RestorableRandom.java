@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (C) 2011 - 2012 Jochen Wuttke
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ********************************************************************************
+ *
+ * Created: Oct 18, 2026
+ */
+
+package adasim.util;
+
+import java.util.Random;
+
+/**
+ * A {@link Random} whose whole state is one <code>long</code> (see
+ * {@link #getState()}), so it can be saved and restored without
+ * serialization. For the same seed it returns the same numbers as
+ * {@link Random}, except from {@link #nextGaussian()}, which does not
+ * keep a second value between calls.
+ */
+public class RestorableRandom extends Random {
+
+	private static final long serialVersionUID = 1L;
+	private static final long MULTIPLIER = 0x5DEECE66DL;
+	private static final long ADDEND = 0xBL;
+	private static final long MASK = ( 1L << 48 ) - 1;
+
+	private long state;		//set by setSeed() from the constructor of Random, so it has no initializer
+
+	/**
+	 * Creates a generator with a seed that is different for every call.
+	 */
+	public RestorableRandom() {
+		super();
+	}
+
+	/**
+	 * @param seed
+	 */
+	public RestorableRandom( long seed ) {
+		super( seed );
+	}
+
+	@Override
+	public synchronized void setSeed( long seed ) {
+		state = ( seed ^ MULTIPLIER ) & MASK;
+	}
+
+	/**
+	 * @return the state of this generator. A generator whose state is set to
+	 * this value returns the same numbers as this one from now on.
+	 */
+	public synchronized long getState() {
+		return state;
+	}
+
+	/**
+	 * @param state a value returned by {@link #getState()}
+	 */
+	public synchronized void setState( long state ) {
+		this.state = state & MASK;
+	}
+
+	@Override
+	protected synchronized int next( int bits ) {
+		state = ( state * MULTIPLIER + ADDEND ) & MASK;
+		return (int)( state >>> ( 48 - bits ) );
+	}
+
+	@Override
+	public double nextGaussian() {
+		double v1, v2, s;
+		do {
+			v1 = 2 * nextDouble() - 1;
+			v2 = 2 * nextDouble() - 1;
+			s = v1 * v1 + v2 * v2;
+		} while ( s >= 1 || s == 0 );
+		return v1 * StrictMath.sqrt( -2 * StrictMath.log(s) / s );
+	}
+}
@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * Copyright (c) 2011 - Jochen Wuttke.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ********************************************************************************
+ *
+ * Created: Oct 18, 2026
+ */
+
+
+package adasim.algorithm.routing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import adasim.LoggingTest;
+import adasim.algorithm.delay.LinearTrafficDelayFunction;
+import adasim.model.AdasimMap;
+import adasim.model.RoadSegment;
+import adasim.model.Vehicle;
+
+import static adasim.algorithm.routing.TestMaps.*;
+import static org.junit.Assert.*;
+
+public class CongestionAwareRoutingAlgorithmTest extends LoggingTest {
+
+	@Test
+	public void sameCostsAsUnlimitedLookahead() {
+		Random r = new Random(3);
+		AdasimMap map = congest( randomMap( r, 200, 3, 9 ), r );
+		assertShortestPaths( map, strategy( map ), r, 300 );
+		map = congest( randomMap( r, 200, 2, 2 ), r );
+		assertShortestPaths( map, strategy( map ), r, 300 );
+	}
+
+	@Test
+	public void sameCostsOnGrid() {
+		Random r = new Random(4);
+		AdasimMap map = congest( gridMap( 12 ), r );
+		assertShortestPaths( map, strategy( map ), r, 300 );
+	}
+
+	@Test
+	public void avoidsCongestionAfterRefresh() {
+		AdasimMap map = diamondMap();
+		CongestionAwareRoutingAlgorithm strategy = new CongestionAwareRoutingAlgorithm();
+		strategy.setMap( map );
+		assertEquals( path( map, 1, 3 ), strategy.getPath( map.getRoadSegment(0), map.getRoadSegment(3) ) );
+		for ( int i = 0; i < 5; i++ ) {
+			map.getRoadSegment(1).enterNode( new Vehicle( map.getRoadSegment(1), map.getRoadSegment(1), null, i ) );
+		}
+		assertEquals( path( map, 1, 3 ), strategy.getPath( map.getRoadSegment(0), map.getRoadSegment(3) ) );
+		CustomizableHierarchyCache.forMap( map ).refresh();
+		assertEquals( path( map, 2, 3 ), strategy.getPath( map.getRoadSegment(0), map.getRoadSegment(3) ) );
+	}
+
+	@Test
+	public void closedRoadsAreNotEntered() {
+		AdasimMap map = diamondMap();
+		CongestionAwareRoutingAlgorithm strategy = new CongestionAwareRoutingAlgorithm();
+		strategy.setMap( map );
+		map.getRoadSegment(1).setClosed( true );
+		assertEquals( path( map, 2, 3 ), strategy.getPath( map.getRoadSegment(0), map.getRoadSegment(3) ) );
+		map.getRoadSegment(2).setClosed( true );
+		CustomizableHierarchyCache.forMap( map ).refresh();
+		assertNull( strategy.getPath( map.getRoadSegment(0), map.getRoadSegment(3) ) );
+		assertNull( strategy.getPath( map.getRoadSegment(0), map.getRoadSegment(0) ) );
+	}
+
+	@Test
+	public void hierarchyFollowsTopology() {
+		AdasimMap map = gridMap( 5 );
+		CongestionAwareRoutingAlgorithm strategy = new CongestionAwareRoutingAlgorithm();
+		strategy.setMap( map );
+		assertEquals( 8, strategy.getPath( map.getRoadSegment(0), map.getRoadSegment(24) ).size() );
+		CustomizableHierarchy hierarchy = CustomizableHierarchyCache.forMap( map ).getHierarchy( map.getTopology() );
+		map.getRoadSegment(12).setClosed( true );
+		assertSame( hierarchy, CustomizableHierarchyCache.forMap( map ).getHierarchy( map.getTopology() ) );
+		map.addEdge( 0, 24 );
+		assertEquals( 1, strategy.getPath( map.getRoadSegment(0), map.getRoadSegment(24) ).size() );
+		assertNotSame( hierarchy, CustomizableHierarchyCache.forMap( map ).getHierarchy( map.getTopology() ) );
+	}
+
+	@Test
+	public void parallelCustomization() {
+		Random r = new Random(6);
+		AdasimMap map = congest( gridMap( 40 ), r );
+		CustomizableHierarchyCache.forMap( map ).setParallelism( 3 );
+		assertShortestPaths( map, strategy( map ), r, 300 );
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void intervalMustBePositive() {
+		CustomizableHierarchyCache.forMap( new AdasimMap( new ArrayList<RoadSegment>() ) ).setInterval( 0 );
+	}
+
+	private RoutingAlgorithm strategy( AdasimMap map ) {
+		CongestionAwareRoutingAlgorithm strategy = new CongestionAwareRoutingAlgorithm();
+		strategy.setMap( map );
+		return strategy;
+	}
+
+	/**
+	 * Adds up to 5 vehicles to every fourth road.
+	 */
+	private AdasimMap congest( AdasimMap map, Random r ) {
+		int id = 0;
+		for ( RoadSegment road : map.getRoadSegments() ) {
+			if ( r.nextInt(4) > 0 ) continue;
+			for ( int n = r.nextInt(6); n > 0; n-- ) {
+				road.enterNode( new Vehicle( road, road, null, id++ ) );
+			}
+		}
+		return map;
+	}
+
+	private List<RoadSegment> path( AdasimMap map, int... ids ) {
+		List<RoadSegment> path = new ArrayList<RoadSegment>();
+		for ( int id : ids ) {
+			path.add( map.getRoadSegment(id) );
+		}
+		return path;
+	}
+
+	/**
+	 * Road 0 leads to road 3 through road 1 with delay 1, or through 
+	 * road 2 with delay 2.
+	 */
+	private AdasimMap diamondMap() {
+		List<RoadSegment> roads = new ArrayList<RoadSegment>();
+		roads.add( new RoadSegment( 0, new LinearTrafficDelayFunction(), 1, 1 ) );
+		roads.add( new RoadSegment( 1, new LinearTrafficDelayFunction(), 1, 1 ) );
+		roads.add( new RoadSegment( 2, new LinearTrafficDelayFunction(), 2, 1 ) );
+		roads.add( new RoadSegment( 3, new LinearTrafficDelayFunction(), 1, 1 ) );
+		AdasimMap map = new AdasimMap( roads );
+		map.addEdge( 0, 1 );
+		map.addEdge( 0, 2 );
+		map.addEdge( 1, 3 );
+		map.addEdge( 2, 3 );
+		return map;
+	}
+}
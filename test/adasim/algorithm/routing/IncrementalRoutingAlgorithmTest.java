@@ -0,0 +1,156 @@
+/*******************************************************************************
+ * Copyright (c) 2011 - Jochen Wuttke.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ********************************************************************************
+ *
+ * Created: Oct 18, 2026
+ */
+
+
+package adasim.algorithm.routing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import adasim.LoggingTest;
+import adasim.algorithm.delay.LinearTrafficDelayFunction;
+import adasim.model.AdasimMap;
+import adasim.model.DelayChangeLog;
+import adasim.model.MapTopology;
+import adasim.model.RoadSegment;
+import adasim.model.Vehicle;
+
+import static adasim.algorithm.routing.TestMaps.*;
+import static org.junit.Assert.*;
+
+public class IncrementalRoutingAlgorithmTest extends LoggingTest {
+
+	@Test
+	public void shortestPathsOverCurrentDelays() {
+		Random r = new Random(3);
+		for ( AdasimMap map : new AdasimMap[] { randomMap( r, 200, 3, 9 ), randomMap( r, 200, 2, 2 ), gridMap( 12 ) } ) {
+			assertShortestPaths( map, strategy( map ), r, 200 );
+		}
+	}
+
+	@Test
+	public void repairsAfterChanges() {
+		Random r = new Random(8);
+		AdasimMap map = randomMap( r, 150, 3, 5 );
+		List<Vehicle> vehicles = new ArrayList<Vehicle>();
+		List<RoadSegment> places = new ArrayList<RoadSegment>();
+		for ( int round = 0; round < 40; round++ ) {
+			List<RoadSegment> roads = map.getRoadSegments();
+			for ( int i = 0; i < 10; i++ ) {
+				RoadSegment road = roads.get( r.nextInt( roads.size() ) );
+				int op = r.nextInt(4);
+				if ( op == 0 ) {
+					road.setClosed( !road.isClosed() );
+				} else if ( op == 1 && !vehicles.isEmpty() ) {
+					int n = r.nextInt( vehicles.size() );
+					places.remove(n).park( vehicles.remove(n) );
+				} else if ( !road.isClosed() ) {
+					Vehicle v = new Vehicle( road, road, null, vehicles.size() );
+					road.enterNode( v );
+					vehicles.add( v );
+					places.add( road );
+				}
+			}
+			//few destinations, so their searches are repaired
+			assertShortestPaths( map, strategy( map ), r, 5 );
+		}
+	}
+
+	@Test
+	public void repairsAreLocal() {
+		AdasimMap map = gridMap( 30 );
+		IncrementalRoutingAlgorithm strategy = new IncrementalRoutingAlgorithm();
+		strategy.setMap( map );
+		RoadSegment from = map.getRoadSegment(0), to = map.getRoadSegment(899);
+		assertEquals( 58, strategy.getPath( from, to ).size() );
+		IncrementalSearch search = IncrementalSearchStore.forMap( map ).get( map.getTopology(), map.getDelayChanges(), 899 );
+		long first = search.getSettledCount();
+		assertTrue( first > 800 );
+		RoadSegment road = map.getRoadSegment(450);
+		for ( int i = 0; i < 5; i++ ) {
+			road.enterNode( new Vehicle( road, road, null, i ) );
+		}
+		assertEquals( 58, strategy.getPath( from, to ).size() );
+		assertTrue( search.getSettledCount() - first < 100 );
+		assertEquals( 1, IncrementalSearchStore.forMap( map ).size() );
+	}
+
+	@Test
+	public void closedRoadsAreNotEntered() {
+		AdasimMap map = gridMap( 3 );
+		IncrementalRoutingAlgorithm strategy = new IncrementalRoutingAlgorithm();
+		strategy.setMap( map );
+		RoadSegment from = map.getRoadSegment(0), to = map.getRoadSegment(2);
+		assertEquals( Arrays.asList( map.getRoadSegment(1), to ), strategy.getPath( from, to ) );
+		map.getRoadSegment(1).setClosed( true );
+		assertEquals( 4, strategy.getPath( from, to ).size() );
+		map.getRoadSegment(4).setClosed( true );
+		assertEquals( 6, strategy.getPath( from, to ).size() );
+		map.getRoadSegment(7).setClosed( true );
+		assertNull( strategy.getPath( from, to ) );
+		map.getRoadSegment(1).setClosed( false );
+		assertEquals( Arrays.asList( map.getRoadSegment(1), to ), strategy.getPath( from, to ) );
+		assertNull( strategy.getPath( to, to ) );
+	}
+
+	@Test
+	public void zeroDelays() {
+		Random r = new Random(4);
+		AdasimMap map = randomMap( r, 100, 3, 3 );
+		for ( int i = 100; i < 110; i++ ) {
+			map.addRoadSegment( new RoadSegment( i, new LinearTrafficDelayFunction(), 0, 1 ) );
+			map.addEdge( i, i - 100 );
+			map.addEdge( i - 100, i );
+			map.addEdge( i, i == 109 ? 100 : i + 1 );
+			map.addEdge( i == 109 ? 100 : i + 1, i );
+		}
+		assertShortestPaths( map, strategy( map ), r, 200 );
+	}
+
+	@Test
+	public void topologyChangeDropsSearches() {
+		AdasimMap map = gridMap( 5 );
+		IncrementalRoutingAlgorithm strategy = new IncrementalRoutingAlgorithm();
+		strategy.setMap( map );
+		assertEquals( 8, strategy.getPath( map.getRoadSegment(0), map.getRoadSegment(24) ).size() );
+		map.addEdge( 0, 24 );
+		assertEquals( 1, strategy.getPath( map.getRoadSegment(0), map.getRoadSegment(24) ).size() );
+	}
+
+	@Test
+	public void storeIsBounded() {
+		AdasimMap map = gridMap( 10 );
+		MapTopology topology = map.getTopology();
+		DelayChangeLog log = map.getDelayChanges();
+		//room for 10 searches, but at least 16 are kept
+		IncrementalSearchStore store = new IncrementalSearchStore( 1000 );
+		IncrementalSearch first = store.get( topology, log, 0 );
+		IncrementalSearch second = store.get( topology, log, 1 );
+		for ( int goal = 2; goal < 40; goal++ ) {
+			assertSame( first, store.get( topology, log, 0 ) );
+			store.get( topology, log, goal );
+			assertTrue( store.size() <= 16 );
+		}
+		assertEquals( 16, store.size() );
+		assertSame( first, store.get( topology, log, 0 ) );
+		assertNotSame( second, store.get( topology, log, 1 ) );
+	}
+
+	private RoutingAlgorithm strategy( AdasimMap map ) {
+		IncrementalRoutingAlgorithm strategy = new IncrementalRoutingAlgorithm();
+		strategy.setMap( map );
+		return strategy;
+	}
+}
@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (c) 2011 - Jochen Wuttke.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ********************************************************************************
+ *
+ * Created: Oct 17, 2026
+ */
+
+package adasim.algorithm.routing;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class IndexMinHeapTest {
+
+	@Test
+	public void equalKeysPollByIndex() {
+		int[] keys = { 3, 1, 3, 1, 2 };
+		IndexMinHeap heap = new IndexMinHeap( keys.length );
+		heap.reset( keys );
+		for ( int i = keys.length - 1; i >= 0; i-- ) {
+			heap.add(i);
+		}
+		int[] expected = { 1, 3, 4, 0, 2 };
+		for ( int e : expected ) {
+			assertEquals( e, heap.poll() );
+		}
+		assertTrue( heap.isEmpty() );
+	}
+
+	@Test
+	public void decreaseKey() {
+		int[] keys = { 5, 6, 7 };
+		IndexMinHeap heap = new IndexMinHeap( keys.length );
+		heap.reset( keys );
+		heap.add(0);
+		heap.add(1);
+		heap.add(2);
+		keys[2] = 1;
+		heap.decreaseKey(2);
+		assertEquals( 2, heap.poll() );
+		assertFalse( heap.contains(2) );
+		assertEquals( 0, heap.poll() );
+		assertEquals( 1, heap.poll() );
+	}
+
+	@Test
+	public void updateAndRemove() {
+		int[] keys = { 5, 6, 7, 8 };
+		IndexMinHeap heap = new IndexMinHeap( keys.length );
+		heap.reset( keys );
+		for ( int i = 0; i < keys.length; i++ ) {
+			heap.add(i);
+		}
+		keys[0] = 9;
+		heap.update(0);
+		keys[3] = 1;
+		heap.update(3);
+		heap.remove(1);
+		assertFalse( heap.contains(1) );
+		assertEquals( 3, heap.poll() );
+		assertEquals( 2, heap.poll() );
+		assertEquals( 0, heap.poll() );
+		assertTrue( heap.isEmpty() );
+	}
+
+	@Test
+	public void resetEmptiesHeap() {
+		int[] keys = new int[4];
+		IndexMinHeap heap = new IndexMinHeap( keys.length );
+		heap.reset( keys );
+		heap.add(1);
+		heap.add(2);
+		heap.reset( keys );
+		assertTrue( heap.isEmpty() );
+		assertFalse( heap.contains(1) );
+		heap.add(1);
+		assertEquals( 1, heap.poll() );
+	}
+
+	@Test
+	public void randomKeysPollInOrder() {
+		Random r = new Random(7);
+		int[] keys = new int[200];
+		IndexMinHeap heap = new IndexMinHeap( keys.length );
+		heap.reset( keys );
+		for ( int i = 0; i < keys.length; i++ ) {
+			keys[i] = r.nextInt(50);
+			heap.add(i);
+		}
+		for ( int i = 0; i < 100; i++ ) {
+			int n = r.nextInt( keys.length );
+			if ( heap.contains(n) && keys[n] > 0 ) {
+				keys[n] -= r.nextInt( keys[n] ) + 1;
+				heap.decreaseKey(n);
+			}
+		}
+		int last = heap.poll();
+		while ( !heap.isEmpty() ) {
+			int next = heap.poll();
+			assertTrue( keys[last] < keys[next] || ( keys[last] == keys[next] && last < next ) );
+			last = next;
+		}
+	}
+
+	@Test
+	public void randomUpdatesPollInOrder() {
+		Random r = new Random(11);
+		int[] keys = new int[200];
+		IndexMinHeap heap = new IndexMinHeap( keys.length );
+		heap.reset( keys );
+		for ( int i = 0; i < keys.length; i++ ) {
+			keys[i] = r.nextInt(50);
+			heap.add(i);
+		}
+		int removed = 0;
+		for ( int i = 0; i < 300; i++ ) {
+			int n = r.nextInt( keys.length );
+			if ( !heap.contains(n) ) continue;
+			if ( r.nextInt(3) == 0 ) {
+				heap.remove(n);
+				removed++;
+			} else {
+				keys[n] = r.nextInt(50);
+				heap.update(n);
+			}
+		}
+		int last = heap.poll(), polled = 1;
+		while ( !heap.isEmpty() ) {
+			int next = heap.poll();
+			assertTrue( keys[last] < keys[next] || ( keys[last] == keys[next] && last < next ) );
+			last = next;
+			polled++;
+		}
+		assertEquals( keys.length - removed, polled );
+	}
+}
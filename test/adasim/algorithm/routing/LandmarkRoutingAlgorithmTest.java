@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright (c) 2011 - Jochen Wuttke.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ********************************************************************************
+ *
+ * Created: Oct 18, 2026
+ */
+
+
+package adasim.algorithm.routing;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import adasim.LoggingTest;
+import adasim.algorithm.delay.LinearTrafficDelayFunction;
+import adasim.filter.FakeFilter;
+import adasim.filter.IdentityFilter;
+import adasim.model.AdasimMap;
+import adasim.model.RoadSegment;
+
+import static adasim.algorithm.routing.TestMaps.*;
+import static org.junit.Assert.*;
+
+public class LandmarkRoutingAlgorithmTest extends LoggingTest {
+
+	@Test
+	public void pathsAreShortest() {
+		Random r = new Random(3);
+		AdasimMap map = randomMap( r, 150, 3, 9 );
+		for ( int lookahead : new int[] { 0, 2 } ) {
+			LandmarkRoutingAlgorithm astar = new LandmarkRoutingAlgorithm( lookahead );
+			astar.setMap( map );
+			assertShortestPaths( map, astar, r, 200 );
+		}
+	}
+
+	@Test
+	public void closeTargetsSettleFewRoads() {
+		AdasimMap map = gridMap( 30 );
+		LandmarkRoutingAlgorithm astar = new LandmarkRoutingAlgorithm();
+		astar.setMap( map );
+		List<RoadSegment> path = astar.getPath( map.getRoadSegment( 15 * 30 + 15 ), map.getRoadSegment( 17 * 30 + 16 ) );
+		assertEquals( 3, path.size() );
+		assertTrue( astar.getSettledCount() < 30 );
+	}
+
+	@Test
+	public void unreachableTarget() {
+		AdasimMap map = gridMap( 5 );
+		map.addRoadSegment( new RoadSegment( 100, new LinearTrafficDelayFunction(), 1, 1 ) );
+		LandmarkRoutingAlgorithm astar = new LandmarkRoutingAlgorithm();
+		astar.setMap( map );
+		assertNull( astar.getPath( map.getRoadSegment(0), map.getRoadSegment(100) ) );
+		assertNull( astar.getPath( map.getRoadSegment(100), map.getRoadSegment(0) ) );
+		assertNull( astar.getPath( map.getRoadSegment(3), map.getRoadSegment(3) ) );
+	}
+
+	@Test
+	public void closedRoadsAreAvoidedWithinLookahead() {
+		AdasimMap map = gridMap( 5 );
+		map.getRoadSegment(1).setClosed( true );
+		LandmarkRoutingAlgorithm astar = new LandmarkRoutingAlgorithm(4);
+		astar.setMap( map );
+		List<RoadSegment> path = astar.getPath( map.getRoadSegment(0), map.getRoadSegment(2) );
+		assertEquals( 4, path.size() );
+		assertFalse( path.contains( map.getRoadSegment(1) ) );
+		astar = new LandmarkRoutingAlgorithm(0);
+		astar.setMap( map );
+		assertEquals( 2, astar.getPath( map.getRoadSegment(0), map.getRoadSegment(2) ).size() );
+	}
+
+	@Test
+	public void landmarksUseFilteredDelays() {
+		AdasimMap map = gridMap( 5 );
+		for ( RoadSegment road : map.getRoadSegments() ) {
+			road.setUncertaintyFilter( new FakeFilter() );
+		}
+		assertEquals( 16, LandmarkCache.forMap( map ).get( map.getTopology() ).bound( 0, 24 ) );
+		Random r = new Random(5);
+		map = randomMap( r, 150, 3, 9 );
+		IdentityFilter lower = new IdentityFilter() {
+			@Override
+			public int filter( int i ) {
+				return i / 3;
+			}
+		};
+		for ( RoadSegment road : map.getRoadSegments() ) {
+			if ( r.nextBoolean() ) road.setUncertaintyFilter( lower );
+		}
+		LandmarkRoutingAlgorithm astar = new LandmarkRoutingAlgorithm(0);
+		astar.setMap( map );
+		assertShortestPaths( map, astar, r, 200 );
+	}
+
+	@Test
+	public void landmarksFollowTopology() {
+		AdasimMap map = gridMap( 5 );
+		LandmarkCache.Table table = LandmarkCache.forMap( map ).get( map.getTopology() );
+		assertSame( table, LandmarkCache.forMap( map ).get( map.getTopology() ) );
+		assertEquals( LandmarkCache.LANDMARKS, table.size() );
+		map.addEdge( 0, 24 );
+		assertNotSame( table, LandmarkCache.forMap( map ).get( map.getTopology() ) );
+		assertEquals( 1, LandmarkCache.forMap( map ).get( map.getTopology() ).bound( 0, 24 ) );
+	}
+}
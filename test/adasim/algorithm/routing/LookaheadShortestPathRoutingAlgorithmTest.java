@@ -16,6 +16,7 @@ package adasim.algorithm.routing;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.jdom.JDOMException;
@@ -23,6 +24,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import adasim.LoggingTest;
+import adasim.algorithm.delay.LinearTrafficDelayFunction;
 import adasim.algorithm.routing.LookaheadShortestPathRoutingAlgorithm;
 import adasim.model.AdasimMap;
 import adasim.model.ConfigurationException;
@@ -140,5 +142,32 @@ public class LookaheadShortestPathRoutingAlgorithmTest extends LoggingTest {
 		assertEquals( 6, next.getID() );	//
 		assertEquals( 5, strategy.getNextNode().getID() );	//this is the next node on the new updated path
 	}
+
+	@Test
+	public void vehiclesShareShortestPathTrees() {
+		List<RoadSegment> roads = new ArrayList<RoadSegment>();
+		for ( int i = 0; i < 4; i++ ) {
+			roads.add( new RoadSegment( i, new LinearTrafficDelayFunction(), ( i == 2 ? 2 : 1 ), 1 ) );
+		}
+		roads.get(0).addEdge( roads.get(1) );
+		roads.get(0).addEdge( roads.get(2) );
+		roads.get(1).addEdge( roads.get(3) );
+		roads.get(2).addEdge( roads.get(3) );
+		AdasimMap g = new AdasimMap( roads );
+		strategy = new LookaheadShortestPathRoutingAlgorithm(1);
+		strategy.setMap(g);
+		LookaheadShortestPathRoutingAlgorithm other = new LookaheadShortestPathRoutingAlgorithm(1);
+		other.setMap(g);
+		assertEquals( 1, strategy.getPath(g.getRoadSegment(0), g.getRoadSegment(3)).get(0).getID() );
+		assertEquals( 1, other.getPath(g.getRoadSegment(0), g.getRoadSegment(1)).get(0).getID() );
+		assertEquals( 1, ShortestPathTreeCache.forMap( g ).size() );
+		
+		//more traffic within the lookahead invalidates the tree
+		g.addVehicleAtSegment( new Vehicle( g.getRoadSegment(1), null, new LookaheadShortestPathRoutingAlgorithm(), 42 ), 1 );
+		g.addVehicleAtSegment( new Vehicle( g.getRoadSegment(1), null, new LookaheadShortestPathRoutingAlgorithm(), 43 ), 1 );
+		g.addVehicleAtSegment( new Vehicle( g.getRoadSegment(1), null, new LookaheadShortestPathRoutingAlgorithm(), 44 ), 1 );
+		assertEquals( 2, other.getPath(g.getRoadSegment(0), g.getRoadSegment(3)).get(0).getID() );
+		assertEquals( 1, ShortestPathTreeCache.forMap( g ).size() );
+	}
 	
 }
@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright (c) 2011 - Jochen Wuttke.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ********************************************************************************
+ *
+ * Created: Oct 18, 2026
+ */
+
+
+package adasim.algorithm.routing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import adasim.LoggingTest;
+import adasim.algorithm.delay.LinearTrafficDelayFunction;
+import adasim.model.AdasimMap;
+import adasim.model.RoadSegment;
+
+import static org.junit.Assert.*;
+
+public class QLearningRoutingAlgorithmTest extends LoggingTest {
+
+	private AdasimMap map;
+
+	/**
+	 * Roads with sparse IDs: a chain 10, 20, 30, 40, 50 with a shortcut 
+	 * from 20 to 50, and a dead end 60 reachable from 30.
+	 */
+	@Before
+	public void setUp() {
+		List<RoadSegment> roads = new ArrayList<RoadSegment>();
+		for ( int id = 10; id <= 60; id += 10 ) {
+			roads.add( new RoadSegment( id, new LinearTrafficDelayFunction(), 1, 1 ) );
+		}
+		map = new AdasimMap( roads );
+		map.addEdge( 10, 20 );
+		map.addEdge( 20, 30 );
+		map.addEdge( 30, 40 );
+		map.addEdge( 40, 50 );
+		map.addEdge( 20, 50 );
+		map.addEdge( 30, 60 );
+	}
+
+	@Test
+	public void learnsShortestPath() {
+		QLearningRoutingAlgorithm strategy = new QLearningRoutingAlgorithm();
+		strategy.setMap( map );
+		List<RoadSegment> path = strategy.getPath( map.getRoadSegment(10), map.getRoadSegment(50) );
+		assertEquals( 2, path.size() );
+		assertEquals( 20, path.get(0).getID() );
+		assertEquals( 50, path.get(1).getID() );
+	}
+
+	@Test
+	public void pathsForDifferentTargets() {
+		QLearningRoutingAlgorithm strategy = new QLearningRoutingAlgorithm();
+		strategy.setMap( map );
+		List<RoadSegment> path = strategy.getPath( map.getRoadSegment(10), map.getRoadSegment(40) );
+		assertEquals( 3, path.size() );
+		assertEquals( 40, path.get(2).getID() );
+		path = strategy.getPath( map.getRoadSegment(20), map.getRoadSegment(60) );
+		assertEquals( 2, path.size() );
+		assertEquals( 30, path.get(0).getID() );
+		assertEquals( 60, path.get(1).getID() );
+	}
+
+	@Test
+	public void learnsChangedTopology() {
+		QLearningRoutingAlgorithm strategy = new QLearningRoutingAlgorithm();
+		strategy.setMap( map );
+		assertEquals( 2, strategy.getPath( map.getRoadSegment(10), map.getRoadSegment(50) ).size() );
+		map.getRoadSegment(20).removeEdge( map.getRoadSegment(50) );
+		List<RoadSegment> path = strategy.getPath( map.getRoadSegment(10), map.getRoadSegment(50) );
+		assertEquals( 4, path.size() );
+		assertEquals( 50, path.get(3).getID() );
+	}
+
+	/**
+	 * On a long two-way chain, the first batch of walks often does not
+	 * reach the goal, so no value changes in it.
+	 */
+	@Test
+	public void convergenceWaitsForFirstPath() {
+		for ( long seed = 0; seed < 10; seed++ ) {
+			List<RoadSegment> roads = new ArrayList<RoadSegment>();
+			for ( int id = 0; id < 80; id++ ) {
+				roads.add( new RoadSegment( id, new LinearTrafficDelayFunction(), 1, 1 ) );
+			}
+			AdasimMap chain = new AdasimMap( roads );
+			for ( int id = 1; id < 80; id++ ) {
+				chain.addEdge( id - 1, id );
+				chain.addEdge( id, id - 1 );
+			}
+			QTableStore.forMap( chain ).setConvergence( 0.01 );
+			QLearningRoutingAlgorithm strategy = new QLearningRoutingAlgorithm( 2, 2, seed );
+			strategy.setMap( chain );
+			List<RoadSegment> path = strategy.getPath( chain.getRoadSegment(0), chain.getRoadSegment(79) );
+			assertNotNull( path );
+			assertEquals( 79, path.get( path.size() - 1 ).getID() );
+		}
+	}
+}
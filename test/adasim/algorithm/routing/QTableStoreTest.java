@@ -0,0 +1,164 @@
+/*******************************************************************************
+ * Copyright (c) 2011 - Jochen Wuttke.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ********************************************************************************
+ *
+ * Created: Oct 18, 2026
+ */
+
+
+package adasim.algorithm.routing;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import adasim.LoggingTest;
+import adasim.algorithm.delay.LinearTrafficDelayFunction;
+import adasim.model.AdasimMap;
+import adasim.model.MapTopology;
+import adasim.model.RoadSegment;
+
+import static org.junit.Assert.*;
+
+public class QTableStoreTest extends LoggingTest {
+
+	@Test
+	public void routersShareTables() {
+		AdasimMap map = buildMap( 20 );
+		QTable table = learn( map, 0, 19 );
+		long episodes = table.getEpisodes();
+		assertTrue( episodes > 0 );
+		assertEquals( 1, QTableStore.forMap( map ).size() );
+		assertSame( table, learn( map, 0, 19 ) );
+		assertEquals( episodes + 50, table.getEpisodes() );
+		learn( map, 0, 10 );
+		assertEquals( 2, QTableStore.forMap( map ).size() );
+	}
+
+	@Test
+	public void topologyChangeDropsTables() {
+		AdasimMap map = buildMap( 10 );
+		QTable table = learn( map, 0, 9 );
+		map.addEdge( 0, 9 );
+		QTable changed = learn( map, 0, 9 );
+		assertNotSame( table, changed );
+		assertEquals( 1, QTableStore.forMap( map ).size() );
+	}
+
+	@Test
+	public void savedTablesAreLoaded() throws IOException {
+		File f = File.createTempFile( "qtables", ".bin" );
+		try {
+			AdasimMap map = buildMap( 20 );
+			QTable table = learn( map, 0, 19 );
+			learn( map, 3, 7 );
+			QTableStore.forMap( map ).save( f.getPath() );
+			
+			AdasimMap other = buildMap( 20 );
+			QTableStore.forMap( other ).load( f.getPath() );
+			assertEquals( 2, QTableStore.forMap( other ).size() );
+			MapTopology t = other.getTopology();
+			QTable loaded = QTableStore.forMap( other ).get( t, t.getIndex( other.getRoadSegment(19) ) );
+			assertEquals( table.getEpisodes(), loaded.getEpisodes() );
+			assertArrayEquals( table.getValues(), loaded.getValues(), 0 );
+			QLearningRoutingAlgorithm strategy = new QLearningRoutingAlgorithm();
+			strategy.setMap( other );
+			assertNotNull( strategy.getPath( other.getRoadSegment(0), other.getRoadSegment(19) ) );
+			assertEquals( table.getEpisodes() + 50, loaded.getEpisodes() );
+		} finally {
+			f.delete();
+		}
+	}
+
+	@Test(expected=IOException.class)
+	public void loadRejectsOtherMaps() throws IOException {
+		File f = File.createTempFile( "qtables", ".bin" );
+		try {
+			AdasimMap map = buildMap( 20 );
+			learn( map, 0, 19 );
+			QTableStore.forMap( map ).save( f.getPath() );
+			QTableStore.forMap( buildMap( 21 ) ).load( f.getPath() );
+		} finally {
+			f.delete();
+		}
+	}
+
+	@Test
+	public void parallelTrainingLearnsPaths() {
+		AdasimMap map = buildMap( 40 );
+		QTableStore.forMap( map ).setParallelism( 4 );
+		QTableStore.forMap( map ).setConvergence( 0.01 );
+		for ( int to : new int[] { 39, 17, 25 } ) {
+			QLearningRoutingAlgorithm strategy = new QLearningRoutingAlgorithm();
+			strategy.setMap( map );
+			List<RoadSegment> path = strategy.getPath( map.getRoadSegment(0), map.getRoadSegment(to) );
+			assertNotNull( path );
+			assertEquals( to, path.get( path.size() - 1 ).getID() );
+			RoadSegment last = map.getRoadSegment(0);
+			for ( RoadSegment road : path ) {
+				assertTrue( last.getNeighbors().contains( road ) );
+				last = road;
+			}
+		}
+		assertEquals( 3, QTableStore.forMap( map ).size() );
+	}
+
+	@Test
+	public void convergenceEndsTrainingEarly() {
+		AdasimMap map = buildMap( 20 );
+		map.addRoadSegment( new RoadSegment( 20, new LinearTrafficDelayFunction(), 1, 1 ) );
+		QTableStore.forMap( map ).setConvergence( 0.01 );
+		QLearningRoutingAlgorithm strategy = new QLearningRoutingAlgorithm();
+		strategy.setMap( map );
+		assertNull( strategy.getPath( map.getRoadSegment(0), map.getRoadSegment(20) ) );
+		MapTopology t = map.getTopology();
+		assertEquals( 1000, QTableStore.forMap( map ).get( t, t.getIndex( map.getRoadSegment(20) ) ).getEpisodes() );
+		
+		QTable table = learn( map, 0, 19 );
+		long episodes = table.getEpisodes();
+		assertTrue( episodes < 1000 );
+		learn( map, 0, 19 );
+		assertEquals( episodes + 50, table.getEpisodes() );
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void parallelismMustBePositive() {
+		QTableStore.forMap( buildMap( 2 ) ).setParallelism( 0 );
+	}
+
+	/**
+	 * Computes a path and returns the table it was learned in.
+	 */
+	private QTable learn( AdasimMap map, int from, int to ) {
+		QLearningRoutingAlgorithm strategy = new QLearningRoutingAlgorithm();
+		strategy.setMap( map );
+		assertNotNull( strategy.getPath( map.getRoadSegment(from), map.getRoadSegment(to) ) );
+		MapTopology t = map.getTopology();
+		return QTableStore.forMap( map ).get( t, t.getIndex( map.getRoadSegment(to) ) );
+	}
+
+	/**
+	 * A ring of roads, with a shortcut across from every fifth road.
+	 */
+	private AdasimMap buildMap( int size ) {
+		List<RoadSegment> roads = new ArrayList<RoadSegment>();
+		for ( int i = 0; i < size; i++ ) {
+			roads.add( new RoadSegment( i, new LinearTrafficDelayFunction(), 1, 1 ) );
+		}
+		AdasimMap map = new AdasimMap( roads );
+		for ( int i = 0; i < size; i++ ) {
+			map.addEdge( i, ( i + 1 ) % size );
+			if ( i % 5 == 0 ) {
+				map.addEdge( i, ( i + size / 2 ) % size );
+			}
+		}
+		return map;
+	}
+}
@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2011 - Jochen Wuttke.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ********************************************************************************
+ *
+ * Created: Oct 18, 2026
+ */
+
+
+package adasim.algorithm.routing;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import adasim.LoggingTest;
+import adasim.algorithm.delay.LinearTrafficDelayFunction;
+import adasim.model.AdasimMap;
+import adasim.model.RoadSegment;
+
+import static adasim.algorithm.routing.TestMaps.*;
+import static org.junit.Assert.*;
+
+public class ShortestPathRoutingAlgorithmTest extends LoggingTest {
+
+	@Test
+	public void samePathsAsShortestPathTrees() {
+		Random r = new Random(5);
+		assertSamePaths( randomMap( r, 200, 3, 9 ), r );
+		assertSamePaths( randomMap( r, 200, 2, 2 ), r );
+	}
+
+	@Test
+	public void samePathsOnGrid() {
+		assertSamePaths( gridMap( 12 ), new Random(1) );
+	}
+
+	@Test
+	public void hierarchyFollowsTopology() {
+		AdasimMap map = gridMap( 5 );
+		ShortestPathRoutingAlgorithm strategy = new ShortestPathRoutingAlgorithm();
+		strategy.setMap( map );
+		assertEquals( 8, strategy.getPath( map.getRoadSegment(0), map.getRoadSegment(24) ).size() );
+		ContractionHierarchy hierarchy = ContractionHierarchyCache.forMap( map ).get( map.getTopology() );
+		map.getRoadSegment(12).setClosed( true );
+		assertSame( hierarchy, ContractionHierarchyCache.forMap( map ).get( map.getTopology() ) );
+		map.addEdge( 0, 24 );
+		assertEquals( 1, strategy.getPath( map.getRoadSegment(0), map.getRoadSegment(24) ).size() );
+		assertNotSame( hierarchy, ContractionHierarchyCache.forMap( map ).get( map.getTopology() ) );
+	}
+
+	@Test
+	public void unreachableTarget() {
+		AdasimMap map = gridMap( 4 );
+		map.addRoadSegment( new RoadSegment( 100, new LinearTrafficDelayFunction(), 1, 1 ) );
+		ShortestPathRoutingAlgorithm strategy = new ShortestPathRoutingAlgorithm();
+		strategy.setMap( map );
+		assertNull( strategy.getPath( map.getRoadSegment(0), map.getRoadSegment(100) ) );
+		assertNull( strategy.getPath( map.getRoadSegment(100), map.getRoadSegment(0) ) );
+		assertNull( strategy.getPath( map.getRoadSegment(5), map.getRoadSegment(5) ) );
+	}
+
+	@Test
+	public void zeroDelaysUseTrees() {
+		Random r = new Random(2);
+		AdasimMap map = randomMap( r, 100, 3, 3 );
+		map.addRoadSegment( new RoadSegment( 100, new LinearTrafficDelayFunction(), 0, 1 ) );
+		map.addEdge( 100, 0 );
+		map.addEdge( 0, 100 );
+		assertTrue( ContractionHierarchyCache.forMap( map ).get( map.getTopology() ).hasZeroDelays() );
+		assertSamePaths( map, r );
+	}
+
+	private void assertSamePaths( AdasimMap map, Random r ) {
+		ShortestPathRoutingAlgorithm strategy = new ShortestPathRoutingAlgorithm();
+		strategy.setMap( map );
+		LookaheadShortestPathRoutingAlgorithm dijkstra = new LookaheadShortestPathRoutingAlgorithm();
+		dijkstra.setMap( map );
+		List<RoadSegment> roads = map.getRoadSegments();
+		for ( int i = 0; i < 300; i++ ) {
+			RoadSegment from = roads.get( r.nextInt( roads.size() ) );
+			RoadSegment to = roads.get( r.nextInt( roads.size() ) );
+			assertEquals( dijkstra.getPath( from, to ), strategy.getPath( from, to ) );
+		}
+	}
+}
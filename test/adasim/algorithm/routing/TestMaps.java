@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2011 - Jochen Wuttke.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ********************************************************************************
+ *
+ * Created: Oct 18, 2026
+ */
+
+package adasim.algorithm.routing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import adasim.algorithm.delay.LinearTrafficDelayFunction;
+import adasim.model.AdasimMap;
+import adasim.model.MapTopology;
+import adasim.model.RoadSegment;
+import adasim.model.Vehicle;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * Maps and a reference search shared by the routing tests.
+ */
+final class TestMaps {
+
+	private TestMaps() {}
+
+	/**
+	 * Roads with random delays up to <code>maxDelay</code>, each with random 
+	 * edges to <code>degree</code> roads.
+	 */
+	static AdasimMap randomMap( Random r, int size, int degree, int maxDelay ) {
+		List<RoadSegment> roads = new ArrayList<RoadSegment>();
+		for ( int i = 0; i < size; i++ ) {
+			roads.add( new RoadSegment( i, new LinearTrafficDelayFunction(), 1 + r.nextInt(maxDelay), 1 ) );
+		}
+		AdasimMap map = new AdasimMap( roads );
+		for ( int i = 0; i < size; i++ ) {
+			for ( int j = 0; j < degree; j++ ) {
+				int n = r.nextInt( size );
+				if ( n != i ) map.addEdge( i, n );
+			}
+		}
+		return map;
+	}
+
+	/**
+	 * A square grid of roads with delay 1, with edges in both directions 
+	 * between neighbors.
+	 */
+	static AdasimMap gridMap( int width ) {
+		List<RoadSegment> roads = new ArrayList<RoadSegment>();
+		for ( int i = 0; i < width * width; i++ ) {
+			roads.add( new RoadSegment( i, new LinearTrafficDelayFunction(), 1, 1 ) );
+		}
+		AdasimMap map = new AdasimMap( roads );
+		for ( int y = 0; y < width; y++ ) {
+			for ( int x = 0; x < width; x++ ) {
+				int i = y * width + x;
+				if ( x + 1 < width ) {
+					map.addEdge( i, i + 1 );
+					map.addEdge( i + 1, i );
+				}
+				if ( y + 1 < width ) {
+					map.addEdge( i, i + width );
+					map.addEdge( i + width, i );
+				}
+			}
+		}
+		return map;
+	}
+
+	/**
+	 * Checks that the paths <code>strategy</code> finds between random roads
+	 * are valid and as short as those of a plain search.
+	 */
+	static void assertShortestPaths( AdasimMap map, RoutingAlgorithm strategy, Random r, int queries ) {
+		List<RoadSegment> roads = map.getRoadSegments();
+		for ( int i = 0; i < queries; i++ ) {
+			RoadSegment from = roads.get( r.nextInt( roads.size() ) );
+			RoadSegment to = roads.get( r.nextInt( roads.size() ) );
+			assertShortestPath( map, from, to, strategy.getPath( from, to ) );
+		}
+	}
+
+	/**
+	 * Checks that <code>path</code> leads from <code>from</code> to 
+	 * <code>to</code> over open roads and is as short as the path of a 
+	 * plain search, or that it is <code>null</code> if there is no such path.
+	 */
+	static void assertShortestPath( AdasimMap map, RoadSegment from, RoadSegment to, List<RoadSegment> path ) {
+		int expected = distance( map, from, to );
+		if ( expected == Integer.MAX_VALUE || from == to ) {
+			assertNull( path );
+			return;
+		}
+		assertNotNull( path );
+		int cost = 0;
+		RoadSegment last = from;
+		for ( RoadSegment road : path ) {
+			assertTrue( last.getNeighbors().contains( road ) );
+			assertFalse( road.isClosed() );
+			cost += road.getCurrentDelay( Vehicle.class );
+			last = road;
+		}
+		assertSame( to, last );
+		assertEquals( expected, cost );
+	}
+
+	/**
+	 * @return the length of the shortest path over current delays from
+	 * <code>from</code> to <code>to</code>, or Integer.MAX_VALUE if there is none
+	 */
+	static int distance( AdasimMap map, RoadSegment from, RoadSegment to ) {
+		MapTopology topology = map.getTopology();
+		int size = topology.size();
+		long[] dist = new long[size];
+		boolean[] done = new boolean[size];
+		Arrays.fill( dist, Long.MAX_VALUE );
+		dist[ topology.getIndex(from) ] = 0;
+		while ( true ) {
+			int v = -1;
+			for ( int i = 0; i < size; i++ ) {
+				if ( !done[i] && dist[i] != Long.MAX_VALUE && ( v < 0 || dist[i] < dist[v] ) ) v = i;
+			}
+			if ( v < 0 ) return Integer.MAX_VALUE;
+			if ( v == topology.getIndex(to) ) return (int)dist[v];
+			done[v] = true;
+			for ( int e = topology.getEdgeStart(v); e < topology.getEdgeEnd(v); e++ ) {
+				RoadSegment road = topology.getRoadSegment( topology.getTarget(e) );
+				if ( road.isClosed() ) continue;
+				long d = dist[v] + road.getCurrentDelay( Vehicle.class );
+				if ( d < dist[ topology.getTarget(e) ] ) dist[ topology.getTarget(e) ] = d;
+			}
+		}
+	}
+}
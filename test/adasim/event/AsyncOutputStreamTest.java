@@ -0,0 +1,68 @@
+/*******************************************************************************
+ * Copyright (c) 2011 - Jochen Wuttke.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ********************************************************************************
+ *
+ * Created: Oct 18, 2026
+ */
+package adasim.event;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AsyncOutputStreamTest {
+
+	@Test
+	public void writesAllBytesInOrder() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		AsyncOutputStream async = new AsyncOutputStream( out, 7, 2 );
+		byte[] expected = new byte[1000];
+		for ( int i = 0; i < expected.length; i++ ) {
+			expected[i] = (byte) i;
+		}
+		async.write( expected, 0, 500 );
+		for ( int i = 500; i < expected.length; i++ ) {
+			async.write( expected[i] );
+		}
+		async.close();
+		assertArrayEquals( expected, out.toByteArray() );
+	}
+
+	@Test
+	public void flushWaitsForWriter() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		AsyncOutputStream async = new AsyncOutputStream( out, 4, 3 );
+		async.write( new byte[10], 0, 10 );
+		async.flush();
+		assertEquals( 10, out.size() );
+		async.close();
+	}
+
+	@Test(expected=IOException.class)
+	public void reportsFailures() throws IOException {
+		OutputStream failing = new OutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				throw new IOException( "disk full" );
+			}
+		};
+		AsyncOutputStream async = new AsyncOutputStream( failing, 4, 2 );
+		async.write( new byte[100], 0, 100 );
+		async.close();
+	}
+
+	@Test(expected=IOException.class)
+	public void writeAfterClose() throws IOException {
+		AsyncOutputStream async = new AsyncOutputStream( new ByteArrayOutputStream() );
+		async.close();
+		async.write(1);
+	}
+}
@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright (c) 2011 - Jochen Wuttke.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ********************************************************************************
+ *
+ * Created: Oct 18, 2026
+ */
+package adasim.event;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BinaryEventSinkTest {
+
+	@Test
+	public void replayMatchesCsv() throws IOException {
+		ByteArrayOutputStream binary = new ByteArrayOutputStream();
+		ByteArrayOutputStream direct = new ByteArrayOutputStream();
+		EventSink b = new BinaryEventSink( binary );
+		EventSink c = new CsvEventSink( direct );
+		writeEvents( b );
+		writeEvents( c );
+		b.close();
+		c.close();
+		
+		ByteArrayOutputStream replayed = new ByteArrayOutputStream();
+		EventSink r = new CsvEventSink( replayed );
+		new BinaryEventReader( new ByteArrayInputStream( binary.toByteArray() ) ).replay( r );
+		r.close();
+		assertEquals( direct.toString(), replayed.toString() );
+		assertTrue( binary.size() < direct.size() );
+	}
+	
+	@Test
+	public void largeNumbers() throws IOException {
+		ByteArrayOutputStream binary = new ByteArrayOutputStream();
+		EventSink b = new BinaryEventSink( binary );
+		b.cycleStarted( Long.MAX_VALUE );
+		b.vehicleMoved( Integer.MAX_VALUE, Integer.MIN_VALUE, -1 );
+		b.close();
+		
+		ByteArrayOutputStream csv = new ByteArrayOutputStream();
+		EventSink r = new CsvEventSink( csv );
+		new BinaryEventReader( new ByteArrayInputStream( binary.toByteArray() ) ).replay( r );
+		r.close();
+		assertEquals( "cycle,event,vehicle,road,target,path\n" +
+				Long.MAX_VALUE + ",MOVE," + Integer.MAX_VALUE + "," + Integer.MIN_VALUE + ",-1,\n", csv.toString() );
+	}
+
+	@Test
+	public void qValuesOfTracedVehicles() throws IOException {
+		ByteArrayOutputStream binary = new ByteArrayOutputStream();
+		BinaryEventSink b = new BinaryEventSink( binary );
+		assertFalse( b.isTraced(0) );
+		b.setTraceRate(3);
+		assertTrue( b.isTraced(6) );
+		assertFalse( b.isTraced(7) );
+		b.qValuesLearned( 6, 9, new int[] { 1, 2 }, new int[] { 2, 9 }, new double[] { 81.5, -0.25 }, 2 );
+		b.close();
+		
+		ByteArrayOutputStream copy = new ByteArrayOutputStream();
+		BinaryEventSink r = new BinaryEventSink( copy );
+		r.setTraceRate(1);
+		new BinaryEventReader( new ByteArrayInputStream( binary.toByteArray() ) ).replay( r );
+		r.close();
+		assertArrayEquals( binary.toByteArray(), copy.toByteArray() );
+		assertEquals( 5 + 1 + 3 + 2 * ( 2 + 8 ), binary.size() );
+		
+		ByteArrayOutputStream csv = new ByteArrayOutputStream();
+		EventSink c = new CsvEventSink( csv );
+		new BinaryEventReader( new ByteArrayInputStream( binary.toByteArray() ) ).replay( c );
+		c.close();
+		assertEquals( "cycle,event,vehicle,road,target,path\n", csv.toString() );
+	}
+
+	@Test(expected=IOException.class)
+	public void rejectsOtherFiles() throws IOException {
+		new BinaryEventReader( new ByteArrayInputStream( "cycle,event".getBytes() ) ).replay( EventSink.NONE );
+	}
+
+	@Test(expected=IOException.class)
+	public void rejectsTruncatedFiles() throws IOException {
+		ByteArrayOutputStream binary = new ByteArrayOutputStream();
+		EventSink b = new BinaryEventSink( binary );
+		b.pathComputed( 1, 9, new int[] { 2, 3, 9 }, 3, false );
+		b.close();
+		byte[] bytes = binary.toByteArray();
+		new BinaryEventReader( new ByteArrayInputStream( bytes, 0, bytes.length - 1 ) ).replay( EventSink.NONE );
+	}
+
+	private void writeEvents( EventSink sink ) {
+		int[] path = { 4, 5, 300, 7 };
+		sink.vehicleStarted( 0, 1 );
+		sink.vehicleEntered( 0, 1 );
+		for ( long cycle = 1; cycle < 200; cycle++ ) {
+			sink.cycleStarted( cycle );
+			if ( cycle % 7 == 0 ) {
+				sink.pathComputed( (int) cycle, 7, path, path.length, cycle % 2 == 0 );
+			}
+			sink.vehicleMoved( (int) cycle, 3, 1000 );
+			sink.vehicleEntered( (int) cycle, 1000 );
+		}
+		sink.moveRejected( 3, 1000, 12 );
+		sink.roadClosed( 12 );
+		sink.roadOpened( 12 );
+		sink.vehicleStopped( 0, 7 );
+	}
+}
@@ -0,0 +1,55 @@
+/*******************************************************************************
+ * Copyright (c) 2011 - Jochen Wuttke.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ********************************************************************************
+ *
+ * Created: Oct 18, 2026
+ */
+package adasim.event;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CsvEventSinkTest {
+
+	@Test
+	public void writesOneLinePerEvent() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		EventSink sink = new CsvEventSink( out );
+		sink.vehicleStarted( 3, 0 );
+		sink.cycleStarted( 12 );
+		sink.vehicleMoved( 3, 0, 7 );
+		sink.pathComputed( 4, 9, new int[] { 6, 8, 9, 1 }, 3, false );
+		sink.pathComputed( 4, 9, new int[0], 0, true );
+		sink.cycleStarted( 13 );
+		sink.roadClosed( 8 );
+		sink.moveRejected( 4, 6, 8 );
+		sink.vehicleStopped( 4, 6 );
+		sink.close();
+		assertEquals( "cycle,event,vehicle,road,target,path\n" +
+				"0,START,3,0,,\n" +
+				"12,MOVE,3,0,7,\n" +
+				"12,PATH,4,,9,6 8 9\n" +
+				"12,UPDATE,4,,9,\n" +
+				"13,CLOSE,,8,,\n" +
+				"13,INVALID,4,6,8,\n" +
+				"13,STOP,4,6,,\n", out.toString() );
+	}
+
+	@Test
+	public void dropsEventsAfterClose() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		EventSink sink = new CsvEventSink( out );
+		sink.close();
+		sink.vehicleEntered( 1, 1 );
+		sink.close();
+		assertEquals( "cycle,event,vehicle,road,target,path\n", out.toString() );
+	}
+}
@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright (c) 2011 - Jochen Wuttke.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ********************************************************************************
+ *
+ * Created: Oct 18, 2026
+ */
+
+
+package adasim.generator;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import adasim.LoggingTest;
+import adasim.generator.BatchRunner.Result;
+import adasim.generator.BatchRunner.Run;
+import adasim.model.ConfigurationException;
+
+import static org.junit.Assert.*;
+
+public class BatchRunnerTest extends LoggingTest {
+
+	private File dir;
+
+	@Before
+	public void setUp() throws IOException {
+		dir = File.createTempFile( "batch", "" );
+		assertTrue( dir.delete() && dir.mkdir() );
+	}
+
+	@After
+	public void tearDown() {
+		for ( File f : dir.listFiles() ) {
+			f.delete();
+		}
+		dir.delete();
+	}
+
+	@Test
+	public void readsConfig() throws IOException, ConfigurationException {
+		List<Run> runs = BatchRunner.readConfig( write( "100:50:2\n\n 20:10:1 \n" ) );
+		assertEquals( 3, runs.size() );
+		assertEquals( "100-50-0", runs.get(0).getName() );
+		assertEquals( "100-50-1", runs.get(1).getName() );
+		assertEquals( 20, runs.get(2).getNodes() );
+		assertEquals( 10, runs.get(2).getCars() );
+		assertEquals( 0, runs.get(2).getIteration() );
+	}
+
+	@Test(expected=ConfigurationException.class)
+	public void malformedConfigThrows() throws IOException, ConfigurationException {
+		BatchRunner.readConfig( write( "100:50\n" ) );
+	}
+
+	@Test
+	public void runsAllSimulations() throws IOException {
+		List<Run> runs = Arrays.asList( new Run( 30, 10, 0 ), new Run( 30, 10, 1 ), new Run( 20, 5, 0 ) );
+		List<Result> results = new BatchRunner( dir, 2, false ).run( runs );
+		assertEquals( runs.size(), results.size() );
+		for ( int i = 0; i < runs.size(); i++ ) {
+			Result r = results.get(i);
+			assertSame( runs.get(i), r.getRun() );
+			assertTrue( r.getError(), r.isSuccess() );
+			assertTrue( r.getCycles() > 0 );
+			assertTrue( new File( dir, r.getRun().getName() + ".xml" ).isFile() );
+			assertTrue( new File( dir, r.getRun().getName() + ".csv" ).length() > 0 );
+		}
+		File summary = new File( dir, "summary.csv" );
+		BatchRunner.writeSummary( results, summary );
+		BufferedReader in = new BufferedReader( new FileReader( summary ) );
+		try {
+			assertEquals( "simulation,nodes,cars,iteration,cycles,millis,error", in.readLine() );
+			assertTrue( in.readLine().startsWith( "30-10-0,30,10,0," + results.get(0).getCycles() + "," ) );
+		} finally {
+			in.close();
+		}
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void noThreads() {
+		new BatchRunner( dir, 0, false );
+	}
+
+	private File write( String content ) throws IOException {
+		File f = new File( dir, "simulation.cfg" );
+		FileWriter out = new FileWriter( f );
+		out.write( content );
+		out.close();
+		return f;
+	}
+}
@@ -0,0 +1,176 @@
+/*******************************************************************************
+ * Copyright (c) 2011 - Jochen Wuttke.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ********************************************************************************
+ *
+ * Created: Oct 17, 2026
+ */
+
+package adasim.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import adasim.algorithm.delay.LinearTrafficDelayFunction;
+
+import static org.junit.Assert.*;
+
+public class AdasimMapTest {
+
+	private AdasimMap map;
+
+	@Before
+	public void setUp() {
+		List<RoadSegment> roads = new ArrayList<RoadSegment>();
+		for ( int id : new int[] { 7, 2, 40, 0 } ) {
+			roads.add( new RoadSegment( id, new LinearTrafficDelayFunction(), 1, 1 ) );
+		}
+		map = new AdasimMap( roads );
+	}
+
+	@Test
+	public void segmentsAreOrderedByID() {
+		List<RoadSegment> roads = map.getRoadSegments();
+		assertEquals( 4, roads.size() );
+		assertEquals( 4, map.getRoadSegmentCount() );
+		int last = -1;
+		for ( int i = 0; i < roads.size(); i++ ) {
+			assertTrue( roads.get(i).getID() > last );
+			assertEquals( i, map.getIndex( roads.get(i) ) );
+			last = roads.get(i).getID();
+		}
+	}
+
+	@Test
+	public void lookupByID() {
+		assertEquals( 40, map.getRoadSegment(40).getID() );
+		assertNull( map.getRoadSegment(3) );
+		assertNull( map.getRoadSegment(41) );
+		assertNull( map.getRoadSegment(-1) );
+		assertEquals( -1, map.getIndex( new RoadSegment( 5, new LinearTrafficDelayFunction(), 1, 1 ) ) );
+	}
+
+	@Test
+	public void addKeepsFirstSegmentWithID() {
+		RoadSegment first = map.getRoadSegment(2);
+		map.addRoadSegment( new RoadSegment( 2, new LinearTrafficDelayFunction(), 1, 1 ) );
+		assertSame( first, map.getRoadSegment(2) );
+		assertEquals( 4, map.getRoadSegmentCount() );
+	}
+
+	@Test
+	public void segmentListIsShared() {
+		List<RoadSegment> roads = map.getRoadSegments();
+		assertSame( roads, map.getRoadSegments() );
+		map.addRoadSegment( new RoadSegment( 100, new LinearTrafficDelayFunction(), 1, 1 ) );
+		assertEquals( 4, roads.size() );
+		assertEquals( 5, map.getRoadSegments().size() );
+		assertEquals( 100, map.getRoadSegment(100).getID() );
+	}
+
+	@Test
+	public void topologyMatchesNeighbors() {
+		map.addEdge( 0, 2 );
+		map.addEdge( 0, 40 );
+		map.addEdge( 7, 0 );
+		map.getRoadSegment(2).addEdge( new RoadSegment( 99, new LinearTrafficDelayFunction(), 1, 1 ) );
+		MapTopology topology = map.getTopology();
+		assertEquals( 4, topology.size() );
+		assertEquals( 3, topology.getEdgeCount() );
+		for ( int i = 0; i < topology.size(); i++ ) {
+			RoadSegment road = topology.getRoadSegment(i);
+			assertEquals( i, topology.getIndex(road) );
+			List<RoadSegment> neighbors = new ArrayList<RoadSegment>();
+			for ( int e = topology.getEdgeStart(i); e < topology.getEdgeEnd(i); e++ ) {
+				neighbors.add( topology.getRoadSegment( topology.getTarget(e) ) );
+			}
+			List<RoadSegment> expected = road.getNeighbors();
+			expected.retainAll( map.getRoadSegments() );
+			assertEquals( expected, neighbors );
+			int last = -1;
+			for ( int e = topology.getInEdgeStart(i); e < topology.getInEdgeEnd(i); e++ ) {
+				int source = topology.getSource(e);
+				assertTrue( source >= last );
+				assertTrue( topology.getRoadSegment(source).getNeighbors().contains( road ) );
+				last = source;
+			}
+		}
+		assertEquals( 3, topology.getInEdgeEnd( topology.size() - 1 ) );
+	}
+
+	@Test
+	public void topologyIsRebuiltAfterChanges() {
+		MapTopology topology = map.getTopology();
+		assertSame( topology, map.getTopology() );
+		map.addEdge( 0, 2 );
+		MapTopology changed = map.getTopology();
+		assertNotSame( topology, changed );
+		assertEquals( 1, changed.getEdgeCount() );
+		assertEquals( 0, topology.getEdgeCount() );
+		map.getRoadSegment(0).removeEdge( map.getRoadSegment(2) );
+		assertEquals( 0, map.getTopology().getEdgeCount() );
+		map.addRoadSegment( new RoadSegment( 100, new LinearTrafficDelayFunction(), 1, 1 ) );
+		assertEquals( 5, map.getTopology().size() );
+	}
+
+	@Test
+	public void arbitraryIDs() {
+		for ( int id : new int[] { Integer.MAX_VALUE, 2000000000, -5, Integer.MIN_VALUE, 3 } ) {
+			map.addRoadSegment( new RoadSegment( id, new LinearTrafficDelayFunction(), 1, 1 ) );
+		}
+		for ( int i = 0; i < 1000; i++ ) {
+			map.addRoadSegment( new RoadSegment( 1000 * i + 17, new LinearTrafficDelayFunction(), 1, 1 ) );
+		}
+		assertEquals( 1009, map.getRoadSegmentCount() );
+		assertEquals( Integer.MAX_VALUE, map.getRoadSegment( Integer.MAX_VALUE ).getID() );
+		assertEquals( -5, map.getRoadSegment(-5).getID() );
+		assertEquals( 999017, map.getRoadSegment(999017).getID() );
+		assertNull( map.getRoadSegment(2000000001) );
+		assertNull( map.getRoadSegment(-4) );
+		List<RoadSegment> roads = map.getRoadSegments();
+		assertEquals( Integer.MIN_VALUE, roads.get(0).getID() );
+		assertEquals( Integer.MAX_VALUE, roads.get( roads.size() - 1 ).getID() );
+		for ( int i = 0; i < roads.size(); i++ ) {
+			assertEquals( i, map.getIndex( roads.get(i) ) );
+			assertTrue( i == 0 || roads.get(i - 1).getID() < roads.get(i).getID() );
+		}
+		map.addEdge( Integer.MAX_VALUE, -5 );
+		MapTopology topology = map.getTopology();
+		assertEquals( 1, topology.getEdgeCount() );
+		int from = topology.getIndex( map.getRoadSegment( Integer.MAX_VALUE ) );
+		assertEquals( roads.size() - 1, from );
+		assertEquals( map.getIndex( map.getRoadSegment(-5) ), topology.getTarget( topology.getEdgeStart(from) ) );
+		map.getRoadSegment( Integer.MAX_VALUE ).setClosed( true );
+		assertEquals( 1, map.getDelayChanges().getVersion() );
+	}
+
+	@Test
+	public void cachesAreCreatedOnce() {
+		final List<AdasimMap> created = new ArrayList<AdasimMap>();
+		AdasimMap.Factory<StringBuilder> factory = new AdasimMap.Factory<StringBuilder>() {
+			@Override
+			public StringBuilder create( AdasimMap m ) {
+				created.add( m );
+				return new StringBuilder();
+			}
+		};
+		StringBuilder cache = map.getCache( StringBuilder.class, factory );
+		assertSame( cache, map.getCache( StringBuilder.class, factory ) );
+		assertEquals( 1, created.size() );
+		assertSame( map, created.get(0) );
+		AdasimMap other = new AdasimMap( new ArrayList<RoadSegment>() );
+		assertNotSame( cache, other.getCache( StringBuilder.class, factory ) );
+		assertEquals( 2, created.size() );
+	}
+
+	@Test(expected=UnsupportedOperationException.class)
+	public void segmentListIsReadOnly() {
+		map.getRoadSegments().clear();
+	}
+}
@@ -0,0 +1,156 @@
+/*******************************************************************************
+ * Copyright (c) 2011 - Jochen Wuttke.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ********************************************************************************
+ *
+ * Created: Oct 18, 2026
+ */
+
+
+package adasim.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import adasim.LoggingTest;
+import adasim.algorithm.delay.LinearTrafficDelayFunction;
+
+import static org.junit.Assert.*;
+
+public class DelayChangeLogTest extends LoggingTest {
+
+	private AdasimMap map;
+	private DelayChangeLog log;
+
+	@Before
+	public void setUp() {
+		List<RoadSegment> roads = new ArrayList<RoadSegment>();
+		//without capacity, every vehicle changes the delay
+		for ( int i = 0; i < 4; i++ ) {
+			roads.add( new RoadSegment( i, new LinearTrafficDelayFunction(), 1, 0 ) );
+		}
+		map = new AdasimMap( roads );
+		log = map.getDelayChanges();
+	}
+
+	@Test
+	public void roadsReportChanges() {
+		long start = log.getPosition();
+		RoadSegment road = map.getRoadSegment(1);
+		Vehicle v = new Vehicle( road, road, null, 0 );
+		road.enterNode( v );
+		map.getRoadSegment(2).setClosed( true );
+		List<RoadSegment> changes = new ArrayList<RoadSegment>();
+		long next = log.read( start, changes );
+		assertEquals( 2, changes.size() );
+		assertSame( road, changes.get(0) );
+		assertSame( map.getRoadSegment(2), changes.get(1) );
+		changes.clear();
+		assertEquals( next, log.read( next, changes ) );
+		assertTrue( changes.isEmpty() );
+		road.park( v );
+		assertEquals( next + 1, log.read( next, changes ) );
+		assertSame( road, changes.get(0) );
+	}
+
+	@Test
+	public void roadsAreAddedOnceUntilRead() {
+		long start = log.getPosition();
+		RoadSegment road = map.getRoadSegment(3);
+		for ( int i = 0; i < 5; i++ ) {
+			road.enterNode( new Vehicle( road, road, null, i ) );
+		}
+		List<RoadSegment> changes = new ArrayList<RoadSegment>();
+		long next = log.read( start, changes );
+		assertEquals( 1, changes.size() );
+		road.setClosed( true );
+		changes.clear();
+		log.read( next, changes );
+		assertEquals( 1, changes.size() );
+		changes.clear();
+		log.read( start, changes );
+		assertEquals( 2, changes.size() );
+	}
+
+	@Test
+	public void onlyChangedDelaysAreReported() {
+		RoadSegment road = new RoadSegment( 4, new LinearTrafficDelayFunction(), 1, 2 );
+		map.addRoadSegment( road );
+		long start = log.getPosition(), version = log.getVersion();
+		road.enterNode( new Vehicle( road, road, null, 0 ) );
+		road.enterNode( new Vehicle( road, road, null, 1 ) );
+		road.setClosed( false );
+		road.setCapacity( 2 );
+		assertEquals( 0, road.getDelayVersion() );
+		assertEquals( version, log.getVersion() );
+		List<RoadSegment> changes = new ArrayList<RoadSegment>();
+		assertEquals( start, log.read( start, changes ) );
+		road.enterNode( new Vehicle( road, road, null, 2 ) );
+		assertEquals( 1, road.getDelayVersion() );
+		road.setClosed( true );
+		assertEquals( 2, road.getDelayVersion() );
+		assertEquals( version + 2, log.getVersion() );
+		log.read( start, changes );
+		assertEquals( 1, changes.size() );
+	}
+
+	@Test
+	public void changedRoadsPerCycle() {
+		map.setCycle( 1 );
+		map.getRoadSegment(1).setClosed( true );
+		map.getRoadSegment(2).setClosed( true );
+		map.getRoadSegment(1).setClosed( false );
+		assertEquals( roads( 1, 2 ), changedRoads(1) );
+		map.setCycle( 2 );
+		assertTrue( changedRoads(2).isEmpty() );
+		map.getRoadSegment(3).setClosed( true );
+		assertEquals( roads( 3 ), changedRoads(2) );
+		assertEquals( roads( 1, 2 ), changedRoads(1) );
+		map.setCycle( 5 );
+		map.getRoadSegment(0).setClosed( true );
+		assertEquals( roads( 0 ), changedRoads(5) );
+		assertTrue( changedRoads(4).isEmpty() );
+		assertEquals( roads( 3 ), changedRoads(2) );
+		List<RoadSegment> changes = roads( 2 );
+		assertFalse( log.getChangedRoads( 1, changes ) );
+		assertEquals( roads( 2 ), changes );
+		assertTrue( log.getChangedRoads( 5, changes ) );
+		assertEquals( roads( 2, 0 ), changes );
+	}
+	
+	private List<RoadSegment> changedRoads( long cycle ) {
+		List<RoadSegment> changes = new ArrayList<RoadSegment>();
+		assertTrue( log.getChangedRoads( cycle, changes ) );
+		return changes;
+	}
+
+	@Test
+	public void readersThatFallBehindStartOver() {
+		long start = log.getPosition();
+		RoadSegment road = map.getRoadSegment(0);
+		for ( int i = 0; i <= DelayChangeLog.CAPACITY; i++ ) {
+			road.setClosed( i % 2 == 0 );
+			log.getPosition();
+		}
+		List<RoadSegment> changes = new ArrayList<RoadSegment>();
+		assertEquals( -1, log.read( start, changes ) );
+		assertTrue( changes.isEmpty() );
+		long recent = log.getPosition() - 10;
+		assertEquals( recent + 10, log.read( recent, changes ) );
+		assertEquals( 10, changes.size() );
+	}
+
+	private List<RoadSegment> roads( int... ids ) {
+		List<RoadSegment> roads = new ArrayList<RoadSegment>();
+		for ( int id : ids ) {
+			roads.add( map.getRoadSegment(id) );
+		}
+		return roads;
+	}
+}
@@ -17,6 +17,7 @@ package adasim.model;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.junit.Before;
@@ -119,6 +120,42 @@ public class RoadSegmentTest extends LoggingTest {
 		assertEquals( 2, ReflectionUtils.getProperty(node2, "getCurrentDelay") );	//this should imply that the car is still waiting
 	}
 	
+	/**
+	 * Vehicles leave in the order of their type, and vehicles of the 
+	 * same type in the order in which they entered.
+	 */
+	@Test
+	public void departuresAreSortedStably() {
+		RoadSegment road = new RoadSegment(2, new LinearTrafficDelayFunction(), 1, 100 );
+		final List<Integer> departures = new ArrayList<Integer>();
+		for ( int i = 0; i < 23; i++ ) {
+			Vehicle v = new Vehicle( road, null, new AbstractRoutingAlgorithm() {
+				
+				@Override
+				public List<RoadSegment> getPath(RoadSegment from, RoadSegment to) {
+					return null;
+				}
+				
+				@Override
+				public RoadSegment getNextNode() {
+					departures.add( vehicle.getID() );
+					return null;
+				}
+			}, i );
+			v.setCarType( (i * 7) % 3 );
+			road.enterNode(v);
+		}
+		road.takeSimulationStep(1);
+		road.takeSimulationStep(2);
+		List<Integer> expected = new ArrayList<Integer>();
+		for ( int type = 2; type >= 0; type-- ) {
+			for ( int i = 0; i < 23; i++ ) {
+				if ( (i * 7) % 3 == type ) expected.add(i);
+			}
+		}
+		assertEquals( expected, departures );
+	}
+	
 	@Test
 	public void routingFromConfig() throws FileNotFoundException, ConfigurationException {
 		TrafficSimulator sim = SimulationXMLReader.buildSimulator( new File("resources/test/config.xml") );
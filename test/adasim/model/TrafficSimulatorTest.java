@@ -15,21 +15,39 @@
 package adasim.model;
 
 import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.spi.LoggerRepository;
 import org.jdom.JDOMException;
 import org.junit.Test;
 
 import adasim.LoggingTest;
+import adasim.agent.AdasimAgent;
+import adasim.algorithm.delay.LinearTrafficDelayFunction;
+import adasim.algorithm.routing.CongestionAwareRoutingAlgorithm;
+import adasim.algorithm.routing.CustomizableHierarchyCache;
 import adasim.algorithm.routing.LookaheadShortestPathRoutingAlgorithm;
 import adasim.algorithm.routing.RoutingAlgorithm;
+import adasim.algorithm.routing.ShortestPathRoutingAlgorithm;
+import adasim.event.CsvEventSink;
 import adasim.model.ConfigurationException;
 import adasim.model.TrafficSimulator;
+import adasim.model.internal.CheckpointWriter;
 import adasim.model.internal.SimulationXMLReader;
+import adasim.model.internal.VehicleManager;
 
 
 
@@ -115,4 +133,317 @@ public class TrafficSimulatorTest extends LoggingTest {
 		sim.takeSimulationStep();	//cycle 8
 		assertTrue("Simulator not stopping", sim.isFinished() );
 	}
+
+	@Test
+	public void eventDrivenRunMatchesSteppedRun() throws IOException {
+		TrafficSimulator events = buildDelayedSimulation();
+		events.setEventDriven(true);
+		assertSameRun( buildDelayedSimulation(), events );
+		assertEquals( 8, events.getAgents(Vehicle.class).size() );
+		events = buildCongestedSimulation();
+		events.setEventDriven(true);
+		assertSameRun( buildCongestedSimulation(), events );
+	}
+
+	@Test
+	public void parallelRunMatchesSteppedRun() throws IOException {
+		TrafficSimulator parallel = buildDelayedSimulation();
+		parallel.setThreads(3);
+		assertSameRun( buildDelayedSimulation(), parallel );
+		parallel = buildCongestedSimulation();
+		parallel.setThreads(3);
+		assertSameRun( buildCongestedSimulation(), parallel );
+		//delays changed while routes were computed ahead of time
+		assertTrue( parallel.getMap().getDelayChanges().getVersion() > 100 );
+		parallel = buildCongestedSimulation();
+		parallel.setThreads(3);
+		parallel.setEventDriven(true);
+		assertSameRun( buildCongestedSimulation(), parallel );
+	}
+
+	/**
+	 * Congestion aware vehicles route over weights computed from the delays
+	 * at the start of a cycle, which must not depend on whether routes are
+	 * computed ahead of time by several threads.
+	 */
+	@Test
+	public void congestionAwareRunDoesNotDependOnThreads() throws IOException {
+		TrafficSimulator parallel = buildCongestedSimulation( true );
+		parallel.setThreads(3);
+		CustomizableHierarchyCache.forMap( parallel.getMap() ).setParallelism(3);
+		assertSameRun( buildCongestedSimulation( true ), parallel );
+		parallel = buildCongestedSimulation( true );
+		parallel.setThreads(3);
+		parallel.setEventDriven(true);
+		assertSameRun( buildCongestedSimulation( true ), parallel );
+	}
+
+	/**
+	 * Two vehicles pass along a chain of roads one after the other. Each
+	 * road must only be stepped while it holds a vehicle, and roads that 
+	 * never hold one are never stepped.
+	 */
+	@Test
+	public void onlyRoadsWithVehiclesAreStepped() {
+		List<RoadSegment> roads = new ArrayList<RoadSegment>();
+		for ( int i = 0; i < 6; i++ ) {
+			roads.add( new RoadSegment( i, new LinearTrafficDelayFunction(), 2, 1 ) );
+		}
+		roads.get(0).addEdge( roads.get(1) );
+		roads.get(1).addEdge( roads.get(2) );
+		AdasimMap map = new AdasimMap( roads );
+		VehicleManager manager = new VehicleManager();
+		for ( int i = 0; i < 2; i++ ) {
+			Vehicle v = new Vehicle( roads.get(0), roads.get(2), new LookaheadShortestPathRoutingAlgorithm(0), i );
+			v.getStrategy().setMap(map);
+			manager.addVehicle( v, 1 + 14 * i );
+		}
+		TrafficSimulator sim = new TrafficSimulator( map, manager, new ArrayList<AdasimAgent>() );
+		List<List<Long>> stepped = new ArrayList<List<Long>>();
+		for ( int i = 0; i < roads.size(); i++ ) {
+			stepped.add( new ArrayList<Long>() );
+		}
+		for ( int c = 0; c < 30; c++ ) {
+			sim.takeSimulationStep();
+			for ( int i = 0; i < roads.size(); i++ ) {
+				if ( roads.get(i).getLastCycle() == sim.getCycle() ) {
+					stepped.get(i).add( sim.getCycle() );
+				}
+			}
+		}
+		assertEquals( Arrays.asList( 1L, 2L, 3L, 15L, 16L, 17L ), stepped.get(0) );
+		assertEquals( Arrays.asList( 3L, 4L, 5L, 17L, 18L, 19L ), stepped.get(1) );
+		assertEquals( Arrays.asList( 5L, 6L, 7L, 19L, 20L, 21L ), stepped.get(2) );
+		for ( int i = 3; i < roads.size(); i++ ) {
+			assertTrue( stepped.get(i).isEmpty() );
+		}
+	}
+
+	@Test
+	public void reportsEvents() throws IOException {
+		TrafficSimulator sim = buildDelayedSimulation();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		CsvEventSink events = new CsvEventSink( out );
+		sim.setEventSink( events );
+		sim.run();
+		events.close();
+		int[] counts = new int[6];
+		List<String> types = Arrays.asList( "START", "ENTER", "MOVE", "STOP", "PATH", "INVALID" );
+		long last = 0;
+		String[] lines = out.toString().split( "\n" );
+		for ( int i = 1; i < lines.length; i++ ) {
+			String[] fields = lines[i].split( ",", -1 );
+			long cycle = Long.parseLong( fields[0] );
+			assertTrue( cycle >= last );
+			last = cycle;
+			if ( types.contains( fields[1] ) ) {
+				counts[ types.indexOf( fields[1] ) ]++;
+			}
+		}
+		assertEquals( sim.getCycle(), last );
+		assertEquals( 8, counts[0] );
+		assertEquals( counts[1], counts[0] + counts[2] );
+		assertEquals( 8, counts[3] );
+		assertEquals( 8, counts[4] );
+		assertEquals( 0, counts[5] );
+	}
+
+	@Test
+	public void restoredCheckpointContinuesRun() throws IOException {
+		File dir = File.createTempFile( "checkpoint", "" );
+		assertTrue( dir.delete() && dir.mkdir() );
+		try {
+			TrafficSimulator sim = buildDelayedSimulation();
+			CheckpointWriter writer = new CheckpointWriter( new File( dir, "%d.ck" ).getPath() );
+			sim.setCheckpoints( writer, 20 );
+			List<String> full = runWithEvents( sim );
+			writer.close();
+			assertTrue( sim.getCycle() > 40 );
+			
+			TrafficSimulator restored = buildDelayedSimulation();
+			restored.restoreCheckpoint( CheckpointWriter.read( new File( dir, "40.ck" ).getPath() ) );
+			assertEquals( 40, restored.getCycle() );
+			List<String> tail = runWithEvents( restored );
+			assertEquals( sim.getCycle(), restored.getCycle() );
+			List<String> expected = new ArrayList<String>();
+			for ( String line : full ) {
+				if ( Long.parseLong( line.substring( 0, line.indexOf(',') ) ) > 40 ) {
+					expected.add( line );
+				}
+			}
+			assertFalse( expected.isEmpty() );
+			assertEquals( expected, tail );
+		} finally {
+			for ( File f : dir.listFiles() ) {
+				f.delete();
+			}
+			dir.delete();
+		}
+	}
+
+	@Test(expected=IOException.class)
+	public void checkpointMustMatchSimulation() throws IOException {
+		TrafficSimulator sim = buildDelayedSimulation();
+		sim.run();
+		CheckpointOutput out = new CheckpointOutput();
+		sim.writeCheckpoint( out );
+		ByteBuffer data = ByteBuffer.allocate( out.getBuffer().remaining() );
+		data.put( out.getBuffer() ).flip();
+		data.put( 0, (byte)'X' );
+		buildDelayedSimulation().restoreCheckpoint( data );
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void noThreads() {
+		buildDelayedSimulation().setThreads(0);
+	}
+
+	/**
+	 * Once all vehicles are on the road and have their routes, stepping
+	 * the simulation must not allocate memory. The best of several windows
+	 * counts, so that one-off allocations by the JIT do not fail the test.
+	 */
+	@Test
+	public void steadyStateStepsDoNotAllocate() {
+		final int cycles = 60;
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		assumeTrue( bean instanceof com.sun.management.ThreadMXBean );
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+		assumeTrue( threads.isThreadAllocatedMemorySupported() );
+		threads.setThreadAllocatedMemoryEnabled(true);
+		
+		List<RoadSegment> roads = new ArrayList<RoadSegment>();
+		for ( int i = 0; i < 100; i++ ) {
+			roads.add( new RoadSegment( i, new LinearTrafficDelayFunction(), 5, 10 ) );
+		}
+		for ( int i = 0; i < 99; i++ ) {
+			roads.get(i).addEdge( roads.get(i+1) );
+		}
+		AdasimMap map = new AdasimMap( roads );
+		VehicleManager manager = new VehicleManager();
+		for ( int i = 0; i < 10; i++ ) {
+			Vehicle v = new Vehicle( roads.get(0), roads.get(99), new ShortestPathRoutingAlgorithm(), i );
+			v.getStrategy().setMap(map);
+			manager.addVehicle( v, 1 + 3 * i );
+		}
+		TrafficSimulator sim = new TrafficSimulator( map, manager, new ArrayList<AdasimAgent>() );
+		
+		LoggerRepository repository = LogManager.getLoggerRepository();
+		Level threshold = repository.getThreshold();
+		repository.setThreshold( Level.WARN );
+		try {
+			//all vehicles enter and compute their routes
+			for ( int i = 0; i < 100; i++ ) {
+				sim.takeSimulationStep();
+			}
+			long thread = Thread.currentThread().getId();
+			long overhead = -threads.getThreadAllocatedBytes(thread) + threads.getThreadAllocatedBytes(thread);
+			long allocated = Long.MAX_VALUE;
+			for ( int w = 0; w < 5; w++ ) {
+				long before = threads.getThreadAllocatedBytes(thread);
+				for ( int i = 0; i < cycles; i++ ) {
+					sim.takeSimulationStep();
+				}
+				allocated = Math.min( allocated, threads.getThreadAllocatedBytes(thread) - before - overhead );
+			}
+			assertTrue( "Allocated " + allocated + " bytes in " + cycles + " cycles", allocated < cycles );
+		} finally {
+			repository.setThreshold( threshold );
+		}
+		assertEquals( 10, sim.getAgents(Vehicle.class).size() );
+		for ( Vehicle v : sim.getAgents(Vehicle.class) ) {
+			assertFalse( "Vehicle finished during measurement", v.isFinished() );
+		}
+	}
+
+	/**
+	 * Runs both simulations and checks that they report the same events
+	 * in the same cycles, and that all vehicles finish.
+	 */
+	private void assertSameRun( TrafficSimulator expected, TrafficSimulator actual ) throws IOException {
+		List<String> events = runWithEvents( expected );
+		assertEquals( events, runWithEvents( actual ) );
+		assertEquals( expected.getCycle(), actual.getCycle() );
+		for ( Vehicle v : actual.getAgents(Vehicle.class) ) {
+			assertTrue( "Vehicle not finished", v.isFinished() );
+		}
+	}
+
+	private List<String> runWithEvents( TrafficSimulator sim ) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		CsvEventSink events = new CsvEventSink( out );
+		sim.setEventSink( events );
+		sim.run();
+		events.close();
+		List<String> lines = new ArrayList<String>( Arrays.asList( out.toString().split( "\n" ) ) );
+		lines.remove(0);
+		return lines;
+	}
+
+	private TrafficSimulator buildDelayedSimulation() {
+		List<RoadSegment> roads = new ArrayList<RoadSegment>();
+		for ( int i = 0; i < 6; i++ ) {
+			roads.add( new RoadSegment( i, new LinearTrafficDelayFunction(), 3 + 2 * i, 1 ) );
+		}
+		for ( int i = 0; i < 5; i++ ) {
+			roads.get(i).addEdge( roads.get(i+1) );
+		}
+		roads.get(0).addEdge( roads.get(3) );
+		roads.get(5).addEdge( roads.get(0) );
+		AdasimMap map = new AdasimMap( roads );
+		VehicleManager manager = new VehicleManager();
+		for ( int i = 0; i < 8; i++ ) {
+			Vehicle v = new Vehicle( roads.get(i % 3), roads.get(5 - i % 2), new LookaheadShortestPathRoutingAlgorithm(2), i );
+			v.getStrategy().setMap(map);
+			if ( i == 4 ) v.setCarType( VehicleType.specailCAR.ordinal() );
+			manager.addVehicle( v, 1 + 7 * i );
+		}
+		return new TrafficSimulator( map, manager, new ArrayList<AdasimAgent>() );
+	}
+
+	/**
+	 * A grid of 6 by 6 roads with capacity 1, with 40 vehicles that start 
+	 * within a few cycles of each other and slow each other down. Their
+	 * routes depend on the current delays, so routes computed ahead of
+	 * time are often out of date.
+	 */
+	private TrafficSimulator buildCongestedSimulation() {
+		return buildCongestedSimulation( false );
+	}
+	
+	/**
+	 * @param congestionAware if set, every other vehicle routes with 
+	 * {@link CongestionAwareRoutingAlgorithm} over weights computed every
+	 * 3 cycles, and recomputes its path every 3 moves, instead of with a
+	 * lookahead of 3
+	 * @return the simulation of {@link #buildCongestedSimulation()}
+	 */
+	private TrafficSimulator buildCongestedSimulation( boolean congestionAware ) {
+		final int width = 6;
+		List<RoadSegment> roads = new ArrayList<RoadSegment>();
+		for ( int i = 0; i < width * width; i++ ) {
+			roads.add( new RoadSegment( i, new LinearTrafficDelayFunction(), 2 + i % 3, 1 ) );
+		}
+		for ( int i = 0; i < width * width; i++ ) {
+			if ( i % width + 1 < width ) {
+				roads.get(i).addEdge( roads.get(i+1) );
+				roads.get(i+1).addEdge( roads.get(i) );
+			}
+			if ( i + width < width * width ) {
+				roads.get(i).addEdge( roads.get(i+width) );
+				roads.get(i+width).addEdge( roads.get(i) );
+			}
+		}
+		AdasimMap map = new AdasimMap( roads );
+		CustomizableHierarchyCache.forMap( map ).setInterval(3);
+		VehicleManager manager = new VehicleManager();
+		for ( int i = 0; i < 40; i++ ) {
+			RoutingAlgorithm strategy = ( congestionAware && i % 2 == 0 ? new CongestionAwareRoutingAlgorithm(3) 
+					: new LookaheadShortestPathRoutingAlgorithm(3, 1) );
+			Vehicle v = new Vehicle( roads.get( (7 * i) % 36 ), roads.get( 35 - (11 * i) % 36 ), strategy, i );
+			v.getStrategy().setMap(map);
+			manager.addVehicle( v, 1 + i / 4 );
+		}
+		return new TrafficSimulator( map, manager, new ArrayList<AdasimAgent>() );
+	}
 }
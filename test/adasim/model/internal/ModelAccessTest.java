@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * Copyright (c) 2011 - Jochen Wuttke.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ********************************************************************************
+ *
+ * Created: Oct 18, 2026
+ */
+package adasim.model.internal;
+
+import java.lang.reflect.Modifier;
+
+import org.junit.Test;
+
+import adasim.algorithm.delay.LinearTrafficDelayFunction;
+import adasim.algorithm.routing.LookaheadShortestPathRoutingAlgorithm;
+import adasim.filter.FakeFilter;
+import adasim.model.RoadSegment;
+import adasim.model.Vehicle;
+import static org.junit.Assert.*;
+
+public class ModelAccessTest {
+
+	@Test
+	public void bypassesFilters() {
+		RoadSegment start = new RoadSegment( 1, new LinearTrafficDelayFunction(), 3, 5 );
+		RoadSegment end = new RoadSegment( 2, new LinearTrafficDelayFunction(), 1, 1 );
+		start.setUncertaintyFilter( new FakeFilter() );
+		assertEquals( 4, start.getDelay( ModelAccessTest.class ) );
+		assertEquals( 6, start.getCapacity( ModelAccessTest.class ) );
+		
+		ModelAccess access = ModelAccess.get();
+		assertEquals( 3, access.getDelay( start ) );
+		assertEquals( 5, access.getCapacity( start ) );
+
+		Vehicle v = new Vehicle( start, end, new LookaheadShortestPathRoutingAlgorithm(0), 7 );
+		v.setUncertaintyFilter( new FakeFilter() );
+		assertNull( v.getStartNode( ModelAccessTest.class ) );
+		assertSame( start, access.getStartNode( v ) );
+		assertSame( end, access.getEndNode( v ) );
+		assertSame( start, access.getCurrentPosition( v ) );
+	}
+
+	@Test(expected=IllegalStateException.class)
+	public void accessIsSetOnce() {
+		ModelAccess.setAccess( ModelAccess.get() );
+	}
+	
+	@Test
+	public void onlyThisPackageGetsAccess() throws NoSuchMethodException {
+		int get = ModelAccess.class.getDeclaredMethod( "get" ).getModifiers();
+		assertFalse( Modifier.isPublic( get ) || Modifier.isProtected( get ) );
+		assertFalse( Modifier.isPublic( ModelAccess.class.getDeclaredMethod( "setAccess", ModelAccess.class ).getModifiers() ) );
+	}
+}
@@ -19,8 +19,11 @@ import java.util.Set;
 import org.junit.Before;
 import org.junit.Test;
 
+import adasim.algorithm.delay.LinearTrafficDelayFunction;
 import adasim.algorithm.routing.LookaheadShortestPathRoutingAlgorithm;
+import adasim.model.RoadSegment;
 import adasim.model.Vehicle;
+import adasim.model.VehicleType;
 import adasim.model.internal.RoadVehicleQueue;
 import static org.junit.Assert.*;
 
@@ -86,4 +89,90 @@ public class RoadVehicleQueueTest {
 		assertTrue( queue.isEmpty() );
 	}
 
+	@Test
+	public void specialVehicleMovesFirst() {
+		RoadSegment r = new RoadSegment(0, new LinearTrafficDelayFunction(), 0 );
+		Vehicle c0 = new Vehicle(r, null, new LookaheadShortestPathRoutingAlgorithm(0), 0);
+		Vehicle c1 = new Vehicle(r, null, new LookaheadShortestPathRoutingAlgorithm(0), 1);
+		Vehicle s2 = new Vehicle(r, null, new LookaheadShortestPathRoutingAlgorithm(0), 2);
+		s2.setCarType(VehicleType.specailCAR.ordinal());
+		queue.enqueue(c0, 0);
+		queue.enqueue(c1, 1);
+		queue.enqueue(s2, 2);
+		Set<Vehicle> s = queue.moveVehicles();
+		assertEquals(1, s.size());
+		assertEquals( s2, s.iterator().next() );
+		s = queue.moveVehicles();
+		assertEquals(1, s.size());
+		assertEquals( c0, s.iterator().next() );
+		s = queue.moveVehicles();
+		assertEquals(1, s.size());
+		assertEquals( c1, s.iterator().next() );
+		assertTrue( queue.isEmpty() );
+	}
+	
+	@Test
+	public void longDelaysWrapAround() {
+		RoadSegment r = new RoadSegment(0, new LinearTrafficDelayFunction(), 0 );
+		Vehicle c0 = new Vehicle(r, null, new LookaheadShortestPathRoutingAlgorithm(0), 0);
+		Vehicle c1 = new Vehicle(r, null, new LookaheadShortestPathRoutingAlgorithm(0), 1);
+		queue.enqueue(c0, 10);
+		for ( int i = 0; i < 10; i++ ) {
+			assertNull( queue.moveVehicles() );
+		}
+		queue.enqueue(c1, 40);
+		assertEquals( 2, queue.size() );
+		Set<Vehicle> s = queue.moveVehicles();
+		assertEquals(1, s.size());
+		assertEquals( c0, s.iterator().next() );
+		for ( int i = 0; i < 39; i++ ) {
+			assertNull( queue.moveVehicles() );
+		}
+		s = queue.moveVehicles();
+		assertEquals(1, s.size());
+		assertEquals( c1, s.iterator().next() );
+		assertTrue( queue.isEmpty() );
+	}
+	
+	@Test
+	public void countsVehiclesByType() {
+		int special = VehicleType.specailCAR.ordinal();
+		int normal = VehicleType.normalCAR.ordinal();
+		RoadSegment r = new RoadSegment(0, new LinearTrafficDelayFunction(), 0 );
+		Vehicle c0 = new Vehicle(r, null, new LookaheadShortestPathRoutingAlgorithm(0), 0);
+		Vehicle c1 = new Vehicle(r, null, new LookaheadShortestPathRoutingAlgorithm(0), 1);
+		Vehicle s2 = new Vehicle(r, null, new LookaheadShortestPathRoutingAlgorithm(0), 2);
+		Vehicle t3 = new Vehicle(r, null, new LookaheadShortestPathRoutingAlgorithm(0), 3);
+		s2.setCarType( special );
+		t3.setCarType( 7 );
+		queue.enqueue(c0, 0);
+		queue.enqueue(c1, 3);
+		queue.enqueue(s2, 2);
+		queue.enqueue(t3, 20);
+		assertEquals( 4, queue.size() );
+		assertEquals( 2, queue.size( normal ) );
+		assertEquals( 1, queue.size( special ) );
+		assertEquals( 1, queue.size( 7 ) );
+		assertEquals( 0, queue.size( 3 ) );
+		assertEquals( 0, queue.size( -1 ) );
+		assertTrue( queue.hasSpecailVehicles() );
+		
+		queue.moveVehicles();
+		assertEquals( 3, queue.size() );
+		assertEquals( 0, queue.size( special ) );
+		assertFalse( queue.hasSpecailVehicles() );
+		
+		queue.park( c1 );
+		queue.park( c1 );
+		assertEquals( 2, queue.size() );
+		assertEquals( 1, queue.size( normal ) );
+		assertEquals( 1, queue.parkedSize() );
+		
+		queue.moveVehicles();
+		assertEquals( 1, queue.size() );
+		assertEquals( 0, queue.size( normal ) );
+		assertFalse( queue.isEmpty() );
+		assertEquals( 18, queue.nextDeparture() );
+	}
+
 }
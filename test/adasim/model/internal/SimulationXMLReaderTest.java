@@ -16,10 +16,18 @@ package adasim.model.internal;
 
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.jdom.JDOMException;
 import org.junit.Test;
@@ -27,6 +35,7 @@ import org.junit.Test;
 import adasim.agent.AbstractAdasimAgent;
 import adasim.algorithm.delay.QuadraticTrafficDelayFunction;
 import adasim.algorithm.routing.LookaheadShortestPathRoutingAlgorithm;
+import adasim.event.CsvEventSink;
 import adasim.filter.FakeFilter;
 import adasim.filter.IdentityFilter;
 import adasim.model.AdasimMap;
@@ -262,5 +271,39 @@ public class SimulationXMLReaderTest {
 		assertNotNull( "No default privacy filter configured", agent.getPrivacyFilter( this.getClass() ) );
 		assertEquals( "Default privacy filter has wrong type", IdentityFilter.class, agent.getPrivacyFilter( this.getClass() ).getClass() );		
 	}
+	
+	@Test
+	public void concurrentBuildsAreIndependent() throws Exception {
+		//Q-learning is randomized, so the test uses a deterministic strategy instead
+		String xml = new String( Files.readAllBytes( Paths.get( "resources/test/config.xml" ) ), "UTF-8" );
+		final File config = File.createTempFile( "config", ".xml" );
+		config.deleteOnExit();
+		Files.write( config.toPath(), xml.replace( "QLearningRoutingAlgorithm", "LookaheadShortestPathRoutingAlgorithm" ).getBytes( "UTF-8" ) );
+		Callable<String> run = new Callable<String>() {
+			@Override
+			public String call() throws Exception {
+				TrafficSimulator sim = SimulationXMLReader.buildSimulator( config );
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				CsvEventSink events = new CsvEventSink( out );
+				sim.setEventSink( events );
+				sim.run();
+				events.close();
+				return out.toString();
+			}
+		};
+		String expected = run.call();
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<String>> results = new ArrayList<Future<String>>();
+			for ( int i = 0; i < 4; i++ ) {
+				results.add( pool.submit( run ) );
+			}
+			for ( Future<String> r : results ) {
+				assertEquals( expected, r.get() );
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
 
 }
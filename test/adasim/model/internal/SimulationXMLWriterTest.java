@@ -12,17 +12,15 @@
  * Created: Dec 12, 2011
  */
 
-package adasim.generator;
+package adasim.model.internal;
 
 import java.io.File;
 import java.io.IOException;
 
 import org.junit.Test;
 
-import adasim.generator.SimulationXMLWriter;
 import adasim.model.ConfigurationException;
 import adasim.model.TrafficSimulator;
-import adasim.model.internal.SimulationXMLReader;
 import static org.junit.Assert.assertTrue;
 
 
@@ -35,6 +35,7 @@ import java.io.IOException;
 import java.io.StringReader;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -47,6 +48,7 @@ import org.junit.Test;
 import pjunit.ProtectedAccessor;
 
 import adasim.LoggingTest;
+import adasim.algorithm.delay.LinearTrafficDelayFunction;
 import adasim.agent.AdasimAgent;
 import adasim.model.AdasimMap;
 import adasim.model.ConfigurationException;
@@ -104,6 +106,94 @@ public class VehicleManagerTest extends LoggingTest {
 		assertEquals( 0, getQueue(manager).size() );
 	}
 	
+	@Test
+	public void vehiclesStartInScheduledOrder() {
+		RoadSegment start = new RoadSegment( 1, new LinearTrafficDelayFunction(), 2, 5 );
+		graph = new AdasimMap( Arrays.asList( start ) );
+		TrafficSimulator sim = new TrafficSimulator(graph, manager, new ArrayList<AdasimAgent>() );
+		long[] times = { 7, 3, 5, 3, 7, 2 };
+		for ( int i = 0; i < times.length; i++ ) {
+			manager.addVehicle( new Vehicle(start, null, null, i), times[i] );
+		}
+		assertEquals( 2, manager.getNextCycle(1) );
+		int[] expected = { 5, 1, 3, 2, 0, 4 };
+		for ( long cycle = 1; cycle <= 7; cycle++ ) {
+			manager.takeSimulationStep(cycle);
+		}
+		assertTrue( manager.isFinished() );
+		assertEquals( Long.MAX_VALUE, manager.getNextCycle(7) );
+		for ( int i = 0; i < expected.length; i++ ) {
+			assertEquals( expected[i], ((Vehicle)sim.getAgents().get(i)).getID() );
+		}
+	}
+	
+	@Test
+	public void sourcesAreReadWhenVehiclesAreDue() {
+		final RoadSegment start = new RoadSegment( 1, new LinearTrafficDelayFunction(), 2, 5 );
+		graph = new AdasimMap( Arrays.asList( start ) );
+		TrafficSimulator sim = new TrafficSimulator(graph, manager, new ArrayList<AdasimAgent>() );
+		final int[] created = new int[1];
+		manager.addSource( new VehicleSource() {
+			@Override
+			public long nextStartTime() {
+				return created[0] < 100 ? 10 * ( created[0] + 1 ) : Long.MAX_VALUE;
+			}
+			@Override
+			public Vehicle next() {
+				return new Vehicle(start, null, null, created[0]++);
+			}
+		});
+		manager.setLookahead(5);
+		assertEquals( 5, manager.getNextCycle(0) );
+		manager.takeSimulationStep(4);
+		assertEquals( 0, created[0] );
+		manager.takeSimulationStep(5);
+		assertEquals( 1, created[0] );
+		assertEquals( 0, sim.getAgents().size() );
+		assertEquals( 10, manager.getNextCycle(5) );
+		manager.takeSimulationStep(10);
+		assertEquals( 1, sim.getAgents().size() );
+		assertEquals( 15, manager.getNextCycle(10) );
+		assertFalse( manager.isFinished() );
+		for ( long cycle = 11; cycle <= 1000; cycle++ ) {
+			manager.takeSimulationStep(cycle);
+			assertTrue( created[0] <= cycle / 10 + 1 );
+		}
+		assertEquals( 100, sim.getAgents().size() );
+		assertTrue( manager.isFinished() );
+	}
+	
+	@Test
+	public void wakeupsReadSourcesAhead() {
+		final RoadSegment start = new RoadSegment( 1, new LinearTrafficDelayFunction(), 2, 5 );
+		graph = new AdasimMap( Arrays.asList( start ) );
+		TrafficSimulator sim = new TrafficSimulator(graph, manager, new ArrayList<AdasimAgent>() );
+		final int[] created = new int[1];
+		manager.addSource( new VehicleSource() {
+			@Override
+			public long nextStartTime() {
+				return created[0] < 20 ? 10 * ( created[0] + 1 ) : Long.MAX_VALUE;
+			}
+			@Override
+			public Vehicle next() {
+				return new Vehicle(start, null, null, created[0]++);
+			}
+		});
+		manager.setLookahead(5);
+		//only step the manager in the cycles it asks for, like the event-driven engine
+		long cycle = 0;
+		while ( ( cycle = manager.getNextCycle(cycle) ) != Long.MAX_VALUE ) {
+			int before = created[0];
+			manager.takeSimulationStep(cycle);
+			for ( int i = before; i < created[0]; i++ ) {
+				assertEquals( 10 * ( i + 1 ) - 5, cycle );
+			}
+		}
+		assertEquals( 20, created[0] );
+		assertEquals( 20, sim.getAgents().size() );
+		assertTrue( manager.isFinished() );
+	}
+	
 	private Map<Long, List<Vehicle>> getQueue( VehicleManager manager ) throws SecurityException, IllegalArgumentException, NoSuchMethodException, IllegalAccessException, InvocationTargetException {
 		return ProtectedAccessor.invoke(manager, "getQueue", new Object[0] );
 	}
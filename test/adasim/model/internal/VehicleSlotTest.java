@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright (c) 2011 - Jochen Wuttke.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ********************************************************************************
+ *
+ * Created: Oct 18, 2026
+ */
+
+package adasim.model.internal;
+
+import java.util.Iterator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import adasim.algorithm.routing.LookaheadShortestPathRoutingAlgorithm;
+import adasim.model.Vehicle;
+import static org.junit.Assert.*;
+
+public class VehicleSlotTest {
+
+	private VehicleSlot slot;
+	private Vehicle[] vehicles;
+
+	@Before
+	public void setUp() {
+		slot = new VehicleSlot();
+		vehicles = new Vehicle[10];
+		for ( int i = 0; i < vehicles.length; i++ ) {
+			vehicles[i] = new Vehicle( null, null, new LookaheadShortestPathRoutingAlgorithm(0), i );
+		}
+	}
+
+	@Test
+	public void keepsInsertionOrder() {
+		for ( int i = vehicles.length - 1; i >= 0; i-- ) {
+			assertTrue( slot.add( vehicles[i] ) );
+		}
+		assertEquals( vehicles.length, slot.size() );
+		for ( int i = 0; i < slot.size(); i++ ) {
+			assertSame( vehicles[vehicles.length - 1 - i], slot.get(i) );
+		}
+	}
+
+	@Test
+	public void addAppends() {
+		assertTrue( slot.add( vehicles[0] ) );
+		assertTrue( slot.add( vehicles[1] ) );
+		assertEquals( 2, slot.size() );
+		assertSame( vehicles[1], slot.get(1) );
+	}
+
+	@Test
+	public void removeKeepsOrder() {
+		for ( Vehicle v : vehicles ) {
+			slot.add(v);
+		}
+		assertTrue( slot.remove( vehicles[3] ) );
+		assertFalse( slot.remove( vehicles[3] ) );
+		assertFalse( slot.contains( vehicles[3] ) );
+		Iterator<Vehicle> it = slot.iterator();
+		for ( int i = 0; i < vehicles.length; i++ ) {
+			if ( i == 3 ) continue;
+			assertSame( vehicles[i], it.next() );
+		}
+		assertFalse( it.hasNext() );
+	}
+
+	@Test
+	public void clearEmptiesSlot() {
+		slot.add( vehicles[0] );
+		slot.add( vehicles[1] );
+		slot.clear();
+		assertTrue( slot.isEmpty() );
+		assertFalse( slot.contains( vehicles[0] ) );
+		assertTrue( slot.add( vehicles[0] ) );
+	}
+
+	@Test(expected=IndexOutOfBoundsException.class)
+	public void getBeyondSize() {
+		slot.add( vehicles[0] );
+		slot.get(1);
+	}
+}
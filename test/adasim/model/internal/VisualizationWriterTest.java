@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright (c) 2011 - Jochen Wuttke.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ ********************************************************************************
+ *
+ * Created: Oct 18, 2026
+ */
+
+
+package adasim.model.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import adasim.algorithm.delay.LinearTrafficDelayFunction;
+import adasim.algorithm.routing.LookaheadShortestPathRoutingAlgorithm;
+import adasim.event.EventSink;
+import adasim.model.AdasimMap;
+import adasim.model.RoadSegment;
+import adasim.model.Vehicle;
+
+import static org.junit.Assert.*;
+
+public class VisualizationWriterTest {
+	
+	private AdasimMap map;
+	
+	@Before
+	public void setUp() {
+		List<RoadSegment> roads = new ArrayList<RoadSegment>();
+		for ( int id : new int[] { 4, 0, 7 } ) {
+			roads.add( new RoadSegment( id, new LinearTrafficDelayFunction(), 1, 1 ) );
+		}
+		map = new AdasimMap( roads );
+		map.addEdge( 4, 7 );
+		map.addEdge( 0, 7 );
+		map.addEdge( 0, 4 );
+	}
+
+	@Test
+	public void writesLinksInMapOrder() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		EventSink sink = new VisualizationWriter( map, out, false );
+		sink.cycleStarted( 0 );
+		sink.close();
+		assertEquals( "var links = [\n" +
+				"{source: \"0\", target: \"4\", type: \"view\"},\n" +
+				"{source: \"0\", target: \"7\", type: \"view\"},\n" +
+				"{source: \"4\", target: \"7\", type: \"view\"}\n" +
+				"];\n", out.toString() );
+	}
+	
+	@Test
+	public void writesEmptyMap() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new VisualizationWriter( new AdasimMap( new ArrayList<RoadSegment>() ), out, true ).close();
+		assertEquals( "var links = [\n];\nvar roads = [];\nvar loads = [\n];\n", out.toString() );
+	}
+	
+	@Test
+	public void writesLoadsPerCycle() throws IOException {
+		RoadSegment r = map.getRoadSegment(7);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		EventSink sink = new VisualizationWriter( map, out, true );
+		sink.cycleStarted( 0 );
+		r.enterNode( new Vehicle( r, null, new LookaheadShortestPathRoutingAlgorithm(0), 1 ) );
+		r.enterNode( new Vehicle( r, null, new LookaheadShortestPathRoutingAlgorithm(0), 2 ) );
+		sink.cycleStarted( 1 );
+		sink.close();
+		assertTrue( out.toString().endsWith( "var roads = [\"0\", \"4\", \"7\"];\n" +
+				"var loads = [\n" +
+				"{cycle: 0, vehicles: [0, 0, 0]},\n" +
+				"{cycle: 1, vehicles: [0, 0, 2]}\n" +
+				"];\n" ) );
+	}
+}
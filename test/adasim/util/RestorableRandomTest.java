@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright (C) 2011 - 2012 Jochen Wuttke
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of
+ * this software and associated documentation files (the "Software"), to deal in
+ * the Software without restriction, including without limitation the rights to
+ * use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ********************************************************************************
+ *
+ * Created: Oct 18, 2026
+ */
+
+package adasim.util;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class RestorableRandomTest {
+
+	@Test
+	public void matchesRandom() {
+		Random expected = new Random( 42 );
+		RestorableRandom random = new RestorableRandom( 42 );
+		for ( int i = 0; i < 100; i++ ) {
+			assertEquals( expected.nextInt(17), random.nextInt(17) );
+			assertEquals( expected.nextLong(), random.nextLong() );
+			assertEquals( expected.nextDouble(), random.nextDouble(), 0 );
+		}
+		expected.setSeed( 7 );
+		random.setSeed( 7 );
+		assertEquals( expected.nextInt(), random.nextInt() );
+	}
+
+	@Test
+	public void restoresState() {
+		RestorableRandom random = new RestorableRandom();
+		random.nextInt();
+		long state = random.getState();
+		double first = random.nextDouble();
+		int second = random.nextInt(1000);
+		RestorableRandom restored = new RestorableRandom( 3 );
+		restored.setState( state );
+		assertEquals( first, restored.nextDouble(), 0 );
+		assertEquals( second, restored.nextInt(1000) );
+		assertEquals( random.getState(), restored.getState() );
+	}
+}